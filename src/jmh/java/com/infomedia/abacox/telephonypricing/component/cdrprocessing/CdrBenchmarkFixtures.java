@@ -0,0 +1,415 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.infomedia.abacox.telephonypricing.component.configmanager.ConfigKey;
+import com.infomedia.abacox.telephonypricing.component.configmanager.ConfigService;
+import com.infomedia.abacox.telephonypricing.component.configmanager.Value;
+import com.infomedia.abacox.telephonypricing.db.entity.CommunicationLocation;
+import com.infomedia.abacox.telephonypricing.db.entity.Employee;
+import com.infomedia.abacox.telephonypricing.db.entity.ExtensionRange;
+import com.infomedia.abacox.telephonypricing.db.entity.Indicator;
+import com.infomedia.abacox.telephonypricing.db.entity.TelephonyTypeConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Shared data and service wiring for the CDR benchmarks.
+ * <p>
+ * The in-memory parts of the pipeline (parser, prefix matching, call type and
+ * tariff logic) are the real classes. Only the leaf services that query the
+ * database are replaced by in-memory subclasses returning fixed values, so the
+ * numbers reflect our own code and not JDBC round trips. Plain subclasses are
+ * used instead of a mocking library because mock dispatch (stack walking,
+ * argument matching) would dominate the measurement.
+ */
+final class CdrBenchmarkFixtures {
+
+    static final long ORIGIN_COUNTRY_ID = 1L;
+    static final long COMM_LOCATION_ID = 10L;
+    static final long ORIGIN_INDICATOR_ID = 100L;
+    static final long PLANT_TYPE_ID = CiscoCm60CdrProcessor.PLANT_TYPE_IDENTIFIERS.get(0);
+    static final long DESTINATION_INDICATOR_ID = 200L;
+    static final BigDecimal BASE_RATE = new BigDecimal("120.00");
+    static final BigDecimal VAT_RATE = new BigDecimal("19");
+
+    static final String CISCO_HEADER_LINE = CiscoCdrGenerator.HEADER_LINE;
+
+    private CdrBenchmarkFixtures() {
+    }
+
+    /**
+     * Builds one outgoing Cisco CDR line from an extension to an external number.
+     */
+    static String ciscoCdrLine(long callId, String extension, String dialedNumber, long originEpoch, int duration) {
+        Map<String, String> values = new HashMap<>();
+        values.put("cdrRecordType", "1");
+        values.put("globalCallID_callManagerId", "1");
+        values.put("globalCallID_callId", String.valueOf(callId));
+        values.put("origLegCallIdentifier", String.valueOf(20000000 + callId));
+        values.put("dateTimeOrigination", String.valueOf(originEpoch));
+        values.put("origIpAddr", "-1062731519");
+        values.put("callingPartyNumber", "\"" + extension + "\"");
+        values.put("callingPartyNumberPartition", "\"PT_INTERNAL\"");
+        values.put("originalCalledPartyNumber", "\"" + dialedNumber + "\"");
+        values.put("finalCalledPartyNumber", "\"" + dialedNumber + "\"");
+        values.put("originalCalledPartyNumberPartition", "\"PT_PSTN\"");
+        values.put("finalCalledPartyNumberPartition", "\"PT_PSTN\"");
+        values.put("dateTimeConnect", String.valueOf(originEpoch + 6));
+        values.put("dateTimeDisconnect", String.valueOf(originEpoch + 6 + duration));
+        values.put("duration", String.valueOf(duration));
+        values.put("origDeviceName", "\"SEP00112233" + extension + "\"");
+        values.put("destDeviceName", "\"GW_PSTN_01\"");
+        values.put("pkid", "\"" + new UUID(callId, callId * 31).toString() + "\"");
+        values.put("destConversationId", "0");
+        values.put("joinOnBehalfOf", "0");
+
+        StringJoiner line = new StringJoiner(",");
+        for (String column : CiscoCdrGenerator.HEADER_COLUMNS) {
+            line.add(values.getOrDefault(column, "0"));
+        }
+        return line.toString();
+    }
+
+    static CommunicationLocation communicationLocation() {
+        Indicator indicator = new Indicator();
+        indicator.setId(ORIGIN_INDICATOR_ID);
+        indicator.setOriginCountryId(ORIGIN_COUNTRY_ID);
+        indicator.setTelephonyTypeId(TelephonyTypeEnum.LOCAL.getValue());
+        indicator.setDepartmentCountry("BOGOTA D.C.");
+        indicator.setCityName("BOGOTA");
+
+        CommunicationLocation commLocation = new CommunicationLocation();
+        commLocation.setId(COMM_LOCATION_ID);
+        commLocation.setDirectory("BENCH");
+        commLocation.setPlantTypeId(PLANT_TYPE_ID);
+        commLocation.setIndicatorId(ORIGIN_INDICATOR_ID);
+        commLocation.setIndicator(indicator);
+        commLocation.setPbxPrefix("");
+        return commLocation;
+    }
+
+    static ExtensionLimits extensionLimits() {
+        ExtensionLimits limits = new ExtensionLimits();
+        limits.updateLengths(4, 5).calculateFinalMinMaxValues();
+        return limits;
+    }
+
+    /**
+     * A synthetic country prefix table: local, national, cellular and
+     * international prefixes of different lengths, sorted by code length
+     * descending as {@link PrefixLookupService} loads them.
+     */
+    static List<PrefixInfo> countryPrefixTable() {
+        List<PrefixInfo> prefixes = new ArrayList<>();
+        long id = 1;
+        prefixes.add(prefix(id++, "", TelephonyTypeEnum.LOCAL, 7, 7));
+        for (int op = 0; op < 8; op++) {
+            prefixes.add(prefix(id++, "0" + (4 + op) + "60", TelephonyTypeEnum.NATIONAL, 10, 10));
+            prefixes.add(prefix(id++, "0" + (4 + op) + "3", TelephonyTypeEnum.CELLULAR, 10, 10));
+            prefixes.add(prefix(id++, "00" + (4 + op), TelephonyTypeEnum.INTERNATIONAL, 8, 15));
+        }
+        for (int code = 300; code < 330; code++) {
+            prefixes.add(prefix(id++, "03" + code, TelephonyTypeEnum.CELLULAR, 10, 10));
+        }
+        for (int code = 1; code < 250; code++) {
+            prefixes.add(prefix(id++, "009" + code, TelephonyTypeEnum.INTERNATIONAL, 8, 15));
+        }
+        prefixes.add(prefix(id, "01800", TelephonyTypeEnum.SPECIAL_SERVICES, 11, 11));
+        prefixes.sort(Comparator.comparingInt((PrefixInfo p) -> p.getPrefixCode().length()).reversed());
+        return prefixes;
+    }
+
+    private static PrefixInfo prefix(long id, String code, TelephonyTypeEnum type, int minLength, int maxLength) {
+        return new PrefixInfo(id, code, type.getValue(), type.getDefaultName(), 1L, "BENCH OPERATOR",
+                minLength, maxLength, false, 0);
+    }
+
+    static CdrConfigService cdrConfigService() {
+        ConfigService configService = new ConfigService(null) {
+            @Override
+            public Value getValue(ConfigKey configKey) {
+                return new Value(configKey.getKey(), configKey.getDefaultValue());
+            }
+        };
+        return new CdrConfigService(configService);
+    }
+
+    static PhoneNumberTransformationService phoneNumberTransformationService() {
+        return new PhoneNumberTransformationService() {
+            @Override
+            public TransformationResult transformIncomingNumberCME(String phoneNumber, Long originCountryId) {
+                return new TransformationResult(phoneNumber, false, null);
+            }
+
+            @Override
+            public TransformationResult transformOutgoingNumberCME(String phoneNumber, Long originCountryId) {
+                return new TransformationResult(phoneNumber, false, null);
+            }
+
+            @Override
+            public TransformationResult transformForPrefixLookup(String phoneNumber, CommunicationLocation commLocation) {
+                return new TransformationResult(phoneNumber, false, null);
+            }
+        };
+    }
+
+    static TelephonyTypeLookupService telephonyTypeLookupService() {
+        return new TelephonyTypeLookupService() {
+            @Override
+            public String getTelephonyTypeName(Long telephonyTypeId) {
+                return TelephonyTypeEnum.fromId(telephonyTypeId).getDefaultName();
+            }
+
+            @Override
+            public PrefixInfo getPrefixInfoForLocalExtended(Long originCountryId) {
+                return null;
+            }
+
+            @Override
+            public OperatorInfo getInternalOperatorInfo(Long telephonyTypeId, Long originCountryId) {
+                return new OperatorInfo(1L, "BENCH OPERATOR");
+            }
+
+            @Override
+            public BigDecimal getVatForPrefix(Long telephonyTypeId, Long operatorId, Long originCountryId) {
+                return VAT_RATE;
+            }
+
+            @Override
+            public Long findPrefixId(Long telephonyTypeId, Long operatorId, Long originCountryId,
+                                     Long destinationIndicatorId) {
+                return null;
+            }
+
+            @Override
+            public Long findBandId(Long prefixId, Long destinationIndicatorId, Long originIndicatorIdForBand) {
+                return null;
+            }
+
+            @Override
+            public TariffValue getBaseTariffValue(Long prefixId, Long destinationIndicatorId,
+                                                  Long commLocationId, Long originIndicatorIdForBand) {
+                return new TariffValue(BASE_RATE, false, VAT_RATE);
+            }
+
+            @Override
+            public TariffValue getInternalTariffValue(Long internalTelephonyTypeId, Long originCountryId) {
+                return new TariffValue(BigDecimal.ZERO, false, BigDecimal.ZERO);
+            }
+
+            @Override
+            public List<IncomingTelephonyTypePriority> getIncomingTelephonyTypePriorities(Long originCountryId) {
+                return List.of(
+                        priority(TelephonyTypeEnum.CELLULAR, 10, 10),
+                        priority(TelephonyTypeEnum.NATIONAL, 10, 10),
+                        priority(TelephonyTypeEnum.LOCAL, 7, 7));
+            }
+
+            @Override
+            public TelephonyTypeConfig getTelephonyTypeConfig(Long telephonyTypeId, Long originCountryId) {
+                TelephonyTypeConfig config = new TelephonyTypeConfig();
+                config.setMinValue(7);
+                config.setMaxValue(15);
+                return config;
+            }
+        };
+    }
+
+    private static IncomingTelephonyTypePriority priority(TelephonyTypeEnum type, int minLength, int maxLength) {
+        return new IncomingTelephonyTypePriority(type.getValue(), type.getDefaultName(),
+                minLength, maxLength, minLength, maxLength, String.format("%02d", minLength));
+    }
+
+    static PrefixLookupService prefixLookupService(PhoneNumberTransformationService transformationService,
+                                                   TelephonyTypeLookupService telephonyTypeLookupService) {
+        PrefixLookupService service = new PrefixLookupService(transformationService, telephonyTypeLookupService);
+        seedPrefixCache(service, countryPrefixTable());
+        return service;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void seedPrefixCache(PrefixLookupService service, List<PrefixInfo> prefixes) {
+        try {
+            Field cacheField = PrefixLookupService.class.getDeclaredField("prefixCache");
+            Field updatedField = PrefixLookupService.class.getDeclaredField("cacheLastUpdated");
+            cacheField.setAccessible(true);
+            updatedField.setAccessible(true);
+            ((Map<Long, List<PrefixInfo>>) cacheField.get(service)).put(ORIGIN_COUNTRY_ID, prefixes);
+            // Far enough in the future that the TTL never expires during a run
+            ((Map<Long, Instant>) updatedField.get(service)).put(ORIGIN_COUNTRY_ID, Instant.now().plusSeconds(86_400));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not seed the prefix cache", e);
+        }
+    }
+
+    static IndicatorLookupService indicatorLookupService() {
+        return new IndicatorLookupService() {
+            @Override
+            public Optional<DestinationInfo> findDestinationIndicator(
+                    String phoneNumberToMatch, Long telephonyTypeId, int minTotalLengthForType,
+                    Long originIndicatorIdForBandContext, Long prefixId, Long originCountryId,
+                    boolean prefixHasAssociatedBands, boolean isOperatorPrefixAlreadyStripped,
+                    String operatorPrefixToStripIfPresent) {
+                if (phoneNumberToMatch == null || phoneNumberToMatch.isEmpty()) {
+                    return Optional.empty();
+                }
+                DestinationInfo info = new DestinationInfo();
+                info.setMatchedPhoneNumber(phoneNumberToMatch);
+                info.setIndicatorId(DESTINATION_INDICATOR_ID);
+                info.setNdc(phoneNumberToMatch.length() > 3 ? phoneNumberToMatch.substring(0, 3) : phoneNumberToMatch);
+                info.setDestinationDescription("MEDELLIN (ANTIOQUIA)");
+                info.setOperatorId(1L);
+                info.setPrefixId(prefixId);
+                return Optional.of(info);
+            }
+
+            @Override
+            public IndicatorConfig getIndicatorConfigForTelephonyType(Long telephonyTypeId, Long originCountryId) {
+                IndicatorConfig config = new IndicatorConfig();
+                config.minNdcLength = 1;
+                config.maxNdcLength = 3;
+                config.seriesNumberLength = 7;
+                return config;
+            }
+
+            @Override
+            public String findLocalNdcForIndicator(Long indicatorId) {
+                return "601";
+            }
+
+            @Override
+            public boolean isLocalExtended(String destinationNdc, Long localOriginIndicatorId, Long destinationIndicatorId) {
+                return false;
+            }
+        };
+    }
+
+    static EmployeeLookupService employeeLookupService(CdrConfigService cdrConfigService, Employee employee) {
+        return new EmployeeLookupService(cdrConfigService) {
+            @Override
+            public Optional<Employee> findEmployeeByExtensionOrAuthCode(String extension, String authCode,
+                    Long commLocationIdContext, List<String> ignoredAuthCodeDescriptions,
+                    Map<Long, List<ExtensionRange>> fallbackExtensionRanges, LocalDateTime callTimestamp,
+                    HistoricalDataContainer historicalData) {
+                return Optional.ofNullable(employee);
+            }
+
+            @Override
+            public Optional<Employee> findEmployeeByExtensionRange(String extension, Long commLocationId,
+                    Map<Long, List<ExtensionRange>> fallbackExtensionRanges, LocalDateTime callTimestamp,
+                    HistoricalDataContainer historicalData) {
+                return Optional.empty();
+            }
+        };
+    }
+
+    /**
+     * Wires the real enrichment graph on top of the in-memory data access layer.
+     * Trunks, trunk rules, special rates, special services and PBX rules are
+     * configured as absent, which is the common case for most records.
+     *
+     * @param employee employee returned for any extension lookup
+     */
+    static CdrEnrichmentService cdrEnrichmentService(Employee employee) {
+        CdrConfigService cdrConfigService = cdrConfigService();
+        PhoneNumberTransformationService transformationService = phoneNumberTransformationService();
+        TelephonyTypeLookupService telephonyTypeLookupService = telephonyTypeLookupService();
+        PrefixLookupService prefixLookupService = prefixLookupService(transformationService, telephonyTypeLookupService);
+        IndicatorLookupService indicatorLookupService = indicatorLookupService();
+        EmployeeLookupService employeeLookupService = employeeLookupService(cdrConfigService, employee);
+
+        TrunkLookupService trunkLookupService = new TrunkLookupService() {
+            @Override
+            public Optional<TrunkInfo> findTrunkByName(String trunkName, Long commLocationId) {
+                return Optional.empty();
+            }
+
+            @Override
+            public Optional<TrunkRateDetails> getRateDetailsForTrunk(Long trunkId, Long telephonyTypeId, Long operatorId) {
+                return Optional.empty();
+            }
+        };
+        SpecialRateValueLookupService specialRateValueLookupService = new SpecialRateValueLookupService() {
+            @Override
+            public Optional<SpecialRateInfo> getApplicableSpecialRate(LocalDateTime callDateTime, Long originIndicatorId,
+                                                                      Long telephonyTypeId, Long operatorId, Long bandId) {
+                return Optional.empty();
+            }
+        };
+        TrunkRuleLookupService trunkRuleLookupService = new TrunkRuleLookupService() {
+            @Override
+            public Optional<AppliedTrunkRuleInfo> getAppliedTrunkRule(String trunkName, Long currentTelephonyTypeId,
+                                                                      Long destinationIndicatorId, Long originIndicatorId) {
+                return Optional.empty();
+            }
+
+            @Override
+            public Optional<Long> findRuleSourceTelephonyTypeId(String trunkName, Long newTelephonyTypeId,
+                                                                Long destinationIndicatorId, Long originIndicatorId) {
+                return Optional.empty();
+            }
+        };
+        OperatorLookupService operatorLookupService = new OperatorLookupService() {
+            @Override
+            public Optional<OperatorInfo> findOperatorById(Long operatorId) {
+                return Optional.of(new OperatorInfo(operatorId, "BENCH OPERATOR"));
+            }
+
+            @Override
+            public Optional<OperatorInfo> findOperatorForIncomingCellularByIndicatorBands(Long destinationIndicatorId) {
+                return Optional.empty();
+            }
+
+            @Override
+            public String findOperatorNameById(Long operatorId) {
+                return "BENCH OPERATOR";
+            }
+        };
+        SpecialServiceLookupService specialServiceLookupService = new SpecialServiceLookupService(telephonyTypeLookupService) {
+            @Override
+            public Optional<SpecialServiceInfo> findSpecialService(String phoneNumber, Long indicatorId, Long originCountryId) {
+                return Optional.empty();
+            }
+        };
+        PbxSpecialRuleLookupService pbxSpecialRuleLookupService = new PbxSpecialRuleLookupService() {
+            @Override
+            public Optional<String> applyPbxSpecialRule(String dialedNumber, String commDirectory, int callDirectionType) {
+                return Optional.empty();
+            }
+        };
+
+        CdrPipelineMetrics pipelineMetrics = new CdrPipelineMetrics(new SimpleMeterRegistry());
+
+        TariffCalculationService tariffCalculationService = new TariffCalculationService(prefixLookupService,
+                indicatorLookupService, trunkLookupService, specialRateValueLookupService, trunkRuleLookupService,
+                cdrConfigService, telephonyTypeLookupService, operatorLookupService, cdrConfigService,
+                specialServiceLookupService, pipelineMetrics);
+        CallOriginDeterminationService callOriginDeterminationService = new CallOriginDeterminationService(
+                prefixLookupService, indicatorLookupService, telephonyTypeLookupService, operatorLookupService);
+        IncomingCallProcessorService incomingCallProcessorService = new IncomingCallProcessorService(
+                pbxSpecialRuleLookupService, transformationService, callOriginDeterminationService,
+                tariffCalculationService, telephonyTypeLookupService);
+        OutgoingCallProcessorService outgoingCallProcessorService = new OutgoingCallProcessorService(
+                specialServiceLookupService, pbxSpecialRuleLookupService, tariffCalculationService,
+                transformationService);
+        InternalCallProcessorService internalCallProcessorService = new InternalCallProcessorService(
+                employeeLookupService, tariffCalculationService, cdrConfigService, telephonyTypeLookupService,
+                prefixLookupService);
+        CallTypeAndDirectionService callTypeAndDirectionService = new CallTypeAndDirectionService(
+                incomingCallProcessorService, outgoingCallProcessorService, internalCallProcessorService,
+                employeeLookupService, pbxSpecialRuleLookupService);
+
+        return new CdrEnrichmentService(callTypeAndDirectionService, employeeLookupService, cdrConfigService,
+                telephonyTypeLookupService);
+    }
+
+    static CiscoCm60CdrProcessor ciscoProcessor() {
+        CiscoCm60CdrProcessor processor = new CiscoCm60CdrProcessor(cdrConfigService());
+        processor.initDefaultHeaderMappings();
+        return processor;
+    }
+}
@@ -0,0 +1,71 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.infomedia.abacox.telephonypricing.db.entity.CommunicationLocation;
+import com.infomedia.abacox.telephonypricing.db.entity.Employee;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full per-record path: Cisco parsing followed by enrichment (call type,
+ * prefix and destination resolution, tariffing, employee assignment), with the
+ * database-backed lookups stubbed in memory.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CdrEnrichmentBenchmark {
+
+    private static final int LINE_COUNT = 256;
+
+    private CdrEnrichmentService enrichmentService;
+    private CiscoCm60CdrProcessor processor;
+    private Map<String, Integer> headerPositions;
+    private LineProcessingContext context;
+    private String[] lines;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Employee employee = new Employee();
+        employee.setId(1L);
+        employee.setName("BENCH EMPLOYEE");
+        employee.setExtension("4100");
+        employee.setCommunicationLocationId(CdrBenchmarkFixtures.COMM_LOCATION_ID);
+
+        enrichmentService = CdrBenchmarkFixtures.cdrEnrichmentService(employee);
+        processor = CdrBenchmarkFixtures.ciscoProcessor();
+        headerPositions = processor.parseHeader(CdrBenchmarkFixtures.CISCO_HEADER_LINE);
+
+        CommunicationLocation commLocation = CdrBenchmarkFixtures.communicationLocation();
+        context = LineProcessingContext.builder()
+                .commLocation(commLocation)
+                .cdrProcessor(processor)
+                .extensionRanges(Map.of(commLocation.getId(), List.of()))
+                .extensionLimits(Map.of(commLocation.getId(), CdrBenchmarkFixtures.extensionLimits()))
+                .historicalData(new HistoricalDataContainer())
+                .headerPositions(headerPositions)
+                .build();
+
+        String[] dialed = {"0560412345678", "0431512345678", "0091305551234", "6012345"};
+        lines = new String[LINE_COUNT];
+        for (int i = 0; i < LINE_COUNT; i++) {
+            lines[i] = CdrBenchmarkFixtures.ciscoCdrLine(50_000 + i, String.valueOf(4100 + i % 50),
+                    dialed[i % dialed.length], 1_700_000_000L + i * 60L, 45 + i % 300);
+        }
+    }
+
+    @Benchmark
+    public CdrData parseAndEnrich() {
+        String line = lines[cursor];
+        cursor = (cursor + 1) & (LINE_COUNT - 1);
+        CdrData cdrData = processor.evaluateFormat(line, context.getCommLocation(),
+                context.getCommLocationExtensionLimits(), headerPositions);
+        return enrichmentService.enrichCdr(cdrData, context);
+    }
+}
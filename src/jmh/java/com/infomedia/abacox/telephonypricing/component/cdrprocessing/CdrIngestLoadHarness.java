@@ -0,0 +1,254 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.infomedia.abacox.telephonypricing.Application;
+import com.infomedia.abacox.telephonypricing.db.entity.FileInfo;
+import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
+import com.infomedia.abacox.telephonypricing.service.MinioStorageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end ingest load run against a local Postgres and MinIO.
+ * <p>
+ * Boots the full application, generates Cisco CDR files with
+ * {@link CiscoCdrGenerator}, stores them through
+ * {@link FileInfoPersistenceService#createOrGetFileInfo} (block-gzip upload plus
+ * line index) and runs them through {@link CdrRoutingService#processFileInfo} on
+ * the regular CDR executor, waiting until every batch has been persisted. It then
+ * reports end-to-end lines/sec, p99 batch persist latency and database
+ * statements per line, and exits non-zero if any configured threshold is missed,
+ * so it can be used as a throughput regression gate.
+ * <p>
+ * The target tenant must already exist with a Cisco communication location
+ * (plant type 26 by default) covering the generated extension range; a restore
+ * of a staging tenant is the intended setup. Example:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec@ingest-load -Dload.args="--load.tenant=acme --load.files=4 --load.lines=50000
+ *     --spring.datasource.url=jdbc:postgresql://localhost:5432/abacox_load --minio.url=http://localhost:9000"
+ * </pre>
+ */
+@Log4j2
+public class CdrIngestLoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .properties(
+                        "server.port=0",
+                        "app.cdr.folder.enabled=false",
+                        "spring.jpa.properties.hibernate.generate_statistics=true",
+                        "management.metrics.distribution.percentiles.cdr.pipeline.stage=0.5,0.99")
+                .initializers(ctx -> ctx.addBeanFactoryPostProcessor(new DisablePendingFileWorker()))
+                .run(args);
+
+        int exitCode;
+        try {
+            exitCode = new CdrIngestLoadHarness(context).run();
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * The scheduled worker would pick up the harness files on its own and race
+     * with the timed run, so it is removed from the context.
+     */
+    private static class DisablePendingFileWorker implements BeanDefinitionRegistryPostProcessor {
+        @Override
+        public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+            if (registry.containsBeanDefinition("cdrFileProcessorWorker")) {
+                registry.removeBeanDefinition("cdrFileProcessorWorker");
+            }
+        }
+    }
+
+    private final ConfigurableApplicationContext context;
+    private final Environment env;
+
+    private CdrIngestLoadHarness(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.env = context.getEnvironment();
+    }
+
+    private int run() throws Exception {
+        String tenant = env.getRequiredProperty("load.tenant");
+        int fileCount = env.getProperty("load.files", Integer.class, 1);
+        int linesPerFile = env.getProperty("load.lines", Integer.class, 50_000);
+        long seed = env.getProperty("load.seed", Long.class, 42L);
+        long plantTypeId = env.getProperty("load.plant-type-id", Long.class, CiscoCm60CdrProcessor.PLANT_TYPE_IDENTIFIERS.get(0));
+        long timeoutMinutes = env.getProperty("load.timeout-minutes", Long.class, 30L);
+
+        if (!context.getBean(MinioStorageService.class).isReady()) {
+            throw new IllegalStateException("MinIO is not reachable; check minio.url");
+        }
+
+        FileInfoPersistenceService fileInfoService = context.getBean(FileInfoPersistenceService.class);
+        CdrProcessingExecutor executor = context.getBean(CdrProcessingExecutor.class);
+        FileProcessingTrackerService tracker = context.getBean(FileProcessingTrackerService.class);
+        PersistenceQueueService persistenceQueue = context.getBean(PersistenceQueueService.class);
+        Statistics statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+        TenantContext.setTenant(tenant);
+        try {
+            // 1. Generate and store the files. Upload time is not part of the measurement.
+            Path workDir = Files.createTempDirectory("cdr-load-");
+            List<Long> fileInfoIds = new ArrayList<>();
+            List<Long> reused = new ArrayList<>();
+            for (int f = 0; f < fileCount; f++) {
+                CiscoCdrGenerator.Options options = CiscoCdrGenerator.Options.builder()
+                        .seed(seed + f)
+                        .lines(linesPerFile)
+                        .firstExtension(env.getProperty("load.first-extension", Integer.class, 1000))
+                        .extensionCount(env.getProperty("load.extensions", Integer.class, 500))
+                        .duplicateRate(env.getProperty("load.duplicate-rate", Double.class, 0.01))
+                        .pbxPrefix(env.getProperty("load.pbx-prefix", ""))
+                        .build();
+                File file = new CiscoCdrGenerator(options)
+                        .writeFile(workDir.resolve("cdr_load_" + (seed + f) + ".csv")).toFile();
+                FileInfoPersistenceService.FileInfoCreationResult created =
+                        fileInfoService.createOrGetFileInfo(file.getName(), plantTypeId, file);
+                fileInfoIds.add(created.getFileInfo().getId());
+                if (!created.isNew()) {
+                    // Same seed as an earlier run: clean up its records so the work is identical
+                    reused.add(created.getFileInfo().getId());
+                }
+                Files.deleteIfExists(file.toPath());
+            }
+            Files.deleteIfExists(workDir);
+            log.info("Load harness: {} files x {} lines ready for tenant {} ({} reused from an earlier run)",
+                    fileCount, linesPerFile, tenant, reused.size());
+
+            // 2. Timed run
+            statistics.clear();
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (Long fileInfoId : fileInfoIds) {
+                futures.add(executor.submitFileReprocessing(fileInfoId, reused.contains(fileInfoId)));
+            }
+            long deadline = start + TimeUnit.MINUTES.toNanos(timeoutMinutes);
+            for (Future<?> future : futures) {
+                future.get(Math.max(1, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            while (tracker.getInFlightCount() > 0 || persistenceQueue.size() > 0) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Load run did not finish within " + timeoutMinutes + " minutes");
+                }
+                Thread.sleep(50);
+            }
+            long elapsedNanos = System.nanoTime() - start;
+
+            // 3. Report
+            return report(tenant, fileInfoIds, (long) fileCount * linesPerFile, elapsedNanos, statistics);
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    private int report(String tenant, List<Long> fileInfoIds, long lines, long elapsedNanos,
+                       Statistics statistics) throws Exception {
+        FileInfoPersistenceService fileInfoService = context.getBean(FileInfoPersistenceService.class);
+        MeterRegistry registry = context.getBean(MeterRegistry.class);
+
+        Map<String, Long> statusCounts = new TreeMap<>();
+        for (Long id : fileInfoIds) {
+            FileInfo fileInfo = fileInfoService.findById(id);
+            String status = fileInfo != null ? String.valueOf(fileInfo.getProcessingStatus()) : "MISSING";
+            statusCounts.merge(status, 1L, Long::sum);
+        }
+
+        double seconds = elapsedNanos / 1e9;
+        double linesPerSecond = lines / seconds;
+        double persistP99Ms = stageP99Millis(registry, tenant, CdrPipelineMetrics.Stage.PERSIST);
+        double flushP99Ms = stageP99Millis(registry, tenant, CdrPipelineMetrics.Stage.FLUSH);
+        long statements = statistics.getPrepareStatementCount();
+        double statementsPerLine = (double) statements / lines;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("tenant", tenant);
+        result.put("files", fileInfoIds.size());
+        result.put("lines", lines);
+        result.put("elapsedSeconds", round(seconds));
+        result.put("linesPerSecond", round(linesPerSecond));
+        result.put("persistBatchP99Ms", round(persistP99Ms));
+        result.put("flushBatchP99Ms", round(flushP99Ms));
+        result.put("statements", statements);
+        result.put("statementsPerLine", round(statementsPerLine));
+        result.put("transactions", statistics.getTransactionCount());
+        result.put("fileStatus", statusCounts);
+        result.put("records", recordCounts(registry, tenant));
+
+        List<String> failures = new ArrayList<>();
+        Double minLinesPerSecond = env.getProperty("load.min-lines-per-second", Double.class);
+        Double maxP99Ms = env.getProperty("load.max-p99-batch-ms", Double.class);
+        Double maxStatementsPerLine = env.getProperty("load.max-statements-per-line", Double.class);
+        if (minLinesPerSecond != null && linesPerSecond < minLinesPerSecond) {
+            failures.add("lines/sec " + round(linesPerSecond) + " < " + minLinesPerSecond);
+        }
+        if (maxP99Ms != null && persistP99Ms > maxP99Ms) {
+            failures.add("p99 batch " + round(persistP99Ms) + "ms > " + maxP99Ms + "ms");
+        }
+        if (maxStatementsPerLine != null && statementsPerLine > maxStatementsPerLine) {
+            failures.add("statements/line " + round(statementsPerLine) + " > " + maxStatementsPerLine);
+        }
+        result.put("thresholdFailures", failures);
+
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+        String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(result);
+        Path resultFile = Path.of(env.getProperty("load.result-file", "target/ingest-load-result.json"));
+        if (resultFile.getParent() != null) {
+            Files.createDirectories(resultFile.getParent());
+        }
+        Files.writeString(resultFile, json);
+        log.info("Load harness result written to {}:\n{}", resultFile.toAbsolutePath(), json);
+
+        if (!failures.isEmpty()) {
+            log.error("Load harness thresholds missed: {}", failures);
+            return 2;
+        }
+        return 0;
+    }
+
+    private static double stageP99Millis(MeterRegistry registry, String tenant, CdrPipelineMetrics.Stage stage) {
+        double p99 = 0;
+        for (Timer timer : registry.find("cdr.pipeline.stage")
+                .tag("stage", stage.name().toLowerCase())
+                .tag("tenant", tenant)
+                .timers()) {
+            for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                if (percentile.percentile() == 0.99) {
+                    p99 = Math.max(p99, percentile.value(TimeUnit.MILLISECONDS));
+                }
+            }
+        }
+        return p99;
+    }
+
+    private static Map<String, Double> recordCounts(MeterRegistry registry, String tenant) {
+        Map<String, Double> counts = new TreeMap<>();
+        registry.find("cdr.pipeline.records").tag("tenant", tenant).counters()
+                .forEach(c -> counts.merge(c.getId().getTag("outcome"), c.count(), Double::sum));
+        return counts;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
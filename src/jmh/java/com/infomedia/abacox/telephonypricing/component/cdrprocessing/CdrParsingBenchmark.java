@@ -0,0 +1,73 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.infomedia.abacox.telephonypricing.component.utils.XXHash128Util;
+import com.infomedia.abacox.telephonypricing.db.entity.CommunicationLocation;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-line parsing cost: CSV split, Cisco field extraction and the line hash
+ * used for {@code ctl_hash}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CdrParsingBenchmark {
+
+    private static final int LINE_COUNT = 1024;
+
+    private String[] lines;
+    private byte[][] lineBytes;
+    private CiscoCm60CdrProcessor processor;
+    private Map<String, Integer> headerPositions;
+    private CommunicationLocation commLocation;
+    private ExtensionLimits extensionLimits;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        processor = CdrBenchmarkFixtures.ciscoProcessor();
+        headerPositions = processor.parseHeader(CdrBenchmarkFixtures.CISCO_HEADER_LINE);
+        commLocation = CdrBenchmarkFixtures.communicationLocation();
+        extensionLimits = CdrBenchmarkFixtures.extensionLimits();
+
+        lines = new String[LINE_COUNT];
+        lineBytes = new byte[LINE_COUNT][];
+        long epoch = 1_700_000_000L;
+        for (int i = 0; i < LINE_COUNT; i++) {
+            String extension = String.valueOf(4000 + i % 300);
+            String dialed = "60" + (1 + i % 8) + String.format("%07d", 1_000_000 + i * 37);
+            lines[i] = CdrBenchmarkFixtures.ciscoCdrLine(10_000 + i, extension, dialed, epoch + i * 45L, 30 + i % 600);
+            lineBytes[i] = lines[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (i + 1) & (LINE_COUNT - 1);
+        return i;
+    }
+
+    @Benchmark
+    public List<String> parseCsvLine() {
+        return CdrUtil.parseCsvLine(lines[next()], ",");
+    }
+
+    @Benchmark
+    public CdrData evaluateFormat() {
+        return processor.evaluateFormat(lines[next()], commLocation, extensionLimits, headerPositions);
+    }
+
+    @Benchmark
+    public UUID hashLine() {
+        return XXHash128Util.hash(lineBytes[next()]);
+    }
+}
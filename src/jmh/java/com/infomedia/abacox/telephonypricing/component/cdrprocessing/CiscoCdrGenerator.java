@@ -0,0 +1,384 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Synthetic Cisco CallManager 6.x CDR file generator for load and capacity
+ * tests.
+ * <p>
+ * Files use the same column set {@link CiscoCm60CdrProcessor#parseHeader}
+ * reads, including the {@code INTEGER/VARCHAR} type line CUCM writes after the
+ * header. The call mix, extension distribution and duplicate rate are
+ * configurable, and output is fully determined by the seed so runs can be
+ * compared against each other.
+ * <p>
+ * Standalone use:
+ * {@code java ... CiscoCdrGenerator out=/tmp/cdr files=4 lines=100000 seed=42}
+ */
+public class CiscoCdrGenerator {
+
+    /**
+     * Column list of a Cisco CallManager 6.x CDR export, in file order.
+     */
+    public static final List<String> HEADER_COLUMNS = List.of(
+            "cdrRecordType", "globalCallID_callManagerId", "globalCallID_callId", "origLegCallIdentifier",
+            "dateTimeOrigination", "origNodeId", "origSpan", "origIpAddr", "callingPartyNumber",
+            "callingPartyUnicodeLoginUserID", "origCause_location", "origCause_value", "origPrecedenceLevel",
+            "origMediaTransportAddress_IP", "origMediaTransportAddress_Port", "origMediaCap_payloadCapability",
+            "origMediaCap_maxFramesPerPacket", "origMediaCap_g723BitRate", "origVideoCap_Codec",
+            "origVideoCap_Bandwidth", "origVideoCap_Resolution", "origVideoTransportAddress_IP",
+            "origVideoTransportAddress_Port", "origRSVPAudioStat", "origRSVPVideoStat", "destLegIdentifier",
+            "destNodeId", "destSpan", "destIpAddr", "originalCalledPartyNumber", "finalCalledPartyNumber",
+            "finalCalledPartyUnicodeLoginUserID", "destCause_location", "destCause_value", "destPrecedenceLevel",
+            "destMediaTransportAddress_IP", "destMediaTransportAddress_Port", "destMediaCap_payloadCapability",
+            "destMediaCap_maxFramesPerPacket", "destMediaCap_g723BitRate", "destVideoCap_Codec",
+            "destVideoCap_Bandwidth", "destVideoCap_Resolution", "destVideoTransportAddress_IP",
+            "destVideoTransportAddress_Port", "destRSVPAudioStat", "destRSVPVideoStat", "dateTimeConnect",
+            "dateTimeDisconnect", "lastRedirectDn", "pkid", "originalCalledPartyNumberPartition",
+            "callingPartyNumberPartition", "finalCalledPartyNumberPartition", "lastRedirectDnPartition",
+            "duration", "origDeviceName", "destDeviceName", "origCallTerminationOnBehalfOf",
+            "destCallTerminationOnBehalfOf", "origCalledPartyRedirectOnBehalfOf", "lastRedirectRedirectOnBehalfOf",
+            "origCalledPartyRedirectReason", "lastRedirectRedirectReason", "destConversationId",
+            "globalCallId_ClusterID", "joinOnBehalfOf", "comment", "authCodeDescription", "authorizationLevel",
+            "clientMatterCode", "origDTMFMethod", "destDTMFMethod", "callSecuredStatus", "origConversationId",
+            "origMediaCap_Bandwidth", "destMediaCap_Bandwidth", "authorizationCodeValue",
+            "outpulsedCallingPartyNumber", "outpulsedCalledPartyNumber", "origIpv4v6Addr", "destIpv4v6Addr",
+            "origVideoCap_Codec_Channel2", "origVideoCap_Bandwidth_Channel2", "origVideoCap_Resolution_Channel2",
+            "origVideoTransportAddress_IP_Channel2", "origVideoTransportAddress_Port_Channel2",
+            "origVideoChannel_Role_Channel2", "destVideoCap_Codec_Channel2", "destVideoCap_Bandwidth_Channel2",
+            "destVideoCap_Resolution_Channel2", "destVideoTransportAddress_IP_Channel2",
+            "destVideoTransportAddress_Port_Channel2", "destVideoChannel_Role_Channel2", "incomingProtocolID",
+            "incomingProtocolCallRef", "outgoingProtocolID", "outgoingProtocolCallRef",
+            "currentRoutingReason", "origRoutingReason", "lastRedirectingRoutingReason", "huntPilotPartition",
+            "huntPilotDN", "calledPartyPatternUsage", "IncomingICID", "IncomingOrigIOI", "IncomingTermIOI",
+            "OutgoingICID", "OutgoingOrigIOI", "OutgoingTermIOI", "outpulsedOriginalCalledPartyNumber",
+            "outpulsedLastRedirectingNumber", "wasCallQueued", "totalWaitTimeInQueue", "callingPartyNumber_uri",
+            "originalCalledPartyNumber_uri", "finalCalledPartyNumber_uri", "lastRedirectDn_uri",
+            "mobileCallingPartyNumber", "finalMobileCalledPartyNumber", "origMobileDeviceName",
+            "destMobileDeviceName", "origMobileCallDuration", "destMobileCallDuration", "mobileCallType",
+            "originalCalledPartyPattern", "finalCalledPartyPattern", "lastRedirectingPartyPattern",
+            "huntPilotPattern");
+
+    public static final String HEADER_LINE = String.join(",",
+            HEADER_COLUMNS.stream().map(c -> "\"" + c + "\"").toList());
+
+    // Columns CUCM declares as strings; everything else is numeric
+    private static final Set<String> STRING_COLUMNS = Set.of(
+            "callingPartyNumber", "callingPartyUnicodeLoginUserID", "originalCalledPartyNumber",
+            "finalCalledPartyNumber", "finalCalledPartyUnicodeLoginUserID", "lastRedirectDn", "pkid",
+            "originalCalledPartyNumberPartition", "callingPartyNumberPartition", "finalCalledPartyNumberPartition",
+            "lastRedirectDnPartition", "origDeviceName", "destDeviceName", "comment", "authCodeDescription",
+            "clientMatterCode", "authorizationCodeValue", "outpulsedCallingPartyNumber", "outpulsedCalledPartyNumber",
+            "origIpv4v6Addr", "destIpv4v6Addr", "origVideoCap_Resolution", "destVideoCap_Resolution",
+            "huntPilotPartition", "huntPilotDN", "mobileCallingPartyNumber", "finalMobileCalledPartyNumber",
+            "origMobileDeviceName", "destMobileDeviceName", "originalCalledPartyPattern", "finalCalledPartyPattern",
+            "lastRedirectingPartyPattern", "huntPilotPattern", "callingPartyNumber_uri",
+            "originalCalledPartyNumber_uri", "finalCalledPartyNumber_uri", "lastRedirectDn_uri",
+            "outpulsedOriginalCalledPartyNumber", "outpulsedLastRedirectingNumber", "IncomingICID",
+            "IncomingOrigIOI", "IncomingTermIOI", "OutgoingICID", "OutgoingOrigIOI", "OutgoingTermIOI");
+
+    public static final String TYPE_LINE = String.join(",", HEADER_COLUMNS.stream()
+            .map(c -> STRING_COLUMNS.contains(c) ? "VARCHAR(50)" : "INTEGER").toList());
+
+    private static final String INTERNAL_PARTITION = "PT_INTERNAL";
+    private static final String PSTN_PARTITION = "PT_PSTN";
+    private static final String GATEWAY_DEVICE = "GW_PSTN_01";
+
+    // Cisco onBehalfOf / redirect codes used by the processor
+    private static final int REDIRECT_REASON_TRANSFER = 10;
+    private static final int ON_BEHALF_OF_CONFERENCE_NOW = 7;
+
+    public enum CallKind {
+        OUTGOING, INCOMING, INTERNAL, TRANSFER, CONFERENCE
+    }
+
+    @Getter
+    @Builder
+    public static class Options {
+        @Builder.Default
+        private long seed = 42L;
+        @Builder.Default
+        private int lines = 10_000;
+        /**
+         * Extensions are drawn from {@code [firstExtension, firstExtension + extensionCount)}.
+         */
+        @Builder.Default
+        private int firstExtension = 1000;
+        @Builder.Default
+        private int extensionCount = 500;
+        /**
+         * 1.0 draws extensions uniformly; higher values concentrate traffic on a
+         * few heavy users (the low end of the range), as real PBXs do.
+         */
+        @Builder.Default
+        private double extensionSkew = 1.5;
+        /**
+         * Relative weights of each call kind.
+         */
+        @Builder.Default
+        private Map<CallKind, Integer> mix = Map.of(
+                CallKind.OUTGOING, 55,
+                CallKind.INCOMING, 25,
+                CallKind.INTERNAL, 12,
+                CallKind.TRANSFER, 5,
+                CallKind.CONFERENCE, 3);
+        /**
+         * Fraction of lines that repeat an earlier line verbatim (same hash).
+         */
+        @Builder.Default
+        private double duplicateRate = 0.01;
+        /**
+         * Fraction of calls that were never answered (zero duration).
+         */
+        @Builder.Default
+        private double unansweredRate = 0.12;
+        @Builder.Default
+        private int meanDurationSeconds = 150;
+        /**
+         * Epoch second of the first call; calls are spread forward from here.
+         */
+        @Builder.Default
+        private long startEpochSecond = 1_717_200_000L;
+        @Builder.Default
+        private int meanSecondsBetweenCalls = 3;
+        @Builder.Default
+        private String pbxPrefix = "";
+    }
+
+    private final Options options;
+    private final Random random;
+    private final CallKind[] kindTable;
+    private final String[] recentLines = new String[1024];
+    private int recentCount;
+    private long callId;
+    private long epoch;
+    private int conferenceBridge = 1000;
+
+    public CiscoCdrGenerator(Options options) {
+        this.options = options;
+        this.random = new Random(options.getSeed());
+        this.callId = 1_000_000L + (options.getSeed() & 0xFFFF) * 100_000L;
+        this.epoch = options.getStartEpochSecond();
+
+        List<CallKind> table = new ArrayList<>();
+        for (CallKind kind : CallKind.values()) {
+            int weight = options.getMix().getOrDefault(kind, 0);
+            for (int i = 0; i < weight; i++) {
+                table.add(kind);
+            }
+        }
+        if (table.isEmpty()) {
+            throw new IllegalArgumentException("Call mix must have at least one positive weight");
+        }
+        this.kindTable = table.toArray(new CallKind[0]);
+    }
+
+    /**
+     * Writes a complete file: header, type line and {@code lines} CDR records.
+     */
+    public void write(Writer writer) throws IOException {
+        writer.write(HEADER_LINE);
+        writer.write('\n');
+        writer.write(TYPE_LINE);
+        writer.write('\n');
+        for (int i = 0; i < options.getLines(); i++) {
+            writer.write(nextLine());
+            writer.write('\n');
+        }
+    }
+
+    public Path writeFile(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(writer);
+        }
+        return file;
+    }
+
+    /**
+     * Produces the next CDR record line.
+     */
+    public String nextLine() {
+        if (recentCount > 0 && random.nextDouble() < options.getDuplicateRate()) {
+            return recentLines[random.nextInt(Math.min(recentCount, recentLines.length))];
+        }
+        String line = newRecord(kindTable[random.nextInt(kindTable.length)]);
+        recentLines[recentCount++ % recentLines.length] = line;
+        return line;
+    }
+
+    private String newRecord(CallKind kind) {
+        Map<String, String> values = new HashMap<>();
+        long id = ++callId;
+        epoch += random.nextInt(options.getMeanSecondsBetweenCalls() * 2 + 1);
+
+        boolean answered = random.nextDouble() >= options.getUnansweredRate();
+        int duration = answered ? (int) Math.min(7200, -Math.log(1 - random.nextDouble()) * options.getMeanDurationSeconds()) : 0;
+        int ringing = 2 + random.nextInt(18);
+
+        values.put("cdrRecordType", "1");
+        values.put("globalCallID_callManagerId", "1");
+        values.put("globalCallID_callId", String.valueOf(id));
+        values.put("origLegCallIdentifier", String.valueOf(id * 2));
+        values.put("destLegIdentifier", String.valueOf(id * 2 + 1));
+        values.put("dateTimeOrigination", String.valueOf(epoch));
+        values.put("dateTimeConnect", answered ? String.valueOf(epoch + ringing) : "0");
+        values.put("dateTimeDisconnect", String.valueOf(epoch + ringing + duration));
+        values.put("duration", String.valueOf(duration));
+        values.put("destCause_value", answered ? "16" : "19");
+        values.put("pkid", quote(new UUID(options.getSeed(), id).toString()));
+        values.put("globalCallId_ClusterID", quote("StandAloneCluster"));
+
+        String extension = extension();
+        switch (kind) {
+            case OUTGOING -> {
+                String dialed = options.getPbxPrefix() + externalNumber();
+                party(values, "callingPartyNumber", extension, INTERNAL_PARTITION);
+                party(values, "originalCalledPartyNumber", dialed, PSTN_PARTITION);
+                party(values, "finalCalledPartyNumber", dialed, PSTN_PARTITION);
+                values.put("origDeviceName", quote(phoneDevice(extension)));
+                values.put("destDeviceName", quote(GATEWAY_DEVICE));
+            }
+            case INCOMING -> {
+                party(values, "callingPartyNumber", externalCaller(), "");
+                party(values, "originalCalledPartyNumber", extension, INTERNAL_PARTITION);
+                party(values, "finalCalledPartyNumber", extension, INTERNAL_PARTITION);
+                values.put("origDeviceName", quote(GATEWAY_DEVICE));
+                values.put("destDeviceName", quote(phoneDevice(extension)));
+            }
+            case INTERNAL -> {
+                String target = otherExtension(extension);
+                party(values, "callingPartyNumber", extension, INTERNAL_PARTITION);
+                party(values, "originalCalledPartyNumber", target, INTERNAL_PARTITION);
+                party(values, "finalCalledPartyNumber", target, INTERNAL_PARTITION);
+                values.put("origDeviceName", quote(phoneDevice(extension)));
+                values.put("destDeviceName", quote(phoneDevice(target)));
+            }
+            case TRANSFER -> {
+                // An external caller reaches one extension and is transferred to another
+                String transferredTo = otherExtension(extension);
+                party(values, "callingPartyNumber", externalCaller(), "");
+                party(values, "originalCalledPartyNumber", extension, INTERNAL_PARTITION);
+                party(values, "finalCalledPartyNumber", transferredTo, INTERNAL_PARTITION);
+                party(values, "lastRedirectDn", extension, INTERNAL_PARTITION);
+                values.put("lastRedirectRedirectOnBehalfOf", String.valueOf(REDIRECT_REASON_TRANSFER));
+                values.put("lastRedirectRedirectReason", String.valueOf(REDIRECT_REASON_TRANSFER));
+                values.put("origDeviceName", quote(GATEWAY_DEVICE));
+                values.put("destDeviceName", quote(phoneDevice(transferredTo)));
+            }
+            case CONFERENCE -> {
+                // One leg per participant joined to a bridge; the controller is the last redirect
+                String bridge = "b" + String.format("%08d", conferenceBridge++);
+                String participant = random.nextBoolean() ? otherExtension(extension) : externalNumber();
+                String participantPartition = participant.length() > 5 ? PSTN_PARTITION : INTERNAL_PARTITION;
+                party(values, "callingPartyNumber", participant, participantPartition);
+                party(values, "originalCalledPartyNumber", bridge, "");
+                party(values, "finalCalledPartyNumber", bridge, "");
+                party(values, "lastRedirectDn", extension, INTERNAL_PARTITION);
+                values.put("joinOnBehalfOf", random.nextInt(4) == 0 ? String.valueOf(ON_BEHALF_OF_CONFERENCE_NOW) : "4");
+                values.put("origDeviceName", quote(phoneDevice(participant)));
+                values.put("destDeviceName", quote("CFB_2"));
+            }
+        }
+
+        StringBuilder line = new StringBuilder(1024);
+        for (int i = 0; i < HEADER_COLUMNS.size(); i++) {
+            if (i > 0) line.append(',');
+            String column = HEADER_COLUMNS.get(i);
+            String value = values.get(column);
+            if (value != null) {
+                line.append(value);
+            } else if (STRING_COLUMNS.contains(column)) {
+                line.append("\"\"");
+            } else {
+                line.append('0');
+            }
+        }
+        return line.toString();
+    }
+
+    private static void party(Map<String, String> values, String numberColumn, String number, String partition) {
+        values.put(numberColumn, quote(number));
+        values.put(numberColumn + "Partition", quote(partition));
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+
+    private static String phoneDevice(String extension) {
+        return "SEP0011223" + extension;
+    }
+
+    private String extension() {
+        double u = Math.pow(random.nextDouble(), options.getExtensionSkew());
+        return String.valueOf(options.getFirstExtension() + (int) (u * options.getExtensionCount()));
+    }
+
+    private String otherExtension(String extension) {
+        String other = extension();
+        return other.equals(extension) ? String.valueOf(Integer.parseInt(extension) + 1) : other;
+    }
+
+    /**
+     * Dialed external number: local, national (operator + 60X), cellular or
+     * international, roughly in the proportions seen in production.
+     */
+    private String externalNumber() {
+        int pick = random.nextInt(100);
+        if (pick < 35) {
+            return (2 + random.nextInt(7)) + digits(6);
+        } else if (pick < 55) {
+            int[] operators = {4, 5, 7};
+            return "0" + operators[random.nextInt(operators.length)] + "60" + (1 + random.nextInt(8)) + digits(7);
+        } else if (pick < 92) {
+            return "3" + random.nextInt(3) + random.nextInt(10) + digits(7);
+        }
+        int[] countries = {1, 34, 52, 56, 57, 593};
+        return "009" + countries[random.nextInt(countries.length)] + digits(8);
+    }
+
+    private String externalCaller() {
+        return random.nextBoolean() ? "3" + random.nextInt(3) + random.nextInt(10) + digits(7)
+                : "60" + (1 + random.nextInt(8)) + digits(7);
+    }
+
+    private String digits(int count) {
+        char[] chars = new char[count];
+        for (int i = 0; i < count; i++) {
+            chars[i] = (char) ('0' + random.nextInt(10));
+        }
+        return new String(chars);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) params.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        Path outDir = Path.of(params.getOrDefault("out", "target/generated-cdr"));
+        int files = Integer.parseInt(params.getOrDefault("files", "1"));
+        long seed = Long.parseLong(params.getOrDefault("seed", "42"));
+        Files.createDirectories(outDir);
+
+        for (int f = 0; f < files; f++) {
+            Options options = Options.builder()
+                    .seed(seed + f)
+                    .lines(Integer.parseInt(params.getOrDefault("lines", "10000")))
+                    .extensionCount(Integer.parseInt(params.getOrDefault("extensions", "500")))
+                    .duplicateRate(Double.parseDouble(params.getOrDefault("duplicates", "0.01")))
+                    .build();
+            Path file = new CiscoCdrGenerator(options).writeFile(outDir.resolve("cdr_synthetic_" + (seed + f) + ".csv"));
+            System.out.println("Wrote " + options.getLines() + " records to " + file);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.infomedia.abacox.telephonypricing.db.entity.Employee;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving the employee that owned an extension at call time, for timelines
+ * with a varying number of historical assignments.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoricalTimelineBenchmark {
+
+    private static final long DAY = 86_400L;
+    private static final long START = 1_600_000_000L;
+
+    @Param({"1", "8", "64"})
+    public int slices;
+
+    private HistoricalDataContainer.ResolvedTimeline timeline;
+    private long[] callTimes;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        timeline = new HistoricalDataContainer.ResolvedTimeline();
+        for (int i = 0; i < slices; i++) {
+            Employee employee = new Employee();
+            employee.setId((long) i + 1);
+            employee.setExtension("4100");
+            employee.setCommunicationLocationId(CdrBenchmarkFixtures.COMM_LOCATION_ID + i % 2);
+            long from = START + i * 30 * DAY;
+            long to = i == slices - 1 ? 0 : from + 30 * DAY - 1;
+            timeline.addSlice(employee, from, to, false);
+        }
+
+        callTimes = new long[256];
+        for (int i = 0; i < callTimes.length; i++) {
+            callTimes[i] = START + (i * 7919L % (slices * 30L + 10)) * DAY;
+        }
+    }
+
+    @Benchmark
+    public Optional<Employee> findMatch() {
+        long callTime = callTimes[cursor];
+        cursor = (cursor + 1) & (callTimes.length - 1);
+        return timeline.findMatch(callTime, CdrBenchmarkFixtures.COMM_LOCATION_ID);
+    }
+}
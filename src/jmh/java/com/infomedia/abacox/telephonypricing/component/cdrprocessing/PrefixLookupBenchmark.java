@@ -0,0 +1,50 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.infomedia.abacox.telephonypricing.db.entity.CommunicationLocation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory prefix matching against a cached country table of a few hundred
+ * prefixes, for a mix of local, national, cellular and international numbers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrefixLookupBenchmark {
+
+    private static final String[] NUMBERS = {
+            "6012345",          // local
+            "0560412345678",    // national
+            "0431512345678",    // cellular
+            "03315551234",      // cellular, long prefix
+            "0091305551234",    // international
+            "00917045551234",   // international, 4-digit prefix
+            "018009123456",     // special services
+            "99999999999"       // no match, falls back to local
+    };
+
+    private PrefixLookupService prefixLookupService;
+    private CommunicationLocation commLocation;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        prefixLookupService = CdrBenchmarkFixtures.prefixLookupService(
+                CdrBenchmarkFixtures.phoneNumberTransformationService(),
+                CdrBenchmarkFixtures.telephonyTypeLookupService());
+        commLocation = CdrBenchmarkFixtures.communicationLocation();
+    }
+
+    @Benchmark
+    public List<PrefixInfo> findMatchingPrefixes() {
+        String number = NUMBERS[cursor];
+        cursor = (cursor + 1) % NUMBERS.length;
+        return prefixLookupService.findMatchingPrefixes(number, commLocation, false, null);
+    }
+}
@@ -0,0 +1,41 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Transaction-scoped advisory lock, per tenant schema and aggregate table, that
+ * keeps the rebuild of an aggregate from overlapping the transactions that add
+ * deltas to it.
+ * <p>
+ * A rebuild recomputes rows from the call records its snapshot sees, so a delta
+ * committed while it runs would be deleted or overwritten, and a delta of rows
+ * the snapshot already counts would be added twice. Writers hold the lock in
+ * shared mode, so they do not wait for each other; each rebuild chunk holds it
+ * exclusively, so it starts once the writers in flight have committed, and
+ * writers arriving meanwhile add their delta after the chunk commits.
+ */
+final class AggregateLock {
+
+    private AggregateLock() {
+    }
+
+    /**
+     * Must run in the writing transaction, before its first change to the table.
+     */
+    static void lockForDelta(EntityManager entityManager, String table) {
+        entityManager.createNativeQuery(
+                        "SELECT CAST(pg_advisory_xact_lock_shared(hashtext(:table), hashtext(current_schema())) AS text)")
+                .setParameter("table", table)
+                .getSingleResult();
+    }
+
+    /**
+     * Must run in the rebuild transaction, before it reads call_record.
+     */
+    static void lockForRebuild(EntityManager entityManager, String table) {
+        entityManager.createNativeQuery(
+                        "SELECT CAST(pg_advisory_xact_lock(hashtext(:table), hashtext(current_schema())) AS text)")
+                .setParameter("table", table)
+                .getSingleResult();
+    }
+}
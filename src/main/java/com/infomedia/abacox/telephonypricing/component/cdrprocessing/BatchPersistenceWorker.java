@@ -21,6 +21,7 @@ public class BatchPersistenceWorker {
     private final TenantBatchPersister tenantBatchPersister;
     private final CdrConfigService cdrConfigService;
     private final FileProcessingTrackerService trackerService;
+    private final CdrPipelineMetrics pipelineMetrics;
 
     private static final int BATCH_SIZE = 1000;
 
@@ -44,6 +45,7 @@ public class BatchPersistenceWorker {
 
             try {
                 TenantContext.setTenant(tenantId);
+                recordQueueWait(tenantBatch);
                 if (!cdrConfigService.isCdrProcessingEnabled()) {
                     log.debug("CDR processing disabled for tenant [{}]. Discarding {} queued results.",
                             tenantId, tenantBatch.size());
@@ -56,8 +58,10 @@ public class BatchPersistenceWorker {
                 // transaction.
                 tenantBatchPersister.persistTenantBatch(tenantBatch);
             } catch (Exception e) {
-                log.error("Failed to persist batch for tenant [{}]. Records might be lost.", tenantId, e);
-                // Optional: Implement logic to re-queue the failed tenantBatch.
+                log.error("Failed to persist batch for tenant [{}]. Affected files will be marked FAILED.", tenantId, e);
+                // Release the tracker so the affected files complete (as FAILED) instead of
+                // waiting forever for records that were rolled back.
+                countByFile(tenantBatch).forEach(trackerService::failRecords);
             } finally {
                 TenantContext.clear();
             }
@@ -72,6 +76,29 @@ public class BatchPersistenceWorker {
      * fires.
      */
     private void discardBatch(List<ProcessedCdrResult> batch) {
+        // abandonFile marks the file as discarded AND decrements the tracker count.
+        // When both parsing is complete and count reaches 0, the tracker will set
+        // PENDING.
+        countByFile(batch).forEach(trackerService::abandonFile);
+    }
+
+    private void recordQueueWait(List<ProcessedCdrResult> batch) {
+        long now = System.nanoTime();
+        for (ProcessedCdrResult r : batch) {
+            if (r.getQueuedAtNanos() != 0) {
+                pipelineMetrics.recordStage(CdrPipelineMetrics.Stage.QUEUE_WAIT, plantTypeOf(r),
+                        now - r.getQueuedAtNanos());
+            }
+        }
+    }
+
+    private static Integer plantTypeOf(ProcessedCdrResult r) {
+        return r.getCdrData() != null && r.getCdrData().getFileInfo() != null
+                ? r.getCdrData().getFileInfo().getPlantTypeId()
+                : null;
+    }
+
+    private Map<Long, Integer> countByFile(List<ProcessedCdrResult> batch) {
         Map<Long, Integer> countsByFile = new HashMap<>();
         for (ProcessedCdrResult r : batch) {
             if (r.getCdrData() != null && r.getCdrData().getFileInfo() != null) {
@@ -79,9 +106,6 @@ public class BatchPersistenceWorker {
                 countsByFile.merge(fileId, 1, Integer::sum);
             }
         }
-        // abandonFile marks the file as discarded AND decrements the tracker count.
-        // When both parsing is complete and count reaches 0, the tracker will set
-        // PENDING.
-        countsByFile.forEach(trackerService::abandonFile);
+        return countsByFile;
     }
 }
\ No newline at end of file
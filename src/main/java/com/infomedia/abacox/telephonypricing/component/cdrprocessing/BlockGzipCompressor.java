@@ -0,0 +1,152 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.infomedia.abacox.telephonypricing.component.utils.XXHash128Util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses a CDR file into a seekable block-gzip layout while building its
+ * {@link CdrLineIndex}.
+ * <p>
+ * The output is a sequence of independent gzip members, each one holding whole
+ * lines and roughly {@link #BLOCK_SIZE} uncompressed bytes. Concatenated gzip
+ * members are still a valid gzip stream, so {@link java.util.zip.GZIPInputStream}
+ * reads the object exactly as it reads a single-member file, and the
+ * decompressed bytes are identical to the original.
+ * <p>
+ * Line splitting mirrors {@link BufferedReader#readLine()} (LF, CR or CRLF) and
+ * line hashes are computed over the trimmed line, exactly as
+ * {@link CdrData} computes {@code ctlHash}.
+ */
+public final class BlockGzipCompressor {
+
+    public static final int BLOCK_SIZE = 64 * 1024;
+
+    private BlockGzipCompressor() {
+    }
+
+    /**
+     * @param isHeaderLine used to capture the first header line into the index; may be null
+     */
+    public static CdrLineIndex compress(InputStream inputStream, OutputStream outputStream,
+                                        Predicate<String> isHeaderLine) throws IOException {
+        CdrLineIndex.Builder index = new CdrLineIndex.Builder();
+        CountingOutputStream countingOut = new CountingOutputStream(outputStream);
+        ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_SIZE + 4096);
+        ByteArrayOutputStream line = new ByteArrayOutputStream(1024);
+
+        try (InputStream in = new BufferedInputStream(inputStream)) {
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n' || b == '\r') {
+                    int lineStart = block.size();
+                    int lineLength = line.size();
+                    line.writeTo(block);
+                    block.write(b);
+                    if (b == '\r') {
+                        in.mark(1);
+                        int next = in.read();
+                        if (next == '\n') {
+                            block.write(next);
+                        } else if (next != -1) {
+                            in.reset();
+                        }
+                    }
+                    indexLine(index, line, lineStart, lineLength, isHeaderLine);
+                    line.reset();
+
+                    if (block.size() >= BLOCK_SIZE) {
+                        flushBlock(index, block, countingOut);
+                    }
+                } else {
+                    line.write(b);
+                }
+            }
+
+            if (line.size() > 0) {
+                int lineStart = block.size();
+                int lineLength = line.size();
+                line.writeTo(block);
+                indexLine(index, line, lineStart, lineLength, isHeaderLine);
+            }
+            if (block.size() > 0) {
+                flushBlock(index, block, countingOut);
+            }
+        }
+        countingOut.flush();
+        return index.build();
+    }
+
+    private static void indexLine(CdrLineIndex.Builder index, ByteArrayOutputStream line, int offsetInBlock,
+                                  int length, Predicate<String> isHeaderLine) {
+        String trimmed = line.toString(StandardCharsets.UTF_8).trim();
+        if (trimmed.isEmpty()) {
+            return;
+        }
+        if (isHeaderLine != null && !index.hasHeaderLine() && isHeaderLine.test(trimmed)) {
+            index.headerLine(trimmed);
+        }
+        UUID hash = XXHash128Util.hash(trimmed.getBytes(StandardCharsets.UTF_8));
+        index.addLine(hash, index.currentBlock(), offsetInBlock, length);
+    }
+
+    private static void flushBlock(CdrLineIndex.Builder index, ByteArrayOutputStream block,
+                                   CountingOutputStream out) throws IOException {
+        long start = out.getCount();
+        // Each block is its own gzip member; closing it must not close the target
+        try (GZIPOutputStream gzip = new GZIPOutputStream(new NonClosingOutputStream(out)) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            block.writeTo(gzip);
+        }
+        index.addBlock(start, (int) (out.getCount() - start));
+        block.reset();
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        private NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BulkReprocessingResultDto {
+    private int requested;
+    private int files;
+    private int succeeded;
+    private int quarantined;
+    private int notFound; // record, source file or original line no longer available
+    private long durationMs;
+}
@@ -0,0 +1,20 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Published by {@link CallRecordRollupService} whenever call records of a tenant
+ * are added, changed or removed, so per-day aggregates built on top of them can
+ * be dropped. Listeners should react after commit; a rolled back write publishes
+ * nothing.
+ *
+ * @param tenantId tenant whose call records changed
+ * @param days     service dates that changed, or {@code null} when any day may have changed
+ */
+public record CallRecordDaysChangedEvent(String tenantId, Set<LocalDate> days) {
+
+    public boolean allDays() {
+        return days == null;
+    }
+}
@@ -0,0 +1,405 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.infomedia.abacox.telephonypricing.multitenancy.MultitenantRunner;
+import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
+import com.infomedia.abacox.telephonypricing.multitenancy.TenantInitializer;
+import com.infomedia.abacox.telephonypricing.service.ViewManagerService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Keeps call_record range-partitioned by month on service_date in every tenant
+ * schema.
+ * <p>
+ * Liquibase creates call_record from the entity as a plain table. Converting it
+ * is opt-in (the admin endpoint, or app.cdr.partitioning.convert-on-startup): the
+ * plain table becomes the DEFAULT partition of a new partitioned call_record in
+ * one short metadata-only transaction, and maintenance then moves its rows into
+ * their months one month at a time. Moving a month only blocks writes to the
+ * DEFAULT partition, and check constraints spare the attach its scan of the
+ * DEFAULT partition, so months with their own partition stay readable and
+ * writable throughout. Maintenance also creates the next months ahead of time,
+ * and applies retention by detaching or dropping whole months instead of
+ * deleting rows; rows of months past retention still in the DEFAULT partition
+ * are moved to the detached month or deleted.
+ * <p>
+ * Partitions are named call_record_pYYYYMM plus call_record_default, and are
+ * excluded from the Liquibase schema diff (abacox.multitenancy.ignored-objects).
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class CallRecordPartitionService implements TenantInitializer {
+
+    public enum RetentionAction {DETACH, DROP}
+
+    private static final String TABLE = "call_record";
+    private static final String DEFAULT_PARTITION = "call_record_default";
+    private static final String PARTITION_PREFIX = "call_record_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final CallRecordRollupService rollupService;
+    private final ConferenceGroupService conferenceGroupService;
+    private final ViewManagerService viewManagerService;
+    private final MultitenantRunner multitenantRunner;
+
+    @Value("${app.cdr.partitioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cdr.partitioning.premake-months:3}")
+    private int premakeMonths;
+
+    // 0 keeps every month
+    @Value("${app.cdr.partitioning.retention-months:0}")
+    private int retentionMonths;
+
+    @Value("${app.cdr.partitioning.retention-action:DETACH}")
+    private RetentionAction retentionAction;
+
+    @Value("${app.cdr.partitioning.convert-on-startup:false}")
+    private boolean convertOnStartup;
+
+    @Override
+    public void onTenantInit(String tenantId) {
+        if (!enabled || tenantId == null || "public".equals(tenantId)) return;
+        if (convertOnStartup) {
+            convertIfNeeded();
+        } else if ("r".equals(newTransactionTemplate().execute(status -> relkind(TABLE)))) {
+            log.info("call_record of tenant [{}] is not partitioned; convert it with POST /api/cdr/partitioning/convert",
+                    tenantId);
+        }
+        maintain();
+    }
+
+    /**
+     * Converts the current tenant's call_record if it is still a plain table and
+     * moves its rows into monthly partitions.
+     */
+    public void convert() {
+        if (!enabled) return;
+        convertIfNeeded();
+        maintain();
+    }
+
+    @Scheduled(cron = "${app.cdr.partitioning.maintenance-cron:0 15 1 * * *}")
+    public void maintainAllTenants() {
+        if (!enabled) return;
+        multitenantRunner.runForAllTenants(this::maintain);
+    }
+
+    /**
+     * Creates upcoming months, splits months out of the DEFAULT partition and
+     * applies retention for the current tenant. No-op until call_record has been
+     * converted.
+     */
+    public void maintain() {
+        if (!enabled || !isPartitioned()) return;
+        TransactionTemplate txTemplate = newTransactionTemplate();
+        YearMonth current = YearMonth.now();
+        YearMonth oldestKept = retentionMonths > 0 ? current.minusMonths(retentionMonths - 1L) : null;
+
+        for (int i = 0; i <= premakeMonths; i++) {
+            YearMonth month = current.plusMonths(i);
+            forMonth("create", month, () -> ensurePartition(month));
+        }
+
+        // Newest first: rows are mostly stored in date order, so vacuum can give back
+        // the tail of the DEFAULT partition as a converted table is emptied
+        List<YearMonth> strayMonths = txTemplate.execute(status -> toMonths(entityManager.createNativeQuery(
+                        "SELECT DISTINCT date_trunc('month', service_date) FROM " + DEFAULT_PARTITION + " ORDER BY 1 DESC")
+                .getResultList()));
+        for (YearMonth month : strayMonths) {
+            if (oldestKept == null || !month.isBefore(oldestKept)) {
+                forMonth("create", month, () -> ensurePartition(month));
+            } else {
+                forMonth("expire", month, () -> txTemplate.executeWithoutResult(status -> removeDefaultRows(month)));
+            }
+        }
+
+        if (oldestKept != null) {
+            for (YearMonth month : listPartitionMonths()) {
+                if (month.isBefore(oldestKept)) {
+                    forMonth("expire", month, () -> txTemplate.executeWithoutResult(status -> removePartition(month)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Turns a plain call_record into the DEFAULT partition of a new partitioned
+     * call_record. Its rows stay where they are; {@link #maintain} moves them into
+     * their months afterwards.
+     *
+     * @return whether a conversion took place
+     */
+    private boolean convertIfNeeded() {
+        TransactionTemplate txTemplate = newTransactionTemplate();
+        String relkind = txTemplate.execute(status -> relkind(TABLE));
+        if (!"r".equals(relkind)) return false;
+
+        long startTime = System.currentTimeMillis();
+        String tenantId = TenantContext.getTenant();
+        log.info("Converting call_record of tenant [{}] to monthly partitions", tenantId);
+        // Built before the switch so attaching the table does not build them under an exclusive lock;
+        // CREATE INDEX only blocks writes, reads go on
+        txTemplate.executeWithoutResult(status -> execute("CREATE UNIQUE INDEX IF NOT EXISTS " + DEFAULT_PARTITION
+                + "_pkey ON " + TABLE + " (id, service_date)"));
+        txTemplate.executeWithoutResult(status -> execute("CREATE UNIQUE INDEX IF NOT EXISTS " + DEFAULT_PARTITION
+                + "_ctl_hash_key ON " + TABLE + " (ctl_hash, service_date)"));
+        txTemplate.executeWithoutResult(status -> switchToPartitioned());
+        // Views still point at the renamed table
+        viewManagerService.onTenantInit(tenantId);
+        log.info("Converted call_record of tenant [{}] to monthly partitions in {} ms; its rows are moved by maintenance",
+                tenantId, System.currentTimeMillis() - startTime);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void switchToPartitioned() {
+        entityManager.createNativeQuery("LOCK TABLE " + TABLE + " IN ACCESS EXCLUSIVE MODE").executeUpdate();
+
+        // Plain indexes are recreated on the parent as they are; keys and foreign keys are rebuilt below
+        List<Object[]> indexes = entityManager.createNativeQuery(
+                        "SELECT i.indexname, i.indexdef FROM pg_indexes i "
+                                + "WHERE i.schemaname = current_schema() AND i.tablename = '" + TABLE + "' "
+                                + "AND i.indexname NOT LIKE '" + DEFAULT_PARTITION + "\\_%' "
+                                + "AND NOT EXISTS (SELECT 1 FROM pg_constraint c "
+                                + "WHERE c.conrelid = '" + TABLE + "'::regclass AND c.conname = i.indexname)")
+                .getResultList();
+        List<Object[]> foreignKeys = entityManager.createNativeQuery(
+                        "SELECT conname, pg_get_constraintdef(oid) FROM pg_constraint "
+                                + "WHERE conrelid = '" + TABLE + "'::regclass AND contype = 'f'")
+                .getResultList();
+        List<String> keys = entityManager.createNativeQuery(
+                        "SELECT conname FROM pg_constraint "
+                                + "WHERE conrelid = '" + TABLE + "'::regclass AND contype IN ('p', 'u')")
+                .getResultList();
+
+        // The old table keeps its data, indexes and foreign keys and takes the partition names,
+        // so the parent's matching ones attach to them instead of being built
+        for (String key : keys) {
+            execute("ALTER TABLE " + TABLE + " DROP CONSTRAINT " + quote(key));
+        }
+        execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT " + DEFAULT_PARTITION + "_pkey PRIMARY KEY USING INDEX "
+                + DEFAULT_PARTITION + "_pkey");
+        execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT " + DEFAULT_PARTITION + "_ctl_hash_key UNIQUE USING INDEX "
+                + DEFAULT_PARTITION + "_ctl_hash_key");
+        for (Object[] index : indexes) {
+            execute("ALTER INDEX " + quote((String) index[0]) + " RENAME TO " + quote(defaultIndexName((String) index[0])));
+        }
+        execute("ALTER TABLE " + TABLE + " RENAME TO " + DEFAULT_PARTITION);
+
+        execute("CREATE TABLE " + TABLE + " (LIKE " + DEFAULT_PARTITION
+                + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (service_date)");
+        execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT call_record_pkey PRIMARY KEY (id, service_date)");
+        execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT uk_call_record_ctl_hash UNIQUE (ctl_hash, service_date)");
+        for (Object[] index : indexes) {
+            execute((String) index[1]);
+        }
+        for (Object[] foreignKey : foreignKeys) {
+            execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT " + quote((String) foreignKey[0]) + " " + foreignKey[1]);
+        }
+        // With no other partition yet there is nothing to check the rows against
+        execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + DEFAULT_PARTITION + " DEFAULT");
+    }
+
+    /**
+     * One month's failure is logged and left for the next run, so it does not
+     * hold back the other months or retention.
+     */
+    private void forMonth(String action, YearMonth month, Runnable step) {
+        try {
+            step.run();
+        } catch (RuntimeException e) {
+            log.error("Failed to {} call_record partition {} for tenant [{}]", action, partitionName(month),
+                    TenantContext.getTenant(), e);
+        }
+    }
+
+    /**
+     * Creates the month's partition if missing, in three transactions so that
+     * no step holds an exclusive lock while it scans:
+     * <ol>
+     * <li>Under a lock that only blocks writes to the DEFAULT partition, the
+     * month's table is created detached with a check on its bounds, the month's
+     * rows are moved into it from the DEFAULT partition, and a NOT VALID check
+     * excluding the month is added to the DEFAULT partition, so no row of the
+     * month can land there again.</li>
+     * <li>The exclusion check is validated, which scans the DEFAULT partition
+     * without blocking reads or writes.</li>
+     * <li>The table is attached. Both checks prove its bounds, so neither table
+     * is scanned, and they are dropped.</li>
+     * </ol>
+     * Until the attach, writes of rows of that month fail the exclusion check.
+     * A run interrupted part way resumes from the detached table.
+     */
+    private void ensurePartition(YearMonth month) {
+        String partition = partitionName(month);
+        TransactionTemplate txTemplate = newTransactionTemplate();
+        if (Boolean.TRUE.equals(txTemplate.execute(status -> isAttached(partition)))) return;
+
+        String boundsCheck = partition + "_bounds";
+        String exclusionCheck = DEFAULT_PARTITION + "_not_" + month.format(PARTITION_SUFFIX);
+        String inMonth = "service_date >= '" + month.atDay(1) + "' AND service_date < '" + month.plusMonths(1).atDay(1) + "'";
+
+        Integer moved = txTemplate.execute(status -> {
+            execute("LOCK TABLE " + DEFAULT_PARTITION + " IN SHARE ROW EXCLUSIVE MODE");
+            if (relkind(partition) == null) {
+                execute("CREATE TABLE " + partition + " (LIKE " + TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+                execute("ALTER TABLE " + partition + " ADD CONSTRAINT " + boundsCheck + " CHECK (" + inMonth + ")");
+            }
+            int count = entityManager.createNativeQuery("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                            + " WHERE " + inMonth + " RETURNING *) INSERT INTO " + partition + " SELECT * FROM moved")
+                    .executeUpdate();
+            if (!hasConstraint(DEFAULT_PARTITION, exclusionCheck)) {
+                execute("ALTER TABLE " + DEFAULT_PARTITION + " ADD CONSTRAINT " + exclusionCheck
+                        + " CHECK (NOT (" + inMonth + ")) NOT VALID");
+            }
+            return count;
+        });
+        txTemplate.executeWithoutResult(status ->
+                execute("ALTER TABLE " + DEFAULT_PARTITION + " VALIDATE CONSTRAINT " + exclusionCheck));
+        txTemplate.executeWithoutResult(status -> {
+            execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + partition + " FOR VALUES " + bounds(month));
+            execute("ALTER TABLE " + DEFAULT_PARTITION + " DROP CONSTRAINT " + exclusionCheck);
+            if (hasConstraint(partition, boundsCheck)) {
+                execute("ALTER TABLE " + partition + " DROP CONSTRAINT " + boundsCheck);
+            }
+        });
+        log.info("Created call_record partition {} for tenant [{}] ({} rows moved from the default partition)",
+                partition, TenantContext.getTenant(), moved);
+    }
+
+    private void removePartition(YearMonth month) {
+        String partition = partitionName(month);
+        execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+        if (retentionAction == RetentionAction.DROP) {
+            execute("DROP TABLE " + partition);
+        }
+        rollupService.removeDays(month.atDay(1), month.plusMonths(1).atDay(1));
+        conferenceGroupService.removeDays(month.atDay(1), month.plusMonths(1).atDay(1));
+        log.info("Retention: {} call_record partition {} for tenant [{}]",
+                retentionAction == RetentionAction.DROP ? "dropped" : "detached", partition, TenantContext.getTenant());
+    }
+
+    /**
+     * Applies retention to rows of a month past retention that are still in the
+     * DEFAULT partition: they join the month's detached table, or are deleted when
+     * retention drops months.
+     */
+    private void removeDefaultRows(YearMonth month) {
+        String partition = partitionName(month);
+        String delete = "DELETE FROM " + DEFAULT_PARTITION + " WHERE service_date >= :startDate AND service_date < :endDate";
+        if (retentionAction == RetentionAction.DETACH) {
+            if (relkind(partition) == null) {
+                execute("CREATE TABLE " + partition + " (LIKE " + TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            }
+            delete = "WITH moved AS (" + delete + " RETURNING *) INSERT INTO " + partition + " SELECT * FROM moved";
+        }
+        int removed = entityManager.createNativeQuery(delete)
+                .setParameter("startDate", month.atDay(1).atStartOfDay())
+                .setParameter("endDate", month.plusMonths(1).atDay(1).atStartOfDay())
+                .executeUpdate();
+        rollupService.removeDays(month.atDay(1), month.plusMonths(1).atDay(1));
+        conferenceGroupService.removeDays(month.atDay(1), month.plusMonths(1).atDay(1));
+        log.info("Retention: {} {} rows of {} from the default call_record partition for tenant [{}]",
+                retentionAction == RetentionAction.DROP ? "deleted" : "moved to " + partition, removed, month,
+                TenantContext.getTenant());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<YearMonth> listPartitionMonths() {
+        List<String> names = newTransactionTemplate().execute(status -> entityManager.createNativeQuery(
+                        "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                                + "WHERE i.inhparent = '" + TABLE + "'::regclass AND c.relname ~ '^" + PARTITION_PREFIX + "[0-9]{6}$'")
+                .getResultList());
+        return names.stream()
+                .map(name -> YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX))
+                .sorted()
+                .toList();
+    }
+
+    private boolean isAttached(String partition) {
+        return !entityManager.createNativeQuery(
+                        "SELECT 1 FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                                + "JOIN pg_namespace n ON n.oid = c.relnamespace "
+                                + "WHERE n.nspname = current_schema() AND c.relname = :partition")
+                .setParameter("partition", partition)
+                .getResultList().isEmpty();
+    }
+
+    private boolean hasConstraint(String table, String constraint) {
+        return !entityManager.createNativeQuery(
+                        "SELECT 1 FROM pg_constraint WHERE conrelid = CAST(:table AS regclass) AND conname = :constraint")
+                .setParameter("table", table)
+                .setParameter("constraint", constraint)
+                .getResultList().isEmpty();
+    }
+
+    private boolean isPartitioned() {
+        return "p".equals(newTransactionTemplate().execute(status -> relkind(TABLE)));
+    }
+
+    private String relkind(String table) {
+        List<?> result = entityManager.createNativeQuery(
+                        "SELECT CAST(c.relkind AS varchar) FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace "
+                                + "WHERE n.nspname = current_schema() AND c.relname = :table")
+                .setParameter("table", table)
+                .getResultList();
+        return result.isEmpty() ? null : (String) result.get(0);
+    }
+
+    private void execute(String sql) {
+        entityManager.createNativeQuery(sql).executeUpdate();
+    }
+
+    private TransactionTemplate newTransactionTemplate() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        txTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return txTemplate;
+    }
+
+    private static List<YearMonth> toMonths(List<?> values) {
+        return values.stream()
+                .map(value -> value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value)
+                .map(YearMonth::from)
+                .toList();
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    private static String bounds(YearMonth month) {
+        LocalDate start = month.atDay(1);
+        return "FROM ('" + start + "') TO ('" + start.plusMonths(1) + "')";
+    }
+
+    private static String defaultIndexName(String index) {
+        String name = DEFAULT_PARTITION + "_" + index;
+        // Identifiers longer than 63 bytes would be truncated by PostgreSQL anyway
+        return name.length() > 63 ? name.substring(0, 63) : name;
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -2,12 +2,17 @@ package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
 
 import com.infomedia.abacox.telephonypricing.db.entity.CallRecord;
 import com.infomedia.abacox.telephonypricing.db.entity.CommunicationLocation;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
@@ -20,11 +25,14 @@ import java.util.*;
 @Service
 @Log4j2
 @RequiredArgsConstructor
+@ConnectionWorkload(Workload.INGEST_WRITE)
 public class CallRecordPersistenceService {
 
     @PersistenceContext
     private EntityManager entityManager;
     private final CdrConfigService cdrConfigService;
+    private final CallRecordRollupService rollupService;
+    private final ConferenceGroupService conferenceGroupService;
     
     // Inject the Transaction Manager
     private final PlatformTransactionManager transactionManager;
@@ -32,17 +40,50 @@ public class CallRecordPersistenceService {
     /**
      * Batch lookup for duplicate checking.
      * Efficiently checks if a list of hashes exists in the DB using a single query.
+     * The service date bounds of the batch (may be null) restrict the lookup to the
+     * call_record partitions the hashes can live in.
      */
     @Transactional(readOnly = true)
-    public Set<UUID> findExistingHashes(List<UUID> hashes) { // Changed List<Long> to List<UUID>
+    public Set<UUID> findExistingHashes(List<UUID> hashes, LocalDateTime minServiceDate, LocalDateTime maxServiceDate) {
         if (hashes == null || hashes.isEmpty()) return Collections.emptySet();
 
-        List<UUID> found = entityManager.createQuery(
-                        "SELECT cr.ctlHash FROM CallRecord cr WHERE cr.ctlHash IN :hashes", UUID.class) // Changed Long.class to UUID.class
-                .setParameter("hashes", hashes)
-                .getResultList();
+        boolean bounded = minServiceDate != null && maxServiceDate != null;
+        TypedQuery<UUID> query = entityManager.createQuery(
+                        "SELECT cr.ctlHash FROM CallRecord cr WHERE cr.ctlHash IN :hashes"
+                                + (bounded ? " AND cr.serviceDate BETWEEN :minServiceDate AND :maxServiceDate" : ""),
+                        UUID.class)
+                .setParameter("hashes", hashes);
+        if (bounded) {
+            query.setParameter("minServiceDate", minServiceDate)
+                    .setParameter("maxServiceDate", maxServiceDate);
+        }
+        return new HashSet<>(query.getResultList());
+    }
 
-        return new HashSet<>(found);
+    /**
+     * Loads the call records with the given hashes, keyed by hash. The service
+     * date bounds (may be null) prune the lookup like {@link #findExistingHashes}.
+     */
+    @Transactional(readOnly = true)
+    public Map<UUID, CallRecord> findByCtlHashes(List<UUID> hashes, LocalDateTime minServiceDate,
+                                                 LocalDateTime maxServiceDate) {
+        if (hashes == null || hashes.isEmpty()) return Collections.emptyMap();
+
+        boolean bounded = minServiceDate != null && maxServiceDate != null;
+        TypedQuery<CallRecord> query = entityManager.createQuery(
+                        "SELECT cr FROM CallRecord cr WHERE cr.ctlHash IN :hashes"
+                                + (bounded ? " AND cr.serviceDate BETWEEN :minServiceDate AND :maxServiceDate" : ""),
+                        CallRecord.class)
+                .setParameter("hashes", hashes);
+        if (bounded) {
+            query.setParameter("minServiceDate", minServiceDate)
+                    .setParameter("maxServiceDate", maxServiceDate);
+        }
+        Map<UUID, CallRecord> byHash = new HashMap<>();
+        for (CallRecord callRecord : query.getResultList()) {
+            byHash.putIfAbsent(callRecord.getCtlHash(), callRecord);
+        }
+        return byHash;
     }
 
     /**
@@ -76,8 +117,10 @@ public class CallRecordPersistenceService {
         try {
             return txTemplate.execute(status -> {
                 // 1. Quick duplicate check
-                List<Long> existingIds = entityManager.createQuery("SELECT cr.id FROM CallRecord cr WHERE cr.ctlHash = :hash", Long.class)
+                List<Long> existingIds = entityManager.createQuery(
+                                "SELECT cr.id FROM CallRecord cr WHERE cr.ctlHash = :hash AND cr.serviceDate = :serviceDate", Long.class)
                         .setParameter("hash", cdrHash)
+                        .setParameter("serviceDate", cdrData.getDateTimeOrigination())
                         .getResultList();
 
                 if (!existingIds.isEmpty()) {
@@ -89,6 +132,11 @@ public class CallRecordPersistenceService {
                 entityManager.persist(callRecord);
                 entityManager.flush();
 
+                CallRecordRollupDelta rollupDelta = new CallRecordRollupDelta();
+                rollupDelta.add(callRecord);
+                rollupService.apply(rollupDelta);
+                conferenceGroupService.assign(List.of(callRecord));
+
                 return callRecord;
             });
 
@@ -114,9 +162,106 @@ public class CallRecordPersistenceService {
         }
     }
 
+    /**
+     * Loads the reprocessing keys (file, comm location, hash) for the given IDs,
+     * without hydrating full entities.
+     */
+    @Transactional(readOnly = true)
+    public List<ReprocessTarget> findReprocessTargets(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) return Collections.emptyList();
+
+        return entityManager.createQuery(
+                        "SELECT new com.infomedia.abacox.telephonypricing.component.cdrprocessing.ReprocessTarget("
+                                + "cr.id, cr.fileInfoId, cr.commLocationId, cr.ctlHash) "
+                                + "FROM CallRecord cr WHERE cr.id IN :ids", ReprocessTarget.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * Reads the next chunk of call records to re-rate, ordered by (service_date, id).
+     * Pass null cursors for the first chunk; afterwards pass the last row's values.
+     */
+    @Transactional(readOnly = true)
+    public List<RerateRow> findRerateChunk(RerateCriteria criteria, LocalDateTime afterServiceDate, Long afterId,
+                                           int limit) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new com.infomedia.abacox.telephonypricing.component.cdrprocessing.RerateRow("
+                        + "cr.id, cr.commLocationId, cr.serviceDate, cr.dial, cr.trunk, cr.duration, cr.isIncoming, "
+                        + "cr.telephonyTypeId, cr.operatorId, cr.indicatorId, cr.billedAmount, cr.pricePerMinute, "
+                        + "cr.initialPrice) "
+                        + "FROM CallRecord cr WHERE cr.serviceDate >= :startDate AND cr.serviceDate < :endDate");
+        if (criteria.commLocationId() != null) jpql.append(" AND cr.commLocationId = :commLocationId");
+        if (criteria.telephonyTypeId() != null) jpql.append(" AND cr.telephonyTypeId = :telephonyTypeId");
+        if (afterServiceDate != null) {
+            jpql.append(" AND (cr.serviceDate > :afterServiceDate OR (cr.serviceDate = :afterServiceDate AND cr.id > :afterId))");
+        }
+        jpql.append(" ORDER BY cr.serviceDate, cr.id");
+
+        var query = entityManager.createQuery(jpql.toString(), RerateRow.class)
+                .setParameter("startDate", criteria.startDate())
+                .setParameter("endDate", criteria.endDate())
+                .setMaxResults(limit);
+        if (criteria.commLocationId() != null) query.setParameter("commLocationId", criteria.commLocationId());
+        if (criteria.telephonyTypeId() != null) query.setParameter("telephonyTypeId", criteria.telephonyTypeId());
+        if (afterServiceDate != null) {
+            query.setParameter("afterServiceDate", afterServiceDate);
+            query.setParameter("afterId", afterId);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * Applies re-rated pricing with one {@code UPDATE ... FROM (VALUES ...)} statement,
+     * instead of loading and merging each entity. The rows' daily rollup contribution
+     * is removed before the update and added back after it.
+     *
+     * @return number of rows updated
+     */
+    @Transactional
+    public int updateTariffs(List<RerateUpdate> updates) {
+        if (updates == null || updates.isEmpty()) return 0;
+
+        StringBuilder sql = new StringBuilder("UPDATE call_record cr SET billed_amount = v.billed_amount, "
+                + "price_per_minute = v.price_per_minute, initial_price = v.initial_price, "
+                + "telephony_type_id = v.telephony_type_id, operator_id = v.operator_id, "
+                + "last_modified_date = now() FROM (VALUES ");
+        int param = 1;
+        for (int i = 0; i < updates.size(); i++) {
+            if (i > 0) sql.append(", ");
+            // Casts give every VALUES column a type even when the first row has nulls
+            sql.append("(CAST(?").append(param++).append(" AS bigint), CAST(?").append(param++)
+                    .append(" AS numeric), CAST(?").append(param++).append(" AS numeric), CAST(?").append(param++)
+                    .append(" AS numeric), CAST(?").append(param++).append(" AS bigint), CAST(?").append(param++)
+                    .append(" AS bigint))");
+        }
+        sql.append(") AS v(id, billed_amount, price_per_minute, initial_price, telephony_type_id, operator_id) "
+                + "WHERE cr.id = v.id");
+
+        // Typed binding, so null type/operator IDs do not leave the driver guessing
+        NativeQuery<?> query = entityManager.createNativeQuery(sql.toString()).unwrap(NativeQuery.class);
+        param = 1;
+        for (RerateUpdate update : updates) {
+            query.setParameter(param++, update.id(), StandardBasicTypes.LONG);
+            query.setParameter(param++, update.billedAmount(), StandardBasicTypes.BIG_DECIMAL);
+            query.setParameter(param++, update.pricePerMinute(), StandardBasicTypes.BIG_DECIMAL);
+            query.setParameter(param++, update.initialPrice(), StandardBasicTypes.BIG_DECIMAL);
+            query.setParameter(param++, update.telephonyTypeId(), StandardBasicTypes.LONG);
+            query.setParameter(param++, update.operatorId(), StandardBasicTypes.LONG);
+        }
+        List<Long> ids = updates.stream().map(RerateUpdate::id).toList();
+        rollupService.applyCallRecordIds(ids, -1);
+        int updated = query.executeUpdate();
+        rollupService.applyCallRecordIds(ids, 1);
+        conferenceGroupService.refreshCallRecordIds(ids);
+        return updated;
+    }
+
     @Transactional
     public int deleteByFileInfoId(Long fileInfoId) {
         if (fileInfoId == null) return 0;
+        rollupService.applyFileInfo(fileInfoId, -1);
+        conferenceGroupService.detachFileInfo(fileInfoId);
         int deletedCount = entityManager.createQuery("DELETE FROM CallRecord cr WHERE cr.fileInfoId = :fileInfoId")
                 .setParameter("fileInfoId", fileInfoId)
                 .executeUpdate();
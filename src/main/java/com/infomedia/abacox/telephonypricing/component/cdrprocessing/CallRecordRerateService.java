@@ -0,0 +1,155 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.infomedia.abacox.telephonypricing.db.entity.CommunicationLocation;
+import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Re-prices existing call records after a prefix, band, trunk or special rate
+ * change, without going back to the original files.
+ * <p>
+ * Records are read in keyset-paginated chunks ordered by (service_date, id). The
+ * tariffing inputs are rebuilt from the stored columns (dial, trunk, duration,
+ * direction, telephony type, operator and destination indicator), only
+ * {@link TariffCalculationService#recalculateTariffs} runs, and rows whose pricing
+ * actually changed are written back with one batched UPDATE per chunk.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class CallRecordRerateService {
+
+    private final CallRecordPersistenceService callRecordPersistenceService;
+    private final TariffCalculationService tariffCalculationService;
+    private final CommunicationLocationLookupService commLocationLookupService;
+
+    @Value("${app.cdr.rerate.chunk-size:1000}")
+    private int chunkSize;
+
+    private record RerateOutcome(RerateUpdate update, boolean changed) {
+    }
+
+    public RerateResultDto rerate(RerateCriteria criteria) {
+        long startTime = System.currentTimeMillis();
+        Map<Long, Optional<CommunicationLocation>> commLocations = new ConcurrentHashMap<>();
+        String tenantId = TenantContext.getTenant();
+
+        long scanned = 0;
+        long updated = 0;
+        long unchanged = 0;
+        long skipped = 0;
+
+        List<RerateRow> chunk = callRecordPersistenceService.findRerateChunk(criteria, null, null, chunkSize);
+        try (ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors())) {
+            while (!chunk.isEmpty()) {
+                List<RerateRow> rows = chunk;
+                List<RerateOutcome> outcomes = pool.submit(() -> rows.parallelStream().map(row -> {
+                    try {
+                        TenantContext.setTenant(tenantId);
+                        return rerateRow(row, commLocations);
+                    } finally {
+                        TenantContext.clear();
+                    }
+                }).toList()).get();
+
+                List<RerateUpdate> updates = outcomes.stream()
+                        .filter(o -> o != null && o.changed())
+                        .map(RerateOutcome::update)
+                        .toList();
+                long failed = outcomes.stream().filter(Objects::isNull).count();
+
+                updated += callRecordPersistenceService.updateTariffs(updates);
+                scanned += rows.size();
+                skipped += failed;
+                unchanged += rows.size() - failed - updates.size();
+
+                RerateRow last = rows.get(rows.size() - 1);
+                chunk = rows.size() < chunkSize
+                        ? List.of()
+                        : callRecordPersistenceService.findRerateChunk(criteria, last.serviceDate(), last.id(), chunkSize);
+                log.debug("Re-rate progress: {} scanned, {} updated", scanned, updated);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Re-rating interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Re-rating failed", e.getCause());
+        }
+
+        long durationMs = System.currentTimeMillis() - startTime;
+        log.info("Re-rated call records {}: {} scanned, {} updated, {} unchanged, {} skipped in {} ms",
+                criteria, scanned, updated, unchanged, skipped, durationMs);
+
+        return RerateResultDto.builder()
+                .scanned(scanned)
+                .updated(updated)
+                .unchanged(unchanged)
+                .skipped(skipped)
+                .durationMs(durationMs)
+                .build();
+    }
+
+    /**
+     * @return the new pricing, or null if the record could not be re-rated
+     */
+    private RerateOutcome rerateRow(RerateRow row, Map<Long, Optional<CommunicationLocation>> commLocations) {
+        if (row.commLocationId() == null) {
+            return null;
+        }
+        Optional<CommunicationLocation> commLocation = commLocations.computeIfAbsent(
+                row.commLocationId(), commLocationLookupService::findById);
+        if (commLocation.isEmpty()) {
+            return null;
+        }
+
+        CdrData cdrData = new CdrData();
+        cdrData.setCommLocationId(row.commLocationId());
+        cdrData.setDateTimeOrigination(row.serviceDate());
+        cdrData.setEffectiveDestinationNumber(row.dial());
+        cdrData.setDestDeviceName(row.trunk());
+        cdrData.setDurationSeconds(row.duration());
+        cdrData.setCallDirection(Boolean.TRUE.equals(row.isIncoming()) ? CallDirection.INCOMING : CallDirection.OUTGOING);
+        cdrData.setTelephonyTypeId(row.telephonyTypeId());
+        cdrData.setOperatorId(row.operatorId());
+        cdrData.setIndicatorId(row.indicatorId());
+
+        try {
+            if (!tariffCalculationService.recalculateTariffs(cdrData, commLocation.get())) {
+                return null;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to re-rate CallRecord ID {}", row.id(), e);
+            return null;
+        }
+
+        // Pricing columns are NOT NULL
+        RerateUpdate update = new RerateUpdate(row.id(),
+                Objects.requireNonNullElse(cdrData.getBilledAmount(), BigDecimal.ZERO),
+                Objects.requireNonNullElse(cdrData.getPricePerMinute(), BigDecimal.ZERO),
+                Objects.requireNonNullElse(cdrData.getInitialPricePerMinute(), BigDecimal.ZERO),
+                cdrData.getTelephonyTypeId(), cdrData.getOperatorId());
+        boolean changed = !sameAmount(row.billedAmount(), update.billedAmount())
+                || !sameAmount(row.pricePerMinute(), update.pricePerMinute())
+                || !sameAmount(row.initialPrice(), update.initialPrice())
+                || !Objects.equals(row.telephonyTypeId(), update.telephonyTypeId())
+                || !Objects.equals(row.operatorId(), update.operatorId());
+        return new RerateOutcome(update, changed);
+    }
+
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        if (a == null || b == null) return a == b;
+        return a.compareTo(b) == 0;
+    }
+}
@@ -0,0 +1,135 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.infomedia.abacox.telephonypricing.db.entity.CallRecord;
+import com.infomedia.abacox.telephonypricing.db.entity.CallRecordDailyRollup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * In-memory changes to call_record_daily_rollup, and to extension_activity,
+ * accumulated while a batch is persisted, applied with one upsert each by
+ * {@link CallRecordRollupService#apply}.
+ * <p>
+ * Keys are kept sorted so concurrent batches lock rollup rows in the same order.
+ * Dialed numbers are kept apart from employee and transfer extensions, since
+ * only those that are an employee's extension are recorded.
+ */
+class CallRecordRollupDelta {
+
+    record Key(LocalDate day, long employeeId, long telephonyTypeId, long operatorId, long commLocationId,
+               boolean incoming) {
+    }
+
+    static final class Totals {
+        long callCount;
+        long duration;
+        BigDecimal billedAmount = BigDecimal.ZERO;
+
+        boolean isZero() {
+            return callCount == 0 && duration == 0 && billedAmount.signum() == 0;
+        }
+    }
+
+    record ExtensionKey(String extension, LocalDate day) {
+    }
+
+    static final class ExtensionTotals {
+        long callCount;
+        long incomingCount;
+        long locatedCount;
+        // Widened by removals too; the upsert keeps the stored range when it is wider
+        LocalDateTime firstSeen;
+        LocalDateTime lastSeen;
+
+        boolean isZero() {
+            return callCount == 0 && incomingCount == 0 && locatedCount == 0;
+        }
+    }
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::day)
+            .thenComparingLong(Key::employeeId)
+            .thenComparingLong(Key::telephonyTypeId)
+            .thenComparingLong(Key::operatorId)
+            .thenComparingLong(Key::commLocationId)
+            .thenComparing(Key::incoming);
+
+    private static final Comparator<ExtensionKey> EXTENSION_ORDER = Comparator.comparing(ExtensionKey::extension)
+            .thenComparing(ExtensionKey::day);
+
+    private final Map<Key, Totals> totals = new TreeMap<>(KEY_ORDER);
+    private final Map<ExtensionKey, ExtensionTotals> extensions = new TreeMap<>(EXTENSION_ORDER);
+    private final Map<ExtensionKey, ExtensionTotals> dialedExtensions = new TreeMap<>(EXTENSION_ORDER);
+
+    void add(CallRecord callRecord) {
+        apply(callRecord, 1);
+    }
+
+    void subtract(CallRecord callRecord) {
+        apply(callRecord, -1);
+    }
+
+    boolean isEmpty() {
+        return totals.values().stream().allMatch(Totals::isZero)
+                && extensions.values().stream().allMatch(ExtensionTotals::isZero)
+                && dialedExtensions.values().stream().allMatch(ExtensionTotals::isZero);
+    }
+
+    Map<Key, Totals> getTotals() {
+        return totals;
+    }
+
+    Map<ExtensionKey, ExtensionTotals> getExtensions() {
+        return extensions;
+    }
+
+    Map<ExtensionKey, ExtensionTotals> getDialedExtensions() {
+        return dialedExtensions;
+    }
+
+    private void apply(CallRecord callRecord, int sign) {
+        if (callRecord == null || callRecord.getServiceDate() == null) return;
+
+        Key key = new Key(callRecord.getServiceDate().toLocalDate(),
+                orNone(callRecord.getEmployeeId()),
+                orNone(callRecord.getTelephonyTypeId()),
+                orNone(callRecord.getOperatorId()),
+                orNone(callRecord.getCommLocationId()),
+                Boolean.TRUE.equals(callRecord.getIsIncoming()));
+
+        Totals t = totals.computeIfAbsent(key, k -> new Totals());
+        t.callCount += sign;
+        t.duration += (long) sign * Objects.requireNonNullElse(callRecord.getDuration(), 0);
+        BigDecimal billed = Objects.requireNonNullElse(callRecord.getBilledAmount(), BigDecimal.ZERO);
+        t.billedAmount = sign > 0 ? t.billedAmount.add(billed) : t.billedAmount.subtract(billed);
+
+        boolean located = callRecord.getCommLocationId() != null;
+        applyExtension(extensions, callRecord.getEmployeeExtension(), callRecord,
+                Boolean.TRUE.equals(callRecord.getIsIncoming()), located, sign);
+        applyExtension(dialedExtensions, callRecord.getDial(), callRecord, true, located, sign);
+        applyExtension(extensions, callRecord.getEmployeeTransfer(), callRecord, true, located, sign);
+    }
+
+    private static void applyExtension(Map<ExtensionKey, ExtensionTotals> target, String extension,
+                                       CallRecord callRecord, boolean incoming, boolean located, int sign) {
+        if (extension == null || extension.isEmpty()) return;
+
+        LocalDateTime serviceDate = callRecord.getServiceDate();
+        ExtensionTotals t = target.computeIfAbsent(new ExtensionKey(extension, serviceDate.toLocalDate()),
+                k -> new ExtensionTotals());
+        t.callCount += sign;
+        if (incoming) t.incomingCount += sign;
+        if (located) t.locatedCount += sign;
+        if (t.firstSeen == null || serviceDate.isBefore(t.firstSeen)) t.firstSeen = serviceDate;
+        if (t.lastSeen == null || serviceDate.isAfter(t.lastSeen)) t.lastSeen = serviceDate;
+    }
+
+    private static long orNone(Long id) {
+        return id != null ? id : CallRecordDailyRollup.NONE;
+    }
+}
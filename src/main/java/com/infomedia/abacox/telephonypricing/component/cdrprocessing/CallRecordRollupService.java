@@ -0,0 +1,286 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.infomedia.abacox.telephonypricing.component.configmanager.ConfigKey;
+import com.infomedia.abacox.telephonypricing.component.configmanager.ConfigService;
+import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Maintains call_record_daily_rollup, the per-day aggregate that whole-day usage
+ * reports read instead of call_record.
+ * <p>
+ * Every path that writes call records keeps the rollup in step inside its own
+ * transaction: the batch persister and single-record reprocessing apply
+ * in-memory deltas, while re-rating and file cleanup subtract and re-add the
+ * aggregate of the affected rows in SQL. {@link #rebuild()} recomputes the whole
+ * table (history backfill, or after a data migration) and only then marks the
+ * tenant's rollups as usable by reports.
+ * <p>
+ * Each change also publishes a {@link CallRecordDaysChangedEvent} with the days it
+ * touched, which is how the dashboard aggregate store learns what to drop.
+ * <p>
+ * Deltas and file removals are passed on to {@link ExtensionActivityService},
+ * so extension_activity is written along with the rollup. Re-rating changes
+ * only prices and classification, which extension activity does not count.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class CallRecordRollupService {
+
+    private static final String TABLE = "call_record_daily_rollup";
+
+    private static final String KEY_COLUMNS =
+            "day, employee_id, telephony_type_id, operator_id, comm_location_id, is_incoming";
+
+    private static final String INSERT_PREFIX = "INSERT INTO call_record_daily_rollup AS r ("
+            + KEY_COLUMNS + ", call_count, total_duration, total_billed_amount) ";
+
+    private static final String UPSERT_SUFFIX = " ON CONFLICT (" + KEY_COLUMNS + ") DO UPDATE SET "
+            + "call_count = r.call_count + EXCLUDED.call_count, "
+            + "total_duration = r.total_duration + EXCLUDED.total_duration, "
+            + "total_billed_amount = r.total_billed_amount + EXCLUDED.total_billed_amount";
+
+    // Same key mapping as CallRecordRollupDelta, done in SQL
+    private static final String AGGREGATE_SELECT = "SELECT CAST(cr.service_date AS date), "
+            + "COALESCE(cr.employee_id, -1), COALESCE(cr.telephony_type_id, -1), COALESCE(cr.operator_id, -1), "
+            + "COALESCE(cr.comm_location_id, -1), cr.is_incoming, "
+            + ":sign * COUNT(*), :sign * COALESCE(SUM(cr.duration), 0), :sign * COALESCE(SUM(cr.billed_amount), 0) "
+            + "FROM call_record cr WHERE ";
+
+    private static final String AGGREGATE_GROUP_BY = " GROUP BY 1, 2, 3, 4, 5, 6";
+
+    // 9 bind parameters per row, well below the driver's 32767 limit
+    private static final int UPSERT_ROWS_PER_STATEMENT = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    private final ConfigService configService;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExtensionActivityService extensionActivityService;
+
+    @Value("${app.report.rollup.enabled:true}")
+    private boolean rollupReadsEnabled;
+
+    @Value("${app.report.rollup.rebuild-chunk-days:31}")
+    private int rebuildChunkDays;
+
+    /**
+     * Whether a report over [startDate, endDate] (inclusive, as in the report
+     * queries) can be answered from the daily rollup: the rollup must be built for
+     * this tenant and the range must cover whole days only.
+     */
+    public boolean canServe(LocalDateTime startDate, LocalDateTime endDate) {
+        if (!rollupReadsEnabled || startDate == null || endDate == null) return false;
+        if (!startDate.toLocalTime().equals(LocalTime.MIDNIGHT)) return false;
+        // Service dates have second precision, so 23:59:59 closes the day
+        if (endDate.toLocalTime().isBefore(LocalTime.of(23, 59, 59))) return false;
+        return configService.getValue(ConfigKey.CALL_ROLLUP_READY).asBoolean();
+    }
+
+    /**
+     * Applies in-memory deltas with one upsert per {@value #UPSERT_ROWS_PER_STATEMENT} keys.
+     * Must run in the transaction that writes the call records.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    void apply(CallRecordRollupDelta delta) {
+        if (delta.isEmpty()) return;
+        AggregateLock.lockForDelta(entityManager, TABLE);
+
+        List<Map.Entry<CallRecordRollupDelta.Key, CallRecordRollupDelta.Totals>> rows = new ArrayList<>();
+        Set<LocalDate> days = new TreeSet<>();
+        for (Map.Entry<CallRecordRollupDelta.Key, CallRecordRollupDelta.Totals> entry : delta.getTotals().entrySet()) {
+            if (!entry.getValue().isZero()) {
+                rows.add(entry);
+                days.add(entry.getKey().day());
+            }
+        }
+        for (int from = 0; from < rows.size(); from += UPSERT_ROWS_PER_STATEMENT) {
+            upsert(rows.subList(from, Math.min(rows.size(), from + UPSERT_ROWS_PER_STATEMENT)));
+        }
+        extensionActivityService.apply(delta.getExtensions(), delta.getDialedExtensions());
+        eventPublisher.publishEvent(new CallRecordDaysChangedEvent(TenantContext.getTenant(), days));
+    }
+
+    /**
+     * Adds (sign 1) or removes (sign -1) the given call records' contribution.
+     * Used around bulk statements that change records without loading them.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyCallRecordIds(Collection<Long> callRecordIds, int sign) {
+        if (callRecordIds == null || callRecordIds.isEmpty()) return;
+        AggregateLock.lockForDelta(entityManager, TABLE);
+        entityManager.createNativeQuery(INSERT_PREFIX + AGGREGATE_SELECT + "cr.id IN (:ids)"
+                        + AGGREGATE_GROUP_BY + UPSERT_SUFFIX)
+                .setParameter("sign", sign)
+                .setParameter("ids", callRecordIds)
+                .executeUpdate();
+        publishAllDaysChanged();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyFileInfo(Long fileInfoId, int sign) {
+        if (fileInfoId == null) return;
+        AggregateLock.lockForDelta(entityManager, TABLE);
+        entityManager.createNativeQuery(INSERT_PREFIX + AGGREGATE_SELECT + "cr.file_info_id = :fileInfoId"
+                        + AGGREGATE_GROUP_BY + UPSERT_SUFFIX)
+                .setParameter("sign", sign)
+                .setParameter("fileInfoId", fileInfoId)
+                .executeUpdate();
+        extensionActivityService.applyFileInfo(fileInfoId, sign);
+        publishAllDaysChanged();
+    }
+
+    /**
+     * Removes the rollup of [firstDay, endDay) for call records that are removed
+     * wholesale, such as a call_record partition dropped by retention.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removeDays(LocalDate firstDay, LocalDate endDay) {
+        entityManager.createNativeQuery("DELETE FROM call_record_daily_rollup WHERE day >= :firstDay AND day < :endDay")
+                .setParameter("firstDay", firstDay)
+                .setParameter("endDay", endDay)
+                .executeUpdate();
+        extensionActivityService.removeDays(firstDay, endDay);
+        eventPublisher.publishEvent(new CallRecordDaysChangedEvent(TenantContext.getTenant(),
+                new TreeSet<>(firstDay.datesUntil(endDay).toList())));
+    }
+
+    /**
+     * Marks the tenant's rollups as out of date, so reports read call_record until
+     * the next {@link #rebuild()}. Used before writes that bypass the rollup, such
+     * as data migration.
+     */
+    public void markStale() {
+        configService.updateValue(ConfigKey.CALL_ROLLUP_READY, false);
+    }
+
+    /**
+     * Recomputes the rollup for every day that has call records, one chunk of
+     * {@code app.report.rollup.rebuild-chunk-days} days per transaction, then marks
+     * it ready for reports. Ingestion does not need to stop: each chunk holds the
+     * {@link AggregateLock}, so batches persisted meanwhile either commit before the
+     * chunk reads call_record or add their delta after it commits.
+     */
+    public void rebuild() {
+        long startTime = System.currentTimeMillis();
+        String tenantId = TenantContext.getTenant();
+        markStale();
+
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        txTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        Object[] bounds = txTemplate.execute(status -> (Object[]) entityManager.createNativeQuery(
+                        "SELECT MIN(service_date), MAX(service_date) FROM call_record")
+                .getSingleResult());
+        if (bounds == null || bounds[0] == null) {
+            txTemplate.executeWithoutResult(status -> {
+                AggregateLock.lockForRebuild(entityManager, TABLE);
+                entityManager.createNativeQuery("DELETE FROM call_record_daily_rollup").executeUpdate();
+            });
+        } else {
+            LocalDate firstDay = toLocalDateTime(bounds[0]).toLocalDate();
+            LocalDate lastDay = toLocalDateTime(bounds[1]).toLocalDate();
+            txTemplate.executeWithoutResult(status -> {
+                AggregateLock.lockForRebuild(entityManager, TABLE);
+                entityManager.createNativeQuery("DELETE FROM call_record_daily_rollup WHERE day < :firstDay OR day > :lastDay")
+                        .setParameter("firstDay", firstDay)
+                        .setParameter("lastDay", lastDay)
+                        .executeUpdate();
+            });
+
+            for (LocalDate from = firstDay; !from.isAfter(lastDay); from = from.plusDays(rebuildChunkDays)) {
+                LocalDate to = from.plusDays(rebuildChunkDays - 1L);
+                LocalDate chunkEnd = to.isAfter(lastDay) ? lastDay : to;
+                LocalDate chunkStart = from;
+                txTemplate.executeWithoutResult(status -> rebuildDays(chunkStart, chunkEnd));
+                log.debug("Rebuilt call rollups for tenant [{}] from {} to {}", tenantId, chunkStart, chunkEnd);
+            }
+        }
+
+        configService.updateValue(ConfigKey.CALL_ROLLUP_READY, true);
+        publishAllDaysChanged();
+        log.info("Rebuilt daily call rollups for tenant [{}] in {} ms", tenantId,
+                System.currentTimeMillis() - startTime);
+    }
+
+    private void rebuildDays(LocalDate firstDay, LocalDate lastDay) {
+        // No delta can change these days until the chunk commits, so the aggregate is inserted as is
+        AggregateLock.lockForRebuild(entityManager, TABLE);
+        entityManager.createNativeQuery("DELETE FROM call_record_daily_rollup WHERE day BETWEEN :firstDay AND :lastDay")
+                .setParameter("firstDay", firstDay)
+                .setParameter("lastDay", lastDay)
+                .executeUpdate();
+        entityManager.createNativeQuery(INSERT_PREFIX + AGGREGATE_SELECT
+                        + "cr.service_date >= :startDate AND cr.service_date < :endDate"
+                        + AGGREGATE_GROUP_BY)
+                .setParameter("sign", 1)
+                .setParameter("startDate", firstDay.atStartOfDay())
+                .setParameter("endDate", lastDay.plusDays(1).atStartOfDay())
+                .executeUpdate();
+    }
+
+    private void publishAllDaysChanged() {
+        eventPublisher.publishEvent(new CallRecordDaysChangedEvent(TenantContext.getTenant(), null));
+    }
+
+    private void upsert(List<Map.Entry<CallRecordRollupDelta.Key, CallRecordRollupDelta.Totals>> rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX).append("VALUES ");
+        int param = 1;
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) sql.append(", ");
+            sql.append("(?").append(param++);
+            for (int c = 1; c < 9; c++) {
+                sql.append(", ?").append(param++);
+            }
+            sql.append(')');
+        }
+        sql.append(UPSERT_SUFFIX);
+
+        NativeQuery<?> query = entityManager.createNativeQuery(sql.toString()).unwrap(NativeQuery.class);
+        param = 1;
+        for (Map.Entry<CallRecordRollupDelta.Key, CallRecordRollupDelta.Totals> row : rows) {
+            CallRecordRollupDelta.Key key = row.getKey();
+            CallRecordRollupDelta.Totals totals = row.getValue();
+            query.setParameter(param++, key.day(), StandardBasicTypes.LOCAL_DATE);
+            query.setParameter(param++, key.employeeId(), StandardBasicTypes.LONG);
+            query.setParameter(param++, key.telephonyTypeId(), StandardBasicTypes.LONG);
+            query.setParameter(param++, key.operatorId(), StandardBasicTypes.LONG);
+            query.setParameter(param++, key.commLocationId(), StandardBasicTypes.LONG);
+            query.setParameter(param++, key.incoming(), StandardBasicTypes.BOOLEAN);
+            query.setParameter(param++, totals.callCount, StandardBasicTypes.LONG);
+            query.setParameter(param++, totals.duration, StandardBasicTypes.LONG);
+            query.setParameter(param++, totals.billedAmount, StandardBasicTypes.BIG_DECIMAL);
+        }
+        query.executeUpdate();
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+}
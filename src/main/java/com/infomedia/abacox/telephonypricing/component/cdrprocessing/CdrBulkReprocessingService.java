@@ -0,0 +1,289 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.infomedia.abacox.telephonypricing.component.utils.XXHash128Util;
+import com.infomedia.abacox.telephonypricing.db.entity.CommunicationLocation;
+import com.infomedia.abacox.telephonypricing.db.entity.ExtensionRange;
+import com.infomedia.abacox.telephonypricing.db.entity.FileInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reprocesses large sets of call records or failed call records grouped by
+ * their source file.
+ * <p>
+ * Instead of one task, transaction, file scan and lookup snapshot per record,
+ * each source file is read once (or only the blocks that are needed, when the
+ * file has a {@link CdrLineIndex}), the wanted lines are matched against a hash
+ * set, a single extension limits/ranges snapshot is shared by every record in
+ * the run, and results are written in batches through {@link TenantBatchPersister}.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class CdrBulkReprocessingService {
+
+    private static final int ID_LOOKUP_CHUNK_SIZE = 1000;
+
+    private final CallRecordPersistenceService callRecordPersistenceService;
+    private final FailedCallRecordPersistenceService failedCallRecordPersistenceService;
+    private final FileInfoPersistenceService fileInfoPersistenceService;
+    private final CdrLineIndexService cdrLineIndexService;
+    private final CommunicationLocationLookupService commLocationLookupService;
+    private final EmployeeLookupService employeeLookupService;
+    private final CdrProcessorService cdrProcessorService;
+    private final TenantBatchPersister tenantBatchPersister;
+    private final List<CdrProcessor> cdrProcessors;
+
+    public BulkReprocessingResultDto reprocessCallRecords(List<Long> callRecordIds) {
+        return reprocess(callRecordIds, callRecordPersistenceService::findReprocessTargets,
+                tenantBatchPersister::persistReprocessedCallRecords, "CallRecord");
+    }
+
+    public BulkReprocessingResultDto reprocessFailedCallRecords(List<Long> failedCallRecordIds) {
+        return reprocess(failedCallRecordIds, failedCallRecordPersistenceService::findReprocessTargets,
+                tenantBatchPersister::persistReprocessedFailedCallRecords, "FailedCallRecord");
+    }
+
+    private BulkReprocessingResultDto reprocess(List<Long> ids,
+                                                Function<List<Long>, List<ReprocessTarget>> targetLoader,
+                                                Function<Map<Long, ProcessedCdrResult>, Integer> resultWriter,
+                                                String recordType) {
+        long startTime = System.currentTimeMillis();
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+
+        List<ReprocessTarget> targets = new ArrayList<>(distinctIds.size());
+        for (int i = 0; i < distinctIds.size(); i += ID_LOOKUP_CHUNK_SIZE) {
+            targets.addAll(targetLoader.apply(
+                    distinctIds.subList(i, Math.min(i + ID_LOOKUP_CHUNK_SIZE, distinctIds.size()))));
+        }
+
+        // One lookup snapshot for the whole run
+        Map<Long, ExtensionLimits> extensionLimits = employeeLookupService.getExtensionLimits();
+        Map<Long, List<ExtensionRange>> extensionRanges = employeeLookupService.getExtensionRanges();
+        Map<Long, Optional<CommunicationLocation>> commLocations = new HashMap<>();
+
+        Map<Long, List<ReprocessTarget>> targetsByFile = targets.stream()
+                .filter(t -> t.fileInfoId() != null && t.ctlHash() != null && t.commLocationId() != null)
+                .collect(Collectors.groupingBy(ReprocessTarget::fileInfoId, LinkedHashMap::new, Collectors.toList()));
+
+        int missing = distinctIds.size() - targetsByFile.values().stream().mapToInt(List::size).sum();
+        int succeeded = 0;
+        int quarantined = 0;
+
+        for (Map.Entry<Long, List<ReprocessTarget>> fileEntry : targetsByFile.entrySet()) {
+            Long fileInfoId = fileEntry.getKey();
+            List<ReprocessTarget> fileTargets = fileEntry.getValue();
+
+            FileInfo fileInfo = fileInfoPersistenceService.findById(fileInfoId);
+            CdrProcessor fileProcessor = fileInfo != null && fileInfo.getPlantTypeId() != null
+                    ? findProcessor(fileInfo.getPlantTypeId().longValue())
+                    : null;
+            if (fileProcessor == null) {
+                log.warn("Skipping {} {}(s) of FileInfo ID {}: file or processor not found.",
+                        fileTargets.size(), recordType, fileInfoId);
+                missing += fileTargets.size();
+                continue;
+            }
+
+            FileLines fileLines;
+            try {
+                Set<UUID> wanted = fileTargets.stream().map(ReprocessTarget::ctlHash).collect(Collectors.toSet());
+                fileLines = readLines(fileInfo, fileProcessor, wanted);
+            } catch (IOException e) {
+                log.error("Failed to read FileInfo ID {} for bulk reprocessing. Skipping {} {}(s).",
+                        fileInfoId, fileTargets.size(), recordType, e);
+                missing += fileTargets.size();
+                continue;
+            }
+            Map<String, Integer> headerPositions = fileLines.headerLine() != null
+                    ? fileProcessor.parseHeader(fileLines.headerLine())
+                    : new HashMap<>();
+
+            List<ReprocessTarget> chunkTargets = new ArrayList<>(CdrConfigService.CDR_PROCESSING_BATCH_SIZE);
+            List<LineProcessingContext> chunkContexts = new ArrayList<>(CdrConfigService.CDR_PROCESSING_BATCH_SIZE);
+
+            for (ReprocessTarget target : fileTargets) {
+                String line = fileLines.lines().get(target.ctlHash());
+                Optional<CommunicationLocation> commLocation = commLocations.computeIfAbsent(
+                        target.commLocationId(), commLocationLookupService::findById);
+                CdrProcessor processor = commLocation
+                        .map(cl -> findProcessor(cl.getPlantTypeId()))
+                        .orElse(null);
+                if (line == null || processor == null) {
+                    missing++;
+                    continue;
+                }
+
+                chunkTargets.add(target);
+                chunkContexts.add(LineProcessingContext.builder()
+                        .cdrLine(line)
+                        .commLocation(commLocation.get())
+                        .cdrProcessor(processor)
+                        .extensionRanges(extensionRanges)
+                        .extensionLimits(extensionLimits)
+                        .fileInfo(fileInfo)
+                        .headerPositions(headerPositions)
+                        .build());
+
+                if (chunkContexts.size() >= CdrConfigService.CDR_PROCESSING_BATCH_SIZE) {
+                    int[] counts = processChunk(chunkTargets, chunkContexts, resultWriter);
+                    succeeded += counts[0];
+                    quarantined += counts[1];
+                    chunkTargets.clear();
+                    chunkContexts.clear();
+                }
+            }
+            if (!chunkContexts.isEmpty()) {
+                int[] counts = processChunk(chunkTargets, chunkContexts, resultWriter);
+                succeeded += counts[0];
+                quarantined += counts[1];
+            }
+        }
+
+        long durationMs = System.currentTimeMillis() - startTime;
+        log.info("Bulk reprocessing of {} {}(s) across {} file(s) finished in {} ms: {} succeeded, {} quarantined, {} not found.",
+                distinctIds.size(), recordType, targetsByFile.size(), durationMs, succeeded, quarantined, missing);
+
+        return BulkReprocessingResultDto.builder()
+                .requested(distinctIds.size())
+                .files(targetsByFile.size())
+                .succeeded(succeeded)
+                .quarantined(quarantined)
+                .notFound(missing)
+                .durationMs(durationMs)
+                .build();
+    }
+
+    /**
+     * @return {succeeded, quarantined}
+     */
+    private int[] processChunk(List<ReprocessTarget> targets, List<LineProcessingContext> contexts,
+                               Function<Map<Long, ProcessedCdrResult>, Integer> resultWriter) {
+        List<ProcessedCdrResult> results = cdrProcessorService.processCdrDataBatch(contexts);
+
+        Map<Long, ProcessedCdrResult> resultsById = new LinkedHashMap<>();
+        int quarantined = 0;
+        for (int i = 0; i < results.size(); i++) {
+            ProcessedCdrResult result = results.get(i);
+            if (result.getOutcome() == ProcessingOutcome.SKIPPED) {
+                result = parserSkippedResult(contexts.get(i));
+            }
+            if (result.getOutcome() != ProcessingOutcome.SUCCESS) {
+                quarantined++;
+            }
+            resultsById.put(targets.get(i).id(), result);
+        }
+
+        int succeeded = resultWriter.apply(resultsById);
+        return new int[]{succeeded, quarantined};
+    }
+
+    /**
+     * Same outcome as single-record reprocessing when the parser rejects a line.
+     */
+    private ProcessedCdrResult parserSkippedResult(LineProcessingContext context) {
+        CdrData cdrData = new CdrData();
+        cdrData.setRawCdrLine(context.getCdrLine());
+        cdrData.setFileInfo(context.getFileInfo());
+        cdrData.setCommLocationId(context.getCommLocationId());
+        cdrData.setMarkedForQuarantine(true);
+        cdrData.setQuarantineReason("Parser returned null during reprocessing.");
+        cdrData.setQuarantineStep(QuarantineErrorType.PARSER_ERROR.name());
+
+        return ProcessedCdrResult.builder()
+                .cdrData(cdrData)
+                .outcome(ProcessingOutcome.QUARANTINED)
+                .errorType(QuarantineErrorType.PARSER_ERROR)
+                .errorMessage(cdrData.getQuarantineReason())
+                .errorStep(cdrData.getQuarantineStep())
+                .build();
+    }
+
+    private record FileLines(String headerLine, Map<UUID, String> lines) {
+    }
+
+    /**
+     * Collects the wanted lines of a file. With a line index and only a few blocks
+     * involved, just those blocks are range-read; otherwise the file is streamed
+     * once and every line is matched against the wanted hash set.
+     */
+    private FileLines readLines(FileInfo fileInfo, CdrProcessor processor, Set<UUID> wanted) throws IOException {
+        Optional<CdrLineIndex> indexOpt = cdrLineIndexService.getIndex(fileInfo);
+        if (indexOpt.isPresent()) {
+            CdrLineIndex index = indexOpt.get();
+            Map<Long, List<Map.Entry<UUID, CdrLineIndex.LineLocation>>> byBlock = new HashMap<>();
+            for (UUID hash : wanted) {
+                CdrLineIndex.LineLocation location = index.find(hash);
+                if (location != null) {
+                    byBlock.computeIfAbsent(location.blockOffset(), k -> new ArrayList<>())
+                            .add(Map.entry(hash, location));
+                }
+            }
+
+            // Past half of the blocks, one sequential download beats many range GETs
+            if (byBlock.size() * 2 <= index.getBlockCount()) {
+                Map<UUID, String> lines = new HashMap<>();
+                for (List<Map.Entry<UUID, CdrLineIndex.LineLocation>> blockEntries : byBlock.values()) {
+                    byte[] block = cdrLineIndexService.readBlock(fileInfo, blockEntries.get(0).getValue());
+                    for (Map.Entry<UUID, CdrLineIndex.LineLocation> entry : blockEntries) {
+                        lines.put(entry.getKey(), CdrLineIndex.extractLine(block, entry.getValue()));
+                    }
+                }
+                return new FileLines(index.getHeaderLine(), lines);
+            }
+        }
+        return scanFile(fileInfo, processor, wanted);
+    }
+
+    private FileLines scanFile(FileInfo fileInfo, CdrProcessor processor, Set<UUID> wanted) throws IOException {
+        Optional<FileInfoData> fileDataOpt = fileInfoPersistenceService.getOriginalFileData(fileInfo.getId());
+        if (fileDataOpt.isEmpty()) {
+            throw new IOException("Original file not available for FileInfo ID " + fileInfo.getId());
+        }
+
+        String headerLine = null;
+        Map<UUID, String> lines = new HashMap<>();
+        try (InputStream is = fileDataOpt.get().content();
+             InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8);
+             BufferedReader br = new BufferedReader(reader)) {
+
+            String line;
+            while ((line = br.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty())
+                    continue;
+
+                if (headerLine == null && processor.isHeaderLine(trimmed)) {
+                    headerLine = trimmed;
+                    continue;
+                }
+
+                UUID lineHash = XXHash128Util.hash(trimmed.getBytes(StandardCharsets.UTF_8));
+                if (wanted.contains(lineHash)) {
+                    lines.put(lineHash, trimmed);
+                    if (lines.size() == wanted.size()) {
+                        break;
+                    }
+                }
+            }
+        }
+        return new FileLines(headerLine, lines);
+    }
+
+    private CdrProcessor findProcessor(Long plantTypeId) {
+        return cdrProcessors.stream()
+                .filter(p -> p.getPlantTypeIdentifiers().contains(plantTypeId))
+                .findFirst()
+                .orElse(null);
+    }
+}
@@ -84,18 +84,14 @@ public class CdrFileProcessorWorker {
     public static class StartupRecoveryService {
         private final FileInfoPersistenceService fileInfoPersistenceService;
         private final MultitenantRunner multitenantRunner;
-        private final CdrConfigService cdrConfigService;
 
         @EventListener(ContextRefreshedEvent.class)
         public void onApplicationEvent() {
             log.info("Application started. Recovering stalled files...");
-            multitenantRunner.runForAllTenants(tenant -> {
-                if (!cdrConfigService.isCdrProcessingEnabled()) {
-                    log.info("Startup recovery skipped for tenant: CDR processing disabled.");
-                    return;
-                }
-                fileInfoPersistenceService.resetInProgressToPending();
-            });
+            // Nothing is in flight yet, so IN_PROGRESS files were interrupted by the previous
+            // run; the tracker never knew them. Tenants with CDR processing disabled are reset
+            // too, to be picked up once it is enabled again, as files abandoned mid-flight are.
+            multitenantRunner.runForAllTenants(tenant -> fileInfoPersistenceService.resetInProgressToPending());
         }
     }
 }
\ No newline at end of file
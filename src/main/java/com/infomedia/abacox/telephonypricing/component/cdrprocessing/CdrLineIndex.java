@@ -0,0 +1,269 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import lombok.Getter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sidecar index for a CDR object stored in block-gzip layout (see
+ * {@link BlockGzipCompressor}). The object is a concatenation of independent
+ * gzip members, each holding whole lines, so any single block can be fetched
+ * with a range GET and decompressed on its own.
+ * <p>
+ * Entries are sorted by line hash (the same XXH3-128 hash used for
+ * {@code ctl_hash}), so a lookup is a binary search followed by one block read.
+ * The file header line is kept here too, so reprocessing never has to open the
+ * CDR object just to rebuild the column map.
+ */
+public class CdrLineIndex {
+
+    private static final int MAGIC = 0x43444958; // "CDIX"
+    private static final int VERSION = 1;
+
+    @Getter
+    private final String headerLine;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final long[] hashMsb;
+    private final long[] hashLsb;
+    private final int[] lineBlocks;
+    private final int[] lineOffsets;
+    private final int[] lineLengths;
+
+    /**
+     * Location of a single line: the compressed block that holds it and the
+     * position of the line bytes inside the decompressed block.
+     */
+    public record LineLocation(long blockOffset, int blockLength, int offsetInBlock, int length) {
+    }
+
+    CdrLineIndex(String headerLine, long[] blockOffsets, int[] blockLengths,
+                 long[] hashMsb, long[] hashLsb, int[] lineBlocks, int[] lineOffsets, int[] lineLengths) {
+        this.headerLine = headerLine;
+        this.blockOffsets = blockOffsets;
+        this.blockLengths = blockLengths;
+        this.hashMsb = hashMsb;
+        this.hashLsb = hashLsb;
+        this.lineBlocks = lineBlocks;
+        this.lineOffsets = lineOffsets;
+        this.lineLengths = lineLengths;
+    }
+
+    public int getLineCount() {
+        return hashMsb.length;
+    }
+
+    public int getBlockCount() {
+        return blockOffsets.length;
+    }
+
+    /**
+     * Finds the location of the line whose trimmed content hashes to the given value.
+     *
+     * @return the location, or null if the hash is not in this file
+     */
+    public LineLocation find(UUID hash) {
+        long msb = hash.getMostSignificantBits();
+        long lsb = hash.getLeastSignificantBits();
+        int low = 0;
+        int high = hashMsb.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(hashMsb[mid], hashLsb[mid], msb, lsb);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                int block = lineBlocks[mid];
+                return new LineLocation(blockOffsets[block], blockLengths[block], lineOffsets[mid], lineLengths[mid]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Extracts a line from an already decompressed block.
+     */
+    public static String extractLine(byte[] block, LineLocation location) {
+        return new String(block, location.offsetInBlock(), location.length(), StandardCharsets.UTF_8).trim();
+    }
+
+    static int compare(long msbA, long lsbA, long msbB, long lsbB) {
+        int cmp = Long.compare(msbA, msbB);
+        return cmp != 0 ? cmp : Long.compare(lsbA, lsbB);
+    }
+
+    public void write(OutputStream outputStream) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new GZIPOutputStream(outputStream)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            byte[] header = headerLine != null ? headerLine.getBytes(StandardCharsets.UTF_8) : null;
+            out.writeInt(header != null ? header.length : -1);
+            if (header != null) {
+                out.write(header);
+            }
+
+            out.writeInt(blockOffsets.length);
+            for (int i = 0; i < blockOffsets.length; i++) {
+                out.writeLong(blockOffsets[i]);
+                out.writeInt(blockLengths[i]);
+            }
+
+            out.writeInt(hashMsb.length);
+            for (int i = 0; i < hashMsb.length; i++) {
+                out.writeLong(hashMsb[i]);
+                out.writeLong(hashLsb[i]);
+                out.writeInt(lineBlocks[i]);
+                out.writeInt(lineOffsets[i]);
+                out.writeInt(lineLengths[i]);
+            }
+        }
+    }
+
+    public static CdrLineIndex read(InputStream inputStream) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new GZIPInputStream(inputStream)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a CDR line index");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported CDR line index version: " + version);
+            }
+
+            int headerLength = in.readInt();
+            String headerLine = null;
+            if (headerLength >= 0) {
+                byte[] header = new byte[headerLength];
+                in.readFully(header);
+                headerLine = new String(header, StandardCharsets.UTF_8);
+            }
+
+            int blockCount = in.readInt();
+            long[] blockOffsets = new long[blockCount];
+            int[] blockLengths = new int[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                blockOffsets[i] = in.readLong();
+                blockLengths[i] = in.readInt();
+            }
+
+            int lineCount = in.readInt();
+            long[] hashMsb = new long[lineCount];
+            long[] hashLsb = new long[lineCount];
+            int[] lineBlocks = new int[lineCount];
+            int[] lineOffsets = new int[lineCount];
+            int[] lineLengths = new int[lineCount];
+            for (int i = 0; i < lineCount; i++) {
+                hashMsb[i] = in.readLong();
+                hashLsb[i] = in.readLong();
+                lineBlocks[i] = in.readInt();
+                lineOffsets[i] = in.readInt();
+                lineLengths[i] = in.readInt();
+            }
+
+            return new CdrLineIndex(headerLine, blockOffsets, blockLengths,
+                    hashMsb, hashLsb, lineBlocks, lineOffsets, lineLengths);
+        }
+    }
+
+    /**
+     * Accumulates line entries in file order and produces a hash-sorted index.
+     */
+    static class Builder {
+        private String headerLine;
+        private long[] blockOffsets = new long[16];
+        private int[] blockLengths = new int[16];
+        private int blockCount;
+        private long[] hashMsb = new long[1024];
+        private long[] hashLsb = new long[1024];
+        private int[] lineBlocks = new int[1024];
+        private int[] lineOffsets = new int[1024];
+        private int[] lineLengths = new int[1024];
+        private int lineCount;
+
+        void headerLine(String headerLine) {
+            this.headerLine = headerLine;
+        }
+
+        boolean hasHeaderLine() {
+            return headerLine != null;
+        }
+
+        /**
+         * Index of the block currently being filled (the next one to be added).
+         */
+        int currentBlock() {
+            return blockCount;
+        }
+
+        void addBlock(long compressedOffset, int compressedLength) {
+            if (blockCount == blockOffsets.length) {
+                blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+                blockLengths = Arrays.copyOf(blockLengths, blockCount * 2);
+            }
+            blockOffsets[blockCount] = compressedOffset;
+            blockLengths[blockCount] = compressedLength;
+            blockCount++;
+        }
+
+        void addLine(UUID hash, int block, int offsetInBlock, int length) {
+            if (lineCount == hashMsb.length) {
+                int newSize = lineCount * 2;
+                hashMsb = Arrays.copyOf(hashMsb, newSize);
+                hashLsb = Arrays.copyOf(hashLsb, newSize);
+                lineBlocks = Arrays.copyOf(lineBlocks, newSize);
+                lineOffsets = Arrays.copyOf(lineOffsets, newSize);
+                lineLengths = Arrays.copyOf(lineLengths, newSize);
+            }
+            hashMsb[lineCount] = hash.getMostSignificantBits();
+            hashLsb[lineCount] = hash.getLeastSignificantBits();
+            lineBlocks[lineCount] = block;
+            lineOffsets[lineCount] = offsetInBlock;
+            lineLengths[lineCount] = length;
+            lineCount++;
+        }
+
+        CdrLineIndex build() {
+            int[] order = new int[lineCount];
+            for (int i = 0; i < lineCount; i++) {
+                order[i] = i;
+            }
+            // Duplicated lines have identical content, so whichever copy survives is fine
+            IntArrays.quickSort(order, (a, b) -> compare(hashMsb[a], hashLsb[a], hashMsb[b], hashLsb[b]));
+
+            long[] sortedMsb = new long[lineCount];
+            long[] sortedLsb = new long[lineCount];
+            int[] sortedBlocks = new int[lineCount];
+            int[] sortedOffsets = new int[lineCount];
+            int[] sortedLengths = new int[lineCount];
+            int unique = 0;
+            for (int i = 0; i < lineCount; i++) {
+                int idx = order[i];
+                if (unique > 0 && sortedMsb[unique - 1] == hashMsb[idx] && sortedLsb[unique - 1] == hashLsb[idx]) {
+                    continue;
+                }
+                sortedMsb[unique] = hashMsb[idx];
+                sortedLsb[unique] = hashLsb[idx];
+                sortedBlocks[unique] = lineBlocks[idx];
+                sortedOffsets[unique] = lineOffsets[idx];
+                sortedLengths[unique] = lineLengths[idx];
+                unique++;
+            }
+
+            return new CdrLineIndex(headerLine,
+                    Arrays.copyOf(blockOffsets, blockCount), Arrays.copyOf(blockLengths, blockCount),
+                    Arrays.copyOf(sortedMsb, unique), Arrays.copyOf(sortedLsb, unique),
+                    Arrays.copyOf(sortedBlocks, unique), Arrays.copyOf(sortedOffsets, unique),
+                    Arrays.copyOf(sortedLengths, unique));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.infomedia.abacox.telephonypricing.db.entity.FileInfo;
+import com.infomedia.abacox.telephonypricing.service.MinioStorageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Random access to single CDR lines through the sidecar {@link CdrLineIndex}
+ * written at ingestion. A lookup costs one (cached) index read plus one range
+ * GET of a single gzip block, instead of downloading and rehashing the whole
+ * file.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class CdrLineIndexService {
+
+    private final MinioStorageService minioStorageService;
+
+    // Bulk reprocessing hits the same few files repeatedly; indexes are small and immutable
+    private final Cache<String, CdrLineIndex> indexCache = Caffeine.newBuilder()
+            .maximumSize(64)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+
+    /**
+     * Loads the line index for a file, if it was stored with one.
+     */
+    public Optional<CdrLineIndex> getIndex(FileInfo fileInfo) {
+        if (fileInfo == null || fileInfo.getStorageIndexObjectName() == null || fileInfo.getStorageBucket() == null) {
+            return Optional.empty();
+        }
+        String cacheKey = fileInfo.getStorageBucket() + "/" + fileInfo.getStorageIndexObjectName();
+        CdrLineIndex cached = indexCache.getIfPresent(cacheKey);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        try (InputStream in = minioStorageService.downloadFile(fileInfo.getStorageBucket(),
+                fileInfo.getStorageIndexObjectName())) {
+            CdrLineIndex index = CdrLineIndex.read(in);
+            indexCache.put(cacheKey, index);
+            return Optional.of(index);
+        } catch (Exception e) {
+            log.warn("Failed to load line index {} for FileInfo ID {}. Falling back to a full scan.",
+                    fileInfo.getStorageIndexObjectName(), fileInfo.getId(), e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads the line with the given hash by fetching only the block that contains it.
+     *
+     * @return the trimmed line, or null if the hash is not present in the file
+     */
+    public String readLine(FileInfo fileInfo, CdrLineIndex index, UUID hash) throws IOException {
+        CdrLineIndex.LineLocation location = index.find(hash);
+        if (location == null) {
+            return null;
+        }
+        byte[] block = readBlock(fileInfo, location);
+        return CdrLineIndex.extractLine(block, location);
+    }
+
+    /**
+     * Fetches and decompresses a single block of the CDR object with a range GET.
+     */
+    public byte[] readBlock(FileInfo fileInfo, CdrLineIndex.LineLocation location) throws IOException {
+        try (InputStream compressed = minioStorageService.downloadRange(fileInfo.getStorageBucket(),
+                fileInfo.getStorageObjectName(), location.blockOffset(), location.blockLength());
+             InputStream in = new GZIPInputStream(compressed)) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges for the CDR pipeline backlog: persistence queue depth, CDR executor
+ * activity and files in flight. Registered by Spring Boot's Micrometer
+ * auto-configuration like any other {@link MeterBinder}.
+ */
+@Component
+public class CdrPipelineGauges implements MeterBinder {
+
+    private final PersistenceQueueService persistenceQueueService;
+    private final FileProcessingTrackerService trackerService;
+    private final ThreadPoolTaskExecutor cdrTaskExecutor;
+
+    public CdrPipelineGauges(PersistenceQueueService persistenceQueueService,
+                             FileProcessingTrackerService trackerService,
+                             @Qualifier("cdrTaskExecutor") ThreadPoolTaskExecutor cdrTaskExecutor) {
+        this.persistenceQueueService = persistenceQueueService;
+        this.trackerService = trackerService;
+        this.cdrTaskExecutor = cdrTaskExecutor;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("cdr.persistence.queue.size", persistenceQueueService, PersistenceQueueService::size)
+                .description("Processed CDRs waiting to be persisted")
+                .register(registry);
+        Gauge.builder("cdr.executor.active", cdrTaskExecutor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("CDR executor threads currently running a task")
+                .register(registry);
+        Gauge.builder("cdr.executor.queued", cdrTaskExecutor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("CDR executor tasks waiting for a thread")
+                .register(registry);
+        Gauge.builder("cdr.files.in_flight", trackerService, FileProcessingTrackerService::getInFlightCount)
+                .description("CDR files being parsed or waiting for their records to be persisted")
+                .register(registry);
+    }
+}
@@ -0,0 +1,157 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instrumentation for the CDR ingest pipeline.
+ * <p>
+ * Every meter is tagged with {@code tenant} and {@code plant_type}. Stages that
+ * work on a whole file (download, parse, route) are recorded once per file,
+ * batch stages (prefetch, persist, flush, rollup) once per batch, and per-record stages
+ * (enrich, queue wait, tariff lookups) once per record or call. Batch stages mix
+ * plant types and use {@code plant_type=all}.
+ */
+@Component
+@RequiredArgsConstructor
+public class CdrPipelineMetrics {
+
+    public static final String ALL_PLANT_TYPES = "all";
+
+    public enum Stage {
+        DOWNLOAD, PARSE, ROUTE, PREFETCH, ENRICH, QUEUE_WAIT, PERSIST, FLUSH, ROLLUP, CONFERENCE;
+
+        private final String tag = name().toLowerCase();
+    }
+
+    public enum Lookup {
+        PREFIX, INDICATOR, TRUNK, BASE_TARIFF, SPECIAL_RATE, TRUNK_RULE;
+
+        private final String tag = name().toLowerCase();
+    }
+
+    private final MeterRegistry registry;
+
+    // Builder lookups allocate; the hot path goes through these caches instead
+    private final Map<MeterKey, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<MeterKey, Timer> lookupTimers = new ConcurrentHashMap<>();
+    private final Map<MeterKey, Counter> counters = new ConcurrentHashMap<>();
+
+    private record MeterKey(String name, String tenant, String plantType) {
+    }
+
+    public void recordStage(Stage stage, Object plantType, long nanos) {
+        recordStage(stage, currentTenant(), plantType, nanos);
+    }
+
+    private void recordStage(Stage stage, String tenant, Object plantType, long nanos) {
+        MeterKey key = new MeterKey(stage.tag, tenant, plantTypeTag(plantType));
+        stageTimers.computeIfAbsent(key, k -> Timer.builder("cdr.pipeline.stage")
+                        .description("Time spent in each CDR pipeline stage")
+                        .tag("stage", k.name())
+                        .tag("tenant", k.tenant())
+                        .tag("plant_type", k.plantType())
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a stage that started at {@code startNanos} (from {@link System#nanoTime()}).
+     */
+    public void recordStageSince(Stage stage, Object plantType, long startNanos) {
+        recordStage(stage, plantType, System.nanoTime() - startNanos);
+    }
+
+    public void recordLookupSince(Lookup lookup, Object plantType, long startNanos) {
+        MeterKey key = new MeterKey(lookup.tag, currentTenant(), plantTypeTag(plantType));
+        lookupTimers.computeIfAbsent(key, k -> Timer.builder("cdr.tariff.lookup")
+                        .description("Time spent in each tariff lookup service")
+                        .tag("service", k.name())
+                        .tag("tenant", k.tenant())
+                        .tag("plant_type", k.plantType())
+                        .register(registry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts CDR lines or records by outcome (read, routed, unroutable, success,
+     * quarantined).
+     */
+    public void count(String outcome, Object plantType, long amount) {
+        if (amount <= 0) return;
+        MeterKey key = new MeterKey(outcome, currentTenant(), plantTypeTag(plantType));
+        counters.computeIfAbsent(key, k -> Counter.builder("cdr.pipeline.records")
+                        .description("CDR lines and records handled by the pipeline, by outcome")
+                        .tag("outcome", k.name())
+                        .tag("tenant", k.tenant())
+                        .tag("plant_type", k.plantType())
+                        .register(registry))
+                .increment(amount);
+    }
+
+    /**
+     * Wraps a file content stream so the time spent inside {@code read} calls
+     * (object download plus decompression) is recorded as the download stage when
+     * the stream is closed. Parsing overlaps the transfer, so this is the only way
+     * to separate the two.
+     */
+    public InputStream timeDownload(InputStream in, Object plantType) {
+        String tenant = currentTenant();
+        return new FilterInputStream(in) {
+            private long nanos;
+            private boolean recorded;
+
+            @Override
+            public int read() throws IOException {
+                long start = System.nanoTime();
+                try {
+                    return super.read();
+                } finally {
+                    nanos += System.nanoTime() - start;
+                }
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                long start = System.nanoTime();
+                try {
+                    return super.read(b, off, len);
+                } finally {
+                    nanos += System.nanoTime() - start;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (!recorded) {
+                        recorded = true;
+                        recordStage(Stage.DOWNLOAD, tenant, plantType, nanos);
+                    }
+                }
+            }
+        };
+    }
+
+    private static String currentTenant() {
+        String tenant = TenantContext.getTenant();
+        return tenant != null ? tenant : "none";
+    }
+
+    private static String plantTypeTag(Object plantType) {
+        return plantType != null ? plantType.toString() : "unknown";
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 
@@ -27,6 +28,12 @@ public class CdrProcessingExecutor {
 
     private final CdrRoutingService cdrRoutingService;
     private final CdrProcessorService cdrProcessorService;
+    private final CdrBulkReprocessingService cdrBulkReprocessingService;
+    private final CallRecordRerateService callRecordRerateService;
+    private final CallRecordRollupService callRecordRollupService;
+    private final ConferenceGroupService conferenceGroupService;
+    private final ExtensionActivityService extensionActivityService;
+    private final CallRecordPartitionService callRecordPartitionService;
 
     // This nested static class is a standard Spring Configuration.
     // It's co-located here for organizational purposes.
@@ -108,6 +115,77 @@ public class CdrProcessingExecutor {
         });
     }
 
+    public Future<?> submitBulkCallRecordReprocessing(List<Long> callRecordIds) {
+        return taskExecutor.submit(() -> {
+            try {
+                cdrBulkReprocessingService.reprocessCallRecords(callRecordIds);
+            } catch (Exception e) {
+                log.error("Uncaught exception during bulk reprocessing of {} call record(s)", callRecordIds.size(), e);
+            }
+        });
+    }
+
+    public Future<?> submitBulkFailedCallRecordReprocessing(List<Long> failedCallRecordIds) {
+        return taskExecutor.submit(() -> {
+            try {
+                cdrBulkReprocessingService.reprocessFailedCallRecords(failedCallRecordIds);
+            } catch (Exception e) {
+                log.error("Uncaught exception during bulk reprocessing of {} failed call record(s)",
+                        failedCallRecordIds.size(), e);
+            }
+        });
+    }
+
+    public Future<?> submitRerate(RerateCriteria criteria) {
+        return taskExecutor.submit(() -> {
+            try {
+                callRecordRerateService.rerate(criteria);
+            } catch (Exception e) {
+                log.error("Uncaught exception during re-rating of {}", criteria, e);
+            }
+        });
+    }
+
+    public Future<?> submitRollupRebuild() {
+        return taskExecutor.submit(() -> {
+            try {
+                callRecordRollupService.rebuild();
+            } catch (Exception e) {
+                log.error("Uncaught exception during daily call rollup rebuild", e);
+            }
+        });
+    }
+
+    public Future<?> submitConferenceGroupRebuild() {
+        return taskExecutor.submit(() -> {
+            try {
+                conferenceGroupService.rebuild();
+            } catch (Exception e) {
+                log.error("Uncaught exception during conference group rebuild", e);
+            }
+        });
+    }
+
+    public Future<?> submitPartitionConversion() {
+        return taskExecutor.submit(() -> {
+            try {
+                callRecordPartitionService.convert();
+            } catch (Exception e) {
+                log.error("Uncaught exception during call record partition conversion", e);
+            }
+        });
+    }
+
+    public Future<?> submitExtensionActivityRebuild() {
+        return taskExecutor.submit(() -> {
+            try {
+                extensionActivityService.rebuild();
+            } catch (Exception e) {
+                log.error("Uncaught exception during extension activity rebuild", e);
+            }
+        });
+    }
+
     @PreDestroy
     public void shutdownExecutor() {
         log.debug("Shutting down CDR Processing executor...");
@@ -3,6 +3,8 @@ package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
 
 import com.infomedia.abacox.telephonypricing.component.utils.XXHash128Util;
 import com.infomedia.abacox.telephonypricing.db.entity.*;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
@@ -34,6 +36,10 @@ public class CdrProcessorService {
     private final FailedCallRecordPersistenceService failedCallRecordPersistenceService;
     private final PersistenceQueueService persistenceQueueService;
     private final FileProcessingTrackerService trackerService;
+    private final CdrLineIndexService cdrLineIndexService;
+    private final CdrPipelineMetrics pipelineMetrics;
+    private final CallRecordRollupService rollupService;
+    private final ConferenceGroupService conferenceGroupService;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -47,7 +53,11 @@ public class CdrProcessorService {
             CallRecordPersistenceService callRecordPersistenceService,
             FailedCallRecordPersistenceService failedCallRecordPersistenceService,
             PersistenceQueueService persistenceQueueService,
-            FileProcessingTrackerService trackerService) {
+            FileProcessingTrackerService trackerService,
+            CdrLineIndexService cdrLineIndexService,
+            CdrPipelineMetrics pipelineMetrics,
+            CallRecordRollupService rollupService,
+            ConferenceGroupService conferenceGroupService) {
         this.cdrEnrichmentService = cdrEnrichmentService;
         this.cdrValidationService = cdrValidationService;
         this.cdrProcessors = cdrProcessors;
@@ -58,8 +68,13 @@ public class CdrProcessorService {
         this.failedCallRecordPersistenceService = failedCallRecordPersistenceService;
         this.persistenceQueueService = persistenceQueueService;
         this.trackerService = trackerService;
+        this.cdrLineIndexService = cdrLineIndexService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.rollupService = rollupService;
+        this.conferenceGroupService = conferenceGroupService;
     }
 
+    @ConnectionWorkload(Workload.INGEST_READ)
     @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
     public void processCdrBatch(List<LineProcessingContext> batch) {
         if (batch.isEmpty())
@@ -67,33 +82,14 @@ public class CdrProcessorService {
 
         // Pre-register count in tracker BEFORE processing/queueing
         Map<Long, Integer> countsByFile = new HashMap<>();
-        Set<String> uniqueExtensions = new HashSet<>();
-        Set<String> uniqueAuthCodes = new HashSet<>();
-
         for (LineProcessingContext ctx : batch) {
             if (ctx.getFileInfoId() != null) {
                 countsByFile.merge(ctx.getFileInfoId(), 1, Integer::sum);
             }
-
-            // Collect unique identifiers for pre-fetching
-            // We need to parse enough to get the extension and auth code
-            CdrData preCdr = ctx.getCdrProcessor().evaluateFormat(
-                    ctx.getCdrLine(), ctx.getCommLocation(),
-                    ctx.getCommLocationExtensionLimits(), ctx.getHeaderPositions());
-
-            if (preCdr != null) {
-                if (preCdr.getCallingPartyNumber() != null)
-                    uniqueExtensions.add(preCdr.getCallingPartyNumber());
-                if (preCdr.getAuthCodeDescription() != null)
-                    uniqueAuthCodes.add(preCdr.getAuthCodeDescription());
-            }
         }
         countsByFile.forEach(trackerService::incrementPendingCount);
 
-        // Pre-fetch historical timelines
-        HistoricalDataContainer historicalData = employeeLookupService.prefetchHistoricalData(uniqueExtensions,
-                uniqueAuthCodes);
-        batch.forEach(ctx -> ctx.setHistoricalData(historicalData));
+        attachHistoricalData(batch);
 
         // Capture TenantContext to propagate to parallel threads
         String tenantId = TenantContext.getTenant();
@@ -120,6 +116,70 @@ public class CdrProcessorService {
         }
     }
 
+    /**
+     * Processes a batch of contexts in parallel and returns the results in input
+     * order. Like {@link #processCdrData}, nothing is persisted or queued; used by
+     * bulk reprocessing, which writes the results itself.
+     */
+    @ConnectionWorkload(Workload.INGEST_READ)
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public List<ProcessedCdrResult> processCdrDataBatch(List<LineProcessingContext> batch) {
+        if (batch.isEmpty())
+            return List.of();
+
+        attachHistoricalData(batch);
+
+        String tenantId = TenantContext.getTenant();
+        try (ForkJoinPool customPool = new ForkJoinPool(
+                Math.min(batch.size(), Runtime.getRuntime().availableProcessors()))) {
+            return customPool.submit(() -> batch.parallelStream().map(ctx -> {
+                try {
+                    TenantContext.setTenant(tenantId);
+                    return processCdrData(ctx);
+                } finally {
+                    TenantContext.clear();
+                }
+            }).toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Processing interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Processing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Pre-fetches the historical employee timelines needed by a batch in one query
+     * round and attaches them to every context.
+     */
+    private void attachHistoricalData(List<LineProcessingContext> batch) {
+        long prefetchStart = System.nanoTime();
+        Set<String> uniqueExtensions = new HashSet<>();
+        Set<String> uniqueAuthCodes = new HashSet<>();
+
+        for (LineProcessingContext ctx : batch) {
+            // Collect unique identifiers for pre-fetching
+            // We need to parse enough to get the extension and auth code
+            CdrData preCdr = ctx.getCdrProcessor().evaluateFormat(
+                    ctx.getCdrLine(), ctx.getCommLocation(),
+                    ctx.getCommLocationExtensionLimits(), ctx.getHeaderPositions());
+
+            if (preCdr != null) {
+                if (preCdr.getCallingPartyNumber() != null)
+                    uniqueExtensions.add(preCdr.getCallingPartyNumber());
+                if (preCdr.getAuthCodeDescription() != null)
+                    uniqueAuthCodes.add(preCdr.getAuthCodeDescription());
+            }
+        }
+
+        // Pre-fetch historical timelines
+        HistoricalDataContainer historicalData = employeeLookupService.prefetchHistoricalData(uniqueExtensions,
+                uniqueAuthCodes);
+        batch.forEach(ctx -> ctx.setHistoricalData(historicalData));
+        pipelineMetrics.recordStageSince(CdrPipelineMetrics.Stage.PREFETCH, CdrPipelineMetrics.ALL_PLANT_TYPES,
+                prefetchStart);
+    }
+
     public ProcessingOutcome processSingleCdrLineSync(LineProcessingContext lineProcessingContext) {
         return processSingleCdrLineInternal(lineProcessingContext);
     }
@@ -157,7 +217,10 @@ public class CdrProcessorService {
                 return buildResult(cdrData, null, ProcessingOutcome.QUARANTINED);
             }
 
+            long enrichStart = System.nanoTime();
             cdrData = cdrEnrichmentService.enrichCdr(cdrData, lineProcessingContext);
+            pipelineMetrics.recordStageSince(CdrPipelineMetrics.Stage.ENRICH, targetCommLocation.getPlantTypeId(),
+                    enrichStart);
 
             if (cdrData.isMarkedForQuarantine()) {
                 return buildResult(cdrData, null, ProcessingOutcome.QUARANTINED);
@@ -277,6 +340,8 @@ public class CdrProcessorService {
         }
 
         CdrData processedCdrData = executeReprocessingLogic(contextOpt.get());
+        CallRecordRollupDelta rollupDelta = new CallRecordRollupDelta();
+        rollupDelta.subtract(callRecord);
 
         if (processedCdrData.isMarkedForQuarantine()) {
             failedCallRecordPersistenceService.quarantineRecord(
@@ -285,12 +350,18 @@ public class CdrProcessorService {
                     processedCdrData.getQuarantineReason(),
                     callRecordId);
             entityManager.remove(callRecord);
+            rollupService.apply(rollupDelta);
+            conferenceGroupService.detachCallRecordIds(List.of(callRecordId));
             return false;
         } else {
             // Update using Sync method
             callRecordPersistenceService.mapCdrDataToCallRecord(processedCdrData, callRecord,
                     contextOpt.get().getCommLocation());
             entityManager.merge(callRecord);
+            rollupDelta.add(callRecord);
+            rollupService.apply(rollupDelta);
+            conferenceGroupService.detachCallRecordIds(List.of(callRecordId));
+            conferenceGroupService.assign(List.of(callRecord));
             return true;
         }
     }
@@ -364,25 +435,13 @@ public class CdrProcessorService {
 
         Map<String, Integer> headerPositions = new HashMap<>();
         if (fileInfo != null) {
-            Optional<FileInfoData> fileDataOpt = fileInfoPersistenceService.getOriginalFileData(fileInfoId);
-            if (fileDataOpt.isPresent()) {
-                try (InputStream is = fileDataOpt.get().content();
-                        InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8);
-                        BufferedReader br = new BufferedReader(reader)) {
-
-                    String line;
-                    int linesChecked = 0;
-                    while ((line = br.readLine()) != null && linesChecked < 5) {
-                        line = line.trim();
-                        if (!line.isEmpty() && processor.isHeaderLine(line)) {
-                            headerPositions = processor.parseHeader(line);
-                            break;
-                        }
-                        linesChecked++;
-                    }
-                } catch (IOException e) {
-                    log.error("Failed to read header from FileInfo ID {} for reprocessing.", fileInfoId, e);
-                }
+            // The line index carries the header, which saves opening the file at all
+            Optional<String> indexedHeader = cdrLineIndexService.getIndex(fileInfo)
+                    .map(CdrLineIndex::getHeaderLine);
+            if (indexedHeader.isPresent()) {
+                headerPositions = processor.parseHeader(indexedHeader.get());
+            } else {
+                headerPositions = readHeaderFromFile(fileInfoId, processor);
             }
         }
 
@@ -399,15 +458,44 @@ public class CdrProcessorService {
         return Optional.of(context);
     }
 
+    private Map<String, Integer> readHeaderFromFile(Long fileInfoId, CdrProcessor processor) {
+        Optional<FileInfoData> fileDataOpt = fileInfoPersistenceService.getOriginalFileData(fileInfoId);
+        if (fileDataOpt.isPresent()) {
+            try (InputStream is = fileDataOpt.get().content();
+                    InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8);
+                    BufferedReader br = new BufferedReader(reader)) {
+
+                String line;
+                int linesChecked = 0;
+                while ((line = br.readLine()) != null && linesChecked < 5) {
+                    line = line.trim();
+                    if (!line.isEmpty() && processor.isHeaderLine(line)) {
+                        return processor.parseHeader(line);
+                    }
+                    linesChecked++;
+                }
+            } catch (IOException e) {
+                log.error("Failed to read header from FileInfo ID {} for reprocessing.", fileInfoId, e);
+            }
+        }
+        return new HashMap<>();
+    }
+
     /**
-     * Reads the associated file stream and scans for the line matching the specific
-     * hash.
+     * Retrieves the raw line matching the specific hash. Files stored with a line
+     * index are served with a single block range read; older files are scanned.
      * This replaces the need to store the string in the DB.
      */
     private String findRawCdrLineInFile(Long fileInfoId, UUID targetHash) throws IOException {
         if (fileInfoId == null || targetHash == null)
             return null;
 
+        FileInfo fileInfo = fileInfoPersistenceService.findById(fileInfoId);
+        Optional<CdrLineIndex> lineIndex = cdrLineIndexService.getIndex(fileInfo);
+        if (lineIndex.isPresent()) {
+            return cdrLineIndexService.readLine(fileInfo, lineIndex.get(), targetHash);
+        }
+
         Optional<FileInfoData> fileDataOpt = fileInfoPersistenceService.getOriginalFileData(fileInfoId);
         if (fileDataOpt.isEmpty())
             return null;
@@ -32,6 +32,7 @@ public class CdrRoutingService {
     private final EmployeeLookupService employeeLookupService;
     private final FileProcessingTrackerService trackerService;
     private final CdrConfigService cdrConfigService;
+    private final CdrPipelineMetrics pipelineMetrics;
 
     private CdrProcessor getProcessorForPlantType(Long plantTypeId) {
         return cdrProcessors.stream()
@@ -58,6 +59,8 @@ public class CdrRoutingService {
         long lineCount = 0;
         long totalProcessedCount = 0;
         long unroutableCdrCount = 0;
+        long parseNanos = 0;
+        long routeNanos = 0;
 
         List<LineProcessingContext> batch = new ArrayList<>(CdrConfigService.CDR_PROCESSING_BATCH_SIZE);
 
@@ -71,8 +74,10 @@ public class CdrRoutingService {
                 if (trimmedLine.isEmpty())
                     continue;
 
+                long parseStart = System.nanoTime();
                 if (currentFileHeaderMap == null && initialParser.isHeaderLine(trimmedLine)) {
                     currentFileHeaderMap = initialParser.parseHeader(trimmedLine);
+                    parseNanos += System.nanoTime() - parseStart;
                     continue;
                 }
 
@@ -89,12 +94,14 @@ public class CdrRoutingService {
 
                 CdrData preliminaryCdrData = initialParser.evaluateFormat(trimmedLine, null, null,
                         currentFileHeaderMap);
+                parseNanos += System.nanoTime() - parseStart;
                 if (preliminaryCdrData == null)
                     continue;
 
                 preliminaryCdrData.setRawCdrLine(trimmedLine);
                 preliminaryCdrData.setFileInfo(fileInfo);
 
+                long routeStart = System.nanoTime();
                 Optional<CommunicationLocation> targetCommLocationOpt = commLocationLookupService
                         .findBestCommunicationLocation(
                                 plantTypeId,
@@ -105,6 +112,7 @@ public class CdrRoutingService {
                                 preliminaryCdrData.getLastRedirectDn(),
                                 preliminaryCdrData.getLastRedirectDnPartition(),
                                 preliminaryCdrData.getDateTimeOrigination());
+                routeNanos += System.nanoTime() - routeStart;
 
                 if (targetCommLocationOpt.isPresent()) {
                     CommunicationLocation targetCommLocation = targetCommLocationOpt.get();
@@ -143,6 +151,12 @@ public class CdrRoutingService {
 
             trackerService.markParsingComplete(fileInfo.getId());
 
+            pipelineMetrics.recordStage(CdrPipelineMetrics.Stage.PARSE, plantTypeId, parseNanos);
+            pipelineMetrics.recordStage(CdrPipelineMetrics.Stage.ROUTE, plantTypeId, routeNanos);
+            pipelineMetrics.count("read", plantTypeId, lineCount);
+            pipelineMetrics.count("routed", plantTypeId, totalProcessedCount);
+            pipelineMetrics.count("unroutable", plantTypeId, unroutableCdrCount);
+
             // METRICS: Final Calculation
             long endTime = System.currentTimeMillis();
             long durationMs = endTime - startTime;
@@ -185,7 +199,8 @@ public class CdrRoutingService {
         Optional<FileInfoData> fileDataOpt = fileInfoPersistenceService.getOriginalFileData(fileInfoId);
 
         if (fileDataOpt.isPresent()) {
-            try (InputStream contentStream = fileDataOpt.get().content()) {
+            try (InputStream contentStream = pipelineMetrics.timeDownload(fileDataOpt.get().content(),
+                    fileInfo.getPlantTypeId())) {
                 Map<Long, ExtensionLimits> extensionLimits = employeeLookupService.getExtensionLimits();
                 Map<Long, List<ExtensionRange>> extensionRanges = employeeLookupService.getExtensionRanges();
 
@@ -0,0 +1,459 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.infomedia.abacox.telephonypricing.component.configmanager.ConfigKey;
+import com.infomedia.abacox.telephonypricing.component.configmanager.ConfigService;
+import com.infomedia.abacox.telephonypricing.db.entity.CallRecord;
+import com.infomedia.abacox.telephonypricing.db.entity.ConferenceGroup;
+import com.infomedia.abacox.telephonypricing.db.entity.ConferenceGroupMember;
+import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Maintains conference_group and conference_group_member, the conferences the
+ * conference calls report pages through.
+ * <p>
+ * Call records with a conference transfer cause (CONFERENCE or CONFERENCE_NOW)
+ * and a transfer key are grouped as the report always did: by transfer key and
+ * grouping identity (dialed number for CONFERENCE_NOW, employee extension
+ * otherwise), a record joining the group whose calls it overlaps in time. Every
+ * path that writes call records keeps the groups in step inside its own
+ * transaction; {@link #rebuild()} regroups all history and only then marks the
+ * tenant's groups as usable by the report.
+ * <p>
+ * Transactions that change the groups of a transfer key hold a transaction-scoped
+ * advisory lock on it, so concurrent batches see each other's groups instead of
+ * opening a second one for the same conference. A leg that overlaps several
+ * open groups merges them into one.
+ * <p>
+ * Groups are not split when a member is removed, so a removal in the middle of
+ * a conference can leave it wider than a regrouping would. A rebuild restores
+ * the exact grouping.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class ConferenceGroupService {
+
+    private static final List<Integer> CONFERENCE_CAUSES =
+            List.of(TransferCause.CONFERENCE.getValue(), TransferCause.CONFERENCE_NOW.getValue());
+
+    // Keeps IN lists well below the driver's 32767 bind parameter limit
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    // Same order the report grouped candidates in
+    private static final Comparator<Candidate> GROUPING_ORDER = Comparator.comparing(Candidate::transferKey)
+            .thenComparing(Candidate::serviceDate)
+            .thenComparingInt(Candidate::transferCause);
+
+    private static final String REFRESH_TOTALS = """
+            UPDATE conference_group g
+            SET participant_count = t.participant_count, total_billed = t.total_billed
+            FROM (
+                SELECT m.conference_group_id,
+                       COUNT(*) FILTER (WHERE m.participant) AS participant_count,
+                       COALESCE(SUM(cr.billed_amount) FILTER (WHERE m.participant), 0) AS total_billed
+                FROM conference_group_member m
+                JOIN call_record cr ON cr.id = m.call_record_id AND cr.service_date = m.service_date
+                WHERE m.conference_group_id IN (:groupIds)
+                GROUP BY m.conference_group_id
+            ) t
+            WHERE g.id = t.conference_group_id
+            """;
+
+    // Byte order, as Java sorts the keys, so every transaction takes the locks in the same order
+    private static final String LOCK_TRANSFER_KEYS = """
+            SELECT CAST(pg_advisory_xact_lock(hashtext('conference_group'),
+                                              hashtext(current_schema() || '/' || k.transfer_key)) AS text)
+            FROM (SELECT unnest(ARRAY[:keys]) AS transfer_key ORDER BY transfer_key COLLATE "C") k
+            """;
+
+    private static final String DELETE_EMPTY_GROUPS = """
+            DELETE FROM conference_group g
+            WHERE g.id IN (:groupIds)
+              AND NOT EXISTS (SELECT 1 FROM conference_group_member m WHERE m.conference_group_id = g.id)
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    private final ConfigService configService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.report.conference.enabled:true}")
+    private boolean conferenceReadsEnabled;
+
+    @Value("${app.report.conference.rebuild-chunk-days:31}")
+    private int rebuildChunkDays;
+
+    /**
+     * Whether the conference report can be answered from the stored groups.
+     */
+    public boolean canServe() {
+        return conferenceReadsEnabled && configService.getValue(ConfigKey.CONFERENCE_GROUPS_READY).asBoolean();
+    }
+
+    /**
+     * Assigns newly persisted call records to conference groups, ignoring records
+     * that are not conference legs. The records must have their IDs and must not
+     * belong to a group yet. Must run in the transaction that writes them.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void assign(Collection<CallRecord> callRecords) {
+        List<Candidate> candidates = new ArrayList<>();
+        for (CallRecord callRecord : callRecords) {
+            if (callRecord.getId() != null && callRecord.getServiceDate() != null
+                    && callRecord.getTransferCause() != null
+                    && CONFERENCE_CAUSES.contains(callRecord.getTransferCause())
+                    && callRecord.getEmployeeTransfer() != null && !callRecord.getEmployeeTransfer().isEmpty()) {
+                candidates.add(new Candidate(callRecord.getId(), callRecord.getServiceDate(),
+                        callRecord.getDuration(), callRecord.getEmployeeTransfer(), callRecord.getTransferCause(),
+                        callRecord.getEmployeeExtension(), callRecord.getDial(), callRecord.getEmployeeId(),
+                        callRecord.getBilledAmount()));
+            }
+        }
+        assignCandidates(candidates);
+    }
+
+    /**
+     * Removes call records from their groups, before they are deleted or
+     * regrouped after reprocessing.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void detachCallRecordIds(Collection<Long> callRecordIds) {
+        if (callRecordIds == null || callRecordIds.isEmpty()) return;
+        detach("m.call_record_id IN (:ids)", Map.of("ids", callRecordIds));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void detachFileInfo(Long fileInfoId) {
+        if (fileInfoId == null) return;
+        detach("m.call_record_id IN (SELECT cr.id FROM call_record cr WHERE cr.file_info_id = :fileInfoId)",
+                Map.of("fileInfoId", fileInfoId));
+    }
+
+    /**
+     * Removes the members of [firstDay, endDay), for call records removed
+     * wholesale such as a call_record partition dropped by retention.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removeDays(LocalDate firstDay, LocalDate endDay) {
+        detach("m.service_date >= :startDate AND m.service_date < :endDate",
+                Map.of("startDate", firstDay.atStartOfDay(), "endDate", endDay.atStartOfDay()));
+    }
+
+    /**
+     * Recomputes the billed totals of the groups of call records whose price
+     * changed, such as after re-rating.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void refreshCallRecordIds(Collection<Long> callRecordIds) {
+        if (callRecordIds == null || callRecordIds.isEmpty()) return;
+        refreshGroups(lockGroupsOf("m.call_record_id IN (:ids)", Map.of("ids", callRecordIds)));
+    }
+
+    /**
+     * Marks the tenant's conference groups as out of date, so the report groups
+     * raw call records until the next {@link #rebuild()}.
+     */
+    public void markStale() {
+        configService.updateValue(ConfigKey.CONFERENCE_GROUPS_READY, false);
+    }
+
+    /**
+     * Regroups every conference leg, one chunk of
+     * {@code app.report.conference.rebuild-chunk-days} days per transaction in
+     * service date order, then marks the groups ready for the report. Groups
+     * spanning a chunk boundary are picked up by the next chunk like any open
+     * group, and records assigned by ingestion meanwhile are not assigned twice.
+     */
+    public void rebuild() {
+        long startTime = System.currentTimeMillis();
+        String tenantId = TenantContext.getTenant();
+        markStale();
+
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        txTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        txTemplate.executeWithoutResult(status -> {
+            entityManager.createNativeQuery("DELETE FROM conference_group_member").executeUpdate();
+            entityManager.createNativeQuery("DELETE FROM conference_group").executeUpdate();
+        });
+
+        Object[] bounds = txTemplate.execute(status -> entityManager.createQuery(
+                        "SELECT MIN(cr.serviceDate), MAX(cr.serviceDate) FROM CallRecord cr "
+                                + "WHERE cr.transferCause IN :causes AND cr.employeeTransfer <> ''", Object[].class)
+                .setParameter("causes", CONFERENCE_CAUSES)
+                .getSingleResult());
+        if (bounds != null && bounds[0] != null) {
+            LocalDate firstDay = ((LocalDateTime) bounds[0]).toLocalDate();
+            LocalDate lastDay = ((LocalDateTime) bounds[1]).toLocalDate();
+            for (LocalDate from = firstDay; !from.isAfter(lastDay); from = from.plusDays(rebuildChunkDays)) {
+                LocalDate to = from.plusDays(rebuildChunkDays);
+                LocalDate chunkStart = from;
+                LocalDate chunkEnd = to.isAfter(lastDay) ? lastDay.plusDays(1) : to;
+                txTemplate.executeWithoutResult(status -> assignCandidates(findUnassignedCandidates(
+                        chunkStart.atStartOfDay(), chunkEnd.atStartOfDay())));
+                log.debug("Rebuilt conference groups for tenant [{}] from {} to {}", tenantId, chunkStart,
+                        chunkEnd.minusDays(1));
+            }
+        }
+
+        configService.updateValue(ConfigKey.CONFERENCE_GROUPS_READY, true);
+        log.info("Rebuilt conference groups for tenant [{}] in {} ms", tenantId,
+                System.currentTimeMillis() - startTime);
+    }
+
+    private void assignCandidates(List<Candidate> candidates) {
+        if (candidates.isEmpty()) return;
+        candidates.sort(GROUPING_ORDER);
+        lockTransferKeys(candidates.stream().map(Candidate::transferKey).toList());
+
+        Map<GroupKey, List<ConferenceGroup>> openGroups = findOpenGroups(candidates);
+        Map<String, Long> organizers = findOrganizers(candidates);
+
+        for (Candidate candidate : candidates) {
+            String identity = candidate.groupingIdentity();
+            LocalDateTime end = candidate.end();
+            List<ConferenceGroup> groups = openGroups.computeIfAbsent(
+                    new GroupKey(candidate.transferKey(), identity), k -> new ArrayList<>());
+
+            List<ConferenceGroup> overlapping = new ArrayList<>();
+            for (ConferenceGroup openGroup : groups) {
+                if (!candidate.serviceDate().isAfter(openGroup.getLastActiveTime())
+                        && !end.isBefore(openGroup.getConferenceServiceDate())) {
+                    overlapping.add(openGroup);
+                }
+            }
+            ConferenceGroup group = overlapping.isEmpty() ? null : overlapping.get(0);
+            for (int i = 1; i < overlapping.size(); i++) {
+                merge(group, overlapping.get(i));
+                groups.remove(overlapping.get(i));
+            }
+
+            if (group == null) {
+                boolean conferenceNow = candidate.isConferenceNow();
+                group = ConferenceGroup.builder()
+                        .transferKey(candidate.transferKey())
+                        .groupingIdentity(identity)
+                        .conferenceServiceDate(candidate.serviceDate())
+                        .lastActiveTime(end)
+                        .organizerExtension(conferenceNow ? candidate.dial() : candidate.employeeExtension())
+                        .organizerEmployeeId(conferenceNow ? organizers.get(candidate.dial()) : candidate.employeeId())
+                        .participantCount(0L)
+                        .totalBilled(BigDecimal.ZERO)
+                        .build();
+                entityManager.persist(group);
+                groups.add(group);
+            } else {
+                if (end.isAfter(group.getLastActiveTime())) {
+                    group.setLastActiveTime(end);
+                }
+                // Only possible when records arrive out of order
+                if (candidate.serviceDate().isBefore(group.getConferenceServiceDate())) {
+                    group.setConferenceServiceDate(candidate.serviceDate());
+                }
+            }
+
+            // The organizer's own CONFERENCE_NOW leg keeps the group open but is not a participant
+            boolean participant = !(candidate.isConferenceNow()
+                    && Objects.equals(candidate.employeeExtension(), identity));
+            if (participant) {
+                group.setParticipantCount(group.getParticipantCount() + 1);
+                if (candidate.billedAmount() != null) {
+                    group.setTotalBilled(group.getTotalBilled().add(candidate.billedAmount()));
+                }
+            }
+            entityManager.persist(ConferenceGroupMember.builder()
+                    .callRecordId(candidate.callRecordId())
+                    .conferenceGroupId(group.getId())
+                    .serviceDate(candidate.serviceDate())
+                    .participant(participant)
+                    .build());
+        }
+        entityManager.flush();
+    }
+
+    /**
+     * Moves the members of {@code merged}, which a leg connects to
+     * {@code group}, into {@code group} and deletes {@code merged}.
+     */
+    private void merge(ConferenceGroup group, ConferenceGroup merged) {
+        log.debug("Merging conference group {} into {}", merged.getId(), group.getId());
+        entityManager.createNativeQuery(
+                        "UPDATE conference_group_member SET conference_group_id = :groupId WHERE conference_group_id = :mergedId")
+                .setParameter("groupId", group.getId())
+                .setParameter("mergedId", merged.getId())
+                .executeUpdate();
+        if (merged.getConferenceServiceDate().isBefore(group.getConferenceServiceDate())) {
+            group.setConferenceServiceDate(merged.getConferenceServiceDate());
+        }
+        if (merged.getLastActiveTime().isAfter(group.getLastActiveTime())) {
+            group.setLastActiveTime(merged.getLastActiveTime());
+        }
+        group.setParticipantCount(group.getParticipantCount() + merged.getParticipantCount());
+        group.setTotalBilled(group.getTotalBilled().add(merged.getTotalBilled()));
+        entityManager.remove(merged);
+    }
+
+    private void lockTransferKeys(Collection<String> transferKeys) {
+        List<String> keys = new ArrayList<>(new TreeSet<>(transferKeys));
+        for (int i = 0; i < keys.size(); i += LOOKUP_CHUNK_SIZE) {
+            entityManager.createNativeQuery(LOCK_TRANSFER_KEYS)
+                    .setParameter("keys", keys.subList(i, Math.min(keys.size(), i + LOOKUP_CHUNK_SIZE)))
+                    .getResultList();
+        }
+    }
+
+    /**
+     * Locks the transfer keys of the groups the members belong to and returns
+     * their groups as seen once locked, since a merge may have moved them.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Long> lockGroupsOf(String memberCondition, Map<String, Object> parameters) {
+        List<Long> groupIds = findGroupIds(memberCondition, parameters);
+        if (groupIds.isEmpty()) return groupIds;
+        // Merges keep the transfer key, so these are the keys to lock
+        lockTransferKeys(entityManager.createNativeQuery(
+                        "SELECT DISTINCT transfer_key FROM conference_group WHERE id IN (:groupIds)")
+                .setParameter("groupIds", groupIds)
+                .getResultList());
+        return findGroupIds(memberCondition, parameters);
+    }
+
+    private Map<GroupKey, List<ConferenceGroup>> findOpenGroups(List<Candidate> candidates) {
+        LocalDateTime from = candidates.get(0).serviceDate();
+        LocalDateTime to = candidates.get(0).end();
+        Set<String> transferKeys = new LinkedHashSet<>();
+        for (Candidate candidate : candidates) {
+            if (candidate.serviceDate().isBefore(from)) from = candidate.serviceDate();
+            if (candidate.end().isAfter(to)) to = candidate.end();
+            transferKeys.add(candidate.transferKey());
+        }
+
+        Map<GroupKey, List<ConferenceGroup>> openGroups = new HashMap<>();
+        List<String> keys = new ArrayList<>(transferKeys);
+        for (int i = 0; i < keys.size(); i += LOOKUP_CHUNK_SIZE) {
+            entityManager.createQuery("SELECT g FROM ConferenceGroup g WHERE g.transferKey IN :keys "
+                            + "AND g.lastActiveTime >= :from AND g.conferenceServiceDate <= :to "
+                            + "ORDER BY g.conferenceServiceDate, g.id", ConferenceGroup.class)
+                    .setParameter("keys", keys.subList(i, Math.min(keys.size(), i + LOOKUP_CHUNK_SIZE)))
+                    .setParameter("from", from)
+                    .setParameter("to", to)
+                    .getResultList()
+                    .forEach(group -> openGroups.computeIfAbsent(
+                            new GroupKey(group.getTransferKey(), group.getGroupingIdentity()),
+                            k -> new ArrayList<>()).add(group));
+        }
+        return openGroups;
+    }
+
+    /**
+     * Active employee behind each dialed extension of CONFERENCE_NOW legs, the
+     * latest one when several share it.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Long> findOrganizers(List<Candidate> candidates) {
+        List<String> extensions = candidates.stream()
+                .filter(Candidate::isConferenceNow)
+                .map(Candidate::dial)
+                .filter(dial -> dial != null && !dial.isEmpty())
+                .distinct()
+                .toList();
+
+        Map<String, Long> organizers = new HashMap<>();
+        for (int i = 0; i < extensions.size(); i += LOOKUP_CHUNK_SIZE) {
+            List<Object[]> rows = entityManager.createNativeQuery(
+                            "SELECT DISTINCT ON (extension) extension, id FROM employee "
+                                    + "WHERE extension IN (:extensions) AND active = true ORDER BY extension, id DESC")
+                    .setParameter("extensions", extensions.subList(i, Math.min(extensions.size(), i + LOOKUP_CHUNK_SIZE)))
+                    .getResultList();
+            for (Object[] row : rows) {
+                organizers.put((String) row[0], ((Number) row[1]).longValue());
+            }
+        }
+        return organizers;
+    }
+
+    private List<Candidate> findUnassignedCandidates(LocalDateTime startDate, LocalDateTime endDate) {
+        List<Object[]> rows = entityManager.createQuery("SELECT cr.id, cr.serviceDate, cr.duration, "
+                        + "cr.employeeTransfer, cr.transferCause, cr.employeeExtension, cr.dial, cr.employeeId, "
+                        + "cr.billedAmount FROM CallRecord cr "
+                        + "WHERE cr.transferCause IN :causes AND cr.employeeTransfer <> '' "
+                        + "AND cr.serviceDate >= :startDate AND cr.serviceDate < :endDate "
+                        + "AND NOT EXISTS (SELECT 1 FROM ConferenceGroupMember m WHERE m.callRecordId = cr.id)",
+                        Object[].class)
+                .setParameter("causes", CONFERENCE_CAUSES)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .getResultList();
+
+        List<Candidate> candidates = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            candidates.add(new Candidate((Long) row[0], (LocalDateTime) row[1], (Integer) row[2], (String) row[3],
+                    (Integer) row[4], (String) row[5], (String) row[6], (Long) row[7], (BigDecimal) row[8]));
+        }
+        return candidates;
+    }
+
+    private void detach(String memberCondition, Map<String, Object> parameters) {
+        List<Long> groupIds = lockGroupsOf(memberCondition, parameters);
+        if (groupIds.isEmpty()) return;
+        bind(entityManager.createNativeQuery("DELETE FROM conference_group_member m WHERE " + memberCondition),
+                parameters).executeUpdate();
+        refreshGroups(groupIds);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> findGroupIds(String memberCondition, Map<String, Object> parameters) {
+        List<Number> ids = bind(entityManager.createNativeQuery(
+                "SELECT DISTINCT m.conference_group_id FROM conference_group_member m WHERE " + memberCondition),
+                parameters).getResultList();
+        return ids.stream().map(Number::longValue).toList();
+    }
+
+    private void refreshGroups(List<Long> groupIds) {
+        if (groupIds.isEmpty()) return;
+        entityManager.createNativeQuery(REFRESH_TOTALS).setParameter("groupIds", groupIds).executeUpdate();
+        entityManager.createNativeQuery(DELETE_EMPTY_GROUPS).setParameter("groupIds", groupIds).executeUpdate();
+    }
+
+    private static Query bind(Query query, Map<String, Object> parameters) {
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+
+    private record GroupKey(String transferKey, String groupingIdentity) {
+    }
+
+    private record Candidate(Long callRecordId, LocalDateTime serviceDate, Integer duration, String transferKey,
+                             int transferCause, String employeeExtension, String dial, Long employeeId,
+                             BigDecimal billedAmount) {
+
+        boolean isConferenceNow() {
+            return transferCause == TransferCause.CONFERENCE_NOW.getValue();
+        }
+
+        String groupingIdentity() {
+            return isConferenceNow() ? dial : employeeExtension;
+        }
+
+        LocalDateTime end() {
+            return serviceDate.plusSeconds(duration != null ? duration : 0);
+        }
+    }
+}
@@ -5,6 +5,8 @@ import com.infomedia.abacox.telephonypricing.db.entity.CommunicationLocation;
 import com.infomedia.abacox.telephonypricing.db.entity.Employee;
 import com.infomedia.abacox.telephonypricing.db.entity.ExtensionRange;
 import com.infomedia.abacox.telephonypricing.db.entity.HistoricalEntity;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
@@ -25,6 +27,7 @@ import java.util.stream.Collectors;
 @Service
 @Log4j2
 @RequiredArgsConstructor
+@ConnectionWorkload(Workload.INGEST_READ)
 public class EmployeeLookupService {
 
      @PersistenceContext
@@ -0,0 +1,306 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import com.infomedia.abacox.telephonypricing.component.configmanager.ConfigKey;
+import com.infomedia.abacox.telephonypricing.component.configmanager.ConfigService;
+import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Maintains extension_activity, the per-day activity of every extension seen on
+ * a call record, which the unused extension report reads instead of scanning
+ * call_record three times.
+ * <p>
+ * Writes follow the daily rollup: {@link CallRecordRollupService} hands over the
+ * extension part of each delta and of each bulk file removal, so both tables
+ * change in the same transaction as the call records. Removals only lower the
+ * counts; a day's first and last seen times are kept until the next
+ * {@link #rebuild()}, which recomputes everything and only then marks the
+ * tenant's activity as usable by reports.
+ * <p>
+ * As in the raw call_record report, a dialed number counts as activity of the
+ * employee whose extension it is. Dialed numbers that are no employee's
+ * extension, such as external numbers, are not recorded, and
+ * {@link #recountExtension(String)} counts the past calls to an extension once
+ * an employee gets it.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class ExtensionActivityService {
+
+    private static final String TABLE = "extension_activity";
+
+    private static final String INSERT_PREFIX = "INSERT INTO extension_activity AS a "
+            + "(extension, day, call_count, incoming_count, located_count, first_seen, last_seen) ";
+
+    private static final String UPSERT_SUFFIX = " ON CONFLICT (extension, day) DO UPDATE SET "
+            + "call_count = a.call_count + EXCLUDED.call_count, "
+            + "incoming_count = a.incoming_count + EXCLUDED.incoming_count, "
+            + "located_count = a.located_count + EXCLUDED.located_count, "
+            + "first_seen = LEAST(a.first_seen, EXCLUDED.first_seen), "
+            + "last_seen = GREATEST(a.last_seen, EXCLUDED.last_seen)";
+
+    // Same counting as CallRecordRollupDelta, one pass over call_record for the three roles
+    private static final String AGGREGATE_SELECT = "SELECT x.extension, CAST(cr.service_date AS date), "
+            + ":sign * COUNT(*), :sign * SUM(x.incoming), "
+            + ":sign * COUNT(*) FILTER (WHERE cr.comm_location_id IS NOT NULL), "
+            + "MIN(cr.service_date), MAX(cr.service_date) "
+            + "FROM call_record cr "
+            + "CROSS JOIN LATERAL (VALUES (cr.employee_extension, CASE WHEN cr.is_incoming THEN 1 ELSE 0 END), "
+            + "(CASE WHEN cr.dial IN (SELECT e.extension FROM employee e) THEN cr.dial END, 1), "
+            + "(cr.employee_transfer, 1)) AS x(extension, incoming) "
+            + "WHERE x.extension IS NOT NULL AND x.extension <> '' AND ";
+
+    private static final String AGGREGATE_GROUP_BY = " GROUP BY 1, 2";
+
+    private static final String DIALED_VALUES_PREFIX = "SELECT v.* FROM (VALUES ";
+
+    private static final String DIALED_VALUES_SUFFIX = ") AS v(extension, day, call_count, incoming_count, "
+            + "located_count, first_seen, last_seen) WHERE v.extension IN (SELECT e.extension FROM employee e)";
+
+    // 7 bind parameters per row, well below the driver's 32767 limit
+    private static final int UPSERT_ROWS_PER_STATEMENT = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    private final ConfigService configService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.report.extension-activity.enabled:true}")
+    private boolean activityReadsEnabled;
+
+    @Value("${app.report.extension-activity.rebuild-chunk-days:31}")
+    private int rebuildChunkDays;
+
+    /**
+     * Whether a report over [startDate, endDate] (inclusive) can be answered from
+     * extension_activity: it must be built for this tenant and the range must
+     * cover whole days only.
+     */
+    public boolean canServe(LocalDateTime startDate, LocalDateTime endDate) {
+        if (!activityReadsEnabled || startDate == null || endDate == null) return false;
+        if (!startDate.toLocalTime().equals(LocalTime.MIDNIGHT)) return false;
+        // Service dates have second precision, so 23:59:59 closes the day
+        if (endDate.toLocalTime().isBefore(LocalTime.of(23, 59, 59))) return false;
+        return configService.getValue(ConfigKey.EXTENSION_ACTIVITY_READY).asBoolean();
+    }
+
+    /**
+     * Applies the extension part of a rollup delta; dialed numbers only count
+     * when they are an employee's extension. Must run in the transaction that
+     * writes the call records.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    void apply(Map<CallRecordRollupDelta.ExtensionKey, CallRecordRollupDelta.ExtensionTotals> extensions,
+               Map<CallRecordRollupDelta.ExtensionKey, CallRecordRollupDelta.ExtensionTotals> dialedExtensions) {
+        if (extensions.isEmpty() && dialedExtensions.isEmpty()) return;
+        AggregateLock.lockForDelta(entityManager, TABLE);
+        Set<LocalDate> removalDays = new TreeSet<>();
+        upsertAll(extensions, false, removalDays);
+        // Separate statements, as a dialed extension can share its row with an employee extension
+        upsertAll(dialedExtensions, true, removalDays);
+        if (!removalDays.isEmpty()) {
+            entityManager.createNativeQuery("DELETE FROM extension_activity WHERE day IN (:days) AND call_count <= 0")
+                    .setParameter("days", removalDays)
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * Adds (sign 1) or removes (sign -1) the activity of a file's call records.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyFileInfo(Long fileInfoId, int sign) {
+        if (fileInfoId == null) return;
+        AggregateLock.lockForDelta(entityManager, TABLE);
+        entityManager.createNativeQuery(INSERT_PREFIX + AGGREGATE_SELECT + "cr.file_info_id = :fileInfoId"
+                        + AGGREGATE_GROUP_BY + UPSERT_SUFFIX)
+                .setParameter("sign", sign)
+                .setParameter("fileInfoId", fileInfoId)
+                .executeUpdate();
+        if (sign < 0) {
+            entityManager.createNativeQuery("DELETE FROM extension_activity WHERE call_count <= 0").executeUpdate();
+        }
+    }
+
+    /**
+     * Recounts the activity of an extension that an employee has just been given,
+     * so the calls that dialed it before are counted too. Must run in the
+     * transaction that writes the employee.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recountExtension(String extension) {
+        if (extension == null || extension.isEmpty()) return;
+        entityManager.flush();
+        // Deltas committed before this recount are in it, later ones see the employee
+        AggregateLock.lockForRebuild(entityManager, TABLE);
+        entityManager.createNativeQuery("DELETE FROM extension_activity WHERE extension = :extension")
+                .setParameter("extension", extension)
+                .executeUpdate();
+        entityManager.createNativeQuery(INSERT_PREFIX + AGGREGATE_SELECT + "x.extension = :extension "
+                        + "AND (cr.employee_extension = :extension OR cr.dial = :extension "
+                        + "OR cr.employee_transfer = :extension)"
+                        + AGGREGATE_GROUP_BY)
+                .setParameter("sign", 1)
+                .setParameter("extension", extension)
+                .executeUpdate();
+    }
+
+    /**
+     * Removes the activity of [firstDay, endDay), for call records removed
+     * wholesale such as a call_record partition dropped by retention.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removeDays(LocalDate firstDay, LocalDate endDay) {
+        entityManager.createNativeQuery("DELETE FROM extension_activity WHERE day >= :firstDay AND day < :endDay")
+                .setParameter("firstDay", firstDay)
+                .setParameter("endDay", endDay)
+                .executeUpdate();
+    }
+
+    /**
+     * Marks the tenant's extension activity as out of date, so reports read
+     * call_record until the next {@link #rebuild()}.
+     */
+    public void markStale() {
+        configService.updateValue(ConfigKey.EXTENSION_ACTIVITY_READY, false);
+    }
+
+    /**
+     * Recomputes the activity of every day that has call records, one chunk of
+     * {@code app.report.extension-activity.rebuild-chunk-days} days per
+     * transaction, then marks it ready for reports. Each chunk holds the
+     * {@link AggregateLock} of extension_activity, so the extension part of a
+     * batch persisted meanwhile is counted exactly once.
+     */
+    public void rebuild() {
+        long startTime = System.currentTimeMillis();
+        String tenantId = TenantContext.getTenant();
+        markStale();
+
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        txTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        Object[] bounds = txTemplate.execute(status -> (Object[]) entityManager.createNativeQuery(
+                        "SELECT MIN(service_date), MAX(service_date) FROM call_record")
+                .getSingleResult());
+        if (bounds == null || bounds[0] == null) {
+            txTemplate.executeWithoutResult(status -> {
+                AggregateLock.lockForRebuild(entityManager, TABLE);
+                entityManager.createNativeQuery("DELETE FROM extension_activity").executeUpdate();
+            });
+        } else {
+            LocalDate firstDay = toLocalDateTime(bounds[0]).toLocalDate();
+            LocalDate lastDay = toLocalDateTime(bounds[1]).toLocalDate();
+            txTemplate.executeWithoutResult(status -> {
+                AggregateLock.lockForRebuild(entityManager, TABLE);
+                entityManager.createNativeQuery("DELETE FROM extension_activity WHERE day < :firstDay OR day > :lastDay")
+                        .setParameter("firstDay", firstDay)
+                        .setParameter("lastDay", lastDay)
+                        .executeUpdate();
+            });
+
+            for (LocalDate from = firstDay; !from.isAfter(lastDay); from = from.plusDays(rebuildChunkDays)) {
+                LocalDate to = from.plusDays(rebuildChunkDays - 1L);
+                LocalDate chunkEnd = to.isAfter(lastDay) ? lastDay : to;
+                LocalDate chunkStart = from;
+                txTemplate.executeWithoutResult(status -> rebuildDays(chunkStart, chunkEnd));
+                log.debug("Rebuilt extension activity for tenant [{}] from {} to {}", tenantId, chunkStart, chunkEnd);
+            }
+        }
+
+        configService.updateValue(ConfigKey.EXTENSION_ACTIVITY_READY, true);
+        log.info("Rebuilt extension activity for tenant [{}] in {} ms", tenantId,
+                System.currentTimeMillis() - startTime);
+    }
+
+    private void rebuildDays(LocalDate firstDay, LocalDate lastDay) {
+        // Deltas wait for this chunk to commit, so its days can be dropped and recounted in place
+        AggregateLock.lockForRebuild(entityManager, TABLE);
+        entityManager.createNativeQuery("DELETE FROM extension_activity WHERE day BETWEEN :firstDay AND :lastDay")
+                .setParameter("firstDay", firstDay)
+                .setParameter("lastDay", lastDay)
+                .executeUpdate();
+        entityManager.createNativeQuery(INSERT_PREFIX + AGGREGATE_SELECT
+                        + "cr.service_date >= :startDate AND cr.service_date < :endDate"
+                        + AGGREGATE_GROUP_BY)
+                .setParameter("sign", 1)
+                .setParameter("startDate", firstDay.atStartOfDay())
+                .setParameter("endDate", lastDay.plusDays(1).atStartOfDay())
+                .executeUpdate();
+    }
+
+    private void upsertAll(Map<CallRecordRollupDelta.ExtensionKey, CallRecordRollupDelta.ExtensionTotals> extensions,
+                           boolean dialed, Set<LocalDate> removalDays) {
+        List<Map.Entry<CallRecordRollupDelta.ExtensionKey, CallRecordRollupDelta.ExtensionTotals>> rows = new ArrayList<>();
+        for (Map.Entry<CallRecordRollupDelta.ExtensionKey, CallRecordRollupDelta.ExtensionTotals> entry
+                : extensions.entrySet()) {
+            CallRecordRollupDelta.ExtensionTotals totals = entry.getValue();
+            if (totals.isZero()) continue;
+            rows.add(entry);
+            if (totals.callCount < 0) {
+                removalDays.add(entry.getKey().day());
+            }
+        }
+        for (int from = 0; from < rows.size(); from += UPSERT_ROWS_PER_STATEMENT) {
+            upsert(rows.subList(from, Math.min(rows.size(), from + UPSERT_ROWS_PER_STATEMENT)), dialed);
+        }
+    }
+
+    private void upsert(List<Map.Entry<CallRecordRollupDelta.ExtensionKey, CallRecordRollupDelta.ExtensionTotals>> rows,
+                        boolean dialed) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX).append(dialed ? DIALED_VALUES_PREFIX : "VALUES ");
+        int param = 1;
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) sql.append(", ");
+            sql.append("(?").append(param++);
+            for (int c = 1; c < 7; c++) {
+                sql.append(", ?").append(param++);
+            }
+            sql.append(')');
+        }
+        if (dialed) sql.append(DIALED_VALUES_SUFFIX);
+        sql.append(UPSERT_SUFFIX);
+
+        NativeQuery<?> query = entityManager.createNativeQuery(sql.toString()).unwrap(NativeQuery.class);
+        param = 1;
+        for (Map.Entry<CallRecordRollupDelta.ExtensionKey, CallRecordRollupDelta.ExtensionTotals> row : rows) {
+            CallRecordRollupDelta.ExtensionKey key = row.getKey();
+            CallRecordRollupDelta.ExtensionTotals totals = row.getValue();
+            query.setParameter(param++, key.extension(), StandardBasicTypes.STRING);
+            query.setParameter(param++, key.day(), StandardBasicTypes.LOCAL_DATE);
+            query.setParameter(param++, totals.callCount, StandardBasicTypes.LONG);
+            query.setParameter(param++, totals.incomingCount, StandardBasicTypes.LONG);
+            query.setParameter(param++, totals.locatedCount, StandardBasicTypes.LONG);
+            query.setParameter(param++, totals.firstSeen, StandardBasicTypes.LOCAL_DATE_TIME);
+            query.setParameter(param++, totals.lastSeen, StandardBasicTypes.LOCAL_DATE_TIME);
+        }
+        query.executeUpdate();
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+}
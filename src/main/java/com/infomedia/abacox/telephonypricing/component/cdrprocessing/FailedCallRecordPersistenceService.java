@@ -2,6 +2,8 @@ package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
 
 import com.infomedia.abacox.telephonypricing.component.utils.CompressionZipUtil;
 import com.infomedia.abacox.telephonypricing.db.entity.FailedCallRecord;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
@@ -22,6 +24,7 @@ import java.util.UUID;
 @Service
 @Log4j2
 @RequiredArgsConstructor
+@ConnectionWorkload(Workload.INGEST_WRITE)
 public class FailedCallRecordPersistenceService {
 
     @PersistenceContext
@@ -187,6 +190,22 @@ public class FailedCallRecordPersistenceService {
         }
     }
 
+    /**
+     * Loads the reprocessing keys (file, comm location, hash) for the given IDs,
+     * without hydrating full entities.
+     */
+    @Transactional(readOnly = true)
+    public List<ReprocessTarget> findReprocessTargets(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) return Collections.emptyList();
+
+        return entityManager.createQuery(
+                        "SELECT new com.infomedia.abacox.telephonypricing.component.cdrprocessing.ReprocessTarget("
+                                + "fr.id, fr.fileInfoId, fr.commLocationId, fr.ctlHash) "
+                                + "FROM FailedCallRecord fr WHERE fr.id IN :ids", ReprocessTarget.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
     @Transactional
     public int deleteByFileInfoId(Long fileInfoId) {
         if (fileInfoId == null) return 0;
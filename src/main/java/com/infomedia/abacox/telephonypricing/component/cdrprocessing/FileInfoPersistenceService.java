@@ -3,6 +3,8 @@ package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
 import com.infomedia.abacox.telephonypricing.component.configmanager.StorageKey;
 import com.infomedia.abacox.telephonypricing.component.utils.XXHash128Util;
 import com.infomedia.abacox.telephonypricing.db.entity.FileInfo;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
 import com.infomedia.abacox.telephonypricing.service.MinioStorageService;
 import jakarta.persistence.EntityManager;
@@ -20,19 +22,19 @@ import org.springframework.util.StreamUtils;
 
 // CHANGED: Standard Java ZIP imports
 import java.util.UUID;
-import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import java.io.*;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 @Service
 @Log4j2
 @RequiredArgsConstructor
+@ConnectionWorkload(Workload.INGEST_WRITE)
 public class FileInfoPersistenceService {
 
     @PersistenceContext
@@ -40,6 +42,9 @@ public class FileInfoPersistenceService {
 
     // Inject the new MinIO service
     private final MinioStorageService minioStorageService;
+    private final List<CdrProcessor> cdrProcessors;
+
+    public static final String LINE_INDEX_SUFFIX = ".idx";
 
     @Getter
     @AllArgsConstructor
@@ -67,11 +72,12 @@ public class FileInfoPersistenceService {
             String tenantId = TenantContext.getTenant();
             String objectKey = checksum.toString();
 
-            // 3. Compress to Temp
+            // 3. Compress to Temp in block-gzip layout, building the line index on the way
             File tempCompressedFile = File.createTempFile("minio_up_", ".gz");
+            CdrLineIndex lineIndex;
             try (InputStream in = new FileInputStream(file);
                     OutputStream out = new FileOutputStream(tempCompressedFile)) {
-                compressStream(in, out);
+                lineIndex = BlockGzipCompressor.compress(in, out, headerPredicateFor(plantTypeId));
             }
 
             // 4. Upload & CAPTURE RESULT
@@ -89,6 +95,10 @@ public class FileInfoPersistenceService {
                 throw new IOException("Failed to upload to MinIO", e);
             }
 
+            // 4b. Upload the sidecar index. It only speeds up reprocessing, so a failure
+            // here is not fatal: lookups fall back to scanning the whole file.
+            String indexObjectName = uploadLineIndex(tenantId, objectKey + LINE_INDEX_SUFFIX, lineIndex);
+
             // 5. Save DB Record using returned metadata
             fileInfo = new FileInfo();
             fileInfo.setFilename(filename.length() > 255 ? filename.substring(0, 255) : filename);
@@ -101,6 +111,7 @@ public class FileInfoPersistenceService {
             // SET STORAGE DATA FROM RESULT
             fileInfo.setStorageBucket(uploadResult.bucketName());
             fileInfo.setStorageObjectName(uploadResult.objectName());
+            fileInfo.setStorageIndexObjectName(indexObjectName);
 
             entityManager.persist(fileInfo);
             entityManager.flush();
@@ -111,27 +122,33 @@ public class FileInfoPersistenceService {
         return new FileInfoCreationResult(fileInfo, isNew);
     }
 
-    /**
-     * Compresses data from an InputStream to an OutputStream using GZIP with
-     * maximum compression.
-     * The GZIPOutputStream is closed automatically, which writes the trailer and
-     * finishes compression.
-     */
-    public static void compressStream(InputStream inputStream, OutputStream outputStream) throws IOException {
-        // CHANGED: Use GZIPOutputStream with anonymous subclass to set Best Compression
-        // (Level 9)
-        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream) {
-            {
-                def.setLevel(Deflater.BEST_COMPRESSION);
-            }
-        }) {
-            byte[] buffer = new byte[8192];
-            int bytesRead;
+    private Predicate<String> headerPredicateFor(Long plantTypeId) {
+        if (plantTypeId == null) {
+            return null;
+        }
+        return cdrProcessors.stream()
+                .filter(p -> p.getPlantTypeIdentifiers().contains(plantTypeId))
+                .findFirst()
+                .<Predicate<String>>map(p -> p::isHeaderLine)
+                .orElse(null);
+    }
 
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                gzipOutputStream.write(buffer, 0, bytesRead);
+    private String uploadLineIndex(String tenantId, String indexObjectName, CdrLineIndex lineIndex) {
+        try {
+            ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+            lineIndex.write(indexBytes);
+            try (InputStream indexStream = new ByteArrayInputStream(indexBytes.toByteArray())) {
+                return minioStorageService.uploadFile(
+                        tenantId,
+                        StorageKey.CDR,
+                        indexObjectName,
+                        indexStream,
+                        indexBytes.size(),
+                        "application/octet-stream").objectName();
             }
-            // gzipOutputStream.close() is called automatically here via try-with-resources
+        } catch (Exception e) {
+            log.warn("Failed to upload line index {}. Reprocessing will scan the full file.", indexObjectName, e);
+            return null;
         }
     }
 
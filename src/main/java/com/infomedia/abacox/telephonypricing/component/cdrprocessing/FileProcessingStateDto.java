@@ -0,0 +1,21 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class FileProcessingStateDto {
+    private Long fileInfoId;
+    private boolean parsingFinished;
+    private boolean discarded;
+    private long submittedRecords;
+    private long completedRecords;
+    private long failedRecords;
+    private long pendingRecords;
+    private LocalDateTime startedAt;
+    private LocalDateTime lastProgressAt;
+    private long idleSeconds; // seconds since the last increment/decrement
+}
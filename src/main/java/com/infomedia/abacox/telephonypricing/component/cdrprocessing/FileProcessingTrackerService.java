@@ -1,42 +1,94 @@
 package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
 
 import com.infomedia.abacox.telephonypricing.db.entity.FileInfo;
+import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Tracks in-flight CDR files between the router (producer) and the batch
+ * persister (consumer) and decides when a file is finished.
+ * <p>
+ * Each file has a single {@link FileProgress} holder with striped
+ * {@link LongAdder} counters, so the hot increment/decrement path never
+ * contends on a shared atomic. Completion is claimed exactly once through a
+ * CAS on {@link FileProgress#finished}. A periodic sweep re-checks completion
+ * for files whose last decrement raced with {@link #markParsingComplete} and
+ * handles files that made no progress within the stall timeout. Tracking is
+ * in memory only; files left IN_PROGRESS by a restart are reset to PENDING at
+ * startup by {@link CdrFileProcessorWorker.StartupRecoveryService}.
+ */
 @Service
 @Log4j2
 @RequiredArgsConstructor
 public class FileProcessingTrackerService {
 
+    public enum StallAction {
+        FAIL,
+        REQUEUE
+    }
+
     private final FileInfoPersistenceService fileInfoPersistenceService;
 
-    // Maps FileInfoID -> Number of records currently in Queue or Processing
-    // (In-Flight)
-    private final Map<Long, AtomicInteger> pendingRecords = new ConcurrentHashMap<>();
+    @Value("${app.cdr.tracker.stall-timeout-minutes:30}")
+    private long stallTimeoutMinutes;
 
-    // Maps FileInfoID -> Boolean indicating if the InputStream has been fully read
-    // by the router
-    private final Map<Long, Boolean> fileParsingFinished = new ConcurrentHashMap<>();
+    @Value("${app.cdr.tracker.stall-action:FAIL}")
+    private StallAction stallAction;
 
-    // Files that were abandoned mid-flight (CDR disabled). checkCompletion will
-    // reset
-    // them to PENDING instead of COMPLETED so they are reprocessed when re-enabled.
-    private final Set<Long> discardedFiles = ConcurrentHashMap.newKeySet();
+    // FileInfo IDs come from per-tenant sequences, so the tenant is part of the key
+    private final Map<FileKey, FileProgress> files = new ConcurrentHashMap<>();
+
+    private record FileKey(String tenantId, Long fileInfoId) {
+    }
+
+    private static final class FileProgress {
+        private final String tenantId;
+        private final Long fileInfoId;
+        private final long startedAt = System.currentTimeMillis();
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+        private volatile long lastProgressAt = startedAt;
+        private volatile boolean parsingFinished;
+        private volatile boolean discarded;
+
+        private FileProgress(String tenantId, Long fileInfoId) {
+            this.tenantId = tenantId;
+            this.fileInfoId = fileInfoId;
+        }
+
+        private long pending() {
+            return submitted.sum() - completed.sum();
+        }
+
+        private void touch() {
+            lastProgressAt = System.currentTimeMillis();
+        }
+    }
 
     /**
      * Initializes tracking for a new file. Called before routing starts.
      */
     public void initFile(Long fileInfoId) {
-        pendingRecords.put(fileInfoId, new AtomicInteger(0));
-        fileParsingFinished.put(fileInfoId, false);
-        discardedFiles.remove(fileInfoId); // clear any stale discard marker
+        FileKey key = keyFor(fileInfoId);
+        files.put(key, new FileProgress(key.tenantId(), fileInfoId));
     }
 
     /**
@@ -46,8 +98,10 @@ public class FileProcessingTrackerService {
     public void incrementPendingCount(Long fileInfoId, int delta) {
         if (fileInfoId == null)
             return;
-        pendingRecords.computeIfAbsent(fileInfoId, k -> new AtomicInteger(0))
-                .addAndGet(delta);
+        FileKey key = keyFor(fileInfoId);
+        FileProgress progress = files.computeIfAbsent(key, k -> new FileProgress(k.tenantId(), fileInfoId));
+        progress.submitted.add(delta);
+        progress.touch();
     }
 
     /**
@@ -57,11 +111,27 @@ public class FileProcessingTrackerService {
     public void decrementPendingCount(Long fileInfoId, int delta) {
         if (fileInfoId == null)
             return;
+        FileProgress progress = files.get(keyFor(fileInfoId));
+        if (progress != null) {
+            progress.completed.add(delta);
+            progress.touch();
+            checkCompletion(progress);
+        }
+    }
 
-        AtomicInteger counter = pendingRecords.get(fileInfoId);
-        if (counter != null) {
-            int current = counter.addAndGet(-delta);
-            checkCompletion(fileInfoId, current);
+    /**
+     * Decrements the pending count for records that could not be persisted.
+     * The file still completes, but it is marked FAILED so it can be reprocessed.
+     */
+    public void failRecords(Long fileInfoId, int delta) {
+        if (fileInfoId == null)
+            return;
+        FileProgress progress = files.get(keyFor(fileInfoId));
+        if (progress != null) {
+            progress.failed.add(delta);
+            progress.completed.add(delta);
+            progress.touch();
+            checkCompletion(progress);
         }
     }
 
@@ -69,62 +139,144 @@ public class FileProcessingTrackerService {
      * Marks that the file stream has been fully read and all batches submitted.
      */
     public void markParsingComplete(Long fileInfoId) {
-        fileParsingFinished.put(fileInfoId, true);
+        FileProgress progress = files.get(keyFor(fileInfoId));
+        if (progress == null)
+            return;
+        progress.parsingFinished = true;
+        progress.touch();
 
         // Check immediately. If the file was empty or very small, or processing was
-        // faster than routing,
-        // the count might already be 0.
-        AtomicInteger counter = pendingRecords.get(fileInfoId);
-        int current = (counter != null) ? counter.get() : 0;
-
-        checkCompletion(fileInfoId, current);
+        // faster than routing, the count might already be 0.
+        checkCompletion(progress);
     }
 
     /**
      * Marks a file as discarded (CDR disabled mid-flight) and triggers completion
-     * so that
-     * checkCompletion can reset it to PENDING instead of COMPLETED.
+     * so that checkCompletion can reset it to PENDING instead of COMPLETED.
      * Called by BatchPersistenceWorker when it discards a batch for a disabled
      * tenant.
      */
     public void abandonFile(Long fileInfoId, int delta) {
         if (fileInfoId == null)
             return;
-        discardedFiles.add(fileInfoId);
+        FileProgress progress = files.get(keyFor(fileInfoId));
+        if (progress != null) {
+            progress.discarded = true;
+        }
         decrementPendingCount(fileInfoId, delta);
     }
 
     /**
-     * Checks if processing is fully complete for a file.
+     * Returns a snapshot of the files currently in flight for the current tenant,
+     * oldest first.
      */
-    private void checkCompletion(Long fileInfoId, int pendingCount) {
-        boolean isParsingDone = fileParsingFinished.getOrDefault(fileInfoId, false);
+    public List<FileProcessingStateDto> getInFlightFiles() {
+        String tenantId = TenantContext.getTenant();
+        long now = System.currentTimeMillis();
+        return files.values().stream()
+                .filter(p -> Objects.equals(p.tenantId, tenantId))
+                .sorted(Comparator.comparingLong(p -> p.startedAt))
+                .map(p -> toDto(p, now))
+                .toList();
+    }
 
-        // If parser is done AND no records are left in the queue/processing pipeline
-        if (isParsingDone && pendingCount <= 0) {
-            // Clean up memory maps
-            pendingRecords.remove(fileInfoId);
-            fileParsingFinished.remove(fileInfoId);
-
-            if (discardedFiles.remove(fileInfoId)) {
-                // File was abandoned because CDR was disabled — reset to PENDING so it
-                // gets reprocessed when CDR is re-enabled.
-                log.info("File ID {} was discarded (CDR disabled). Resetting to PENDING.", fileInfoId);
-                try {
-                    fileInfoPersistenceService.updateStatus(fileInfoId, FileInfo.ProcessingStatus.PENDING);
-                } catch (Exception e) {
-                    log.error("Failed to reset status to PENDING for discarded file {}", fileInfoId, e);
-                }
-            } else {
-                log.info("File processing finished. All records persisted. Marking File ID {} as COMPLETED.",
-                        fileInfoId);
-                // Update Database Status
-                try {
-                    fileInfoPersistenceService.updateStatus(fileInfoId, FileInfo.ProcessingStatus.COMPLETED);
-                } catch (Exception e) {
-                    log.error("Failed to update status to COMPLETED for file {}", fileInfoId, e);
-                }
+    /**
+     * Number of files in flight across all tenants.
+     */
+    public int getInFlightCount() {
+        return files.size();
+    }
+
+    /**
+     * Safety net for the event-driven completion path. Re-evaluates completion for
+     * every tracked file and resolves files that have made no progress within the
+     * configured stall timeout, according to {@code app.cdr.tracker.stall-action}.
+     */
+    @Scheduled(fixedDelayString = "${app.cdr.tracker.sweep-interval-ms:60000}", initialDelay = 60000)
+    public void sweepStalledFiles() {
+        long stallThresholdMs = Duration.ofMinutes(stallTimeoutMinutes).toMillis();
+        long now = System.currentTimeMillis();
+
+        for (FileProgress progress : files.values()) {
+            checkCompletion(progress);
+            if (progress.finished.get() || now - progress.lastProgressAt < stallThresholdMs) {
+                continue;
+            }
+            if (!progress.finished.compareAndSet(false, true)) {
+                continue;
             }
+            files.remove(new FileKey(progress.tenantId, progress.fileInfoId));
+
+            FileInfo.ProcessingStatus status = stallAction == StallAction.REQUEUE
+                    ? FileInfo.ProcessingStatus.PENDING
+                    : FileInfo.ProcessingStatus.FAILED;
+            log.warn("File ID {} for tenant [{}] made no progress for {} min (parsing finished: {}, pending: {}). Marking {}.",
+                    progress.fileInfoId, progress.tenantId, stallTimeoutMinutes, progress.parsingFinished,
+                    progress.pending(), status);
+            updateStatus(progress, status);
         }
     }
+
+    /**
+     * Checks if processing is fully complete for a file. Only the caller that wins
+     * the {@code finished} CAS performs the status update.
+     */
+    private void checkCompletion(FileProgress progress) {
+        // If parser is done AND no records are left in the queue/processing pipeline
+        if (!progress.parsingFinished || progress.pending() > 0) {
+            return;
+        }
+        if (!progress.finished.compareAndSet(false, true)) {
+            return;
+        }
+        files.remove(new FileKey(progress.tenantId, progress.fileInfoId));
+
+        if (progress.discarded) {
+            // File was abandoned because CDR was disabled — reset to PENDING so it
+            // gets reprocessed when CDR is re-enabled.
+            log.info("File ID {} was discarded (CDR disabled). Resetting to PENDING.", progress.fileInfoId);
+            updateStatus(progress, FileInfo.ProcessingStatus.PENDING);
+        } else if (progress.failed.sum() > 0) {
+            log.warn("File processing finished with {} unpersisted records. Marking File ID {} as FAILED.",
+                    progress.failed.sum(), progress.fileInfoId);
+            updateStatus(progress, FileInfo.ProcessingStatus.FAILED);
+        } else {
+            log.info("File processing finished. All records persisted. Marking File ID {} as COMPLETED.",
+                    progress.fileInfoId);
+            updateStatus(progress, FileInfo.ProcessingStatus.COMPLETED);
+        }
+    }
+
+    private void updateStatus(FileProgress progress, FileInfo.ProcessingStatus status) {
+        // The sweep runs without a tenant; completion from worker threads already has one
+        String previousTenant = TenantContext.getTenant();
+        try {
+            TenantContext.setTenant(progress.tenantId);
+            fileInfoPersistenceService.updateStatus(progress.fileInfoId, status);
+        } catch (Exception e) {
+            log.error("Failed to update status to {} for file {}", status, progress.fileInfoId, e);
+        } finally {
+            TenantContext.setTenant(previousTenant);
+        }
+    }
+
+    private FileProcessingStateDto toDto(FileProgress progress, long now) {
+        ZoneId zone = ZoneId.systemDefault();
+        return FileProcessingStateDto.builder()
+                .fileInfoId(progress.fileInfoId)
+                .parsingFinished(progress.parsingFinished)
+                .discarded(progress.discarded)
+                .submittedRecords(progress.submitted.sum())
+                .completedRecords(progress.completed.sum())
+                .failedRecords(progress.failed.sum())
+                .pendingRecords(progress.pending())
+                .startedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(progress.startedAt), zone))
+                .lastProgressAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(progress.lastProgressAt), zone))
+                .idleSeconds((now - progress.lastProgressAt) / 1000)
+                .build();
+    }
+
+    private static FileKey keyFor(Long fileInfoId) {
+        return new FileKey(TenantContext.getTenant(), fileInfoId);
+    }
 }
@@ -1,6 +1,8 @@
 // File: com/infomedia/abacox/telephonypricing/component/cdrprocessing/IndicatorLookupService.java
 package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
 
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
@@ -15,6 +17,7 @@ import java.util.stream.Collectors;
 
 @Service
 @Log4j2
+@ConnectionWorkload(Workload.INGEST_READ)
 public class IndicatorLookupService {
 
     @PersistenceContext
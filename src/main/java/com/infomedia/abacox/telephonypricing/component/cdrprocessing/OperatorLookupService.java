@@ -2,6 +2,8 @@
 package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
 
 import com.infomedia.abacox.telephonypricing.db.entity.Operator;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
@@ -14,6 +16,7 @@ import java.util.Optional;
 
 @Service
 @Log4j2
+@ConnectionWorkload(Workload.INGEST_READ)
 public class OperatorLookupService {
 
     @PersistenceContext
@@ -1,6 +1,8 @@
 package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
 
 import com.infomedia.abacox.telephonypricing.db.entity.PbxSpecialRule;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import lombok.extern.log4j.Log4j2;
@@ -12,6 +14,7 @@ import java.util.Optional;
 
 @Service
 @Log4j2
+@ConnectionWorkload(Workload.INGEST_READ)
 public class PbxSpecialRuleLookupService {
 
     @PersistenceContext
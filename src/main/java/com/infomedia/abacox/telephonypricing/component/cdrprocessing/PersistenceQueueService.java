@@ -18,6 +18,7 @@ public class PersistenceQueueService {
         // Offer allows us to handle full queue gracefully if needed, 
         // but put() blocks the producer, creating backpressure.
         try {
+            result.setQueuedAtNanos(System.nanoTime());
             queue.put(result);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -3,6 +3,8 @@ package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
 
 import com.infomedia.abacox.telephonypricing.db.entity.CommunicationLocation;
 import com.infomedia.abacox.telephonypricing.db.entity.Indicator;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
@@ -17,6 +19,7 @@ import java.util.Objects;
 @Service
 @Log4j2
 @RequiredArgsConstructor
+@ConnectionWorkload(Workload.INGEST_READ)
 public class PhoneNumberTransformationService {
 
     @PersistenceContext
@@ -19,4 +19,7 @@ public class ProcessedCdrResult {
     private String errorMessage;
     private String errorStep;
     private Long originalCallRecordId;
+
+    // System.nanoTime() when the result entered the persistence queue
+    private long queuedAtNanos;
 }
\ No newline at end of file
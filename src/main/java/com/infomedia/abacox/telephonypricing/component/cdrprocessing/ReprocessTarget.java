@@ -0,0 +1,10 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import java.util.UUID;
+
+/**
+ * The minimal columns of a CallRecord or FailedCallRecord needed to locate and
+ * reprocess its original CDR line.
+ */
+public record ReprocessTarget(Long id, Long fileInfoId, Long commLocationId, UUID ctlHash) {
+}
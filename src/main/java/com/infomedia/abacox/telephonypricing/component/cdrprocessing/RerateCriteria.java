@@ -0,0 +1,11 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import java.time.LocalDateTime;
+
+/**
+ * Selects the call records to re-rate: a service date range (start inclusive,
+ * end exclusive) optionally narrowed to one comm location and/or telephony type.
+ */
+public record RerateCriteria(LocalDateTime startDate, LocalDateTime endDate, Long commLocationId,
+                             Long telephonyTypeId) {
+}
@@ -0,0 +1,14 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class RerateResultDto {
+    private long scanned;
+    private long updated;
+    private long unchanged;
+    private long skipped; // comm location no longer available or tariff calculation failed
+    private long durationMs;
+}
@@ -0,0 +1,14 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The stored CallRecord columns that feed tariff calculation, plus the current
+ * pricing so unchanged rows can be skipped.
+ */
+public record RerateRow(Long id, Long commLocationId, LocalDateTime serviceDate, String dial, String trunk,
+                        Integer duration, Boolean isIncoming, Long telephonyTypeId, Long operatorId,
+                        Long indicatorId, BigDecimal billedAmount, BigDecimal pricePerMinute,
+                        BigDecimal initialPrice) {
+}
@@ -0,0 +1,10 @@
+package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
+
+import java.math.BigDecimal;
+
+/**
+ * New pricing for one re-rated CallRecord.
+ */
+public record RerateUpdate(Long id, BigDecimal billedAmount, BigDecimal pricePerMinute, BigDecimal initialPrice,
+                           Long telephonyTypeId, Long operatorId) {
+}
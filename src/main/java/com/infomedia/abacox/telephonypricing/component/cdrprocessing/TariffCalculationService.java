@@ -26,6 +26,8 @@ public class TariffCalculationService {
     private final TelephonyTypeLookupService telephonyTypeLookupService;
     private final OperatorLookupService operatorLookupService;
     private final CdrConfigService cdrConfigService;
+    private final SpecialServiceLookupService specialServiceLookupService;
+    private final CdrPipelineMetrics pipelineMetrics;
 
     /**
      * PHP equivalent: procesaSaliente_Complementar and parts of evaluarDestino
@@ -37,7 +39,9 @@ public class TariffCalculationService {
 
         Optional<TrunkInfo> trunkInfoOpt = Optional.empty();
         if (cdrData.getDestDeviceName() != null && !cdrData.getDestDeviceName().isEmpty()) {
+            long trunkLookupStart = System.nanoTime();
             trunkInfoOpt = trunkLookupService.findTrunkByName(cdrData.getDestDeviceName(), commLocation.getId());
+            recordLookup(CdrPipelineMetrics.Lookup.TRUNK, commLocation, trunkLookupStart);
             log.debug("Trunk lookup for '{}': {}", cdrData.getDestDeviceName(),
                     trunkInfoOpt.isPresent() ? "Found" : "Not Found");
         }
@@ -178,6 +182,116 @@ public class TariffCalculationService {
         }
     }
 
+    /**
+     * Re-rates a call whose classification (direction, telephony type, operator,
+     * destination indicator, trunk) is already known, as stored on a CallRecord.
+     * Prefix and destination matching are skipped; only the tariff lookups
+     * (prefix/band base value, trunk rates, special rates and trunk rules) and the
+     * billed amount are recomputed.
+     *
+     * @return false if the stored classification cannot be priced again (no valid
+     *         type, no prefix or special service for it), in which case the
+     *         tariffs in cdrData must not be used
+     */
+    public boolean recalculateTariffs(CdrData cdrData, CommunicationLocation commLocation) {
+        cdrData.setBilledAmount(BigDecimal.ZERO);
+        cdrData.setPricePerMinute(BigDecimal.ZERO);
+        cdrData.setInitialPricePerMinute(BigDecimal.ZERO);
+        cdrData.setPriceIncludesVat(false);
+        cdrData.setInitialPriceIncludesVat(false);
+        cdrData.setChargeBySecond(false);
+        cdrData.setVatRate(BigDecimal.ZERO);
+
+        Long telephonyTypeId = cdrData.getTelephonyTypeId();
+        if (cdrData.getCallDirection() == CallDirection.INCOMING) {
+            calculateTariffsForIncoming(cdrData, commLocation);
+            return true;
+        }
+        if (telephonyTypeId == null || telephonyTypeId <= 0
+                || telephonyTypeId.equals(TelephonyTypeEnum.ERRORS.getValue())) {
+            log.debug("CDR {} has no valid telephony type. Not re-rating it.", cdrData.getCtlHash());
+            return false;
+        }
+        if (telephonyTypeLookupService.getInternalTypeIds().contains(telephonyTypeId)) {
+            calculateTariffsForInternal(cdrData, commLocation);
+            return true;
+        }
+
+        Long originCountryId = commLocation.getIndicator().getOriginCountryId();
+        if (telephonyTypeId.equals(TelephonyTypeEnum.SPECIAL_SERVICES.getValue())) {
+            Optional<SpecialServiceInfo> specialService = specialServiceLookupService.findSpecialService(
+                    cdrData.getEffectiveDestinationNumber(), commLocation.getIndicatorId(), originCountryId);
+            if (specialService.isEmpty()) {
+                log.debug("No special service for {}. Not re-rating CDR {}.",
+                        cdrData.getEffectiveDestinationNumber(), cdrData.getCtlHash());
+                return false;
+            }
+            cdrData.setSpecialServiceTariff(specialService.get());
+            calculateTariffsForSpecialService(cdrData);
+            return true;
+        }
+
+        String trunkName = cdrData.getDestDeviceName();
+        boolean hasTrunk = trunkName != null && !trunkName.isEmpty();
+        // Celufijo is stored for cellular calls over a celufijo trunk; the trunk rates
+        // below turn the type back into celufijo
+        Long pricingTypeId = telephonyTypeId.equals(TelephonyTypeEnum.CELUFIJO.getValue()) && hasTrunk
+                ? TelephonyTypeEnum.CELLULAR.getValue()
+                : telephonyTypeId;
+        Long prefixId = findPrefixIdForRerate(pricingTypeId, cdrData, originCountryId);
+        if (prefixId == null && hasTrunk) {
+            // The stored type may be the new type of a trunk rule, which is applied again below
+            Optional<Long> ruleSourceTypeId = trunkRuleLookupService.findRuleSourceTelephonyTypeId(
+                    trunkName, telephonyTypeId, cdrData.getIndicatorId(), commLocation.getIndicatorId());
+            if (ruleSourceTypeId.isPresent()) {
+                pricingTypeId = ruleSourceTypeId.get();
+                prefixId = findPrefixIdForRerate(pricingTypeId, cdrData, originCountryId);
+            }
+        }
+        if (prefixId == null) {
+            log.debug("No prefix for type {} and operator {}. Not re-rating CDR {}.",
+                    telephonyTypeId, cdrData.getOperatorId(), cdrData.getCtlHash());
+            return false;
+        }
+        cdrData.setTelephonyTypeId(pricingTypeId);
+
+        long baseTariffLookupStart = System.nanoTime();
+        TariffValue baseTariff = telephonyTypeLookupService.getBaseTariffValue(
+                prefixId, cdrData.getIndicatorId(), commLocation.getId(), commLocation.getIndicatorId());
+        recordLookup(CdrPipelineMetrics.Lookup.BASE_TARIFF, commLocation, baseTariffLookupStart);
+        cdrData.setPricePerMinute(baseTariff.getRateValue());
+        cdrData.setPriceIncludesVat(baseTariff.isIncludesVat());
+        cdrData.setVatRate(baseTariff.getVatRate());
+
+        Optional<TrunkInfo> trunkInfoOpt = Optional.empty();
+        if (hasTrunk) {
+            long trunkLookupStart = System.nanoTime();
+            trunkInfoOpt = trunkLookupService.findTrunkByName(trunkName, commLocation.getId());
+            recordLookup(CdrPipelineMetrics.Lookup.TRUNK, commLocation, trunkLookupStart);
+        }
+        trunkInfoOpt.ifPresent(trunkInfo -> applyTrunkSpecificRates(cdrData, trunkInfo, commLocation));
+
+        // Band-scoped special rates need the band the call was priced with
+        DestinationInfo destinationInfo = new DestinationInfo();
+        destinationInfo.setIndicatorId(cdrData.getIndicatorId());
+        destinationInfo.setPrefixId(prefixId);
+        destinationInfo.setBandId(telephonyTypeLookupService.findBandId(
+                prefixId, cdrData.getIndicatorId(), commLocation.getIndicatorId()));
+
+        applySpecialRatesAndRules(cdrData, commLocation, destinationInfo, trunkInfoOpt.orElse(null));
+        cdrData.setBilledAmount(calculateFinalBilledAmount(cdrData));
+        return true;
+    }
+
+    private Long findPrefixIdForRerate(Long telephonyTypeId, CdrData cdrData, Long originCountryId) {
+        if (telephonyTypeId.equals(TelephonyTypeEnum.LOCAL_EXTENDED.getValue())) {
+            PrefixInfo localExtPrefixInfo = telephonyTypeLookupService.getPrefixInfoForLocalExtended(originCountryId);
+            return localExtPrefixInfo != null ? localExtPrefixInfo.getPrefixId() : null;
+        }
+        return telephonyTypeLookupService.findPrefixId(
+                telephonyTypeId, cdrData.getOperatorId(), originCountryId, cdrData.getIndicatorId());
+    }
+
     private TariffingAttemptResult attemptTariffing(String numberForLookup, CommunicationLocation commLocation,
             Optional<TrunkInfo> trunkInfoOpt, boolean isNormalizationAttempt) {
         log.debug("Attempting tariffing for number: '{}', isTrunk: {}, isNormalization: {}", numberForLookup,
@@ -190,11 +304,13 @@ public class TariffCalculationService {
             trunkTelephonyTypeIds = trunkInfoOpt.get().getAllowedTelephonyTypeIds();
         }
 
+        long prefixLookupStart = System.nanoTime();
         List<PrefixInfo> prefixes = prefixLookupService.findMatchingPrefixes(
                 numberForLookup,
                 commLocation,
                 trunkInfoOpt.isPresent() && !isNormalizationAttempt,
                 trunkTelephonyTypeIds);
+        recordLookup(CdrPipelineMetrics.Lookup.PREFIX, commLocation, prefixLookupStart);
         log.debug("Found {} potential prefixes for number '{}'", prefixes.size(), numberForLookup);
 
         for (PrefixInfo prefixInfo : prefixes) {
@@ -205,8 +321,10 @@ public class TariffCalculationService {
             boolean stripOperatorPrefixForDestLookup = false;
             if (trunkInfoOpt.isPresent() && !isNormalizationAttempt) {
                 TrunkInfo ti = trunkInfoOpt.get();
+                long trunkLookupStart = System.nanoTime();
                 Optional<TrunkRateDetails> rateDetails = trunkLookupService.getRateDetailsForTrunk(
                         ti.id, prefixInfo.telephonyTypeId, prefixInfo.operatorId);
+                recordLookup(CdrPipelineMetrics.Lookup.TRUNK, commLocation, trunkLookupStart);
                 if (rateDetails.isPresent() && rateDetails.get().noPrefix != null) {
                     stripOperatorPrefixForDestLookup = rateDetails.get().noPrefix;
                 }
@@ -231,6 +349,7 @@ public class TariffCalculationService {
                         prefixInfo.getTelephonyTypeMaxLength(), prefixInfo.getTelephonyTypeId(), numberForDestLookup);
             }
 
+            long indicatorLookupStart = System.nanoTime();
             Optional<DestinationInfo> destInfoOpt = indicatorLookupService.findDestinationIndicator(
                     numberForDestLookup, // Use the potentially truncated number
                     prefixInfo.telephonyTypeId,
@@ -241,6 +360,7 @@ public class TariffCalculationService {
                     prefixInfo.bandsAssociatedCount > 0,
                     (operatorPrefixToPassToFindDest == null),
                     operatorPrefixToPassToFindDest);
+            recordLookup(CdrPipelineMetrics.Lookup.INDICATOR, commLocation, indicatorLookupStart);
             log.trace("Destination lookup for '{}' (type {}): {}", numberForDestLookup, prefixInfo.telephonyTypeId,
                     destInfoOpt.isPresent() ? destInfoOpt.get() : "Not Found");
 
@@ -314,11 +434,13 @@ public class TariffCalculationService {
                 }
             }
 
+            long baseTariffLookupStart = System.nanoTime();
             TariffValue baseTariff = telephonyTypeLookupService.getBaseTariffValue(
                     result.bestPrefixInfo.prefixId,
                     result.bestDestInfo.getIndicatorId(),
                     commLocation.getId(),
                     commLocation.getIndicatorId());
+            recordLookup(CdrPipelineMetrics.Lookup.BASE_TARIFF, commLocation, baseTariffLookupStart);
             log.debug("Base tariff for prefixId {}: {}", result.bestPrefixInfo.prefixId, baseTariff);
 
             cdrData.setPricePerMinute(baseTariff.getRateValue());
@@ -384,8 +506,10 @@ public class TariffCalculationService {
 
     private void applyTrunkSpecificRates(CdrData cdrData, TrunkInfo trunkInfo, CommunicationLocation commLocation) {
         log.debug("Applying trunk-specific rates for trunk: {}", trunkInfo.description);
+        long trunkLookupStart = System.nanoTime();
         Optional<TrunkRateDetails> rateDetailsOpt = trunkLookupService.getRateDetailsForTrunk(
                 trunkInfo.id, cdrData.getTelephonyTypeId(), cdrData.getOperatorId());
+        recordLookup(CdrPipelineMetrics.Lookup.TRUNK, commLocation, trunkLookupStart);
         if (rateDetailsOpt.isPresent()) {
             TrunkRateDetails rd = rateDetailsOpt.get();
             log.debug("Found specific rate details for trunk: {}", rd);
@@ -423,12 +547,14 @@ public class TariffCalculationService {
 
         if (cdrConfigService.isSpecialValueTariffingEnabled()) {
             log.debug("Special value tariffing is enabled. Looking for applicable special rates.");
+            long specialRateLookupStart = System.nanoTime();
             Optional<SpecialRateInfo> specialRateOpt = specialRateValueLookupService.getApplicableSpecialRate(
                     cdrData.getDateTimeOrigination(),
                     commLocation.getIndicatorId(),
                     cdrData.getTelephonyTypeId(),
                     cdrData.getOperatorId(),
                     destinationInfo != null ? destinationInfo.getBandId() : null);
+            recordLookup(CdrPipelineMetrics.Lookup.SPECIAL_RATE, commLocation, specialRateLookupStart);
 
             if (specialRateOpt.isPresent()) {
                 SpecialRateInfo sr = specialRateOpt.get();
@@ -469,11 +595,13 @@ public class TariffCalculationService {
 
         if (cdrData.getCallDirection() != CallDirection.INCOMING && cdrData.getDestDeviceName() != null
                 && !cdrData.getDestDeviceName().isEmpty()) {
+            long trunkRuleLookupStart = System.nanoTime();
             Optional<AppliedTrunkRuleInfo> ruleInfoOpt = trunkRuleLookupService.getAppliedTrunkRule(
                     cdrData.getDestDeviceName(),
                     cdrData.getTelephonyTypeId(), // Use current type, which might have been changed by special rate
                     cdrData.getIndicatorId(),
                     commLocation.getIndicatorId());
+            recordLookup(CdrPipelineMetrics.Lookup.TRUNK_RULE, commLocation, trunkRuleLookupStart);
             if (ruleInfoOpt.isPresent()) {
                 AppliedTrunkRuleInfo rule = ruleInfoOpt.get();
                 log.debug("Applying trunk rule: {}", rule);
@@ -505,6 +633,10 @@ public class TariffCalculationService {
         }
     }
 
+    private void recordLookup(CdrPipelineMetrics.Lookup lookup, CommunicationLocation commLocation, long startNanos) {
+        pipelineMetrics.recordLookupSince(lookup, commLocation.getPlantTypeId(), startNanos);
+    }
+
     private boolean isTariffResultInvalidOrAssumed(TariffingAttemptResult result) {
         return result.bestDestInfo == null ||
                 result.bestPrefixInfo == null ||
@@ -3,6 +3,8 @@ package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
 
 import com.infomedia.abacox.telephonypricing.db.entity.Prefix;
 import com.infomedia.abacox.telephonypricing.db.entity.TelephonyTypeConfig;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
@@ -16,6 +18,7 @@ import java.util.*;
 
 @Service
 @Log4j2
+@ConnectionWorkload(Workload.INGEST_READ)
 public class TelephonyTypeLookupService {
     @PersistenceContext
     private EntityManager entityManager;
@@ -98,6 +101,54 @@ public class TelephonyTypeLookupService {
         }
     }
 
+    /**
+     * Resolves the prefix that prices a call of the given type and operator, used
+     * when re-rating from a stored classification instead of re-matching the number.
+     * When the type and operator have several prefixes, one with a band covering
+     * the destination indicator is preferred.
+     */
+    @Transactional(readOnly = true)
+    public Long findPrefixId(Long telephonyTypeId, Long operatorId, Long originCountryId, Long destinationIndicatorId) {
+        String queryStr = "SELECT p.id FROM prefix p " +
+                "WHERE p.active = true AND p.telephony_type_id = :telephonyTypeId AND p.operator_id = :operatorId " +
+                "AND EXISTS (SELECT 1 FROM operator o WHERE o.id = p.operator_id AND o.origin_country_id = :originCountryId AND o.active = true) " +
+                "ORDER BY EXISTS (SELECT 1 FROM band b JOIN band_indicator bi ON bi.band_id = b.id " +
+                "WHERE b.prefix_id = p.id AND b.active = true AND bi.indicator_id = :destinationIndicatorId) DESC, p.id LIMIT 1";
+        jakarta.persistence.Query query = entityManager.createNativeQuery(queryStr);
+        query.setParameter("telephonyTypeId", telephonyTypeId);
+        query.setParameter("operatorId", operatorId);
+        query.setParameter("originCountryId", originCountryId);
+        query.setParameter("destinationIndicatorId", destinationIndicatorId != null ? destinationIndicatorId : 0L);
+        try {
+            return ((Number) query.getSingleResult()).longValue();
+        } catch (NoResultException e) {
+            log.debug("No prefix found for type {}, operator {}, country {}", telephonyTypeId, operatorId, originCountryId);
+            return null;
+        }
+    }
+
+    /**
+     * Finds the band whose value {@link #getBaseTariffValue} uses for the given
+     * prefix and destination, or null if the prefix is priced by its base value.
+     */
+    @Transactional(readOnly = true)
+    public Long findBandId(Long prefixId, Long destinationIndicatorId, Long originIndicatorIdForBand) {
+        // Local prefixes take their band by origin only, like getBaseTariffValue
+        String queryStr = "SELECT b.id FROM band b JOIN prefix p ON p.id = b.prefix_id AND p.active = true AND p.band_ok = true " +
+                "WHERE b.active = true AND b.prefix_id = :prefixId " +
+                "AND (p.telephony_type_id IN (:localTypeIds) " +
+                "OR EXISTS (SELECT 1 FROM band_indicator bi WHERE bi.band_id = b.id AND bi.indicator_id = :destinationIndicatorId)) " +
+                "AND (b.origin_indicator_id = 0 OR b.origin_indicator_id IS NULL OR b.origin_indicator_id = :originIndicatorIdForBand) " +
+                "ORDER BY b.origin_indicator_id DESC NULLS LAST LIMIT 1";
+        jakarta.persistence.Query query = entityManager.createNativeQuery(queryStr);
+        query.setParameter("prefixId", prefixId);
+        query.setParameter("localTypeIds", List.of(TelephonyTypeEnum.LOCAL.getValue(), TelephonyTypeEnum.LOCAL_EXTENDED.getValue()));
+        query.setParameter("destinationIndicatorId", destinationIndicatorId != null ? destinationIndicatorId : 0L);
+        query.setParameter("originIndicatorIdForBand", originIndicatorIdForBand);
+        List<?> bandIds = query.getResultList();
+        return bandIds.isEmpty() ? null : ((Number) bandIds.get(0)).longValue();
+    }
+
     @Transactional(readOnly = true)
     public TariffValue getBaseTariffValue(Long prefixId, Long destinationIndicatorId,
                                           Long commLocationId, Long originIndicatorIdForBand) {
@@ -2,6 +2,8 @@ package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
 
 import com.infomedia.abacox.telephonypricing.db.entity.CallRecord;
 import com.infomedia.abacox.telephonypricing.db.entity.FailedCallRecord;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
@@ -10,25 +12,32 @@ import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 @Log4j2
 @RequiredArgsConstructor
+@ConnectionWorkload(Workload.INGEST_WRITE)
 public class TenantBatchPersister {
 
     private final CallRecordPersistenceService callRecordService;
     private final FailedCallRecordPersistenceService failedRecordService;
     private final FileProcessingTrackerService trackerService;
+    private final CdrPipelineMetrics pipelineMetrics;
+    private final CallRecordRollupService rollupService;
+    private final ConferenceGroupService conferenceGroupService;
 
     @PersistenceContext
     private EntityManager entityManager;
 
     @Transactional(propagation = Propagation.REQUIRED)
     public void persistTenantBatch(List<ProcessedCdrResult> tenantBatch) {
-        long batchStartTime = System.currentTimeMillis();
+        long batchStartNanos = System.nanoTime();
         String tenantId = TenantContext.getTenant(); // For logging
 
         // 1. Separate Success vs Failed
@@ -39,28 +48,210 @@ public class TenantBatchPersister {
                 .filter(r -> r.getOutcome() != ProcessingOutcome.SUCCESS)
                 .toList();
 
+        CallRecordRollupDelta rollupDelta = new CallRecordRollupDelta();
+        List<CallRecord> persisted = new ArrayList<>();
         if (!successResults.isEmpty()) {
-            processSuccessfulBatch(successResults);
+            processSuccessfulBatch(successResults, rollupDelta, persisted);
         }
         if (!failedResults.isEmpty()) {
             processFailedBatch(failedResults);
         }
 
         // 2. Measure Database Flush
-        long flushStart = System.currentTimeMillis();
+        long flushStartNanos = System.nanoTime();
         entityManager.flush();
         entityManager.clear();
-        long flushTime = System.currentTimeMillis() - flushStart;
+        long flushNanos = System.nanoTime() - flushStartNanos;
 
-        long totalTime = System.currentTimeMillis() - batchStartTime;
+        // 3. Daily rollup, in the same transaction as the records it counts
+        long rollupStartNanos = System.nanoTime();
+        rollupService.apply(rollupDelta);
+        long rollupNanos = System.nanoTime() - rollupStartNanos;
+
+        // 4. Conference groups of the new conference legs
+        long conferenceStartNanos = System.nanoTime();
+        conferenceGroupService.assign(persisted);
+        long conferenceNanos = System.nanoTime() - conferenceStartNanos;
+        long totalNanos = System.nanoTime() - batchStartNanos;
+        long flushTime = flushNanos / 1_000_000;
+        long totalTime = totalNanos / 1_000_000;
+
+        pipelineMetrics.recordStage(CdrPipelineMetrics.Stage.FLUSH, CdrPipelineMetrics.ALL_PLANT_TYPES, flushNanos);
+        pipelineMetrics.recordStage(CdrPipelineMetrics.Stage.ROLLUP, CdrPipelineMetrics.ALL_PLANT_TYPES, rollupNanos);
+        pipelineMetrics.recordStage(CdrPipelineMetrics.Stage.CONFERENCE, CdrPipelineMetrics.ALL_PLANT_TYPES,
+                conferenceNanos);
+        pipelineMetrics.recordStage(CdrPipelineMetrics.Stage.PERSIST, CdrPipelineMetrics.ALL_PLANT_TYPES, totalNanos);
+        pipelineMetrics.count("success", CdrPipelineMetrics.ALL_PLANT_TYPES, successResults.size());
+        pipelineMetrics.count("quarantined", CdrPipelineMetrics.ALL_PLANT_TYPES, failedResults.size());
         log.info("Persisted Batch of {} records for tenant [{}] in {} ms. (DB Flush took {} ms)",
                 tenantBatch.size(), tenantId, totalTime, flushTime);
 
-        // 3. Update Tracker
-        updateFileTrackers(tenantBatch);
+        // 5. Update Tracker once the batch is durable. If the commit fails, the
+        // caller reports the batch to the tracker as failed instead.
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                updateFileTrackers(tenantBatch);
+            }
+        });
+    }
+
+    /**
+     * Applies bulk reprocessing results for existing call records. Successful
+     * results update the record in place; quarantined ones move it to
+     * failed_call_record, keeping the original ID as a reference.
+     *
+     * @param resultsById reprocessing results keyed by CallRecord ID
+     * @return number of call records updated
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public int persistReprocessedCallRecords(Map<Long, ProcessedCdrResult> resultsById) {
+        if (resultsById.isEmpty()) return 0;
+
+        Map<Long, CallRecord> callRecords = entityManager.createQuery(
+                        "SELECT cr FROM CallRecord cr WHERE cr.id IN :ids", CallRecord.class)
+                .setParameter("ids", resultsById.keySet())
+                .getResultList().stream()
+                .collect(Collectors.toMap(CallRecord::getId, cr -> cr));
+
+        int updated = 0;
+        List<ProcessedCdrResult> quarantined = new ArrayList<>();
+        List<CallRecord> regrouped = new ArrayList<>();
+        CallRecordRollupDelta rollupDelta = new CallRecordRollupDelta();
+        for (Map.Entry<Long, ProcessedCdrResult> entry : resultsById.entrySet()) {
+            CallRecord callRecord = callRecords.get(entry.getKey());
+            ProcessedCdrResult res = entry.getValue();
+            if (callRecord == null) continue;
+
+            rollupDelta.subtract(callRecord);
+            if (res.getOutcome() == ProcessingOutcome.SUCCESS) {
+                callRecordService.mapCdrDataToCallRecord(res.getCdrData(), callRecord, res.getCommLocation());
+                rollupDelta.add(callRecord);
+                regrouped.add(callRecord);
+                updated++;
+            } else {
+                res.setOriginalCallRecordId(callRecord.getId());
+                quarantined.add(res);
+                entityManager.remove(callRecord);
+            }
+        }
+
+        if (!quarantined.isEmpty()) {
+            processFailedBatch(quarantined);
+        }
+
+        entityManager.flush();
+        rollupService.apply(rollupDelta);
+        // Transfer data may have changed, so every reprocessed record is regrouped from scratch
+        conferenceGroupService.detachCallRecordIds(callRecords.keySet());
+        conferenceGroupService.assign(regrouped);
+        entityManager.clear();
+        return updated;
     }
 
-    private void processSuccessfulBatch(List<ProcessedCdrResult> results) {
+    /**
+     * Applies bulk reprocessing results for quarantined records. Successful
+     * results are promoted to call_record and the failed record is removed; if
+     * the line is already in call_record, that record is updated with the new
+     * evaluation instead. The rest get their error details refreshed.
+     *
+     * @param resultsById reprocessing results keyed by FailedCallRecord ID
+     * @return number of failed records promoted to call records
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public int persistReprocessedFailedCallRecords(Map<Long, ProcessedCdrResult> resultsById) {
+        if (resultsById.isEmpty()) return 0;
+
+        Map<Long, FailedCallRecord> failedRecords = entityManager.createQuery(
+                        "SELECT fr FROM FailedCallRecord fr WHERE fr.id IN :ids", FailedCallRecord.class)
+                .setParameter("ids", resultsById.keySet())
+                .getResultList().stream()
+                .collect(Collectors.toMap(FailedCallRecord::getId, fr -> fr));
+
+        List<CdrData> successCdrs = resultsById.values().stream()
+                .filter(r -> r.getOutcome() == ProcessingOutcome.SUCCESS)
+                .map(ProcessedCdrResult::getCdrData)
+                .toList();
+        Map<UUID, CallRecord> existingRecords = findExistingRecords(successCdrs);
+
+        int promoted = 0;
+        // One call record per hash, even if several failed records resolve to the same line
+        Map<UUID, CallRecord> promotedRecords = new HashMap<>();
+        Set<Long> updatedIds = new HashSet<>();
+        CallRecordRollupDelta rollupDelta = new CallRecordRollupDelta();
+        for (Map.Entry<Long, ProcessedCdrResult> entry : resultsById.entrySet()) {
+            FailedCallRecord failedRecord = failedRecords.get(entry.getKey());
+            ProcessedCdrResult res = entry.getValue();
+            if (failedRecord == null) continue;
+
+            if (res.getOutcome() == ProcessingOutcome.SUCCESS) {
+                UUID hash = res.getCdrData().getCtlHash();
+                CallRecord callRecord = promotedRecords.get(hash);
+                if (callRecord == null) {
+                    callRecord = existingRecords.get(hash);
+                    if (callRecord != null) {
+                        updatedIds.add(callRecord.getId());
+                    }
+                }
+                if (callRecord != null) {
+                    rollupDelta.subtract(callRecord);
+                    callRecordService.mapCdrDataToCallRecord(res.getCdrData(), callRecord, res.getCommLocation());
+                } else {
+                    callRecord = callRecordService.createEntityFromDto(res.getCdrData(), res.getCommLocation());
+                    entityManager.persist(callRecord);
+                }
+                rollupDelta.add(callRecord);
+                promotedRecords.put(hash, callRecord);
+                entityManager.remove(failedRecord);
+                promoted++;
+            } else {
+                failedRecordService.updateEntityFromDto(failedRecord, res);
+            }
+        }
+
+        entityManager.flush();
+        rollupService.apply(rollupDelta);
+        // Updated records may have new transfer data, so they are regrouped from scratch
+        conferenceGroupService.detachCallRecordIds(updatedIds);
+        conferenceGroupService.assign(promotedRecords.values());
+        entityManager.clear();
+        return promoted;
+    }
+
+    private Set<UUID> findExistingHashes(List<CdrData> cdrs) {
+        ServiceDateRange range = ServiceDateRange.of(cdrs);
+        return callRecordService.findExistingHashes(hashes(cdrs), range.min(), range.max());
+    }
+
+    private Map<UUID, CallRecord> findExistingRecords(List<CdrData> cdrs) {
+        ServiceDateRange range = ServiceDateRange.of(cdrs);
+        return callRecordService.findByCtlHashes(hashes(cdrs), range.min(), range.max());
+    }
+
+    private static List<UUID> hashes(List<CdrData> cdrs) {
+        return cdrs.stream().map(CdrData::getCtlHash).toList();
+    }
+
+    // Service date is the partition key of call_record; bounding the lookup prunes it to the batch's months
+    private record ServiceDateRange(LocalDateTime min, LocalDateTime max) {
+
+        static ServiceDateRange of(List<CdrData> cdrs) {
+            LocalDateTime min = null;
+            LocalDateTime max = null;
+            for (CdrData cdr : cdrs) {
+                LocalDateTime serviceDate = cdr.getDateTimeOrigination();
+                if (serviceDate == null) {
+                    return new ServiceDateRange(null, null);
+                }
+                if (min == null || serviceDate.isBefore(min)) min = serviceDate;
+                if (max == null || serviceDate.isAfter(max)) max = serviceDate;
+            }
+            return new ServiceDateRange(min, max);
+        }
+    }
+
+    private void processSuccessfulBatch(List<ProcessedCdrResult> results, CallRecordRollupDelta rollupDelta,
+                                        List<CallRecord> persisted) {
         Map<UUID, ProcessedCdrResult> uniqueBatch = new HashMap<>();
         List<ProcessedCdrResult> inBatchDuplicates = new ArrayList<>();
 
@@ -88,8 +279,8 @@ public class TenantBatchPersister {
         if (uniqueBatch.isEmpty()) return;
 
         // 2. Check for duplicates AGAINST the database
-        List<UUID> hashesToCheck = new ArrayList<>(uniqueBatch.keySet());
-        Set<UUID> existingInDb = callRecordService.findExistingHashes(hashesToCheck);
+        Set<UUID> existingInDb = findExistingHashes(
+                uniqueBatch.values().stream().map(ProcessedCdrResult::getCdrData).toList());
 
         if (!existingInDb.isEmpty()) {
             List<ProcessedCdrResult> dbDuplicates = new ArrayList<>();
@@ -121,6 +312,8 @@ public class TenantBatchPersister {
             CallRecord entity = callRecordService.createEntityFromDto(res.getCdrData(), res.getCommLocation());
             if (entity != null) {
                 entityManager.persist(entity);
+                rollupDelta.add(entity);
+                persisted.add(entity);
             }
         }
     }
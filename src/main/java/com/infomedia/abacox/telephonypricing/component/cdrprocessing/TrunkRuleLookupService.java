@@ -1,5 +1,7 @@
 package com.infomedia.abacox.telephonypricing.component.cdrprocessing;
 
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
@@ -13,6 +15,7 @@ import java.util.Optional;
 
 @Service
 @Log4j2
+@ConnectionWorkload(Workload.INGEST_READ)
 public class TrunkRuleLookupService {
 
     @PersistenceContext
@@ -75,4 +78,35 @@ public class TrunkRuleLookupService {
             return Optional.empty();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Finds the telephony type a trunk rule turned into the given one without
+     * changing the operator, so a call stored with the rule's new type can be
+     * priced again from its original prefix.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> findRuleSourceTelephonyTypeId(String trunkName, Long newTelephonyTypeId,
+                                                        Long destinationIndicatorId, Long originIndicatorId) {
+        String queryStr = "SELECT tr.telephony_type_id " +
+                "FROM trunk_rule tr " +
+                "LEFT JOIN trunk t ON tr.trunk_id = t.id AND t.active = true AND t.name = :trunkName " +
+                "WHERE tr.active = true " +
+                "AND (tr.trunk_id = 0 OR tr.trunk_id IS NULL OR t.id IS NOT NULL) " +
+                "AND tr.new_telephony_type_id = :newTelephonyTypeId " +
+                "AND (tr.new_operator_id = 0 OR tr.new_operator_id IS NULL) " +
+                "AND (tr.origin_indicator_id = 0 OR tr.origin_indicator_id IS NULL OR tr.origin_indicator_id = :originIndicatorId) " +
+                "AND (tr.indicator_ids = '' OR :destinationIndicatorIdStr LIKE ('%,' || tr.indicator_ids || ',%') OR tr.indicator_ids = :destinationIndicatorIdStr) " +
+                "ORDER BY tr.trunk_id DESC NULLS LAST, tr.indicator_ids DESC NULLS LAST, tr.origin_indicator_id DESC NULLS LAST LIMIT 1";
+
+        jakarta.persistence.Query nativeQuery = entityManager.createNativeQuery(queryStr);
+        nativeQuery.setParameter("trunkName", trunkName.toUpperCase());
+        nativeQuery.setParameter("newTelephonyTypeId", newTelephonyTypeId);
+        nativeQuery.setParameter("originIndicatorId", originIndicatorId);
+        nativeQuery.setParameter("destinationIndicatorIdStr", destinationIndicatorId != null ? String.valueOf(destinationIndicatorId) : "");
+        try {
+            return Optional.of(((Number) nativeQuery.getSingleResult()).longValue());
+        } catch (NoResultException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -32,7 +32,10 @@ public enum ConfigKey {
     EMPLOYEE_NAME_PREFIX_FROM_RANGE(ConfigGroup.CDR, "Funcionario"),
     NO_PARTITION_PLACEHOLDER(ConfigGroup.CDR, "NN-VALIDA"),
     CDR_PROCESSING_ENABLED(ConfigGroup.CDR, "true"),
-    CDR_UPLOAD_API_KEY(ConfigGroup.CDR, "024dc8fe-1d0d-41b2-8f96-dcf3ad9e4141");
+    CDR_UPLOAD_API_KEY(ConfigGroup.CDR, "024dc8fe-1d0d-41b2-8f96-dcf3ad9e4141"),
+    CALL_ROLLUP_READY(ConfigGroup.CDR, "false"), // set by CallRecordRollupService once the daily rollup is built
+    CONFERENCE_GROUPS_READY(ConfigGroup.CDR, "false"), // set by ConferenceGroupService once conference groups are built
+    EXTENSION_ACTIVITY_READY(ConfigGroup.CDR, "false"); // set by ExtensionActivityService once extension activity is built
 
     private final ConfigGroup group;
     private final String defaultValue;
@@ -6,6 +6,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * A builder for configuring and creating an Excel file via
@@ -35,6 +37,9 @@ public class ExcelGeneratorBuilder {
     Consumer<CellStyle> headerStyleCustomizer;
     Consumer<CellStyle> dataStyleCustomizer;
 
+    ExportFormat format = ExportFormat.XLSX;
+    boolean gzip = false;
+
     String flattenedCollectionFieldName;
     Map<String, List<String>> collectionsAsStringFields = new HashMap<>();
 
@@ -159,6 +164,24 @@ public class ExcelGeneratorBuilder {
         return this;
     }
 
+    /**
+     * Sets the output format of the streaming generation methods. CSV and TSV
+     * use the same columns, headers and value replacements as the Excel output.
+     * The non-streaming methods always produce XLSX.
+     */
+    public ExcelGeneratorBuilder withFormat(ExportFormat format) {
+        this.format = Objects.requireNonNull(format);
+        return this;
+    }
+
+    /**
+     * Gzip-compresses CSV and TSV output while it is written. Ignored for XLSX.
+     */
+    public ExcelGeneratorBuilder withGzip(boolean gzip) {
+        this.gzip = gzip;
+        return this;
+    }
+
     /**
      * Configures the generator to flatten a specific collection field.
      * When set, each element in the collection will generate a new row,
@@ -209,7 +232,8 @@ public class ExcelGeneratorBuilder {
 
     /**
      * Generates an Excel file in streaming mode, fetching data page by page via the supplier.
-     * Only one page of data is held in memory at a time. Uses SXSSFWorkbook internally.
+     * Only one page of data is held in memory at a time. Uses SXSSFWorkbook internally,
+     * or writes CSV/TSV directly when another {@link #withFormat format} is set.
      *
      * @param outputStream the stream to write the Excel file to
      * @param supplier     provides pages of data on demand
@@ -218,7 +242,7 @@ public class ExcelGeneratorBuilder {
      */
     public <T> void generateStreaming(java.io.OutputStream outputStream,
                                       PagedDataSupplier<T> supplier, int pageSize) throws IOException {
-        GenericExcelGenerator.generateExcelStreaming(this, outputStream, supplier, pageSize, -1);
+        generateStreaming(outputStream, supplier, pageSize, -1);
     }
 
     /**
@@ -232,6 +256,32 @@ public class ExcelGeneratorBuilder {
      */
     public <T> void generateStreaming(java.io.OutputStream outputStream,
                                       PagedDataSupplier<T> supplier, int pageSize, int maxRows) throws IOException {
-        GenericExcelGenerator.generateExcelStreaming(this, outputStream, supplier, pageSize, maxRows);
+        if (format.isDelimited()) {
+            GenericExcelGenerator.generateDelimitedStreaming(this, outputStream, supplier, pageSize, maxRows);
+        } else {
+            GenericExcelGenerator.generateExcelStreaming(this, outputStream, supplier, pageSize, maxRows);
+        }
+    }
+
+    /**
+     * Generates an Excel file in streaming mode from projected rows instead of
+     * objects. Column and field filters are applied to {@code columns} before the
+     * row stream is opened, so only the selected columns need to be queried.
+     *
+     * @param outputStream the stream to write the Excel file to
+     * @param sheetName    name of the sheet
+     * @param columns      all available columns, in output order
+     * @param rowSource    opens a stream of rows for the selected columns, values in column order
+     * @param maxRows      maximum total rows to export (-1 for unlimited)
+     * @throws IOException if an I/O error occurs during generation
+     */
+    public void generateStreaming(java.io.OutputStream outputStream, String sheetName, List<ExportColumn> columns,
+                                  Function<List<ExportColumn>, Stream<Object[]>> rowSource,
+                                  int maxRows) throws IOException {
+        if (format.isDelimited()) {
+            GenericExcelGenerator.generateDelimitedFromRows(this, outputStream, columns, rowSource, maxRows);
+        } else {
+            GenericExcelGenerator.generateExcelFromRows(this, outputStream, sheetName, columns, rowSource, maxRows);
+        }
     }
 }
\ No newline at end of file
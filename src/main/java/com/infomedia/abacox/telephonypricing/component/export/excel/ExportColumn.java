@@ -0,0 +1,15 @@
+package com.infomedia.abacox.telephonypricing.component.export.excel;
+
+/**
+ * A column of a projection export: the header shown in the sheet and the
+ * attribute path (e.g. {@code "commLocation.directory"}) selected for it.
+ * <p>
+ * Column filters, alternative headers and value replacements of the
+ * {@link ExcelGeneratorBuilder} match the header; field filters match the path.
+ */
+public record ExportColumn(String header, String path) {
+
+    public static ExportColumn of(String header, String path) {
+        return new ExportColumn(header, path);
+    }
+}
@@ -0,0 +1,38 @@
+package com.infomedia.abacox.telephonypricing.component.export.excel;
+
+/**
+ * Output format of a streaming export. The delimited formats write text
+ * straight to the output stream and can be gzip-compressed on the fly; XLSX is
+ * already a zip container and is never gzipped.
+ */
+public enum ExportFormat {
+    XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", '\0'),
+    CSV("csv", "text/csv", ','),
+    TSV("tsv", "text/tab-separated-values", '\t');
+
+    private final String extension;
+    private final String contentType;
+    private final char delimiter;
+
+    ExportFormat(String extension, String contentType, char delimiter) {
+        this.extension = extension;
+        this.contentType = contentType;
+        this.delimiter = delimiter;
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public boolean isDelimited() {
+        return this != XLSX;
+    }
+
+    public String fileName(String baseName, boolean gzip) {
+        return baseName + "." + extension + (gzip && isDelimited() ? ".gz" : "");
+    }
+
+    public String contentType(boolean gzip) {
+        return gzip && isDelimited() ? "application/gzip" : contentType;
+    }
+}
@@ -1,5 +1,7 @@
 package com.infomedia.abacox.telephonypricing.component.export.excel;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.apache.poi.ss.usermodel.*;
@@ -7,21 +9,30 @@ import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * A utility class for generating Excel files from a list of entities.
@@ -60,6 +71,10 @@ public class GenericExcelGenerator {
     private static final Logger LOGGER = Logger.getLogger(GenericExcelGenerator.class.getName());
     private static final Pattern CAMEL_CASE_SNAKE_CASE_SPLIT_PATTERN = Pattern
             .compile("(?<=[a-z])(?=[A-Z])|(?<=[A-Z])(?=[A-Z][a-z])|_");
+    private static final Cache<PlanKey, List<FieldInfo>> PLAN_CACHE = Caffeine.newBuilder()
+            .maximumSize(256)
+            .build();
+    private static final Map<String, DateTimeFormatter> DATE_TIME_FORMATTERS = new ConcurrentHashMap<>();
 
     /**
      * Creates a new builder instance for configuring and generating an Excel file.
@@ -103,36 +118,7 @@ public class GenericExcelGenerator {
 
         try {
             Class<?> entityClass = builder.entities.get(0).getClass();
-
-            List<FieldInfo> fields;
-            if (context.getFlattenedCollectionFieldName() != null) {
-                fields = getFieldsForFlattening(entityClass, context);
-            } else {
-                fields = getFieldsInDeclarationOrder(entityClass, "", null, context, new HashSet<>());
-            }
-
-            final String childPrefix = context.getFlattenedCollectionFieldName() != null
-                    ? formatFieldName(context.getFlattenedCollectionFieldName()) + " - "
-                    : null;
-
-            if (context.getIncludedColumnNames() != null) {
-                final Set<String> finalIncludedNames = context.getIncludedColumnNames();
-                fields = fields.stream()
-                        .filter(fieldInfo -> matchesColumnName(fieldInfo, finalIncludedNames, childPrefix))
-                        .collect(Collectors.toList());
-            } else if (!context.getExcludedColumnNames().isEmpty()) {
-                final Set<String> finalExcludedNames = context.getExcludedColumnNames();
-                fields = fields.stream()
-                        .filter(fieldInfo -> !matchesColumnName(fieldInfo, finalExcludedNames, childPrefix))
-                        .collect(Collectors.toList());
-            }
-
-            if (!context.getAlternativeHeaderNames().isEmpty()) {
-                fields.forEach(fieldInfo -> fieldInfo.displayName = resolveAlternativeHeader(
-                        fieldInfo, context.getAlternativeHeaderNames(), childPrefix));
-            }
-
-            fields.sort(Comparator.comparingInt(fi -> fi.order));
+            List<FieldInfo> fields = getExportPlan(entityClass, builder, context);
 
             Sheet sheet = workbook.createSheet(entityClass.getSimpleName());
 
@@ -211,38 +197,7 @@ public class GenericExcelGenerator {
 
         try {
             Class<?> entityClass = firstPage.get(0).getClass();
-
-            List<FieldInfo> fields;
-            // For field resolution, temporarily set entities so the builder context works
-            builder.entities = (List<?>) firstPage;
-            if (context.getFlattenedCollectionFieldName() != null) {
-                fields = getFieldsForFlattening(entityClass, context);
-            } else {
-                fields = getFieldsInDeclarationOrder(entityClass, "", null, context, new HashSet<>());
-            }
-
-            final String childPrefix = context.getFlattenedCollectionFieldName() != null
-                    ? formatFieldName(context.getFlattenedCollectionFieldName()) + " - "
-                    : null;
-
-            if (context.getIncludedColumnNames() != null) {
-                final Set<String> finalIncludedNames = context.getIncludedColumnNames();
-                fields = fields.stream()
-                        .filter(fieldInfo -> matchesColumnName(fieldInfo, finalIncludedNames, childPrefix))
-                        .collect(Collectors.toList());
-            } else if (!context.getExcludedColumnNames().isEmpty()) {
-                final Set<String> finalExcludedNames = context.getExcludedColumnNames();
-                fields = fields.stream()
-                        .filter(fieldInfo -> !matchesColumnName(fieldInfo, finalExcludedNames, childPrefix))
-                        .collect(Collectors.toList());
-            }
-
-            if (!context.getAlternativeHeaderNames().isEmpty()) {
-                fields.forEach(fieldInfo -> fieldInfo.displayName = resolveAlternativeHeader(
-                        fieldInfo, context.getAlternativeHeaderNames(), childPrefix));
-            }
-
-            fields.sort(Comparator.comparingInt(fi -> fi.order));
+            List<FieldInfo> fields = getExportPlan(entityClass, builder, context);
 
             Sheet sheet = workbook.createSheet(entityClass.getSimpleName());
             createHeaderRow(workbook, sheet, fields, context);
@@ -289,6 +244,464 @@ public class GenericExcelGenerator {
         }
     }
 
+    /**
+     * Generates an Excel file from a stream of projected rows, one array element
+     * per column. Columns are filtered and renamed once up front, and each column
+     * gets a cell writer bound to its value type on the first non-null value, so
+     * nothing is resolved per row.
+     *
+     * @param builder      the configured builder (entities and field paths are not used)
+     * @param outputStream the stream to write the Excel file to
+     * @param sheetName    name of the single sheet
+     * @param columns      all available columns, in output order
+     * @param rowSource    opens the row stream for the selected columns; it is closed when done
+     * @param maxRows      maximum data rows to write (-1 for unlimited)
+     */
+    static void generateExcelFromRows(ExcelGeneratorBuilder builder, OutputStream outputStream, String sheetName,
+                                      List<ExportColumn> columns,
+                                      Function<List<ExportColumn>, Stream<Object[]>> rowSource,
+                                      int maxRows) throws IOException {
+        List<ExportColumn> selected = selectColumns(builder, columns);
+        GeneratorContext context = new GeneratorContext(builder);
+        List<String> headers = resolveHeaders(selected, context);
+        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        try (Stream<Object[]> rows = rowSource.apply(selected)) {
+            Sheet sheet = workbook.createSheet(sheetName);
+            CellStyle headerStyle = createHeaderStyle(workbook, context.getHeaderStyleCustomizer());
+            CellStyle dataStyle = createDataStyle(workbook, context.getDataStyleCustomizer());
+
+            Row headerRow = sheet.createRow(0);
+            RowCellWriter[] writers = new RowCellWriter[selected.size()];
+            for (int i = 0; i < selected.size(); i++) {
+                String header = headers.get(i);
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(header);
+                cell.setCellStyle(headerStyle);
+                writers[i] = new RowCellWriter(header, context.getValueReplacements().get(header),
+                        context.getCellSetterContext());
+                sheet.setColumnWidth(i, 256 * 20);
+            }
+
+            int rowNum = 1;
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext() && (maxRows <= 0 || rowNum <= maxRows)) {
+                Object[] values = iterator.next();
+                Row row = sheet.createRow(rowNum++);
+                for (int i = 0; i < writers.length; i++) {
+                    Cell cell = row.createCell(i);
+                    cell.setCellStyle(dataStyle);
+                    writers[i].write(cell, values[i]);
+                }
+            }
+
+            workbook.write(outputStream);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * Streaming CSV/TSV generation using the same compiled column plan as
+     * {@link #generateExcelStreaming}. Rows are written as text straight to the
+     * output stream one page at a time; a flattened collection repeats the
+     * parent columns on every child row instead of merging cells.
+     */
+    static <T> void generateDelimitedStreaming(ExcelGeneratorBuilder builder, OutputStream outputStream,
+                                               PagedDataSupplier<T> supplier, int pageSize,
+                                               int maxRows) throws IOException {
+        validateConfiguration(builder);
+        GeneratorContext context = new GeneratorContext(builder);
+        DelimitedWriter writer = new DelimitedWriter(outputStream, builder.format.getDelimiter(), builder.gzip);
+
+        List<T> page = supplier.getPage(0, pageSize);
+        if (page == null || page.isEmpty()) {
+            writer.finish();
+            return;
+        }
+
+        List<FieldInfo> fields = getExportPlan(page.get(0).getClass(), builder, context);
+        List<String> alternativeHeaders = context.getAlternativeHeaders();
+        String[] values = new String[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            values[i] = alternativeHeaders != null && i < alternativeHeaders.size() && alternativeHeaders.get(i) != null
+                    ? alternativeHeaders.get(i)
+                    : fields.get(i).displayName;
+        }
+        writer.writeRow(values);
+
+        ValueAccessor collectionAccessor = null;
+        if (context.getFlattenedCollectionFieldName() != null) {
+            collectionAccessor = compileAccessor(new Field[] {
+                    findField(page.get(0).getClass(), context.getFlattenedCollectionFieldName()) });
+        }
+
+        int rowCount = 0;
+        int pageNumber = 0;
+        while (page != null && !page.isEmpty() && (maxRows <= 0 || rowCount < maxRows)) {
+            for (T entity : page) {
+                if (maxRows > 0 && rowCount >= maxRows) {
+                    break;
+                }
+                Collection<?> children = collectionAccessor != null ? readCollection(collectionAccessor, entity) : null;
+                if (children == null || children.isEmpty()) {
+                    writeDelimitedRow(writer, entity, null, fields, context, values);
+                    rowCount++;
+                } else {
+                    for (Object child : children) {
+                        writeDelimitedRow(writer, entity, child, fields, context, values);
+                        rowCount++;
+                    }
+                }
+            }
+            page = supplier.getPage(++pageNumber, pageSize);
+        }
+        writer.finish();
+    }
+
+    /**
+     * CSV/TSV counterpart of {@link #generateExcelFromRows}.
+     */
+    static void generateDelimitedFromRows(ExcelGeneratorBuilder builder, OutputStream outputStream,
+                                          List<ExportColumn> columns,
+                                          Function<List<ExportColumn>, Stream<Object[]>> rowSource,
+                                          int maxRows) throws IOException {
+        List<ExportColumn> selected = selectColumns(builder, columns);
+        GeneratorContext context = new GeneratorContext(builder);
+        List<String> headers = resolveHeaders(selected, context);
+        DelimitedWriter writer = new DelimitedWriter(outputStream, builder.format.getDelimiter(), builder.gzip);
+
+        List<Map<String, String>> replacements = headers.stream()
+                .map(header -> context.getValueReplacements().get(header))
+                .toList();
+        String[] values = headers.toArray(String[]::new);
+        writer.writeRow(values);
+
+        try (Stream<Object[]> rows = rowSource.apply(selected)) {
+            int rowCount = 0;
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext() && (maxRows <= 0 || rowCount < maxRows)) {
+                Object[] row = iterator.next();
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = row[i] == null ? ""
+                            : formatText(row[i], replacements.get(i), context.getCellSetterContext());
+                }
+                writer.writeRow(values);
+                rowCount++;
+            }
+        }
+        writer.finish();
+    }
+
+    private static void validateConfiguration(ExcelGeneratorBuilder builder) {
+        if (builder.includedFields != null && !builder.excludedFields.isEmpty()) {
+            throw new IllegalStateException(
+                    "Cannot use both withIncludedFields (whitelist) and excludeField (blacklist).");
+        }
+        if (builder.includedColumnNames != null && !builder.excludedColumnNames.isEmpty()) {
+            throw new IllegalStateException(
+                    "Cannot use both withIncludedColumnNames (whitelist) and excludeColumnByName (blacklist).");
+        }
+        if (builder.flattenedCollectionFieldName != null
+                && builder.collectionsAsStringFields.containsKey(builder.flattenedCollectionFieldName)) {
+            throw new IllegalStateException("Field '" + builder.flattenedCollectionFieldName
+                    + "' cannot be both flattened and formatted as a single string.");
+        }
+    }
+
+    private static List<ExportColumn> selectColumns(ExcelGeneratorBuilder builder, List<ExportColumn> columns) {
+        validateConfiguration(builder);
+        return columns.stream()
+                .filter(column -> builder.includedFields == null || builder.includedFields.contains(column.path()))
+                .filter(column -> !builder.excludedFields.contains(column.path()))
+                .filter(column -> builder.includedColumnNames == null
+                        || builder.includedColumnNames.contains(column.header()))
+                .filter(column -> !builder.excludedColumnNames.contains(column.header()))
+                .toList();
+    }
+
+    private static List<String> resolveHeaders(List<ExportColumn> columns, GeneratorContext context) {
+        List<String> alternativeHeaders = context.getAlternativeHeaders();
+        List<String> headers = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            String header = context.getAlternativeHeaderNames()
+                    .getOrDefault(columns.get(i).header(), columns.get(i).header());
+            if (alternativeHeaders != null && i < alternativeHeaders.size() && alternativeHeaders.get(i) != null) {
+                header = alternativeHeaders.get(i);
+            }
+            headers.add(header);
+        }
+        return headers;
+    }
+
+    private static Collection<?> readCollection(ValueAccessor accessor, Object entity) {
+        try {
+            return (Collection<?>) accessor.get(entity);
+        } catch (Throwable e) {
+            LOGGER.warning("Could not access flattened collection field: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeDelimitedRow(DelimitedWriter writer, Object root, Object child, List<FieldInfo> fields,
+                                          GeneratorContext context, String[] values) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            FieldInfo fieldInfo = fields.get(i);
+            Object target = fieldInfo.isFlattenedChildField ? child : root;
+            values[i] = target == null ? "" : formatCellText(target, fieldInfo, context);
+        }
+        writer.writeRow(values);
+    }
+
+    /**
+     * Text form of a field for delimited output, applying the same collection
+     * formatting and value replacements as the Excel cells.
+     */
+    private static String formatCellText(Object target, FieldInfo fieldInfo, GeneratorContext context) {
+        try {
+            Object rawValue = fieldInfo.accessor.get(target);
+            if (rawValue == null) {
+                return "";
+            }
+            if (fieldInfo.collectionAsStringAttributes != null) {
+                if (rawValue instanceof Collection<?> collection) {
+                    return collection.stream()
+                            .map(item -> formatCollectionItem(item, fieldInfo.collectionAsStringAttributes))
+                            .collect(Collectors.joining("\n"));
+                }
+                return String.valueOf(rawValue);
+            }
+            return formatText(rawValue, fieldInfo.replacements, context.getCellSetterContext());
+        } catch (Throwable e) {
+            LOGGER.log(Level.SEVERE, "Error formatting value for field '" + fieldInfo.displayName + "' on entity "
+                    + target.getClass().getSimpleName(), e);
+            return "!ERROR";
+        }
+    }
+
+    private static String formatText(Object rawValue, Map<String, String> replacements, CellSetterContext setterContext) {
+        if (replacements != null) {
+            String replacement = replacements.get(
+                    rawValue instanceof Enum<?> enumValue ? enumValue.name() : String.valueOf(rawValue));
+            if (replacement != null) {
+                return replacement;
+            }
+        }
+        String formatted = formatValue(rawValue, setterContext);
+        if (replacements != null && replacements.containsKey(formatted)) {
+            return replacements.get(formatted);
+        }
+        // Avoid exponent notation, which most importers would read as text
+        return rawValue instanceof BigDecimal decimal ? decimal.toPlainString() : formatted;
+    }
+
+    /**
+     * Buffered CSV/TSV row writer. CSV fields are quoted per RFC 4180 when
+     * needed; TSV cannot quote, so tabs and line breaks in values become spaces.
+     * The target stream is flushed but left open.
+     */
+    private static class DelimitedWriter {
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final GZIPOutputStream gzipStream;
+        private final Writer writer;
+        private final char delimiter;
+
+        DelimitedWriter(OutputStream outputStream, char delimiter, boolean gzip) throws IOException {
+            this.gzipStream = gzip ? new GZIPOutputStream(outputStream, BUFFER_SIZE) : null;
+            this.writer = new BufferedWriter(new OutputStreamWriter(
+                    gzip ? gzipStream : outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+            this.delimiter = delimiter;
+        }
+
+        void writeRow(String[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(delimiter);
+                }
+                writeValue(values[i]);
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeValue(String value) throws IOException {
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            if (delimiter == '\t') {
+                writer.write(value.indexOf('\t') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0
+                        ? value.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ')
+                        : value);
+                return;
+            }
+            if (value.indexOf(delimiter) < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        void finish() throws IOException {
+            writer.flush();
+            if (gzipStream != null) {
+                gzipStream.finish();
+            }
+        }
+    }
+
+    /**
+     * Writes the values of one projected column. The value conversion is chosen
+     * from the first non-null value and reused for the rest of the column.
+     */
+    private static class RowCellWriter {
+        private final String header;
+        private final Map<String, String> replacements;
+        private final CellSetterContext setterContext;
+        private BiConsumer<Cell, Object> writer;
+
+        RowCellWriter(String header, Map<String, String> replacements, CellSetterContext setterContext) {
+            this.header = header;
+            this.replacements = replacements;
+            this.setterContext = setterContext;
+        }
+
+        void write(Cell cell, Object value) {
+            if (value == null) {
+                cell.setBlank();
+                return;
+            }
+            try {
+                if (replacements != null && writeReplacement(cell, value)) {
+                    return;
+                }
+                if (writer == null) {
+                    writer = writerFor(value);
+                }
+                writer.accept(cell, value);
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Error setting value for column '" + header + "'", e);
+                cell.setCellValue("!ERROR");
+            }
+        }
+
+        private boolean writeReplacement(Cell cell, Object value) {
+            String raw = value instanceof Enum<?> enumValue ? enumValue.name() : String.valueOf(value);
+            String replacement = replacements.get(raw);
+            if (replacement == null) {
+                replacement = replacements.get(formatValue(value, setterContext));
+            }
+            if (replacement == null) {
+                return false;
+            }
+            cell.setCellValue(replacement);
+            return true;
+        }
+
+        private BiConsumer<Cell, Object> writerFor(Object value) {
+            if (value instanceof Number) {
+                return (cell, v) -> cell.setCellValue(((Number) v).doubleValue());
+            }
+            if (value instanceof Boolean) {
+                return (cell, v) -> cell.setCellValue((Boolean) v);
+            }
+            if (value instanceof String) {
+                return (cell, v) -> cell.setCellValue((String) v);
+            }
+            return (cell, v) -> cell.setCellValue(formatValue(v, setterContext));
+        }
+    }
+
+    /**
+     * Returns the compiled columns for exporting {@code entityClass} with the
+     * builder's configuration. Column discovery, filtering, header naming,
+     * replacement lookup and getter compilation happen once per class and
+     * configuration; the result is cached and shared, and must not be mutated.
+     */
+    private static List<FieldInfo> getExportPlan(Class<?> entityClass, ExcelGeneratorBuilder builder,
+                                                 GeneratorContext context) {
+        return PLAN_CACHE.get(PlanKey.of(entityClass, builder), key -> compileExportPlan(entityClass, context));
+    }
+
+    private static List<FieldInfo> compileExportPlan(Class<?> entityClass, GeneratorContext context) {
+        List<FieldInfo> fields;
+        if (context.getFlattenedCollectionFieldName() != null) {
+            fields = getFieldsForFlattening(entityClass, context);
+        } else {
+            fields = getFieldsInDeclarationOrder(entityClass, "", null, context, new HashSet<>());
+        }
+
+        final String childPrefix = context.getFlattenedCollectionFieldName() != null
+                ? formatFieldName(context.getFlattenedCollectionFieldName()) + " - "
+                : null;
+
+        if (context.getIncludedColumnNames() != null) {
+            final Set<String> finalIncludedNames = context.getIncludedColumnNames();
+            fields = fields.stream()
+                    .filter(fieldInfo -> matchesColumnName(fieldInfo, finalIncludedNames, childPrefix))
+                    .collect(Collectors.toList());
+        } else if (!context.getExcludedColumnNames().isEmpty()) {
+            final Set<String> finalExcludedNames = context.getExcludedColumnNames();
+            fields = fields.stream()
+                    .filter(fieldInfo -> !matchesColumnName(fieldInfo, finalExcludedNames, childPrefix))
+                    .collect(Collectors.toList());
+        }
+
+        if (!context.getAlternativeHeaderNames().isEmpty()) {
+            fields.forEach(fieldInfo -> fieldInfo.displayName = resolveAlternativeHeader(
+                    fieldInfo, context.getAlternativeHeaderNames(), childPrefix));
+        }
+
+        fields.sort(Comparator.comparingInt(fi -> fi.order));
+
+        String collectionName = context.getFlattenedCollectionFieldName();
+        for (FieldInfo fieldInfo : fields) {
+            Field[] path = fieldInfo.fieldPath;
+            // Child fields are read from the collection element, not from the root entity
+            if (fieldInfo.isFlattenedChildField && path.length > 0 && collectionName != null
+                    && path[0].getName().equals(collectionName)) {
+                path = Arrays.copyOfRange(path, 1, path.length);
+            }
+            fieldInfo.accessor = compileAccessor(path);
+            fieldInfo.replacements = context.getValueReplacements().get(fieldInfo.displayName);
+        }
+        return List.copyOf(fields);
+    }
+
+    /**
+     * Compiles a field path into a chain of method handle getters. Intermediate
+     * nulls short-circuit to null, as with the reflective walk.
+     */
+    private static ValueAccessor compileAccessor(Field[] path) {
+        MethodType getterType = MethodType.methodType(Object.class, Object.class);
+        MethodHandle[] getters = new MethodHandle[path.length];
+        for (int i = 0; i < path.length; i++) {
+            try {
+                path[i].setAccessible(true);
+                getters[i] = MethodHandles.lookup().unreflectGetter(path[i]).asType(getterType);
+            } catch (IllegalAccessException | RuntimeException e) {
+                throw new IllegalStateException("Cannot access field '" + path[i].getName() + "' of "
+                        + path[i].getDeclaringClass().getName(), e);
+            }
+        }
+        if (getters.length == 1) {
+            MethodHandle getter = getters[0];
+            return target -> (Object) getter.invokeExact(target);
+        }
+        return target -> {
+            Object current = target;
+            for (MethodHandle getter : getters) {
+                if (current == null) {
+                    return null;
+                }
+                current = (Object) getter.invokeExact(current);
+            }
+            return current;
+        };
+    }
+
     /**
      * Writes a page of simple (non-flattened) rows and returns the next row number.
      */
@@ -348,17 +761,7 @@ public class GenericExcelGenerator {
 
     private static void setFieldValue(Cell cell, Object entity, FieldInfo fieldInfo, GeneratorContext context) {
         try {
-            Object rawValue;
-            if (fieldInfo.isFlattenedChildField) {
-                Field[] path = fieldInfo.fieldPath;
-                String collectionName = context.getFlattenedCollectionFieldName();
-                if (path.length > 0 && collectionName != null && path[0].getName().equals(collectionName)) {
-                    path = Arrays.copyOfRange(path, 1, path.length);
-                }
-                rawValue = getFieldValue(entity, path);
-            } else {
-                rawValue = getFieldValue(entity, fieldInfo.fieldPath);
-            }
+            Object rawValue = fieldInfo.accessor.get(entity);
 
             if (rawValue == null) {
                 cell.setBlank();
@@ -378,7 +781,7 @@ public class GenericExcelGenerator {
                 return;
             }
 
-            Map<String, String> replacementMap = context.getValueReplacements().get(fieldInfo.displayName);
+            Map<String, String> replacementMap = fieldInfo.replacements;
 
             // --- Pass 1: Check for replacement using the RAW value's string representation
             // (e.g., "true") ---
@@ -393,24 +796,7 @@ public class GenericExcelGenerator {
 
             // --- No raw match. Now, determine the final formatted string for the
             // second-pass check ---
-            String finalFormattedString;
-            CellSetterContext setterContext = context.getCellSetterContext();
-
-            if (rawValue instanceof Boolean) {
-                finalFormattedString = String.valueOf(rawValue).toUpperCase();
-            } else if (rawValue instanceof LocalDate) {
-                finalFormattedString = ((LocalDate) rawValue).format(setterContext.dateFormatter);
-            } else if (rawValue instanceof LocalDateTime) {
-                finalFormattedString = ((LocalDateTime) rawValue).format(setterContext.dateTimeFormatter);
-            } else if (rawValue instanceof Date) {
-                finalFormattedString = setterContext.utilDateFormatter.format((Date) rawValue);
-            } else if (rawValue instanceof Calendar) {
-                finalFormattedString = setterContext.utilDateFormatter.format(((Calendar) rawValue).getTime());
-            } else if (rawValue.getClass().isEnum()) {
-                finalFormattedString = ((Enum<?>) rawValue).name();
-            } else {
-                finalFormattedString = String.valueOf(rawValue);
-            }
+            String finalFormattedString = formatValue(rawValue, context.getCellSetterContext());
 
             // --- Pass 2: Check for replacement using the FINAL FORMATTED string (e.g.,
             // "TRUE" or "2025-06-18") ---
@@ -431,13 +817,30 @@ public class GenericExcelGenerator {
                 cell.setCellValue(finalFormattedString);
             }
 
-        } catch (Exception e) {
+        } catch (Throwable e) {
             LOGGER.log(Level.SEVERE, "Error setting value for field '" + fieldInfo.displayName + "' on entity "
                     + entity.getClass().getSimpleName(), e);
             cell.setCellValue("!ERROR");
         }
     }
 
+    private static String formatValue(Object rawValue, CellSetterContext setterContext) {
+        if (rawValue instanceof Boolean) {
+            return String.valueOf(rawValue).toUpperCase();
+        } else if (rawValue instanceof LocalDate) {
+            return ((LocalDate) rawValue).format(setterContext.dateFormatter);
+        } else if (rawValue instanceof LocalDateTime) {
+            return ((LocalDateTime) rawValue).format(setterContext.dateTimeFormatter);
+        } else if (rawValue instanceof Date) {
+            return setterContext.utilDateFormatter.format((Date) rawValue);
+        } else if (rawValue instanceof Calendar) {
+            return setterContext.utilDateFormatter.format(((Calendar) rawValue).getTime());
+        } else if (rawValue.getClass().isEnum()) {
+            return ((Enum<?>) rawValue).name();
+        }
+        return String.valueOf(rawValue);
+    }
+
     private static class GeneratorContext {
         private final ExcelGeneratorBuilder builder;
         private final CellSetterContext cellSetterContext;
@@ -445,8 +848,8 @@ public class GenericExcelGenerator {
         GeneratorContext(ExcelGeneratorBuilder builder) {
             this.builder = builder;
             this.cellSetterContext = new CellSetterContext(
-                    DateTimeFormatter.ofPattern(builder.dateFormat),
-                    DateTimeFormatter.ofPattern(builder.dateTimeFormat),
+                    DATE_TIME_FORMATTERS.computeIfAbsent(builder.dateFormat, DateTimeFormatter::ofPattern),
+                    DATE_TIME_FORMATTERS.computeIfAbsent(builder.dateTimeFormat, DateTimeFormatter::ofPattern),
                     new SimpleDateFormat(builder.dateTimeFormat));
         }
 
@@ -526,6 +929,40 @@ public class GenericExcelGenerator {
                     byte.class, Character.class, char.class, LocalDate.class, LocalDateTime.class, UUID.class,
                     BigDecimal.class, BigInteger.class, java.util.Date.class, java.util.Calendar.class));
 
+    @FunctionalInterface
+    private interface ValueAccessor {
+        Object get(Object target) throws Throwable;
+    }
+
+    /**
+     * Everything in the builder that affects column resolution, copied so later
+     * changes to the builder cannot alter a cached key.
+     */
+    private record PlanKey(Class<?> type, Set<String> includedFields, Set<String> excludedFields,
+                           Map<String, String> alternativeFieldPathNames, Map<String, String> alternativeHeaderNames,
+                           Set<String> includedColumnNames, Set<String> excludedColumnNames,
+                           Map<String, Map<String, String>> valueReplacements,
+                           String flattenedCollectionFieldName, Map<String, List<String>> collectionsAsStringFields) {
+
+        static PlanKey of(Class<?> type, ExcelGeneratorBuilder builder) {
+            Map<String, Map<String, String>> replacements = new HashMap<>();
+            builder.valueReplacements.forEach((column, values) -> replacements.put(column, new HashMap<>(values)));
+            Map<String, List<String>> collectionsAsString = new HashMap<>();
+            builder.collectionsAsStringFields.forEach((field, attributes) ->
+                    collectionsAsString.put(field, new ArrayList<>(attributes)));
+            return new PlanKey(type,
+                    builder.includedFields != null ? new HashSet<>(builder.includedFields) : null,
+                    new HashSet<>(builder.excludedFields),
+                    new HashMap<>(builder.alternativeFieldPathNames),
+                    new HashMap<>(builder.alternativeHeaderNames),
+                    builder.includedColumnNames != null ? new HashSet<>(builder.includedColumnNames) : null,
+                    new HashSet<>(builder.excludedColumnNames),
+                    replacements,
+                    builder.flattenedCollectionFieldName,
+                    collectionsAsString);
+        }
+    }
+
     private static class FieldInfo {
         Field field;
         String displayName;
@@ -533,6 +970,8 @@ public class GenericExcelGenerator {
         int order;
         boolean isFlattenedChildField;
         List<String> collectionAsStringAttributes;
+        ValueAccessor accessor;
+        Map<String, String> replacements;
 
         FieldInfo(Field field, String displayName, Field[] fieldPath, int order) {
             this.field = field;
@@ -936,17 +1375,6 @@ public class GenericExcelGenerator {
         }
     }
 
-    private static Object getFieldValue(Object entity, Field[] fieldPath) throws IllegalAccessException {
-        Object currentObject = entity;
-        for (Field field : fieldPath) {
-            if (currentObject == null)
-                return null;
-            field.setAccessible(true);
-            currentObject = field.get(currentObject);
-        }
-        return currentObject;
-    }
-
     private static boolean isSimpleType(Class<?> type) {
         return SIMPLE_TYPES.contains(type) || type.isEnum();
     }
@@ -0,0 +1,29 @@
+package com.infomedia.abacox.telephonypricing.component.export.parquet;
+
+/**
+ * A column of a Parquet export: the column name in the file, the attribute path
+ * it is read from (e.g. {@code "telephonyType.name"}) and its physical type.
+ * Dictionary encoding pays off for low-cardinality values such as type or
+ * operator names and is wasted on ids and phone numbers.
+ */
+public record ParquetColumn(String name, String path, Type type, int scale, boolean dictionary) {
+
+    public enum Type {
+        BOOLEAN, INT32, INT64, DECIMAL, STRING, TIMESTAMP
+    }
+
+    public static ParquetColumn of(String name, String path, Type type) {
+        return new ParquetColumn(name, path, type, 0, false);
+    }
+
+    public static ParquetColumn dictionary(String name, String path, Type type) {
+        return new ParquetColumn(name, path, type, 0, true);
+    }
+
+    /**
+     * Decimal stored as a scaled 64-bit integer, i.e. up to 18 digits.
+     */
+    public static ParquetColumn decimal(String name, String path, int scale) {
+        return new ParquetColumn(name, path, Type.DECIMAL, scale, false);
+    }
+}
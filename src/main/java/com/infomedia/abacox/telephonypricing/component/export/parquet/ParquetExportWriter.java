@@ -0,0 +1,168 @@
+package com.infomedia.abacox.telephonypricing.component.export.parquet;
+
+import org.apache.parquet.conf.PlainParquetConfiguration;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes projected rows as a Parquet file directly to an output stream. The
+ * file is written front to back with only the current row group buffered, so
+ * memory is bounded by the row group size rather than the number of rows.
+ */
+@Component
+public class ParquetExportWriter {
+
+    @Value("${app.export.parquet.codec:ZSTD}")
+    private CompressionCodecName codec;
+
+    @Value("${app.export.parquet.row-group-size-mb:64}")
+    private int rowGroupSizeMb;
+
+    /**
+     * @param rows one array per row, values in column order; closed by the caller
+     */
+    public void write(OutputStream outputStream, String schemaName, List<ParquetColumn> columns,
+                      Stream<Object[]> rows, int maxRows) throws IOException {
+        MessageType schema = schema(schemaName, columns);
+        SimpleGroupFactory groupFactory = new SimpleGroupFactory(schema);
+
+        ExampleParquetWriter.Builder builder = ExampleParquetWriter.builder(new StreamOutputFile(outputStream))
+                .withConf(new PlainParquetConfiguration())
+                .withType(schema)
+                .withCompressionCodec(codec)
+                .withRowGroupSize((long) rowGroupSizeMb * 1024 * 1024)
+                .withDictionaryEncoding(false);
+        for (ParquetColumn column : columns) {
+            if (column.dictionary()) {
+                builder.withDictionaryEncoding(column.name(), true);
+            }
+        }
+
+        try (ParquetWriter<Group> writer = builder.build()) {
+            int rowCount = 0;
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext() && (maxRows <= 0 || rowCount < maxRows)) {
+                Object[] values = iterator.next();
+                Group group = groupFactory.newGroup();
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] != null) {
+                        append(group, i, columns.get(i), values[i]);
+                    }
+                }
+                writer.write(group);
+                rowCount++;
+            }
+        }
+    }
+
+    private static MessageType schema(String name, List<ParquetColumn> columns) {
+        Types.MessageTypeBuilder builder = Types.buildMessage();
+        for (ParquetColumn column : columns) {
+            switch (column.type()) {
+                case BOOLEAN -> builder.optional(PrimitiveTypeName.BOOLEAN).named(column.name());
+                case INT32 -> builder.optional(PrimitiveTypeName.INT32).named(column.name());
+                case INT64 -> builder.optional(PrimitiveTypeName.INT64).named(column.name());
+                case DECIMAL -> builder.optional(PrimitiveTypeName.INT64)
+                        .as(LogicalTypeAnnotation.decimalType(column.scale(), 18)).named(column.name());
+                case STRING -> builder.optional(PrimitiveTypeName.BINARY)
+                        .as(LogicalTypeAnnotation.stringType()).named(column.name());
+                case TIMESTAMP -> builder.optional(PrimitiveTypeName.INT64)
+                        .as(LogicalTypeAnnotation.timestampType(false, LogicalTypeAnnotation.TimeUnit.MILLIS))
+                        .named(column.name());
+            }
+        }
+        return builder.named(name);
+    }
+
+    private static void append(Group group, int index, ParquetColumn column, Object value) {
+        switch (column.type()) {
+            case BOOLEAN -> group.add(index, (Boolean) value);
+            case INT32 -> group.add(index, ((Number) value).intValue());
+            case INT64 -> group.add(index, ((Number) value).longValue());
+            case DECIMAL -> group.add(index, ((BigDecimal) value).setScale(column.scale(), RoundingMode.HALF_UP)
+                    .unscaledValue().longValueExact());
+            case STRING -> group.add(index, Binary.fromString(value.toString()));
+            // Local wall-clock time, stored as if UTC (isAdjustedToUTC = false)
+            case TIMESTAMP -> group.add(index, ((LocalDateTime) value).toInstant(ZoneOffset.UTC).toEpochMilli());
+        }
+    }
+
+    /**
+     * Parquet only ever appends and asks for the current position, so a
+     * non-seekable response stream is enough. The stream is flushed on close
+     * but left open for the container.
+     */
+    private record StreamOutputFile(OutputStream target) implements OutputFile {
+
+        @Override
+        public PositionOutputStream create(long blockSizeHint) {
+            return new PositionOutputStream() {
+                private long position;
+
+                @Override
+                public long getPos() {
+                    return position;
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    target.write(b);
+                    position++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    target.write(b, off, len);
+                    position += len;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    target.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    target.flush();
+                }
+            };
+        }
+
+        @Override
+        public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+            return create(blockSizeHint);
+        }
+
+        @Override
+        public boolean supportsBlockSize() {
+            return false;
+        }
+
+        @Override
+        public long defaultBlockSize() {
+            return 0;
+        }
+    }
+}
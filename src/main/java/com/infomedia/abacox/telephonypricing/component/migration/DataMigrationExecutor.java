@@ -6,8 +6,10 @@ import ch.qos.logback.classic.Logger;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.infomedia.abacox.telephonypricing.multitenancy.SchemaConnectionProvider;
 import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
 
 import javax.sql.DataSource;
@@ -18,7 +20,16 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.BiConsumer;
 
 @Component
@@ -28,6 +39,10 @@ public class DataMigrationExecutor {
 
     private final TableMigrationExecutor tableExecutor;
     private final DataSource dataSource;
+    private final SchemaConnectionProvider schemaConnectionProvider;
+
+    @Value("${app.migration.table-parallelism:2}")
+    private int tableParallelism;
 
     private static final String HIBERNATE_SQL_EXCEPTION_HELPER = "org.hibernate.engine.jdbc.spi.SqlExceptionHelper";
 
@@ -65,9 +80,7 @@ public class DataMigrationExecutor {
     private Connection tenantConnection() throws SQLException {
         Connection conn = dataSource.getConnection();
         String tenant = TenantContext.getTenant();
-        if (tenant != null && !tenant.isBlank()) {
-            conn.createStatement().execute("SET search_path TO \"" + tenant + "\"");
-        }
+        schemaConnectionProvider.setSchema(conn, tenant != null && !tenant.isBlank() ? tenant : "public");
         return conn;
     }
 
@@ -142,13 +155,23 @@ public class DataMigrationExecutor {
     /**
      * Runs the migration for a list of tables, invoking a callback after each
      * table.
-     * Stops the entire process if any table migration fails.
+     * <p>
+     * Tables run concurrently, up to {@code app.migration.table-parallelism} at
+     * a time. A table starts once every table it depends on has finished: the
+     * targets of its entity's foreign keys plus its
+     * {@link TableMigrationConfig#getDependsOn()}. Dependencies only count if
+     * they come earlier in the list, so the list order stays authoritative;
+     * with a parallelism of 1 tables run exactly in list order.
+     * <p>
+     * If any table fails no further tables are started; the ones already
+     * running finish, then the failure is thrown.
      *
      * @param request          The migration parameters including source DB config
      *                         and table list.
      * @param progressCallback A BiConsumer that accepts the TableMigrationConfig
      *                         and an Exception (null if successful).
-     *                         This callback is invoked after each table attempt.
+     *                         This callback is invoked after each table attempt,
+     *                         possibly from several threads.
      */
     public void runMigration(MigrationParams request, BiConsumer<TableMigrationConfig, Exception> progressCallback) {
         log.debug("Starting data migration process with progress reporting...");
@@ -156,103 +179,210 @@ public class DataMigrationExecutor {
         // Suppress Hibernate SQL error logging during migration
         Level originalLevel = suppressHibernateSqlExceptionHelper();
 
-        try {
-            int totalTables = request.getTablesToMigrate().size();
-            int currentTableIndex = 0;
-
-            for (TableMigrationConfig tableConfig : request.getTablesToMigrate()) {
-                currentTableIndex++;
-                log.debug("---------------------------------------------------------");
-                String targetClassName = tableConfig.getTargetEntityClassName();
-                String simpleTargetName = targetClassName.contains(".")
-                        ? targetClassName.substring(targetClassName.lastIndexOf('.') + 1)
-                        : targetClassName;
-
-                log.info("Attempting migration for table {}/{} : {} -> {}",
-                        currentTableIndex, totalTables, tableConfig.getSourceTableName(),
-                        simpleTargetName);
-                Exception tableException = null;
-                List<IndexInfo> droppedIndexes = Collections.emptyList();
-                try {
-                    if (tableConfig.getBeforeMigrationAction() != null) {
-                        log.debug("Executing before-migration action for table '{}'...",
-                                tableConfig.getSourceTableName());
-                        tableConfig.getBeforeMigrationAction().accept(tableConfig);
-                    }
+        List<TableMigrationConfig> tables = request.getTablesToMigrate();
+        int totalTables = tables.size();
+        int parallelism = Math.max(1, Math.min(tableParallelism, totalTables));
+        String tenant = TenantContext.getTenant();
 
-                    if (tableConfig.isDropAndRebuildIndexes()) {
-                        String targetTable = MigrationUtils.getTableName(
-                                Class.forName(tableConfig.getTargetEntityClassName()));
-                        droppedIndexes = fetchDroppableIndexes(targetTable);
-                        log.info("Dropping {} indexes on '{}' before migration", droppedIndexes.size(), targetTable);
-                        dropIndexes(droppedIndexes);
-                    }
+        ExecutorService tablePool = Executors.newFixedThreadPool(parallelism);
+        CompletionService<Integer> completion = new ExecutorCompletionService<>(tablePool);
 
-                    // Call the method on the executor bean (this goes through the proxy)
-                    tableExecutor.executeTableMigration(tableConfig, request.getSourceDbConfig());
-                    log.debug("Successfully migrated table {}/{}: {}", currentTableIndex, totalTables,
-                            tableConfig.getSourceTableName());
+        try {
+            List<List<Integer>> dependents = new ArrayList<>();
+            int[] unfinishedDependencies = new int[totalTables];
+            for (int i = 0; i < totalTables; i++) {
+                dependents.add(new ArrayList<>());
+            }
+            for (int i = 0; i < totalTables; i++) {
+                for (int dependency : resolveDependencies(tables, i)) {
+                    dependents.get(dependency).add(i);
+                    unfinishedDependencies[i]++;
+                }
+            }
 
-                    if (tableConfig.isDropAndRebuildIndexes() && !droppedIndexes.isEmpty()) {
-                        log.info("Rebuilding {} indexes after migration", droppedIndexes.size());
-                        rebuildIndexes(droppedIndexes);
-                    }
+            // Earlier tables in the list go first among those ready to start
+            PriorityQueue<Integer> ready = new PriorityQueue<>();
+            for (int i = 0; i < totalTables; i++) {
+                if (unfinishedDependencies[i] == 0) ready.add(i);
+            }
+            log.info("Migrating {} tables with up to {} running at a time ({} ready to start)",
+                    totalTables, parallelism, ready.size());
 
-                    if (tableConfig.getPostMigrationSuccessAction() != null) {
-                        log.debug("Executing post-migration success action for table '{}'...",
-                                tableConfig.getSourceTableName());
+            int running = 0;
+            int finished = 0;
+            RuntimeException failure = null;
+            while (true) {
+                while (failure == null && running < parallelism && !ready.isEmpty()) {
+                    int index = ready.poll();
+                    completion.submit(() -> {
+                        TenantContext.setTenant(tenant);
                         try {
-                            tableConfig.getPostMigrationSuccessAction().run();
-                            log.debug("Successfully executed post-migration action for table '{}'.",
-                                    tableConfig.getSourceTableName());
-                        } catch (Exception postActionEx) {
-                            log.error(
-                                    "!!! Post-migration action for table '{}' FAILED. The data migration for this table was successful, but the subsequent action threw an exception. Please investigate manually. !!!",
-                                    tableConfig.getSourceTableName(), postActionEx);
+                            migrateTable(tables.get(index), index + 1, totalTables, request.getSourceDbConfig(),
+                                    progressCallback);
+                            return index;
+                        } finally {
+                            TenantContext.clear();
                         }
-                    }
-
-                } catch (Exception e) {
-                    tableException = e;
-                    log.error("!!! CRITICAL ERROR migrating table {}/{}: {}. Stopping migration. !!!",
-                            currentTableIndex, totalTables, tableConfig.getSourceTableName(), e.getMessage(), e);
+                    });
+                    running++;
+                }
+                if (running == 0) break;
 
-                    if (tableConfig.isDropAndRebuildIndexes() && !droppedIndexes.isEmpty()) {
-                        log.warn("Migration failed — attempting to restore {} dropped indexes anyway...",
-                                droppedIndexes.size());
-                        try {
-                            rebuildIndexes(droppedIndexes);
-                        } catch (Exception rebuildEx) {
-                            log.error("!!! Could not restore indexes after migration failure. Manual intervention required. !!!",
-                                    rebuildEx);
-                        }
+                Future<Integer> done = completion.take();
+                running--;
+                try {
+                    int index = done.get();
+                    finished++;
+                    for (int dependent : dependents.get(index)) {
+                        if (--unfinishedDependencies[dependent] == 0) ready.add(dependent);
                     }
-
-                } finally {
-                    if (progressCallback != null) {
-                        try {
-                            progressCallback.accept(tableConfig, tableException);
-                        } catch (Exception cbEx) {
-                            log.error("Error executing progress callback for table {}",
-                                    tableConfig.getSourceTableName(), cbEx);
-                        }
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException re ? re : new RuntimeException(e.getCause());
+                        log.error("Table migration failed; waiting for {} running tables before stopping", running);
                     }
                 }
-
-                if (tableException != null) {
-                    throw new RuntimeException("Migration failed for table " + tableConfig.getSourceTableName(),
-                            tableException);
-                }
-                log.debug("---------------------------------------------------------");
             }
 
+            if (failure != null) {
+                log.error("Data migration stopped: {}/{} tables migrated", finished, totalTables);
+                throw failure;
+            }
             log.debug("Data migration process finished executing table loop.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Data migration interrupted", e);
         } finally {
+            tablePool.shutdownNow();
             // Always restore the logger, even if migration fails
             restoreHibernateSqlExceptionHelper(originalLevel);
         }
     }
 
+    /**
+     * Returns the positions of the earlier tables in {@code tables} that the
+     * table at {@code index} has to wait for.
+     */
+    private Set<Integer> resolveDependencies(List<TableMigrationConfig> tables, int index) {
+        TableMigrationConfig tableConfig = tables.get(index);
+        Set<String> parentEntities = new HashSet<>(tableConfig.getDependsOn());
+        try {
+            Class<?> entityClass = Class.forName(tableConfig.getTargetEntityClassName());
+            for (ForeignKeyInfo fkInfo : MigrationUtils.inferForeignKeyInfo(entityClass).values()) {
+                if (!fkInfo.isSelfReference() && fkInfo.getRelationshipField() != null) {
+                    parentEntities.add(fkInfo.getRelationshipField().getType().getName());
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            // Reported when the table itself runs
+            log.debug("Cannot read foreign keys of {}: entity class not found", tableConfig.getTargetEntityClassName());
+        }
+
+        Set<Integer> dependencies = new HashSet<>();
+        for (int i = 0; i < tables.size(); i++) {
+            if (i == index || !parentEntities.contains(tables.get(i).getTargetEntityClassName())) continue;
+            if (i < index) {
+                dependencies.add(i);
+            } else {
+                log.warn("Table {} depends on {}, which is listed after it; keeping the listed order",
+                        tableConfig.getSourceTableName(), tables.get(i).getSourceTableName());
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * Migrates a single table, invoking the callback with the outcome.
+     *
+     * @throws RuntimeException if the table migration fails
+     */
+    private void migrateTable(TableMigrationConfig tableConfig, int tableNumber, int totalTables,
+                              SourceDbConfig sourceDbConfig,
+                              BiConsumer<TableMigrationConfig, Exception> progressCallback) {
+        log.debug("---------------------------------------------------------");
+        String targetClassName = tableConfig.getTargetEntityClassName();
+        String simpleTargetName = targetClassName.contains(".")
+                ? targetClassName.substring(targetClassName.lastIndexOf('.') + 1)
+                : targetClassName;
+
+        log.info("Attempting migration for table {}/{} : {} -> {}",
+                tableNumber, totalTables, tableConfig.getSourceTableName(),
+                simpleTargetName);
+        Exception tableException = null;
+        List<IndexInfo> droppedIndexes = Collections.emptyList();
+        try {
+            if (tableConfig.getBeforeMigrationAction() != null) {
+                log.debug("Executing before-migration action for table '{}'...",
+                        tableConfig.getSourceTableName());
+                tableConfig.getBeforeMigrationAction().accept(tableConfig);
+            }
+
+            if (tableConfig.isDropAndRebuildIndexes()) {
+                String targetTable = MigrationUtils.getTableName(
+                        Class.forName(tableConfig.getTargetEntityClassName()));
+                droppedIndexes = fetchDroppableIndexes(targetTable);
+                log.info("Dropping {} indexes on '{}' before migration", droppedIndexes.size(), targetTable);
+                dropIndexes(droppedIndexes);
+            }
+
+            // Call the method on the executor bean (this goes through the proxy)
+            tableExecutor.executeTableMigration(tableConfig, sourceDbConfig);
+            log.debug("Successfully migrated table {}/{}: {}", tableNumber, totalTables,
+                    tableConfig.getSourceTableName());
+
+            if (tableConfig.isDropAndRebuildIndexes() && !droppedIndexes.isEmpty()) {
+                log.info("Rebuilding {} indexes after migration", droppedIndexes.size());
+                rebuildIndexes(droppedIndexes);
+            }
+
+            if (tableConfig.getPostMigrationSuccessAction() != null) {
+                log.debug("Executing post-migration success action for table '{}'...",
+                        tableConfig.getSourceTableName());
+                try {
+                    tableConfig.getPostMigrationSuccessAction().run();
+                    log.debug("Successfully executed post-migration action for table '{}'.",
+                            tableConfig.getSourceTableName());
+                } catch (Exception postActionEx) {
+                    log.error(
+                            "!!! Post-migration action for table '{}' FAILED. The data migration for this table was successful, but the subsequent action threw an exception. Please investigate manually. !!!",
+                            tableConfig.getSourceTableName(), postActionEx);
+                }
+            }
+
+        } catch (Exception e) {
+            tableException = e;
+            log.error("!!! CRITICAL ERROR migrating table {}/{}: {}. Stopping migration. !!!",
+                    tableNumber, totalTables, tableConfig.getSourceTableName(), e.getMessage(), e);
+
+            if (tableConfig.isDropAndRebuildIndexes() && !droppedIndexes.isEmpty()) {
+                log.warn("Migration failed — attempting to restore {} dropped indexes anyway...",
+                        droppedIndexes.size());
+                try {
+                    rebuildIndexes(droppedIndexes);
+                } catch (Exception rebuildEx) {
+                    log.error("!!! Could not restore indexes after migration failure. Manual intervention required. !!!",
+                            rebuildEx);
+                }
+            }
+
+        } finally {
+            if (progressCallback != null) {
+                try {
+                    progressCallback.accept(tableConfig, tableException);
+                } catch (Exception cbEx) {
+                    log.error("Error executing progress callback for table {}",
+                            tableConfig.getSourceTableName(), cbEx);
+                }
+            }
+        }
+
+        if (tableException != null) {
+            throw new RuntimeException("Migration failed for table " + tableConfig.getSourceTableName(),
+                    tableException);
+        }
+        log.debug("---------------------------------------------------------");
+    }
+
     // Overload for backward compatibility or calls without progress reporting
     public void runMigration(MigrationParams request) {
         runMigration(request, null); // Call the main method with a null callback
@@ -1,6 +1,8 @@
 // File: com/infomedia/abacox/telephonypricing/component/migration/MigrationRowProcessor.java
 package com.infomedia.abacox.telephonypricing.component.migration;
 
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import jakarta.persistence.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
@@ -19,6 +21,7 @@ import java.util.*;
 @Component
 @RequiredArgsConstructor
 @Log4j2
+@ConnectionWorkload(Workload.INGEST_WRITE)
 public class MigrationRowProcessor {
 
     @PersistenceContext
@@ -125,6 +125,14 @@ public class TableMigrationConfig {
      */
     private Set<Object> sourceIdFilter;
 
+    /**
+     * Target entity class names of tables that must be migrated before this one
+     * for a reason other than a foreign key, e.g. IDs another table collects in
+     * its onBatchSuccess. Foreign keys are read from the target entity.
+     */
+    @Builder.Default
+    private Set<String> dependsOn = new HashSet<>();
+
     @Builder.Default
     private boolean assumeTargetIsEmpty = false;
 
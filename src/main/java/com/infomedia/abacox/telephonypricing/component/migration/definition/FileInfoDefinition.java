@@ -32,6 +32,9 @@ public class FileInfoDefinition implements MigrationTableDefinition {
                     row.put("DERIVED_PLANT_ID", plantId);
                     row.put("LITERAL_STATUS", FileInfo.ProcessingStatus.COMPLETED_MISSING.name());
                 })
+                // Only the files referenced by migrated call records are migrated
+                .dependsOn(Set.of("com.infomedia.abacox.telephonypricing.db.entity.CallRecord",
+                        "com.infomedia.abacox.telephonypricing.db.entity.FailedCallRecord"))
                 .beforeMigrationAction(config -> {
                     if (context.getMigratedFileInfoIds().isEmpty()) {
                         log.info("No FileInfo IDs collected. FileInfo migration will be effectively skipped.");
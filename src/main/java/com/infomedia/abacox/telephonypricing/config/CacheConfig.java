@@ -14,24 +14,29 @@ import java.util.concurrent.TimeUnit;
 @EnableCaching
 public class CacheConfig {
 
-    public static final String DASHBOARD_CURRENT              = "dashboard-current";
-    public static final String DASHBOARD_HISTORICAL            = "dashboard-historical";
-    public static final String DASHBOARD_EMPLOYEE_ACTIVITY_CURRENT    = "dashboard-employee-activity-current";
-    public static final String DASHBOARD_EMPLOYEE_ACTIVITY_HISTORICAL = "dashboard-employee-activity-historical";
+    // Per-day / per-month dashboard partial aggregates (see DashboardAggregateStore).
+    // Buckets reaching today are also dropped on every committed CDR batch; the short TTL
+    // covers what call record events do not report, such as new processing failures.
+    public static final String DASHBOARD_OPEN_BUCKETS         = "dashboard-open-buckets";
+    public static final String DASHBOARD_CLOSED_BUCKETS       = "dashboard-closed-buckets";
+    public static final String DASHBOARD_EMPLOYEE_ROSTER      = "dashboard-employee-roster";
+    // Last complete result of each overview section per requested range, only served
+    // (flagged stale) when a fresh computation overruns its time budget.
+    public static final String DASHBOARD_LAST_SECTIONS        = "dashboard-last-sections";
 
     @Bean
     public CacheManager cacheManager() {
         CaffeineCacheManager manager = new CaffeineCacheManager();
-        manager.setCacheNames(List.of(DASHBOARD_CURRENT, DASHBOARD_HISTORICAL,
-                DASHBOARD_EMPLOYEE_ACTIVITY_CURRENT, DASHBOARD_EMPLOYEE_ACTIVITY_HISTORICAL));
-        manager.registerCustomCache(DASHBOARD_CURRENT,
-                Caffeine.newBuilder().expireAfterWrite(1, TimeUnit.DAYS).maximumSize(500).build());
-        manager.registerCustomCache(DASHBOARD_HISTORICAL,
-                Caffeine.newBuilder().expireAfterWrite(7, TimeUnit.DAYS).maximumSize(1000).build());
-        manager.registerCustomCache(DASHBOARD_EMPLOYEE_ACTIVITY_CURRENT,
-                Caffeine.newBuilder().expireAfterWrite(1, TimeUnit.DAYS).maximumSize(500).build());
-        manager.registerCustomCache(DASHBOARD_EMPLOYEE_ACTIVITY_HISTORICAL,
-                Caffeine.newBuilder().expireAfterWrite(7, TimeUnit.DAYS).maximumSize(1000).build());
+        manager.setCacheNames(List.of(DASHBOARD_OPEN_BUCKETS, DASHBOARD_CLOSED_BUCKETS, DASHBOARD_EMPLOYEE_ROSTER,
+                DASHBOARD_LAST_SECTIONS));
+        manager.registerCustomCache(DASHBOARD_OPEN_BUCKETS,
+                Caffeine.newBuilder().expireAfterWrite(10, TimeUnit.MINUTES).maximumSize(1000).build());
+        manager.registerCustomCache(DASHBOARD_CLOSED_BUCKETS,
+                Caffeine.newBuilder().expireAfterWrite(7, TimeUnit.DAYS).maximumSize(5000).build());
+        manager.registerCustomCache(DASHBOARD_EMPLOYEE_ROSTER,
+                Caffeine.newBuilder().expireAfterWrite(1, TimeUnit.HOURS).maximumSize(500).build());
+        manager.registerCustomCache(DASHBOARD_LAST_SECTIONS,
+                Caffeine.newBuilder().expireAfterWrite(1, TimeUnit.DAYS).maximumSize(2000).build());
         return manager;
     }
 }
@@ -87,8 +87,8 @@ public class BandIndicatorController {
             bandIndicatorService.exportExcelStreaming(spec, exportRequest.getSortOrder(), exportRequest.getMaxRows(), out, excelRequest.toExcelGeneratorBuilder());
 
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=bands_indicators.xlsx")
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + excelRequest.fileName("bands_indicators"))
+                .contentType(excelRequest.mediaType())
                 .body(body);
     }
 }
\ No newline at end of file
@@ -95,8 +95,8 @@ public class CallCategoryController {
             callCategoryService.exportExcelStreaming(spec, exportRequest.getSortOrder(), exportRequest.getMaxRows(), out, excelRequest.toExcelGeneratorBuilder());
 
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=call_categories.xlsx")
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + excelRequest.fileName("call_categories"))
+                .contentType(excelRequest.mediaType())
                 .body(body);
     }
 }
\ No newline at end of file
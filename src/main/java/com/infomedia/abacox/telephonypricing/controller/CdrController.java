@@ -3,6 +3,7 @@ package com.infomedia.abacox.telephonypricing.controller;
 import com.infomedia.abacox.telephonypricing.component.cdrprocessing.*;
 import com.infomedia.abacox.telephonypricing.component.configmanager.ConfigKey;
 import com.infomedia.abacox.telephonypricing.component.configmanager.ConfigService;
+import com.infomedia.abacox.telephonypricing.constants.DateTimePattern;
 import com.infomedia.abacox.telephonypricing.dto.generic.MessageResponse;
 import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
 import com.infomedia.abacox.telephonypricing.security.annotation.RequiresPermission;
@@ -15,6 +16,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -25,6 +27,8 @@ import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @RequiredArgsConstructor
@@ -44,6 +48,7 @@ public class CdrController {
     private final ConfigService configService;
     private final List<CdrProcessor> cdrProcessors;
     private final TestCdrProcessingService testCdrProcessingService;
+    private final FileProcessingTrackerService fileProcessingTrackerService;
 
     @RequiresPermission(Permissions.CDR_UPLOAD)
     @PostMapping(value = "/process", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
@@ -222,9 +227,8 @@ public class CdrController {
             return new MessageResponse("No CallRecord IDs provided for reprocessing.");
         }
         log.info("Received request to reprocess CallRecord IDs: {}", callRecordIds);
-        for (Long callRecordId : callRecordIds) {
-            cdrProcessingExecutor.submitCallRecordReprocessing(callRecordId);
-        }
+        // One task for the whole set: lines are read once per source file and results written in batches
+        cdrProcessingExecutor.submitBulkCallRecordReprocessing(new ArrayList<>(callRecordIds));
         return new MessageResponse(
                 String.format("Reprocessing task submitted for %d call record(s).", callRecordIds.size()));
     }
@@ -237,13 +241,71 @@ public class CdrController {
             return new MessageResponse("No FailedCallRecord IDs provided for reprocessing.");
         }
         log.info("Received request to reprocess FailedCallRecord IDs: {}", failedCallRecordIds);
-        for (Long failedCallRecordId : failedCallRecordIds) {
-            cdrProcessingExecutor.submitFailedCallRecordReprocessing(failedCallRecordId);
-        }
+        cdrProcessingExecutor.submitBulkFailedCallRecordReprocessing(new ArrayList<>(failedCallRecordIds));
         return new MessageResponse(
                 String.format("Reprocessing task submitted for %d failed call record(s).", failedCallRecordIds.size()));
     }
 
+    @RequiresPermission(Permissions.CDR_REPROCESS)
+    @PostMapping("/rerate")
+    @Operation(summary = "Re-rate call records in a date range", description = "Submits a task that recomputes the pricing of existing call records from their stored classification (dial, trunk, telephony type, operator, indicator and duration) using the current rates, without re-reading the original files.")
+    public MessageResponse rerateCallRecords(
+            @Parameter(description = "Start of the service date range (inclusive)") @RequestParam @DateTimeFormat(pattern = DateTimePattern.DATE_TIME) LocalDateTime startDate,
+            @Parameter(description = "End of the service date range (exclusive)") @RequestParam @DateTimeFormat(pattern = DateTimePattern.DATE_TIME) LocalDateTime endDate,
+            @Parameter(description = "Only re-rate calls of this comm location") @RequestParam(required = false) Long commLocationId,
+            @Parameter(description = "Only re-rate calls of this telephony type") @RequestParam(required = false) Long telephonyTypeId) {
+        if (!endDate.isAfter(startDate)) {
+            throw new ValidationException("endDate must be after startDate");
+        }
+        RerateCriteria criteria = new RerateCriteria(startDate, endDate, commLocationId, telephonyTypeId);
+        log.info("Received request to re-rate call records: {}", criteria);
+        cdrProcessingExecutor.submitRerate(criteria);
+        return new MessageResponse("Re-rating task submitted.");
+    }
+
+    @RequiresPermission(Permissions.CDR_REPROCESS)
+    @PostMapping("/rollups/rebuild")
+    @Operation(summary = "Rebuild the daily call rollups", description = "Submits a task that recomputes the per-day call aggregates used by whole-day usage reports from all stored call records. Reports read the raw call records until the rebuild finishes.")
+    public MessageResponse rebuildCallRollups() {
+        log.info("Received request to rebuild daily call rollups");
+        cdrProcessingExecutor.submitRollupRebuild();
+        return new MessageResponse("Daily call rollup rebuild task submitted.");
+    }
+
+    @RequiresPermission(Permissions.CDR_REPROCESS)
+    @PostMapping("/conferences/rebuild")
+    @Operation(summary = "Rebuild the conference groups", description = "Submits a task that regroups all stored conference call records into the conference groups used by the conference calls report. The report groups the raw call records until the rebuild finishes.")
+    public MessageResponse rebuildConferenceGroups() {
+        log.info("Received request to rebuild conference groups");
+        cdrProcessingExecutor.submitConferenceGroupRebuild();
+        return new MessageResponse("Conference group rebuild task submitted.");
+    }
+
+    @RequiresPermission(Permissions.CDR_REPROCESS)
+    @PostMapping("/extension-activity/rebuild")
+    @Operation(summary = "Rebuild the extension activity", description = "Submits a task that recomputes the per-day extension activity used by the unused extension report from all stored call records. The report reads the raw call records until the rebuild finishes.")
+    public MessageResponse rebuildExtensionActivity() {
+        log.info("Received request to rebuild extension activity");
+        cdrProcessingExecutor.submitExtensionActivityRebuild();
+        return new MessageResponse("Extension activity rebuild task submitted.");
+    }
+
+    @RequiresPermission(Permissions.CDR_REPROCESS)
+    @PostMapping("/partitioning/convert")
+    @Operation(summary = "Convert the call records to monthly partitions", description = "Submits a task that turns a plain call record table into monthly partitions. The table stays readable and writable: it becomes the default partition at once, and its rows are then moved into their months one month at a time. Does nothing if the table is already partitioned.")
+    public MessageResponse convertCallRecordPartitions() {
+        log.info("Received request to convert call records to monthly partitions");
+        cdrProcessingExecutor.submitPartitionConversion();
+        return new MessageResponse("Call record partition conversion task submitted.");
+    }
+
+    @RequiresPermission(Permissions.CDR_READ)
+    @GetMapping(value = "/processing/files", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "List files currently in flight", description = "Returns the live tracker state (submitted, persisted, failed and pending records, last progress time) of every file being processed for the current tenant.")
+    public List<FileProcessingStateDto> getInFlightFiles() {
+        return fileProcessingTrackerService.getInFlightFiles();
+    }
+
     @RequiresPermission(Permissions.CDR_READ)
     @GetMapping("/download/{fileInfoId}")
     @Operation(summary = "Download the original CDR file", description = "Retrieves the original, unprocessed CDR file content based on its FileInfo ID.")
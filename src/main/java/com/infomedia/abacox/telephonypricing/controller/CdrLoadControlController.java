@@ -92,8 +92,8 @@ public class CdrLoadControlController {
         StreamingResponseBody body = out ->
             cdrLoadControlService.exportExcelStreaming(spec, exportRequest.getSortOrder(), exportRequest.getMaxRows(), out, excelRequest.toExcelGeneratorBuilder());
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=cdr_load_control.xlsx")
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + excelRequest.fileName("cdr_load_control"))
+                .contentType(excelRequest.mediaType())
                 .body(body);
     }
 }
@@ -85,8 +85,8 @@ public class EquipmentTypeController {
         StreamingResponseBody body = out ->
             equipmentTypeService.exportExcelStreaming(spec, exportRequest.getSortOrder(), exportRequest.getMaxRows(), out, excelRequest.toExcelGeneratorBuilder());
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=equipment_types.xlsx")
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + excelRequest.fileName("equipment_types"))
+                .contentType(excelRequest.mediaType())
                 .body(body);
     }
 }
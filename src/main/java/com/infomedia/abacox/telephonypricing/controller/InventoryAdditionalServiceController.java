@@ -85,8 +85,8 @@ public class InventoryAdditionalServiceController {
         StreamingResponseBody body = out ->
             inventoryAdditionalServiceService.exportExcelStreaming(spec, exportRequest.getSortOrder(), exportRequest.getMaxRows(), out, excelRequest.toExcelGeneratorBuilder());
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=inventory_additional_services.xlsx")
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + excelRequest.fileName("inventory_additional_services"))
+                .contentType(excelRequest.mediaType())
                 .body(body);
     }
 }
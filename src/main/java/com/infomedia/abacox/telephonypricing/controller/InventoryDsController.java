@@ -85,8 +85,8 @@ public class InventoryDsController {
         StreamingResponseBody body = out ->
             inventoryDsService.exportExcelStreaming(spec, exportRequest.getSortOrder(), exportRequest.getMaxRows(), out, excelRequest.toExcelGeneratorBuilder());
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=inventory_suppliers.xlsx")
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + excelRequest.fileName("inventory_suppliers"))
+                .contentType(excelRequest.mediaType())
                 .body(body);
     }
 }
@@ -85,8 +85,8 @@ public class InventoryEquipmentController {
         StreamingResponseBody body = out ->
             inventoryEquipmentService.exportExcelStreaming(spec, exportRequest.getSortOrder(), exportRequest.getMaxRows(), out, excelRequest.toExcelGeneratorBuilder());
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=inventory_equipment.xlsx")
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + excelRequest.fileName("inventory_equipment"))
+                .contentType(excelRequest.mediaType())
                 .body(body);
     }
 }
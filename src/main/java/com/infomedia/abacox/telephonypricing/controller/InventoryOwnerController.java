@@ -85,8 +85,8 @@ public class InventoryOwnerController {
         StreamingResponseBody body = out ->
             inventoryOwnerService.exportExcelStreaming(spec, exportRequest.getSortOrder(), exportRequest.getMaxRows(), out, excelRequest.toExcelGeneratorBuilder());
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=inventory_owners.xlsx")
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + excelRequest.fileName("inventory_owners"))
+                .contentType(excelRequest.mediaType())
                 .body(body);
     }
 }
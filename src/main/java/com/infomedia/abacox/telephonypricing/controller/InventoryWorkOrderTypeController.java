@@ -85,8 +85,8 @@ public class InventoryWorkOrderTypeController {
         StreamingResponseBody body = out ->
             inventoryWorkOrderTypeService.exportExcelStreaming(spec, exportRequest.getSortOrder(), exportRequest.getMaxRows(), out, excelRequest.toExcelGeneratorBuilder());
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=inventory_work_order_types.xlsx")
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + excelRequest.fileName("inventory_work_order_types"))
+                .contentType(excelRequest.mediaType())
                 .body(body);
     }
 }
@@ -1,13 +1,17 @@
 package com.infomedia.abacox.telephonypricing.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.infomedia.abacox.telephonypricing.component.modeltools.ModelConverter;
 import com.infomedia.abacox.telephonypricing.constants.DateTimePattern;
 import com.infomedia.abacox.telephonypricing.db.entity.CallRecord;
 import com.infomedia.abacox.telephonypricing.db.entity.FailedCallRecord;
+import com.infomedia.abacox.telephonypricing.db.entity.ReportJob;
 import com.infomedia.abacox.telephonypricing.db.view.CorporateReportView;
 import com.infomedia.abacox.telephonypricing.dto.callrecord.CallRecordDto;
 import com.infomedia.abacox.telephonypricing.dto.failedcallrecord.FailedCallRecordDto;
 import com.infomedia.abacox.telephonypricing.dto.generic.PageableRequest;
 import com.infomedia.abacox.telephonypricing.dto.report.*;
+import com.infomedia.abacox.telephonypricing.dto.reportjob.ReportJobDto;
 import com.infomedia.abacox.telephonypricing.dto.generic.ExcelRequest;
 import com.infomedia.abacox.telephonypricing.dto.generic.ExportRequest;
 import com.infomedia.abacox.telephonypricing.dto.generic.FilterRequest;
@@ -21,6 +25,7 @@ import org.springdoc.core.annotations.ParameterObject;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.security.SecurityRequirements;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Pageable;
@@ -30,11 +35,16 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -55,6 +65,11 @@ public class ReportController {
         private final ExtensionReportService extensionReportService;
         private final ConferenceReportService conferenceReportService;
         private final ExtensionGroupReportService extensionGroupReportService;
+        private final ReportJobService reportJobService;
+        private final ModelConverter modelConverter;
+        private final ObjectMapper objectMapper;
+
+        private static final MediaType PARQUET = MediaType.parseMediaType("application/vnd.apache.parquet");
 
         // ── failedCallRecords ──
 
@@ -62,8 +77,9 @@ public class ReportController {
         @GetMapping(value = "failedCallRecords", produces = MediaType.APPLICATION_JSON_VALUE)
         public Slice<FailedCallRecordDto> getFailedCallRecords(@Parameter(hidden = true) Pageable pageable,
                         @Parameter(hidden = true) @Filter Specification<FailedCallRecord> spec,
-                        @ParameterObject FilterRequest filterRequest) {
-                return callRecordReportService.generateFailedCallRecordsReport(spec, pageable);
+                        @ParameterObject FilterRequest filterRequest,
+                        @RequestParam(required = false) String cursor) {
+                return callRecordReportService.generateFailedCallRecordsReport(spec, pageable, cursor);
         }
 
         @RequiresPermission(Permissions.REPORTS_EXPORT)
@@ -77,11 +93,20 @@ public class ReportController {
                         callRecordReportService.exportExcelFailedCallRecordsReport(spec,
                                 exportRequest.getSortOrder(), exportRequest.getMaxRows(),
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=failed_call_records.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("failed_call_records"), excelRequest.mediaType(),
+                                exportRequest.isAsyncJob(), body);
+        }
+
+        @RequiresPermission(Permissions.REPORTS_EXPORT)
+        @GetMapping(value = "failedCallRecords/export/parquet", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+        public ResponseEntity<StreamingResponseBody> exportParquetFailedCallRecords(
+                        @Parameter(hidden = true) @Filter Specification<FailedCallRecord> spec,
+                        @ParameterObject FilterRequest filterRequest,
+                        @ParameterObject ExportRequest exportRequest) {
+                StreamingResponseBody body = out ->
+                        callRecordReportService.exportParquetFailedCallRecordsReport(spec,
+                                exportRequest.getMaxRows(), out);
+                return export("failed_call_records.parquet", PARQUET, exportRequest.isAsyncJob(), body);
         }
 
         // ── callRecords ──
@@ -90,8 +115,9 @@ public class ReportController {
         @GetMapping(value = "callRecords", produces = MediaType.APPLICATION_JSON_VALUE)
         public Slice<CallRecordDto> getCallRecords(@Parameter(hidden = true) Pageable pageable,
                         @Parameter(hidden = true) @Filter Specification<CallRecord> spec,
-                        @ParameterObject FilterRequest filterRequest) {
-                return callRecordReportService.generateCallRecordsReport(spec, pageable);
+                        @ParameterObject FilterRequest filterRequest,
+                        @RequestParam(required = false) String cursor) {
+                return callRecordReportService.generateCallRecordsReport(spec, pageable, cursor);
         }
 
         @RequiresPermission(Permissions.REPORTS_EXPORT)
@@ -105,10 +131,19 @@ public class ReportController {
                         callRecordReportService.exportExcelCallRecordsReport(spec,
                                 exportRequest.getSortOrder(), exportRequest.getMaxRows(),
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=call_records.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("call_records"), excelRequest.mediaType(),
+                                exportRequest.isAsyncJob(), body);
+        }
+
+        @RequiresPermission(Permissions.REPORTS_EXPORT)
+        @GetMapping(value = "callRecords/export/parquet", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+        public ResponseEntity<StreamingResponseBody> exportParquetCallRecords(
+                        @Parameter(hidden = true) @Filter Specification<CallRecord> spec,
+                        @ParameterObject FilterRequest filterRequest,
+                        @ParameterObject ExportRequest exportRequest) {
+                StreamingResponseBody body = out ->
+                        callRecordReportService.exportParquetCallRecordsReport(spec, exportRequest.getMaxRows(), out);
+                return export("call_records.parquet", PARQUET, exportRequest.isAsyncJob(), body);
         }
 
         // ── corporateReport ──
@@ -117,8 +152,9 @@ public class ReportController {
         @GetMapping(value = "corporateReport", produces = MediaType.APPLICATION_JSON_VALUE)
         public Slice<CorporateReportDto> getCorporateReport(@Parameter(hidden = true) Pageable pageable,
                         @Parameter(hidden = true) @Filter Specification<CorporateReportView> spec,
-                        @ParameterObject FilterRequest filterRequest) {
-                return callRecordReportService.generateCorporateReport(spec, pageable);
+                        @ParameterObject FilterRequest filterRequest,
+                        @RequestParam(required = false) String cursor) {
+                return callRecordReportService.generateCorporateReport(spec, pageable, cursor);
         }
 
         @RequiresPermission(Permissions.REPORTS_EXPORT)
@@ -132,10 +168,8 @@ public class ReportController {
                         callRecordReportService.exportExcelCorporateReport(spec,
                                 exportRequest.getSortOrder(), exportRequest.getMaxRows(),
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=corporate_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("corporate_report"), excelRequest.mediaType(),
+                                exportRequest.isAsyncJob(), body);
         }
 
         // ── employeeActivity ──
@@ -171,11 +205,8 @@ public class ReportController {
                                 startDate, endDate,
                                 exportRequest.getSortOrder(), exportRequest.getMaxRows(),
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=employee_activity_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("employee_activity_report"), excelRequest.mediaType(),
+                                exportRequest.isAsyncJob(), body);
         }
 
         // ── employeeCall ──
@@ -207,11 +238,8 @@ public class ReportController {
                                 employeeExtension, startDate, endDate,
                                 exportRequest.getSortOrder(), exportRequest.getMaxRows(),
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=employee_call_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("employee_call_report"), excelRequest.mediaType(),
+                                exportRequest.isAsyncJob(), body);
         }
 
         // ── unassignedCall ──
@@ -242,11 +270,8 @@ public class ReportController {
                                 startDate, endDate,
                                 exportRequest.getSortOrder(), exportRequest.getMaxRows(),
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=unassigned_call_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("unassigned_call_report"), excelRequest.mediaType(),
+                                exportRequest.isAsyncJob(), body);
         }
 
         // ── processingFailure ──
@@ -277,11 +302,8 @@ public class ReportController {
                                 startDate, endDate,
                                 exportRequest.getSortOrder(), exportRequest.getMaxRows(),
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=processing_failure_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("processing_failure_report"), excelRequest.mediaType(),
+                                exportRequest.isAsyncJob(), body);
         }
 
         // ── missedCallEmployee ──
@@ -312,11 +334,8 @@ public class ReportController {
                                 minRingCount,
                                 exportRequest.getSortOrder(), exportRequest.getMaxRows(),
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=missed_call_employee_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("missed_call_employee_report"), excelRequest.mediaType(),
+                                exportRequest.isAsyncJob(), body);
         }
 
         // ── unusedExtension ──
@@ -347,11 +366,8 @@ public class ReportController {
                                 startDate, endDate,
                                 exportRequest.getSortOrder(), exportRequest.getMaxRows(),
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=unused_extension_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("unused_extension_report"), excelRequest.mediaType(),
+                                exportRequest.isAsyncJob(), body);
         }
 
         // ── subdivisionUsage ──
@@ -380,11 +396,8 @@ public class ReportController {
                                 parentSubdivisionId,
                                 exportRequest.getSortOrder(), exportRequest.getMaxRows(),
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=subdivision_usage_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("subdivision_usage_report"), excelRequest.mediaType(),
+                                exportRequest.isAsyncJob(), body);
         }
 
         // ── subdivisionUsageByType ──
@@ -413,11 +426,8 @@ public class ReportController {
                                 parentSubdivisionId,
                                 exportRequest.getSortOrder(), exportRequest.getMaxRows(),
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=subdivision_usage_by_type_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("subdivision_usage_by_type_report"), excelRequest.mediaType(),
+                                exportRequest.isAsyncJob(), body);
         }
 
         // ── telephonyTypeUsage ──
@@ -436,15 +446,13 @@ public class ReportController {
         public ResponseEntity<StreamingResponseBody> exportExcelTelephonyTypeUsageReport(
                         @RequestParam @DateTimeFormat(pattern = DateTimePattern.DATE_TIME) LocalDateTime startDate,
                         @RequestParam @DateTimeFormat(pattern = DateTimePattern.DATE_TIME) LocalDateTime endDate,
+                        @RequestParam(required = false, defaultValue = "false") boolean async,
                         @ParameterObject ExcelRequest excelRequest) {
                 StreamingResponseBody body = out ->
                         telephonyUsageReportService.exportExcelTelephonyTypeUsageReport(startDate, endDate,
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=telephony_type_usage_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("telephony_type_usage_report"), excelRequest.mediaType(),
+                                async, body);
         }
 
         // ── monthlyTelephonyTypeUsage ──
@@ -464,15 +472,13 @@ public class ReportController {
         public ResponseEntity<StreamingResponseBody> exportExcelMonthlyTelephonyTypeUsageReport(
                         @RequestParam @DateTimeFormat(pattern = DateTimePattern.DATE_TIME) LocalDateTime startDate,
                         @RequestParam @DateTimeFormat(pattern = DateTimePattern.DATE_TIME) LocalDateTime endDate,
+                        @RequestParam(required = false, defaultValue = "false") boolean async,
                         @ParameterObject ExcelRequest excelRequest) {
                 StreamingResponseBody body = out ->
                         telephonyUsageReportService.exportExcelMonthlyTelephonyTypeUsageReport(startDate, endDate,
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=monthly_telephony_type_usage_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("monthly_telephony_type_usage_report"), excelRequest.mediaType(),
+                                async, body);
         }
 
         // ── costCenterUsage ──
@@ -495,15 +501,12 @@ public class ReportController {
                         @RequestParam @DateTimeFormat(pattern = DateTimePattern.DATE_TIME) LocalDateTime startDate,
                         @RequestParam @DateTimeFormat(pattern = DateTimePattern.DATE_TIME) LocalDateTime endDate,
                         @RequestParam(required = false) Long parentCostCenterId,
+                        @RequestParam(required = false, defaultValue = "false") boolean async,
                         @ParameterObject ExcelRequest excelRequest) {
                 StreamingResponseBody body = out ->
                         telephonyUsageReportService.exportExcelCostCenterUsageReport(startDate, endDate,
                                 parentCostCenterId, out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=cost_center_usage_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("cost_center_usage_report"), excelRequest.mediaType(), async, body);
         }
 
         // ── employeeAuthCodeUsage ──
@@ -528,11 +531,8 @@ public class ReportController {
                         employeeReportService.exportExcelEmployeeAuthCodeUsageReport(startDate, endDate,
                                 exportRequest.getSortOrder(), exportRequest.getMaxRows(),
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=employee_auth_code_usage_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("employee_auth_code_usage_report"), excelRequest.mediaType(),
+                                exportRequest.isAsyncJob(), body);
         }
 
         // ── monthlySubdivisionUsage ──
@@ -555,15 +555,13 @@ public class ReportController {
                         @RequestParam @DateTimeFormat(pattern = DateTimePattern.DATE_TIME) LocalDateTime startDate,
                         @RequestParam @DateTimeFormat(pattern = DateTimePattern.DATE_TIME) LocalDateTime endDate,
                         @RequestParam(required = false) List<Long> subdivisionIds,
+                        @RequestParam(required = false, defaultValue = "false") boolean async,
                         @ParameterObject ExcelRequest excelRequest) {
                 StreamingResponseBody body = out ->
                         subdivisionReportService.exportExcelMonthlySubdivisionUsageReport(startDate, endDate,
                                 subdivisionIds, out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=monthly_subdivision_usage_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("monthly_subdivision_usage_report"), excelRequest.mediaType(),
+                                async, body);
         }
 
         // ── dialedNumberUsage ──
@@ -588,11 +586,8 @@ public class ReportController {
                         telephonyUsageReportService.exportExcelDialedNumberUsageReport(startDate, endDate,
                                 exportRequest.getSortOrder(), exportRequest.getMaxRows(),
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=dialed_number_usage_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("dialed_number_usage_report"), excelRequest.mediaType(),
+                                exportRequest.isAsyncJob(), body);
         }
 
         // ── destinationUsage ──
@@ -617,11 +612,8 @@ public class ReportController {
                         telephonyUsageReportService.exportExcelDestinationUsageReport(startDate, endDate,
                                 exportRequest.getSortOrder(), exportRequest.getMaxRows(),
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=destination_usage_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("destination_usage_report"), excelRequest.mediaType(),
+                                exportRequest.isAsyncJob(), body);
         }
 
         // ── highestConsumptionEmployee ──
@@ -646,11 +638,8 @@ public class ReportController {
                         employeeReportService.exportExcelHighestConsumptionEmployeeReport(startDate, endDate,
                                 exportRequest.getSortOrder(), exportRequest.getMaxRows(),
                                 out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=highest_consumption_employee_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("highest_consumption_employee_report"), excelRequest.mediaType(),
+                                exportRequest.isAsyncJob(), body);
         }
 
         // ── conferenceCalls ──
@@ -674,14 +663,12 @@ public class ReportController {
                         @RequestParam @DateTimeFormat(pattern = DateTimePattern.DATE_TIME) LocalDateTime endDate,
                         @RequestParam(required = false) String extension,
                         @RequestParam(required = false) String employeeName,
+                        @RequestParam(required = false, defaultValue = "false") boolean async,
                         @ParameterObject ExcelRequest excelRequest) {
                 StreamingResponseBody body = out ->
                         conferenceReportService.exportExcelConferenceCallsReport(startDate, endDate,
                                 extension, employeeName, out, excelRequest.toExcelGeneratorBuilder());
-                return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=conference_calls.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                                .body(body);
+                return export(excelRequest.fileName("conference_calls"), excelRequest.mediaType(), async, body);
         }
 
         // ── extensionGroup ──
@@ -708,15 +695,60 @@ public class ReportController {
                         @RequestParam(required = false) Long groupId,
                         @RequestParam(required = false, defaultValue = "") String voicemailNumber,
                         @RequestParam(required = false) List<Long> operatorIds,
+                        @RequestParam(required = false, defaultValue = "false") boolean async,
                         @ParameterObject ExcelRequest excelRequest) {
                 StreamingResponseBody body = out ->
                         extensionGroupReportService.exportExcelExtensionGroupReport(startDate, endDate,
                                 groupId, voicemailNumber, operatorIds,
                                 out, excelRequest.toExcelGeneratorBuilder());
+                return export(excelRequest.fileName("extension_group_report"), excelRequest.mediaType(), async, body);
+        }
+
+        // ── jobs ──
+
+        @RequiresPermission(Permissions.REPORTS_EXPORT)
+        @GetMapping(value = "jobs/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+        public ReportJobDto getReportJob(@PathVariable("id") Long id) {
+                return modelConverter.map(reportJobService.get(id), ReportJobDto.class);
+        }
+
+        @RequiresPermission(Permissions.REPORTS_EXPORT)
+        @GetMapping(value = "jobs/{id}/download", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+        public ResponseEntity<StreamingResponseBody> downloadReportJob(@PathVariable("id") Long id) {
+                ReportJob job = reportJobService.getCompleted(id);
+                StreamingResponseBody body = out -> {
+                        try (InputStream in = reportJobService.openResult(job)) {
+                                in.transferTo(out);
+                        }
+                };
                 return ResponseEntity.ok()
-                                .header(HttpHeaders.CONTENT_DISPOSITION,
-                                                "attachment; filename=extension_group_report.xlsx")
-                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + job.getFileName())
+                                .contentType(MediaType.parseMediaType(job.getContentType()))
+                                .contentLength(job.getSize())
                                 .body(body);
         }
+
+        /**
+         * Streams the export, or with {@code async=true} hands it to a report job and
+         * answers 202 with the job status; the file is then fetched from {@code jobs/{id}/download}.
+         */
+        private ResponseEntity<StreamingResponseBody> export(String fileName, MediaType mediaType, boolean async,
+                        StreamingResponseBody body) {
+                if (!async) {
+                        return ResponseEntity.ok()
+                                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
+                                        .contentType(mediaType)
+                                        .body(body);
+                }
+                HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes())
+                                .getRequest();
+                ReportJob job = reportJobService.submit(request.getRequestURI(), request.getParameterMap(),
+                                fileName, mediaType.toString(), body);
+                ReportJobDto status = modelConverter.map(job, ReportJobDto.class);
+                return ResponseEntity.accepted()
+                                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                                                .path("/api/report/jobs/{id}").buildAndExpand(job.getId()).toUri())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .body(out -> out.write(objectMapper.writeValueAsBytes(status)));
+        }
 }
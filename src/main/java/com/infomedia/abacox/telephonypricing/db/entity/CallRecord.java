@@ -9,8 +9,16 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+/**
+ * Range-partitioned by month on service_date (see CallRecordPartitionService), so
+ * unique keys must include service_date. ctl_hash is a hash of the raw CDR line,
+ * which carries the service date, so (ctl_hash, service_date) is as strict as a
+ * unique ctl_hash.
+ */
 @Entity
-@Table(name = "call_record", indexes = {
+@Table(name = "call_record",
+        uniqueConstraints = @UniqueConstraint(name = "uk_call_record_ctl_hash", columnNames = {"ctl_hash", "service_date"}),
+        indexes = {
         // 1. Primary Date Range Filtering (Used in ALL reports)
         @Index(name = "idx_call_record_service_date", columnList = "service_date"),
 
@@ -159,6 +167,6 @@ public class CallRecord extends AuditedEntity {
     private Long fileInfoId;
 
     @ToString.Exclude
-    @Column(name = "ctl_hash", unique = true)
+    @Column(name = "ctl_hash")
     private UUID ctlHash;
 }
\ No newline at end of file
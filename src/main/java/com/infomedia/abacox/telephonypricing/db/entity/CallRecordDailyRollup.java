@@ -0,0 +1,74 @@
+package com.infomedia.abacox.telephonypricing.db.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Daily pre-aggregation of call_record, one row per
+ * day x employee x telephony type x operator x comm location x direction.
+ * Maintained incrementally by the CDR batch persister and rebuilt by the rollup
+ * backfill, so whole-day usage reports do not have to scan raw call records.
+ * <p>
+ * The key columns are NOT NULL so the unique constraint can be used for upserts;
+ * a null in call_record is stored as {@link #NONE}.
+ */
+@Entity
+@Table(name = "call_record_daily_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_call_record_daily_rollup_key",
+                columnNames = {"day", "employee_id", "telephony_type_id", "operator_id", "comm_location_id", "is_incoming"}),
+        indexes = {
+                @Index(name = "idx_call_record_daily_rollup_employee", columnList = "employee_id, day"),
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@SuperBuilder(toBuilder = true)
+public class CallRecordDailyRollup {
+
+    /**
+     * Stored in place of a null key column.
+     */
+    public static final long NONE = -1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "employee_id", nullable = false)
+    private Long employeeId;
+
+    @Column(name = "telephony_type_id", nullable = false)
+    private Long telephonyTypeId;
+
+    @Column(name = "operator_id", nullable = false)
+    private Long operatorId;
+
+    @Column(name = "comm_location_id", nullable = false)
+    private Long commLocationId;
+
+    @Column(name = "is_incoming", nullable = false)
+    private Boolean isIncoming;
+
+    @Column(name = "call_count", nullable = false)
+    @ColumnDefault("0")
+    private Long callCount;
+
+    @Column(name = "total_duration", nullable = false)
+    @ColumnDefault("0")
+    private Long totalDuration;
+
+    @Column(name = "total_billed_amount", nullable = false)
+    @ColumnDefault("0")
+    private BigDecimal totalBilledAmount;
+}
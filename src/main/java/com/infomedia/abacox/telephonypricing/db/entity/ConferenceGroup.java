@@ -0,0 +1,72 @@
+package com.infomedia.abacox.telephonypricing.db.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A conference detected among call records with a conference transfer cause:
+ * records sharing the transfer key and grouping identity whose calls overlap
+ * in time. Maintained incrementally by the CDR batch persister and rebuilt by
+ * the conference backfill, so the conference report is a paged query instead
+ * of a regrouping of every candidate in the range.
+ * <p>
+ * Members are in {@link ConferenceGroupMember}; the counters only include the
+ * members that are participants.
+ */
+@Entity
+@Table(name = "conference_group",
+        indexes = {
+                @Index(name = "idx_conference_group_open", columnList = "transfer_key, grouping_identity, last_active_time"),
+                @Index(name = "idx_conference_group_service_date", columnList = "conference_service_date"),
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@SuperBuilder(toBuilder = true)
+public class ConferenceGroup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "transfer_key", nullable = false, length = 50)
+    private String transferKey;
+
+    /**
+     * Dialed number for conferences set up with CONFERENCE_NOW, employee
+     * extension otherwise.
+     */
+    @Column(name = "grouping_identity", length = 50)
+    private String groupingIdentity;
+
+    @Column(name = "conference_service_date", nullable = false)
+    private LocalDateTime conferenceServiceDate;
+
+    /**
+     * End of the latest member call; a record starting after it opens a new group.
+     */
+    @Column(name = "last_active_time", nullable = false)
+    private LocalDateTime lastActiveTime;
+
+    @Column(name = "organizer_extension", length = 50)
+    private String organizerExtension;
+
+    @Column(name = "organizer_employee_id")
+    private Long organizerEmployeeId;
+
+    @Column(name = "participant_count", nullable = false)
+    @ColumnDefault("0")
+    private Long participantCount;
+
+    @Column(name = "total_billed", nullable = false)
+    @ColumnDefault("0")
+    private BigDecimal totalBilled;
+}
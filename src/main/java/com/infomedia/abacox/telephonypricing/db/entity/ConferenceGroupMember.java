@@ -0,0 +1,43 @@
+package com.infomedia.abacox.telephonypricing.db.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Assignment of a call record to its {@link ConferenceGroup}. The service date
+ * is kept so joins back to the partitioned call_record can be pruned.
+ */
+@Entity
+@Table(name = "conference_group_member",
+        indexes = {
+                @Index(name = "idx_conference_group_member_group", columnList = "conference_group_id"),
+                @Index(name = "idx_conference_group_member_service_date", columnList = "service_date"),
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@SuperBuilder(toBuilder = true)
+public class ConferenceGroupMember {
+
+    @Id
+    @Column(name = "call_record_id", nullable = false)
+    private Long callRecordId;
+
+    @Column(name = "conference_group_id", nullable = false)
+    private Long conferenceGroupId;
+
+    @Column(name = "service_date", nullable = false)
+    private LocalDateTime serviceDate;
+
+    /**
+     * False for the organizer's own leg of a CONFERENCE_NOW conference, which
+     * keeps the group open but is not listed or billed as a participant.
+     */
+    @Column(name = "participant", nullable = false)
+    private Boolean participant;
+}
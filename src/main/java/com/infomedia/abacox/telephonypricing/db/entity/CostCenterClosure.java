@@ -0,0 +1,51 @@
+package com.infomedia.abacox.telephonypricing.db.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Transitive closure of the cost_center hierarchy: one row per cost center and
+ * each of its ancestors, itself included at depth 0. Maintained by
+ * HierarchyClosureService so hierarchical reports join it instead of walking
+ * parent links recursively.
+ */
+@Entity
+@Table(name = "cost_center_closure",
+        uniqueConstraints = @UniqueConstraint(name = "uk_cost_center_closure_key",
+                columnNames = {"ancestor_id", "descendant_id"}),
+        indexes = {
+                @Index(name = "idx_cost_center_closure_descendant", columnList = "descendant_id, depth"),
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@SuperBuilder(toBuilder = true)
+public class CostCenterClosure {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "ancestor_id", nullable = false)
+    private Long ancestorId;
+
+    @Column(name = "descendant_id", nullable = false)
+    private Long descendantId;
+
+    /**
+     * Number of parent links between the two; 0 for the row of a cost center with itself.
+     */
+    @Column(name = "depth", nullable = false)
+    private Integer depth;
+
+    /**
+     * Labels from the ancestor down to the descendant, joined by " / "; a cost center
+     * is labelled by CONCAT(work_order, ' - ', name).
+     */
+    @Column(name = "path", nullable = false, columnDefinition = "TEXT")
+    private String path;
+}
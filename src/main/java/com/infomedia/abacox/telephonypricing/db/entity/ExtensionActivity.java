@@ -0,0 +1,64 @@
+package com.infomedia.abacox.telephonypricing.db.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Daily activity of every number seen on a call record as the employee
+ * extension, the dialed number or the transfer extension: one row per number
+ * and day. Maintained with the daily rollup, so "is this extension in use" and
+ * "when was it last used" are answered without scanning call_record.
+ * <p>
+ * Counts follow the unused extension report: an appearance as the dialed or
+ * transfer number counts as incoming, and located appearances are those of
+ * calls with a communication location.
+ */
+@Entity
+@Table(name = "extension_activity",
+        uniqueConstraints = @UniqueConstraint(name = "uk_extension_activity_key",
+                columnNames = {"extension", "day"}),
+        indexes = {
+                @Index(name = "idx_extension_activity_day", columnList = "day"),
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@SuperBuilder(toBuilder = true)
+public class ExtensionActivity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "extension", length = 50, nullable = false)
+    private String extension;
+
+    @Column(name = "day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "call_count", nullable = false)
+    @ColumnDefault("0")
+    private Long callCount;
+
+    @Column(name = "incoming_count", nullable = false)
+    @ColumnDefault("0")
+    private Long incomingCount;
+
+    @Column(name = "located_count", nullable = false)
+    @ColumnDefault("0")
+    private Long locatedCount;
+
+    @Column(name = "first_seen", nullable = false)
+    private LocalDateTime firstSeen;
+
+    @Column(name = "last_seen", nullable = false)
+    private LocalDateTime lastSeen;
+}
@@ -70,6 +70,13 @@ public class FileInfo {
     @Column(name = "storage_object_name", length = 100)
     private String storageObjectName;
 
+    /**
+     * Object name of the sidecar line index (hash -> block/offset, plus header line),
+     * stored in the same bucket. Null for files stored before block-gzip indexing.
+     */
+    @Column(name = "storage_index_object_name", length = 100)
+    private String storageIndexObjectName;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "processing_status", nullable = false, length = 20)
     private ProcessingStatus processingStatus = ProcessingStatus.PENDING;
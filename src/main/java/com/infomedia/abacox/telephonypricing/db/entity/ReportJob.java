@@ -0,0 +1,83 @@
+package com.infomedia.abacox.telephonypricing.db.entity;
+
+import com.infomedia.abacox.telephonypricing.db.entity.superclass.AuditedEntity;
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A report export run in the background. The result file is kept in the
+ * tenant's REPORTS bucket until {@code expiresAt}; requests with the same
+ * parameter hash reuse the job instead of running the export again.
+ */
+@Entity
+@Table(name = "report_job", indexes = {
+        @Index(name = "idx_report_job_parameter_hash", columnList = "parameter_hash"),
+        @Index(name = "idx_report_job_expires_at", columnList = "expires_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@SuperBuilder(toBuilder = true)
+public class ReportJob extends AuditedEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "report_job_id_seq")
+    @SequenceGenerator(name = "report_job_id_seq", sequenceName = "report_job_id_seq", allocationSize = 1, initialValue = 10000000)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    /**
+     * Path of the export endpoint that was requested.
+     */
+    @Column(name = "report", length = 255, nullable = false)
+    private String report;
+
+    /**
+     * Hash of the report path and its request parameters.
+     */
+    @Column(name = "parameter_hash", nullable = false)
+    private UUID parameterHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status;
+
+    @Column(name = "file_name", length = 255, nullable = false)
+    private String fileName;
+
+    @Column(name = "content_type", length = 100, nullable = false)
+    private String contentType;
+
+    @Column(name = "storage_bucket", length = 100)
+    private String storageBucket;
+
+    @Column(name = "storage_object_name", length = 100)
+    private String storageObjectName;
+
+    @Column(name = "size")
+    private Long size;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
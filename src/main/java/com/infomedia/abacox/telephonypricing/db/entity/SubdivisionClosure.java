@@ -0,0 +1,51 @@
+package com.infomedia.abacox.telephonypricing.db.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Transitive closure of the subdivision hierarchy: one row per subdivision and
+ * each of its ancestors, itself included at depth 0. Maintained by
+ * HierarchyClosureService so hierarchical reports join it instead of walking
+ * parent links recursively.
+ */
+@Entity
+@Table(name = "subdivision_closure",
+        uniqueConstraints = @UniqueConstraint(name = "uk_subdivision_closure_key",
+                columnNames = {"ancestor_id", "descendant_id"}),
+        indexes = {
+                @Index(name = "idx_subdivision_closure_descendant", columnList = "descendant_id, depth"),
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@SuperBuilder(toBuilder = true)
+public class SubdivisionClosure {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "ancestor_id", nullable = false)
+    private Long ancestorId;
+
+    @Column(name = "descendant_id", nullable = false)
+    private Long descendantId;
+
+    /**
+     * Number of parent links between the two; 0 for the row of a subdivision with itself.
+     */
+    @Column(name = "depth", nullable = false)
+    private Integer depth;
+
+    /**
+     * Labels from the ancestor down to the descendant, joined by " / "; a subdivision
+     * is labelled by its name.
+     */
+    @Column(name = "path", nullable = false, columnDefinition = "TEXT")
+    private String path;
+}
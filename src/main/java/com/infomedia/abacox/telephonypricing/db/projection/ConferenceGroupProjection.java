@@ -0,0 +1,26 @@
+package com.infomedia.abacox.telephonypricing.db.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public interface ConferenceGroupProjection {
+    Long getConferenceGroupId();
+
+    String getTransferKey();
+
+    LocalDateTime getConferenceServiceDate();
+
+    Long getParticipantCount();
+
+    BigDecimal getTotalBilled();
+
+    Long getOrganizerId();
+
+    String getOrganizerName();
+
+    String getOrganizerExtension();
+
+    Long getOrganizerSubdivisionId();
+
+    String getOrganizerSubdivisionName();
+}
@@ -0,0 +1,5 @@
+package com.infomedia.abacox.telephonypricing.db.projection;
+
+public interface ConferenceParticipantProjection extends ConferenceCandidateProjection {
+    Long getConferenceGroupId();
+}
@@ -0,0 +1,7 @@
+package com.infomedia.abacox.telephonypricing.db.projection;
+
+public interface ExtensionCallCount {
+    String getExtension();
+    Long getIncomingCallCount();
+    Long getOutgoingCallCount();
+}
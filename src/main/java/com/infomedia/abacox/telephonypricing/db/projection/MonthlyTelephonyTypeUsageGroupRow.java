@@ -0,0 +1,10 @@
+package com.infomedia.abacox.telephonypricing.db.projection;
+
+/**
+ * A row of the grouped monthly telephony type usage report: a month of the
+ * telephony type ranked {@link #getGroupRank()}, or that type's subtotal.
+ */
+public interface MonthlyTelephonyTypeUsageGroupRow extends MonthlyTelephonyTypeUsageReport {
+    Long getGroupRank();
+    Boolean getSubtotal();
+}
@@ -0,0 +1,10 @@
+package com.infomedia.abacox.telephonypricing.db.projection;
+
+/**
+ * A row of the grouped telephony type usage report: a telephony type of the
+ * category ranked {@link #getCategoryRank()}, or that category's subtotal.
+ */
+public interface TelephonyTypeUsageGroupRow extends TelephonyTypeUsageReport {
+    Long getCategoryRank();
+    Boolean getSubtotal();
+}
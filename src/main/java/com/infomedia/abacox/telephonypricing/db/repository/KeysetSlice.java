@@ -0,0 +1,31 @@
+package com.infomedia.abacox.telephonypricing.db.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Slice returned by keyset (seek) pagination. {@link #getNextCursor()} is sent
+ * back as the {@code cursor} request parameter to get the following slice
+ * without an OFFSET; it is null on the last slice.
+ */
+public class KeysetSlice<T> extends SliceImpl<T> {
+
+    private final String nextCursor;
+
+    public KeysetSlice(List<T> content, Pageable pageable, boolean hasNext, String nextCursor) {
+        super(content, pageable, hasNext);
+        this.nextCursor = nextCursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public <U> KeysetSlice<U> map(Function<? super T, ? extends U> converter) {
+        return new KeysetSlice<>(getConvertedContent(converter), getPageable(), hasNext(), nextCursor);
+    }
+}
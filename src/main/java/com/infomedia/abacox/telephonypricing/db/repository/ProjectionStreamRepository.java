@@ -0,0 +1,97 @@
+package com.infomedia.abacox.telephonypricing.db.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Streams scalar projections of an entity straight from a forward-only JDBC
+ * cursor. No entity is instantiated or attached to the persistence context, so
+ * memory stays bounded by the fetch size whatever the number of rows.
+ * <p>
+ * The PostgreSQL driver only uses a server-side cursor inside a transaction,
+ * so the stream must be consumed within one and closed afterwards.
+ */
+@Component
+public class ProjectionStreamRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.export.fetch-size:2000}")
+    private int fetchSize;
+
+    /**
+     * @param paths attribute paths to select, e.g. {@code "dial"} or
+     *              {@code "commLocation.directory"}; associations are left-joined
+     * @return one array per row, values in the order of {@code paths}
+     */
+    public <T> Stream<Object[]> stream(Class<T> domainClass, Specification<T> spec, Sort sort, List<String> paths) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<T> root = query.from(domainClass);
+        Map<String, Join<?, ?>> joins = new HashMap<>();
+
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String path : paths) {
+            selections.add(resolve(root, path, joins));
+        }
+        query.multiselect(selections);
+
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+
+        if (sort != null && sort.isSorted()) {
+            List<Order> orders = new ArrayList<>();
+            sort.forEach(order -> orders.add(order.isAscending()
+                    ? cb.asc(resolve(root, order.getProperty(), joins))
+                    : cb.desc(resolve(root, order.getProperty(), joins))));
+            query.orderBy(orders);
+        }
+
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private static Path<?> resolve(Root<?> root, String path, Map<String, Join<?, ?>> joins) {
+        String[] parts = path.split("\\.");
+        From<?, ?> from = root;
+        StringBuilder joinPath = new StringBuilder();
+        for (int i = 0; i < parts.length - 1; i++) {
+            String part = parts[i];
+            if (!joinPath.isEmpty()) {
+                joinPath.append('.');
+            }
+            joinPath.append(part);
+            From<?, ?> parent = from;
+            from = joins.computeIfAbsent(joinPath.toString(), key -> parent.join(part, JoinType.LEFT));
+        }
+        return from.get(parts[parts.length - 1]);
+    }
+}
@@ -0,0 +1,21 @@
+package com.infomedia.abacox.telephonypricing.db.repository;
+
+import com.infomedia.abacox.telephonypricing.db.entity.ReportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface ReportJobRepository extends JpaRepository<ReportJob, Long>, JpaSpecificationExecutor<ReportJob> {
+
+    Optional<ReportJob> findFirstByParameterHashAndStatusInOrderByIdDesc(UUID parameterHash,
+                                                                         Collection<ReportJob.Status> statuses);
+
+    List<ReportJob> findByStatusIn(Collection<ReportJob.Status> statuses);
+
+    List<ReportJob> findByExpiresAtBefore(LocalDateTime now);
+}
@@ -10,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface ReportRepository extends JpaRepository<VirtualEntity, Long> {
@@ -21,6 +22,23 @@ public interface ReportRepository extends JpaRepository<VirtualEntity, Long> {
                         @Param("extension") String extension,
                         @Param("employeeName") String employeeName);
 
+        @Query(value = ConferenceCallsReportQueries.CONFERENCE_GROUPS_QUERY, nativeQuery = true)
+        Slice<ConferenceGroupProjection> findConferenceGroups(
+                        @Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate,
+                        @Param("extension") String extension,
+                        @Param("employeeName") String employeeName,
+                        Pageable pageable);
+
+        @Query(value = ConferenceCallsReportQueries.CONFERENCE_PARTICIPANTS_QUERY, nativeQuery = true)
+        List<ConferenceParticipantProjection> findConferenceParticipants(
+                        @Param("groupIds") Collection<Long> groupIds);
+
+        @Query(value = EmployeeActivityReportQueries.EXTENSION_CALL_COUNTS, nativeQuery = true)
+        List<ExtensionCallCount> getExtensionCallCounts(
+                        @Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate);
+
         @Query(value = EmployeeActivityReportQueries.QUERY, nativeQuery = true)
         Slice<EmployeeActivityReport> getEmployeeActivityReport(
                         @Param("startDate") LocalDateTime startDate,
@@ -79,6 +97,14 @@ public interface ReportRepository extends JpaRepository<VirtualEntity, Long> {
                         @Param("extension") String extension,
                         Pageable pageable);
 
+        @Query(value = UnusedExtensionReportQueries.ACTIVITY_QUERY, nativeQuery = true)
+        Slice<UnusedExtensionReport> getUnusedExtensionReportFromActivity(
+                        @Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate,
+                        @Param("employeeName") String employeeName,
+                        @Param("extension") String extension,
+                        Pageable pageable);
+
         @Query(value = SubdivisionUsageReportQueries.QUERY, nativeQuery = true)
         Slice<SubdivisionUsageReport> getSubdivisionUsageReport(
                         @Param("startDate") LocalDateTime startDate,
@@ -86,6 +112,13 @@ public interface ReportRepository extends JpaRepository<VirtualEntity, Long> {
                         @Param("parentSubdivisionId") Long parentSubdivisionId,
                         Pageable pageable);
 
+        @Query(value = SubdivisionUsageReportQueries.ROLLUP_QUERY, nativeQuery = true)
+        Slice<SubdivisionUsageReport> getSubdivisionUsageReportFromRollup(
+                        @Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate,
+                        @Param("parentSubdivisionId") Long parentSubdivisionId,
+                        Pageable pageable);
+
         @Query(value = SubdivisionUsageByTypeReportQueries.QUERY, nativeQuery = true)
         Slice<SubdivisionUsageByTypeReport> getSubdivisionUsageByTypeReport(
                         @Param("startDate") LocalDateTime startDate,
@@ -105,12 +138,56 @@ public interface ReportRepository extends JpaRepository<VirtualEntity, Long> {
                         @Param("endDate") LocalDateTime endDate,
                         Pageable pageable);
 
+        @Query(value = TelephonyTypeUsageReportQueries.ROLLUP_QUERY, nativeQuery = true)
+        Slice<TelephonyTypeUsageReport> getTelephonyTypeUsageReportFromRollup(
+                        @Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate,
+                        Pageable pageable);
+
+        @Query(value = TelephonyTypeUsageReportQueries.GROUPED_QUERY, nativeQuery = true)
+        List<TelephonyTypeUsageGroupRow> getTelephonyTypeUsageGroups(
+                        @Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate,
+                        @Param("descending") boolean descending,
+                        @Param("groupOffset") long groupOffset,
+                        @Param("groupLimit") long groupLimit);
+
+        @Query(value = TelephonyTypeUsageReportQueries.GROUPED_ROLLUP_QUERY, nativeQuery = true)
+        List<TelephonyTypeUsageGroupRow> getTelephonyTypeUsageGroupsFromRollup(
+                        @Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate,
+                        @Param("descending") boolean descending,
+                        @Param("groupOffset") long groupOffset,
+                        @Param("groupLimit") long groupLimit);
+
         @Query(value = MonthlyTelephonyTypeUsageReportQueries.QUERY, nativeQuery = true)
         Slice<MonthlyTelephonyTypeUsageReport> getMonthlyTelephonyTypeUsageReport(
                         @Param("startDate") LocalDateTime startDate,
                         @Param("endDate") LocalDateTime endDate,
                         Pageable pageable);
 
+        @Query(value = MonthlyTelephonyTypeUsageReportQueries.ROLLUP_QUERY, nativeQuery = true)
+        Slice<MonthlyTelephonyTypeUsageReport> getMonthlyTelephonyTypeUsageReportFromRollup(
+                        @Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate,
+                        Pageable pageable);
+
+        @Query(value = MonthlyTelephonyTypeUsageReportQueries.GROUPED_QUERY, nativeQuery = true)
+        List<MonthlyTelephonyTypeUsageGroupRow> getMonthlyTelephonyTypeUsageGroups(
+                        @Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate,
+                        @Param("descending") boolean descending,
+                        @Param("groupOffset") long groupOffset,
+                        @Param("groupLimit") long groupLimit);
+
+        @Query(value = MonthlyTelephonyTypeUsageReportQueries.GROUPED_ROLLUP_QUERY, nativeQuery = true)
+        List<MonthlyTelephonyTypeUsageGroupRow> getMonthlyTelephonyTypeUsageGroupsFromRollup(
+                        @Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate,
+                        @Param("descending") boolean descending,
+                        @Param("groupOffset") long groupOffset,
+                        @Param("groupLimit") long groupLimit);
+
         @Query(value = CostCenterUsageReportQueries.QUERY, nativeQuery = true)
         Slice<CostCenterUsageReport> getCostCenterUsageReport(
                         @Param("startDate") LocalDateTime startDate,
@@ -118,6 +195,27 @@ public interface ReportRepository extends JpaRepository<VirtualEntity, Long> {
                         @Param("parentCostCenterId") Long parentCostCenterId,
                         Pageable pageable);
 
+        @Query(value = CostCenterUsageReportQueries.ROLLUP_QUERY, nativeQuery = true)
+        Slice<CostCenterUsageReport> getCostCenterUsageReportFromRollup(
+                        @Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate,
+                        @Param("parentCostCenterId") Long parentCostCenterId,
+                        Pageable pageable);
+
+        @Query(value = CostCenterUsageReportQueries.ASSIGNED_QUERY, nativeQuery = true)
+        Slice<CostCenterUsageReport> getAssignedCostCenterUsageReport(
+                        @Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate,
+                        @Param("parentCostCenterId") Long parentCostCenterId,
+                        Pageable pageable);
+
+        @Query(value = CostCenterUsageReportQueries.ASSIGNED_ROLLUP_QUERY, nativeQuery = true)
+        Slice<CostCenterUsageReport> getAssignedCostCenterUsageReportFromRollup(
+                        @Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate,
+                        @Param("parentCostCenterId") Long parentCostCenterId,
+                        Pageable pageable);
+
         @Query(value = EmployeeAuthCodeUsageReportQueries.QUERY, nativeQuery = true)
         Slice<EmployeeAuthCodeUsageReport> getEmployeeAuthCodeUsageReport(
                         @Param("startDate") LocalDateTime startDate,
@@ -1,57 +1,247 @@
 package com.infomedia.abacox.telephonypricing.db.repository;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.infomedia.abacox.telephonypricing.component.export.excel.PagedDataSupplier;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.validation.ValidationException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.function.Function;
 
 @Component
+@RequiredArgsConstructor
 public class SliceableRepository {
 
     @PersistenceContext
     private EntityManager entityManager;
+    private final ObjectMapper objectMapper;
 
     public <T> Slice<T> findAllAsSlice(Class<T> domainClass, Specification<T> spec, Pageable pageable) {
+        List<T> result = fetch(domainClass, spec, pageable.getSort(), null,
+                (int) pageable.getOffset(), pageable.getPageSize() + 1);
+
+        boolean hasNext = result.size() > pageable.getPageSize();
+        if (hasNext) {
+            result = result.subList(0, pageable.getPageSize());
+        }
+
+        return new SliceImpl<>(result, pageable, hasNext);
+    }
+
+    /**
+     * Keyset (seek) pagination on the requested sort plus the id as tie-breaker.
+     * Without a cursor the page number is honoured as usual; with the cursor of a
+     * previous slice the next rows are found by key instead of skipping an
+     * OFFSET, so late slices cost the same as the first one.
+     * <p>
+     * Sorts on anything but basic attributes fall back to offset paging, and the
+     * returned slice has no cursor.
+     */
+    public <T> KeysetSlice<T> findAllAsKeysetSlice(Class<T> domainClass, Specification<T> spec, Pageable pageable,
+                                                   String cursor) {
+        Sort keysetSort = keysetSort(domainClass, pageable.getSort());
+        if (keysetSort == null) {
+            Slice<T> slice = findAllAsSlice(domainClass, spec, pageable);
+            return new KeysetSlice<>(slice.getContent(), pageable, slice.hasNext(), null);
+        }
+
+        List<Object> after = cursor != null && !cursor.isBlank() ? decodeCursor(domainClass, keysetSort, cursor) : null;
+        List<T> result = fetch(domainClass, spec, keysetSort, after,
+                after != null ? 0 : (int) pageable.getOffset(), pageable.getPageSize() + 1);
+
+        boolean hasNext = result.size() > pageable.getPageSize();
+        if (hasNext) {
+            result = result.subList(0, pageable.getPageSize());
+        }
+        String nextCursor = hasNext ? encodeCursor(keyValues(result.get(result.size() - 1), keysetSort)) : null;
+
+        return new KeysetSlice<>(result, pageable, hasNext, nextCursor);
+    }
+
+    /**
+     * Page supplier for streaming exports that seeks from the last row of the
+     * previous page instead of using an OFFSET.
+     */
+    public <T, D> PagedDataSupplier<D> keysetPages(Class<T> domainClass, Specification<T> spec, Sort sort,
+                                                   Function<T, D> mapper) {
+        Sort keysetSort = keysetSort(domainClass, sort);
+        if (keysetSort == null) {
+            return (page, size) -> findAllAsSlice(domainClass, spec, PageRequest.of(page, size, sort))
+                    .map(mapper).getContent();
+        }
+
+        return new PagedDataSupplier<>() {
+            private int nextPage = 0;
+            private List<Object> after;
+
+            @Override
+            public List<D> getPage(int pageNumber, int pageSize) {
+                // The generator asks for pages in order; anything else is served by offset
+                boolean sequential = pageNumber == nextPage && (pageNumber == 0 || after != null);
+                List<T> rows = fetch(domainClass, spec, keysetSort, sequential ? after : null,
+                        sequential ? 0 : pageNumber * pageSize, pageSize);
+                after = rows.isEmpty() ? null : keyValues(rows.get(rows.size() - 1), keysetSort);
+                nextPage = pageNumber + 1;
+                return rows.stream().map(mapper).toList();
+            }
+        };
+    }
+
+    private <T> List<T> fetch(Class<T> domainClass, Specification<T> spec, Sort sort, List<Object> after,
+                              int offset, int limit) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<T> query = cb.createQuery(domainClass);
         Root<T> root = query.from(domainClass);
 
+        List<Predicate> predicates = new ArrayList<>();
         if (spec != null) {
             Predicate predicate = spec.toPredicate(root, query, cb);
             if (predicate != null) {
-                query.where(predicate);
+                predicates.add(predicate);
             }
         }
+        if (after != null) {
+            predicates.add(seekPredicate(cb, root, sort, after));
+        }
+        if (!predicates.isEmpty()) {
+            query.where(predicates.toArray(Predicate[]::new));
+        }
 
-        if (pageable.getSort().isSorted()) {
+        if (sort.isSorted()) {
             List<Order> orders = new ArrayList<>();
-            pageable.getSort().forEach(order -> orders.add(order.isAscending()
+            sort.forEach(order -> orders.add(order.isAscending()
                     ? cb.asc(root.get(order.getProperty()))
                     : cb.desc(root.get(order.getProperty()))));
             query.orderBy(orders);
         }
 
-        List<T> result = entityManager.createQuery(query)
-                .setFirstResult((int) pageable.getOffset())
-                .setMaxResults(pageable.getPageSize() + 1)
+        return entityManager.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
                 .getResultList();
+    }
 
-        boolean hasNext = result.size() > pageable.getPageSize();
-        if (hasNext) {
-            result = result.subList(0, pageable.getPageSize());
+    /**
+     * Rows strictly after {@code after} in the given order:
+     * (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ...
+     * Nulls follow PostgreSQL's default placement (last when ascending, first
+     * when descending), which is the order the query itself produces.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <T> Predicate seekPredicate(CriteriaBuilder cb, Root<T> root, Sort sort, List<Object> after) {
+        List<Sort.Order> orders = sort.toList();
+        List<Predicate> alternatives = new ArrayList<>();
+        List<Predicate> equalPrefix = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            Sort.Order order = orders.get(i);
+            Path<Comparable> path = root.get(order.getProperty());
+            Comparable value = (Comparable) after.get(i);
+
+            Predicate beyond;
+            if (order.isAscending()) {
+                beyond = value == null ? cb.disjunction() : cb.or(cb.greaterThan(path, value), cb.isNull(path));
+            } else {
+                beyond = value == null ? cb.isNotNull(path) : cb.lessThan(path, value);
+            }
+            List<Predicate> alternative = new ArrayList<>(equalPrefix);
+            alternative.add(beyond);
+            alternatives.add(cb.and(alternative.toArray(Predicate[]::new)));
+
+            equalPrefix.add(value == null ? cb.isNull(path) : cb.equal((Expression<?>) path, value));
         }
+        return cb.or(alternatives.toArray(Predicate[]::new));
+    }
 
-        return new SliceImpl<>(result, pageable, hasNext);
+    /**
+     * The sort with the id appended as a unique tie-breaker, or null when the
+     * entity or sort does not allow keyset paging.
+     */
+    private <T> Sort keysetSort(Class<T> domainClass, Sort sort) {
+        EntityType<T> entityType = entityManager.getMetamodel().entity(domainClass);
+        if (!entityType.hasSingleIdAttribute()) return null;
+        for (Sort.Order order : sort) {
+            Attribute<? super T, ?> attribute;
+            try {
+                attribute = entityType.getAttribute(order.getProperty());
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC
+                    || !Comparable.class.isAssignableFrom(wrap(attribute.getJavaType()))) {
+                return null;
+            }
+        }
+        String idName = entityType.getId(entityType.getIdType().getJavaType()).getName();
+        return sort.getOrderFor(idName) != null ? sort : sort.and(Sort.by(idName));
+    }
+
+    private static List<Object> keyValues(Object row, Sort sort) {
+        BeanWrapperImpl wrapper = new BeanWrapperImpl(row);
+        List<Object> values = new ArrayList<>();
+        sort.forEach(order -> values.add(wrapper.getPropertyValue(order.getProperty())));
+        return values;
+    }
+
+    private String encodeCursor(List<Object> values) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(values));
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not encode pagination cursor", e);
+        }
+    }
+
+    private <T> List<Object> decodeCursor(Class<T> domainClass, Sort sort, String cursor) {
+        EntityType<T> entityType = entityManager.getMetamodel().entity(domainClass);
+        try {
+            JsonNode nodes = objectMapper.readTree(Base64.getUrlDecoder().decode(cursor));
+            List<Sort.Order> orders = sort.toList();
+            if (!nodes.isArray() || nodes.size() != orders.size()) {
+                throw new ValidationException("Pagination cursor does not match the requested sort");
+            }
+            List<Object> values = new ArrayList<>();
+            for (int i = 0; i < orders.size(); i++) {
+                Class<?> type = entityType.getAttribute(orders.get(i).getProperty()).getJavaType();
+                values.add(nodes.get(i).isNull() ? null : objectMapper.convertValue(nodes.get(i), wrap(type)));
+            }
+            return values;
+        } catch (ValidationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ValidationException("Invalid pagination cursor");
+        }
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) return type;
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == boolean.class) return Boolean.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        return Character.class;
     }
 }
@@ -4,8 +4,7 @@ public final class ConferenceCallsReportQueries {
   private ConferenceCallsReportQueries() {
   }
 
-  public static final String CONFERENCE_CANDIDATES_QUERY = """
-      SELECT
+  private static final String CANDIDATE_COLUMNS = """
           cr.id AS callRecordId,
           cr.service_date AS serviceDate,
           cr.employee_extension AS employeeExtension,
@@ -31,7 +30,9 @@ public final class ConferenceCallsReportQueries {
           org.subdivision_id AS organizerSubdivisionId,
           s_org.name AS organizerSubdivisionName,
           cr.transfer_cause AS transferCause
-      FROM call_record cr
+      """;
+
+  private static final String CANDIDATE_JOINS = """
       INNER JOIN employee e ON e.id = cr.employee_id
       INNER JOIN telephony_type tt ON tt.id = cr.telephony_type_id
       LEFT JOIN subdivision s ON s.id = e.subdivision_id
@@ -46,6 +47,10 @@ public final class ConferenceCallsReportQueries {
           LIMIT 1
       ) org ON true
       LEFT JOIN subdivision s_org ON s_org.id = org.subdivision_id
+      """;
+
+  public static final String CONFERENCE_CANDIDATES_QUERY = "SELECT\n" + CANDIDATE_COLUMNS
+      + "FROM call_record cr\n" + CANDIDATE_JOINS + """
       WHERE cr.transfer_cause IN (10, 3)
         AND cr.employee_transfer IS NOT NULL AND cr.employee_transfer != ''
         AND cr.service_date BETWEEN :startDate AND :endDate
@@ -53,4 +58,50 @@ public final class ConferenceCallsReportQueries {
         AND (:employeeName IS NULL OR e.name ILIKE CONCAT('%', :employeeName, '%') OR org.name ILIKE CONCAT('%', :employeeName, '%'))
       ORDER BY cr.employee_transfer, cr.service_date, cr.transfer_cause
       """;
+
+  /**
+   * Conferences maintained by ConferenceGroupService. A conference matches the
+   * filters when its organizer or any of its legs does.
+   */
+  public static final String CONFERENCE_GROUPS_QUERY = """
+      SELECT
+          g.id AS conferenceGroupId,
+          g.transfer_key AS transferKey,
+          g.conference_service_date AS conferenceServiceDate,
+          g.participant_count AS participantCount,
+          g.total_billed AS totalBilled,
+          g.organizer_employee_id AS organizerId,
+          org.name AS organizerName,
+          g.organizer_extension AS organizerExtension,
+          org.subdivision_id AS organizerSubdivisionId,
+          s_org.name AS organizerSubdivisionName
+      FROM conference_group g
+      LEFT JOIN employee org ON org.id = g.organizer_employee_id
+      LEFT JOIN subdivision s_org ON s_org.id = org.subdivision_id
+      WHERE g.participant_count > 1
+        AND g.conference_service_date BETWEEN :startDate AND :endDate
+        AND (:extension IS NULL OR g.organizer_extension = :extension OR EXISTS (
+            SELECT 1
+            FROM conference_group_member m
+            JOIN call_record cr ON cr.id = m.call_record_id AND cr.service_date = m.service_date
+            WHERE m.conference_group_id = g.id
+              AND (cr.employee_extension = :extension OR cr.dial = :extension)))
+        AND (:employeeName IS NULL OR org.name ILIKE CONCAT('%', :employeeName, '%') OR EXISTS (
+            SELECT 1
+            FROM conference_group_member m
+            JOIN call_record cr ON cr.id = m.call_record_id AND cr.service_date = m.service_date
+            JOIN employee e ON e.id = cr.employee_id
+            WHERE m.conference_group_id = g.id
+              AND e.name ILIKE CONCAT('%', :employeeName, '%')))
+      """;
+
+  public static final String CONFERENCE_PARTICIPANTS_QUERY = "SELECT\n" + CANDIDATE_COLUMNS
+      + ", m.conference_group_id AS conferenceGroupId\n"
+      + "FROM conference_group_member m\n"
+      + "JOIN call_record cr ON cr.id = m.call_record_id AND cr.service_date = m.service_date\n"
+      + CANDIDATE_JOINS + """
+      WHERE m.conference_group_id IN (:groupIds)
+        AND m.participant = true
+      ORDER BY m.conference_group_id, cr.service_date, cr.transfer_cause
+      """;
 }
@@ -4,33 +4,26 @@ public final class CostCenterUsageReportQueries {
     private CostCenterUsageReportQueries() {
     } // Private constructor to prevent instantiation
 
-    public static final String QUERY = """
-            WITH RECURSIVE cost_center_tree AS (
+    private static final String COST_CENTER_TREE = """
+            -- Every cost center under each displayed one (a child of the parent, or a root)
+            WITH cost_center_tree AS (
                 SELECT
-                    cc.id,
+                    ccc.descendant_id AS id,
                     cc.id AS display_cost_center_id,
                     cc.name AS display_cost_center_name,
                     cc.work_order AS display_work_order,
                     cc.origin_country_id AS display_origin_country_id
                 FROM
                     cost_center cc
+                INNER JOIN
+                    cost_center_closure ccc ON ccc.ancestor_id = cc.id
                 WHERE
                     ((:#{#parentCostCenterId == null ? 1 : 0} = 1 AND cc.parent_cost_center_id IS NULL)
                     OR cc.parent_cost_center_id = :parentCostCenterId)
-            
-                UNION ALL
-            
-                SELECT
-                    cc.id,
-                    ct.display_cost_center_id,
-                    ct.display_cost_center_name,
-                    ct.display_work_order,
-                    ct.display_origin_country_id
-                FROM
-                    cost_center cc
-                INNER JOIN
-                    cost_center_tree ct ON cc.parent_cost_center_id = ct.id
             ),
+            """;
+
+    private static final String CALL_RECORD_AGGREGATES = """
             -- OPTIMIZATION 1: Pre-aggregate millions of calls into a tiny dataset by cost center
             employee_calls_agg AS (
                 SELECT
@@ -49,6 +42,68 @@ public final class CostCenterUsageReportQueries {
                 GROUP BY
                     e.cost_center_id
             ),
+            unrelated_data AS (
+                SELECT
+                    -1::bigint AS costCenterId,
+                    -1::bigint AS originCountryId,
+                    'Unassigned Information' AS costCenterName,
+                    COALESCE(COUNT(cr.id) FILTER (WHERE cr.is_incoming = true), 0) AS incomingCallCount,
+                    COALESCE(COUNT(cr.id) FILTER (WHERE cr.is_incoming = false), 0) AS outgoingCallCount,
+                    COALESCE(SUM(cr.duration), 0) AS totalDuration,
+                    COALESCE(SUM(cr.billed_amount), 0.0) AS totalBilledAmount
+                FROM
+                    call_record cr
+                WHERE
+                    :#{#parentCostCenterId == null ? 1 : 0} = 1
+                AND (cr.service_date BETWEEN :startDate AND :endDate)
+                AND (
+                    cr.employee_id IS NULL
+                    OR (cr.is_incoming = false AND (cr.telephony_type_id IS NULL OR cr.operator_id IS NULL))
+                )
+            ),
+            """;
+
+    // Null keys are stored as -1 in call_record_daily_rollup
+    private static final String ROLLUP_AGGREGATES = """
+            employee_calls_agg AS (
+                SELECT
+                    e.cost_center_id,
+                    CAST(COALESCE(SUM(r.call_count) FILTER (WHERE r.is_incoming = true), 0) AS bigint) AS incomingCallCount,
+                    CAST(COALESCE(SUM(r.call_count) FILTER (WHERE r.is_incoming = false), 0) AS bigint) AS outgoingCallCount,
+                    CAST(COALESCE(SUM(r.total_duration), 0) AS bigint) AS totalDuration,
+                    COALESCE(SUM(r.total_billed_amount), 0.0) AS totalBilledAmount
+                FROM
+                    call_record_daily_rollup r
+                INNER JOIN
+                    employee e ON r.employee_id = e.id
+                WHERE
+                    (r.day BETWEEN CAST(:startDate AS date) AND CAST(:endDate AS date))
+                AND (r.is_incoming = true OR (r.is_incoming = false AND r.operator_id > 0))
+                GROUP BY
+                    e.cost_center_id
+            ),
+            unrelated_data AS (
+                SELECT
+                    -1::bigint AS costCenterId,
+                    -1::bigint AS originCountryId,
+                    'Unassigned Information' AS costCenterName,
+                    CAST(COALESCE(SUM(r.call_count) FILTER (WHERE r.is_incoming = true), 0) AS bigint) AS incomingCallCount,
+                    CAST(COALESCE(SUM(r.call_count) FILTER (WHERE r.is_incoming = false), 0) AS bigint) AS outgoingCallCount,
+                    CAST(COALESCE(SUM(r.total_duration), 0) AS bigint) AS totalDuration,
+                    COALESCE(SUM(r.total_billed_amount), 0.0) AS totalBilledAmount
+                FROM
+                    call_record_daily_rollup r
+                WHERE
+                    :#{#parentCostCenterId == null ? 1 : 0} = 1
+                AND (r.day BETWEEN CAST(:startDate AS date) AND CAST(:endDate AS date))
+                AND (
+                    r.employee_id = -1
+                    OR (r.is_incoming = false AND (r.telephony_type_id = -1 OR r.operator_id = -1))
+                )
+            ),
+            """;
+
+    private static final String REPORT = """
             tree_data AS (
                 SELECT
                     ct.display_cost_center_id AS costCenterId,
@@ -82,25 +137,6 @@ public final class CostCenterUsageReportQueries {
                     :#{#parentCostCenterId == null ? 1 : 0} = 1
                 AND eca.cost_center_id IS NULL
             ),
-            unrelated_data AS (
-                SELECT
-                    -1::bigint AS costCenterId,
-                    -1::bigint AS originCountryId,
-                    'Unassigned Information' AS costCenterName,
-                    COALESCE(COUNT(cr.id) FILTER (WHERE cr.is_incoming = true), 0) AS incomingCallCount,
-                    COALESCE(COUNT(cr.id) FILTER (WHERE cr.is_incoming = false), 0) AS outgoingCallCount,
-                    COALESCE(SUM(cr.duration), 0) AS totalDuration,
-                    COALESCE(SUM(cr.billed_amount), 0.0) AS totalBilledAmount
-                FROM
-                    call_record cr
-                WHERE
-                    :#{#parentCostCenterId == null ? 1 : 0} = 1
-                AND (cr.service_date BETWEEN :startDate AND :endDate)
-                AND (
-                    cr.employee_id IS NULL
-                    OR (cr.is_incoming = false AND (cr.telephony_type_id IS NULL OR cr.operator_id IS NULL))
-                )
-            ),
             combined AS (
                 SELECT
                     costCenterId,
@@ -129,30 +165,70 @@ public final class CostCenterUsageReportQueries {
                     costCenterId, originCountryId, costCenterName, 
                     incomingCallCount, outgoingCallCount, totalDuration, totalBilledAmount 
                 FROM unrelated_data WHERE (incomingCallCount + outgoingCallCount) > 0
+            ),
+            report_rows AS (
+                SELECT
+                    c.costCenterId,
+                    c.originCountryId,
+                    c.costCenterName,
+                    c.incomingCallCount,
+                    c.outgoingCallCount,
+                    c.totalDuration,
+                    c.totalBilledAmount,
+                    CASE
+                        WHEN SUM(c.totalDuration) OVER () = 0 THEN 0
+                        ELSE ROUND((c.totalDuration * 100.0 / SUM(c.totalDuration) OVER ()), 2)
+                    END AS durationPercentage,
+                    CASE
+                        WHEN SUM(c.totalBilledAmount) OVER () = 0 THEN 0
+                        ELSE ROUND((c.totalBilledAmount * 100.0 / SUM(c.totalBilledAmount) OVER ()), 2)
+                    END AS billedAmountPercentage
+                FROM
+                    combined c
             )
+            """;
+
+    private static final String REPORT_SELECT = """
             SELECT
-                c.costCenterId,
-                c.originCountryId AS originCountryId,
-                c.costCenterName,
-                c.incomingCallCount,
-                c.outgoingCallCount,
-                c.totalDuration,
-                c.totalBilledAmount,
-                CASE
-                    WHEN SUM(c.totalDuration) OVER () = 0 THEN 0
-                    ELSE ROUND((c.totalDuration * 100.0 / SUM(c.totalDuration) OVER ()), 2)
-                END AS durationPercentage,
-                CASE
-                    WHEN SUM(c.totalBilledAmount) OVER () = 0 THEN 0
-                    ELSE ROUND((c.totalBilledAmount * 100.0 / SUM(c.totalBilledAmount) OVER ()), 2)
-                END AS billedAmountPercentage
+                rr.costCenterId AS costCenterId,
+                rr.originCountryId AS originCountryId,
+                rr.costCenterName AS costCenterName,
+                rr.incomingCallCount AS incomingCallCount,
+                rr.outgoingCallCount AS outgoingCallCount,
+                rr.totalDuration AS totalDuration,
+                rr.totalBilledAmount AS totalBilledAmount,
+                rr.durationPercentage AS durationPercentage,
+                rr.billedAmountPercentage AS billedAmountPercentage
             FROM
-                combined c
+                report_rows rr
+            """;
+
+    private static final String ALL_ROWS = REPORT_SELECT + """
             ORDER BY
-                CASE WHEN c.costCenterId = -1 THEN 2
-                     WHEN c.costCenterId = 0 THEN 1
+                CASE WHEN rr.costCenterId = -1 THEN 2
+                     WHEN rr.costCenterId = 0 THEN 1
                      ELSE 0 END,
-                c.totalBilledAmount DESC,
-                c.costCenterName ASC
+                rr.totalBilledAmount DESC,
+                rr.costCenterName ASC
+            """;
+
+    // Percentages still include the unassigned row; sorting and paging come from the Pageable
+    private static final String ASSIGNED_ROWS = REPORT_SELECT + """
+            WHERE
+                rr.costCenterId <> -1
             """;
-}
\ No newline at end of file
+
+    public static final String QUERY = COST_CENTER_TREE + CALL_RECORD_AGGREGATES + REPORT + ALL_ROWS;
+
+    /**
+     * Same report read from call_record_daily_rollup, for ranges made of whole days.
+     */
+    public static final String ROLLUP_QUERY = COST_CENTER_TREE + ROLLUP_AGGREGATES + REPORT + ALL_ROWS;
+
+    /**
+     * The report without the synthetic unassigned row (costCenterId -1), paged in SQL.
+     */
+    public static final String ASSIGNED_QUERY = COST_CENTER_TREE + CALL_RECORD_AGGREGATES + REPORT + ASSIGNED_ROWS;
+
+    public static final String ASSIGNED_ROLLUP_QUERY = COST_CENTER_TREE + ROLLUP_AGGREGATES + REPORT + ASSIGNED_ROWS;
+}
@@ -5,14 +5,11 @@ public final class EmployeeActivityReportQueries {
     } // Private constructor to prevent instantiation
 
     public static final String QUERY = """
-            WITH RECURSIVE top_cost_centers AS (
-                SELECT id, work_order AS top_work_order
-                FROM cost_center
-                WHERE parent_cost_center_id IS NULL
-                UNION ALL
-                SELECT cc_child.id, tcc.top_work_order
-                FROM cost_center cc_child
-                JOIN top_cost_centers tcc ON cc_child.parent_cost_center_id = tcc.id
+            WITH top_cost_centers AS (
+                SELECT ccc.descendant_id AS id, root.work_order AS top_work_order
+                FROM cost_center root
+                JOIN cost_center_closure ccc ON ccc.ancestor_id = root.id
+                WHERE root.parent_cost_center_id IS NULL
             ),
             call_aggregates_in_range AS (
                 SELECT
@@ -112,4 +109,18 @@ public final class EmployeeActivityReportQueries {
             AND
                 (:costCenterId IS NULL OR f.cost_center_id = :costCenterId)
             """;
-}
\ No newline at end of file
+
+    /**
+     * The range-dependent part of the activity report: call counts of each
+     * extension with calls in the range, without the employee roster.
+     */
+    public static final String EXTENSION_CALL_COUNTS = """
+            SELECT
+                cr.employee_extension AS extension,
+                COUNT(*) FILTER (WHERE cr.is_incoming) AS incomingCallCount,
+                COUNT(*) FILTER (WHERE NOT cr.is_incoming) AS outgoingCallCount
+            FROM call_record cr
+            WHERE cr.service_date BETWEEN :startDate AND :endDate
+            GROUP BY cr.employee_extension
+            """;
+}
@@ -5,26 +5,17 @@ public final class MonthlySubdivisionUsageReportQueries {
     } // Private constructor to prevent instantiation
 
     public static final String QUERY = """
-            WITH RECURSIVE subdivision_hierarchy AS (
-                -- Anchor: start from requested subdivisions OR roots if none provided
+            WITH subdivision_hierarchy AS (
+                -- Anchors are the requested subdivisions OR roots if none provided, each with all its descendants
                 SELECT
-                    s.id,
+                    sc.descendant_id AS id,
                     s.id AS anchor_id,
                     s.name AS anchor_name
                 FROM subdivision s
+                INNER JOIN subdivision_closure sc ON sc.ancestor_id = s.id
                 WHERE
                     (:#{#subdivisionIds == null || #subdivisionIds.isEmpty() ? 1 : 0} = 1 AND s.parent_subdivision_id IS NULL)
                     OR s.id IN (:subdivisionIds)
-
-                UNION ALL
-
-                -- Recursive: follow parent-child links
-                SELECT
-                    s.id,
-                    sh.anchor_id,
-                    sh.anchor_name
-                FROM subdivision s
-                INNER JOIN subdivision_hierarchy sh ON s.parent_subdivision_id = sh.id
             ),
             employee_counts AS (
                 SELECT
@@ -4,11 +4,12 @@ public final class MonthlyTelephonyTypeUsageReportQueries {
     private MonthlyTelephonyTypeUsageReportQueries() {
     } // Private constructor to prevent instantiation
 
-    public static final String QUERY = """
+    private static final String CALL_RECORD_AGGREGATES = """
             WITH report_data AS (
                 SELECT
                     EXTRACT(YEAR FROM cr.service_date)::integer AS year,
                     EXTRACT(MONTH FROM cr.service_date)::integer AS month,
+                    tt.id AS telephonyTypeId,
                     tt.name AS telephonyTypeName,
                     COALESCE(COUNT(cr.id) FILTER (WHERE cr.is_incoming = true), 0) AS incomingCallCount,
                     COALESCE(COUNT(cr.id) FILTER (WHERE cr.is_incoming = false), 0) AS outgoingCallCount,
@@ -29,6 +30,38 @@ public final class MonthlyTelephonyTypeUsageReportQueries {
                 GROUP BY
                     tt.id, tt.name, year, month
             )
+            """;
+
+    // Null keys are stored as -1 in call_record_daily_rollup, so the joins drop them as before
+    private static final String ROLLUP_AGGREGATES = """
+            WITH report_data AS (
+                SELECT
+                    EXTRACT(YEAR FROM r.day)::integer AS year,
+                    EXTRACT(MONTH FROM r.day)::integer AS month,
+                    tt.id AS telephonyTypeId,
+                    tt.name AS telephonyTypeName,
+                    CAST(COALESCE(SUM(r.call_count) FILTER (WHERE r.is_incoming = true), 0) AS bigint) AS incomingCallCount,
+                    CAST(COALESCE(SUM(r.call_count) FILTER (WHERE r.is_incoming = false), 0) AS bigint) AS outgoingCallCount,
+                    CAST(COALESCE(SUM(r.total_duration), 0) AS bigint) AS totalDuration,
+                    COALESCE(SUM(r.total_billed_amount), 0) AS totalBilledAmount
+                FROM
+                    call_record_daily_rollup r
+                JOIN
+                    telephony_type tt ON r.telephony_type_id = tt.id
+                JOIN
+                    employee e ON r.employee_id = e.id
+                JOIN
+                    communication_location cl ON r.comm_location_id = cl.id
+                WHERE
+                    (r.day BETWEEN CAST(:startDate AS date) AND CAST(:endDate AS date))
+                AND
+                    (r.is_incoming = true OR (r.is_incoming = false AND r.operator_id > 0))
+                GROUP BY
+                    tt.id, tt.name, year, month
+            )
+            """;
+
+    private static final String REPORT = """
             SELECT
                 rd.year,
                 rd.month,
@@ -48,4 +81,77 @@ public final class MonthlyTelephonyTypeUsageReportQueries {
             FROM
                 report_data rd
             """;
-}
+
+    // Percentages are taken over every row before a page of telephony types is cut
+    private static final String GROUPED_REPORT = """
+            , report_rows AS (
+                SELECT
+                    rd.year,
+                    rd.month,
+                    rd.telephonyTypeId,
+                    rd.telephonyTypeName,
+                    rd.incomingCallCount,
+                    rd.outgoingCallCount,
+                    rd.totalDuration,
+                    rd.totalBilledAmount,
+                    CASE
+                        WHEN SUM(rd.totalDuration) OVER () = 0 THEN 0
+                        ELSE ROUND((rd.totalDuration * 100.0 / SUM(rd.totalDuration) OVER ()), 2)
+                    END AS durationPercentage,
+                    CASE
+                        WHEN SUM(rd.totalBilledAmount) OVER () = 0 THEN 0
+                        ELSE ROUND((rd.totalBilledAmount * 100.0 / SUM(rd.totalBilledAmount) OVER ()), 2)
+                    END AS billedAmountPercentage
+                FROM
+                    report_data rd
+            ),
+            type_page AS (
+                SELECT ranked.telephonyTypeName, ranked.groupRank
+                FROM (
+                    SELECT
+                        t.telephonyTypeName,
+                        ROW_NUMBER() OVER (ORDER BY CASE WHEN :descending THEN t.telephonyTypeName END DESC, t.telephonyTypeName) AS groupRank
+                    FROM (SELECT DISTINCT rr.telephonyTypeName FROM report_rows rr) t
+                ) ranked
+                WHERE ranked.groupRank > :groupOffset
+                  AND (:groupLimit < 0 OR ranked.groupRank <= :groupOffset + :groupLimit)
+            )
+            SELECT
+                tp.groupRank,
+                GROUPING(rr.telephonyTypeId) = 1 AS subtotal,
+                rr.year,
+                rr.month,
+                tp.telephonyTypeName,
+                CAST(SUM(rr.incomingCallCount) AS bigint) AS incomingCallCount,
+                CAST(SUM(rr.outgoingCallCount) AS bigint) AS outgoingCallCount,
+                CAST(SUM(rr.totalDuration) AS bigint) AS totalDuration,
+                SUM(rr.totalBilledAmount) AS totalBilledAmount,
+                SUM(rr.durationPercentage) AS durationPercentage,
+                SUM(rr.billedAmountPercentage) AS billedAmountPercentage
+            FROM
+                report_rows rr
+            INNER JOIN
+                type_page tp ON tp.telephonyTypeName = rr.telephonyTypeName
+            GROUP BY GROUPING SETS (
+                (tp.groupRank, tp.telephonyTypeName, rr.telephonyTypeId, rr.year, rr.month),
+                (tp.groupRank, tp.telephonyTypeName)
+            )
+            ORDER BY
+                tp.groupRank, GROUPING(rr.telephonyTypeId), rr.year, rr.month, rr.telephonyTypeId
+            """;
+
+    public static final String QUERY = CALL_RECORD_AGGREGATES + REPORT;
+
+    /**
+     * Same report read from call_record_daily_rollup, for ranges made of whole days.
+     */
+    public static final String ROLLUP_QUERY = ROLLUP_AGGREGATES + REPORT;
+
+    /**
+     * One page of telephony types (by name), each with its monthly rows and a
+     * subtotal row. {@code :groupLimit} below zero returns every telephony type.
+     */
+    public static final String GROUPED_QUERY = CALL_RECORD_AGGREGATES + GROUPED_REPORT;
+
+    public static final String GROUPED_ROLLUP_QUERY = ROLLUP_AGGREGATES + GROUPED_REPORT;
+}
\ No newline at end of file
@@ -5,7 +5,7 @@ public final class SubdivisionUsageByTypeReportQueries {
 
     /**
      * Matches the original PHP "Consolidado por Área" report logic:
-     * 1. Uses a recursive CTE to build the subdivision tree (same as SubdivisionUsageReportQueries)
+     * 1. Builds the subdivision tree from subdivision_closure (same as SubdivisionUsageReportQueries)
      * 2. Groups all descendant call data under the direct child subdivision (display_subdivision)
      * 3. Excludes subdivisions with 0 employees (matching PHP's tree filtering)
      * 4. Excludes rows with zero billed amount (matching PHP's "if($rs["FACTURADO"] > 0)")
@@ -13,24 +13,16 @@ public final class SubdivisionUsageByTypeReportQueries {
      */
     public static final String QUERY = """
             SELECT * FROM (
-            WITH RECURSIVE subdivision_descendants AS (
+            WITH subdivision_descendants AS (
                 SELECT
-                    s.id,
+                    sc.descendant_id AS id,
                     s.id AS display_subdivision_id,
                     s.name AS display_subdivision_name
                 FROM subdivision s
+                INNER JOIN subdivision_closure sc ON sc.ancestor_id = s.id
                 WHERE
                     (:#{#parentSubdivisionId == null ? 1 : 0} = 1 AND s.parent_subdivision_id IS NULL)
                     OR s.id = :parentSubdivisionId
-
-                UNION ALL
-
-                SELECT
-                    s.id,
-                    sd.display_subdivision_id,
-                    sd.display_subdivision_name
-                FROM subdivision s
-                INNER JOIN subdivision_descendants sd ON s.parent_subdivision_id = sd.id
             ),
             employee_counts AS (
                 SELECT
@@ -74,20 +66,12 @@ public final class SubdivisionUsageByTypeReportQueries {
      * Follows the same pattern as EmployeeCallReportQueries.BREAKDOWN_QUERY.
      */
     public static final String BREAKDOWN_QUERY = """
-            WITH RECURSIVE subdivision_descendants AS (
+            WITH subdivision_descendants AS (
                 SELECT
-                    s.id,
-                    s.id AS display_subdivision_id
-                FROM subdivision s
-                WHERE s.id IN (:subdivisionIds)
-
-                UNION ALL
-
-                SELECT
-                    s.id,
-                    sd.display_subdivision_id
-                FROM subdivision s
-                INNER JOIN subdivision_descendants sd ON s.parent_subdivision_id = sd.id
+                    sc.descendant_id AS id,
+                    sc.ancestor_id AS display_subdivision_id
+                FROM subdivision_closure sc
+                WHERE sc.ancestor_id IN (:subdivisionIds)
             )
             SELECT
                 sd.display_subdivision_id AS subdivisionId,
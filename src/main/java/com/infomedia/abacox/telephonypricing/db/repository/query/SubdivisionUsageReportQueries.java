@@ -5,39 +5,18 @@ public final class SubdivisionUsageReportQueries {
     private SubdivisionUsageReportQueries() {
     } // Private constructor to prevent instantiation
 
-    /**
-     * Matches the original PHP "Consumo por Área" report logic:
-     * 1. Uses a recursive CTE to build the subdivision tree (children + all
-     * descendants)
-     * 2. Groups all descendant data under the direct child subdivision
-     * 3. Applies Historico_SQLActual filtering on employees:
-     * (history_control_id IS NULL OR id IN (SELECT ref_id FROM history_control
-     * WHERE ref_table = 1))
-     * 4. Employee counts come from the tree structure (all descendants), not from
-     * call data
-     * 5. Subdivisions with 0 employees are excluded (matching PHP's "if
-     * ($funcionarios <= 0) continue")
-     */
-    public static final String QUERY = """
+    private static final String SUBDIVISION_TREE = """
             SELECT * FROM (
-            WITH RECURSIVE subdivision_descendants AS (
+            WITH subdivision_descendants AS (
                 SELECT
-                    s.id,
+                    sc.descendant_id AS id,
                     s.id AS display_subdivision_id,
                     s.name AS display_subdivision_name
                 FROM subdivision s
+                INNER JOIN subdivision_closure sc ON sc.ancestor_id = s.id
                 WHERE
                     (:#{#parentSubdivisionId == null ? 1 : 0} = 1 AND s.parent_subdivision_id IS NULL)
                     OR s.id = :parentSubdivisionId
-
-                UNION ALL
-
-                SELECT
-                    s.id,
-                    sd.display_subdivision_id,
-                    sd.display_subdivision_name
-                FROM subdivision s
-                INNER JOIN subdivision_descendants sd ON s.parent_subdivision_id = sd.id
             ),
             employee_counts AS (
                 SELECT
@@ -50,6 +29,9 @@ public final class SubdivisionUsageReportQueries {
                 ))
                 GROUP BY sd.display_subdivision_id
             ),
+            """;
+
+    private static final String CALL_RECORD_AGGREGATES = """
             call_data AS (
                 SELECT
                     e.subdivision_id,
@@ -65,6 +47,28 @@ public final class SubdivisionUsageReportQueries {
                 WHERE cr.service_date BETWEEN :startDate AND :endDate
                 GROUP BY e.subdivision_id
             ),
+            """;
+
+    // Null keys are stored as -1 in call_record_daily_rollup, so the joins drop them as before
+    private static final String ROLLUP_AGGREGATES = """
+            call_data AS (
+                SELECT
+                    e.subdivision_id,
+                    CAST(COALESCE(SUM(r.call_count) FILTER (WHERE r.is_incoming = true), 0) AS bigint) AS incomingCallCount,
+                    CAST(COALESCE(SUM(r.call_count) FILTER (WHERE r.is_incoming = false), 0) AS bigint) AS outgoingCallCount,
+                    CAST(COALESCE(SUM(r.total_duration), 0) AS bigint) AS totalDuration,
+                    COALESCE(SUM(r.total_billed_amount), 0) AS totalBilledAmount
+                FROM call_record_daily_rollup r
+                INNER JOIN employee e ON r.employee_id = e.id
+                INNER JOIN telephony_type tt ON r.telephony_type_id = tt.id
+                INNER JOIN communication_location cl ON r.comm_location_id = cl.id
+                INNER JOIN indicator i ON cl.indicator_id = i.id
+                WHERE r.day BETWEEN CAST(:startDate AS date) AND CAST(:endDate AS date)
+                GROUP BY e.subdivision_id
+            ),
+            """;
+
+    private static final String REPORT = """
             report_data AS (
                 SELECT
                     sd.display_subdivision_id AS subdivisionId,
@@ -103,4 +107,24 @@ public final class SubdivisionUsageReportQueries {
             WHERE COALESCE(ec.totalEmployees, 0) > 0
             ) AS rd
             """;
-}
+
+    /**
+     * Matches the original PHP "Consumo por Área" report logic:
+     * 1. Builds the subdivision tree (children + all descendants) from
+     * subdivision_closure
+     * 2. Groups all descendant data under the direct child subdivision
+     * 3. Applies Historico_SQLActual filtering on employees:
+     * (history_control_id IS NULL OR id IN (SELECT ref_id FROM history_control
+     * WHERE ref_table = 1))
+     * 4. Employee counts come from the tree structure (all descendants), not from
+     * call data
+     * 5. Subdivisions with 0 employees are excluded (matching PHP's "if
+     * ($funcionarios <= 0) continue")
+     */
+    public static final String QUERY = SUBDIVISION_TREE + CALL_RECORD_AGGREGATES + REPORT;
+
+    /**
+     * Same report read from call_record_daily_rollup, for ranges made of whole days.
+     */
+    public static final String ROLLUP_QUERY = SUBDIVISION_TREE + ROLLUP_AGGREGATES + REPORT;
+}
\ No newline at end of file
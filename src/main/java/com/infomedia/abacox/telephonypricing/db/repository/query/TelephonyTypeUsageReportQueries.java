@@ -3,7 +3,7 @@ package com.infomedia.abacox.telephonypricing.db.repository.query;
 public final class TelephonyTypeUsageReportQueries {
     private TelephonyTypeUsageReportQueries() {} // Private constructor to prevent instantiation
 
-    public static final String QUERY = """
+    private static final String CALL_RECORD_AGGREGATES = """
     WITH aggregated_calls AS (
         -- OPTIMIZATION 1: Pre-aggregate the massive call_record table 
         -- grouped strictly by the integer ID before joining lookup dictionary tables.
@@ -30,10 +30,40 @@ public final class TelephonyTypeUsageReportQueries {
         GROUP BY
             cr.telephony_type_id
     ),
+    """;
+
+    // Null keys are stored as -1 in call_record_daily_rollup, so the joins drop them as before
+    private static final String ROLLUP_AGGREGATES = """
+    WITH aggregated_calls AS (
+        SELECT
+            r.telephony_type_id,
+            CAST(COALESCE(SUM(r.call_count) FILTER (WHERE r.is_incoming = false), 0) AS bigint) AS outgoingCallCount,
+            CAST(COALESCE(SUM(r.call_count) FILTER (WHERE r.is_incoming = true), 0) AS bigint) AS incomingCallCount,
+            CAST(COALESCE(SUM(r.total_duration), 0) AS bigint) AS totalDuration,
+            COALESCE(SUM(r.total_billed_amount), 0) AS totalBilledAmount
+        FROM
+            call_record_daily_rollup r
+        INNER JOIN
+            employee e ON r.employee_id = e.id
+        INNER JOIN
+            subdivision s ON e.subdivision_id = s.id
+        INNER JOIN
+            communication_location cl ON r.comm_location_id = cl.id
+        WHERE
+            (r.day BETWEEN CAST(:startDate AS date) AND CAST(:endDate AS date))
+        AND
+            (r.is_incoming = true OR (r.is_incoming = false AND r.operator_id > 0))
+        GROUP BY
+            r.telephony_type_id
+    ),
+    """;
+
+    private static final String REPORT_DATA = """
     report_data AS (
         -- OPTIMIZATION 2: Attach the string names only to the final aggregated subset
         SELECT
             cc.name AS telephonyCategoryName,
+            tt.id AS telephonyTypeId,
             tt.name AS telephonyTypeName,
             ac.outgoingCallCount,
             ac.incomingCallCount,
@@ -46,6 +76,9 @@ public final class TelephonyTypeUsageReportQueries {
         LEFT JOIN
             call_category cc ON tt.call_category_id = cc.id
     )
+    """;
+
+    private static final String REPORT = """
     SELECT
         rd.telephonyCategoryName,
         rd.telephonyTypeName,
@@ -66,4 +99,77 @@ public final class TelephonyTypeUsageReportQueries {
     ORDER BY
         rd.telephonyCategoryName, rd.telephonyTypeName
     """;
-}
\ No newline at end of file
+
+    // Percentages are taken over every row before a page of categories is cut
+    private static final String GROUPED_REPORT = """
+    , report_rows AS (
+        SELECT
+            COALESCE(rd.telephonyCategoryName, 'Sin Categoría') AS categoryName,
+            rd.telephonyCategoryName,
+            rd.telephonyTypeId,
+            rd.telephonyTypeName,
+            rd.outgoingCallCount,
+            rd.incomingCallCount,
+            rd.totalDuration,
+            rd.totalBilledAmount,
+            CASE
+                WHEN SUM(rd.totalDuration) OVER () = 0 THEN 0
+                ELSE ROUND((rd.totalDuration * 100.0 / SUM(rd.totalDuration) OVER ()), 2)
+            END AS durationPercentage,
+            CASE
+                WHEN SUM(rd.totalBilledAmount) OVER () = 0 THEN 0
+                ELSE ROUND((rd.totalBilledAmount * 100.0 / SUM(rd.totalBilledAmount) OVER ()), 2)
+            END AS billedAmountPercentage
+        FROM
+            report_data rd
+    ),
+    category_page AS (
+        SELECT ranked.categoryName, ranked.categoryRank
+        FROM (
+            SELECT
+                c.categoryName,
+                ROW_NUMBER() OVER (ORDER BY CASE WHEN :descending THEN c.categoryName END DESC, c.categoryName) AS categoryRank
+            FROM (SELECT DISTINCT rr.categoryName FROM report_rows rr) c
+        ) ranked
+        WHERE ranked.categoryRank > :groupOffset
+          AND (:groupLimit < 0 OR ranked.categoryRank <= :groupOffset + :groupLimit)
+    )
+    SELECT
+        cp.categoryRank,
+        GROUPING(rr.telephonyTypeId) = 1 AS subtotal,
+        CASE WHEN GROUPING(rr.telephonyTypeId) = 1 THEN cp.categoryName ELSE rr.telephonyCategoryName END AS telephonyCategoryName,
+        CASE WHEN GROUPING(rr.telephonyTypeId) = 1 THEN 'Subtotal' ELSE rr.telephonyTypeName END AS telephonyTypeName,
+        CAST(SUM(rr.outgoingCallCount) AS bigint) AS outgoingCallCount,
+        CAST(SUM(rr.incomingCallCount) AS bigint) AS incomingCallCount,
+        CAST(SUM(rr.totalDuration) AS bigint) AS totalDuration,
+        SUM(rr.totalBilledAmount) AS totalBilledAmount,
+        SUM(rr.durationPercentage) AS durationPercentage,
+        SUM(rr.billedAmountPercentage) AS billedAmountPercentage
+    FROM
+        report_rows rr
+    INNER JOIN
+        category_page cp ON cp.categoryName = rr.categoryName
+    GROUP BY GROUPING SETS (
+        (cp.categoryRank, cp.categoryName, rr.telephonyTypeId, rr.telephonyTypeName, rr.telephonyCategoryName),
+        (cp.categoryRank, cp.categoryName)
+    )
+    ORDER BY
+        cp.categoryRank, GROUPING(rr.telephonyTypeId), rr.telephonyTypeName
+    """;
+
+    public static final String QUERY = CALL_RECORD_AGGREGATES + REPORT_DATA + REPORT;
+
+    /**
+     * Same report read from call_record_daily_rollup, for ranges made of whole days.
+     */
+    public static final String ROLLUP_QUERY = ROLLUP_AGGREGATES + REPORT_DATA + REPORT;
+
+    /**
+     * One page of telephony categories, each with its telephony type rows and a
+     * subtotal row, categories ranked by name. {@code :groupLimit} below zero
+     * returns every category.
+     */
+    public static final String GROUPED_QUERY = CALL_RECORD_AGGREGATES + REPORT_DATA + GROUPED_REPORT;
+
+    public static final String GROUPED_ROLLUP_QUERY = ROLLUP_AGGREGATES + REPORT_DATA + GROUPED_REPORT;
+}
@@ -5,32 +5,17 @@ public final class UnusedExtensionReportQueries {
     private UnusedExtensionReportQueries() {
     }
 
-    public static final String QUERY = """
-            WITH RECURSIVE CostCenterPath AS (
-                SELECT
-                    cc.id as start_id,
-                    cc.parent_cost_center_id,
-                    CAST('' AS TEXT) as parent_path,
-                    1 as level
+    private static final String COST_CENTER_HIERARCHY = """
+            -- Path of each cost center's parent from its root; none for roots
+            WITH CostCenterHierarchy AS (
+                SELECT cc.id as start_id, ccc.path as parent_path
                 FROM cost_center cc
-                UNION ALL
-                SELECT
-                    ccp.start_id,
-                    p.parent_cost_center_id,
-                    CASE
-                        WHEN ccp.parent_path = '' THEN CONCAT(p.work_order, ' - ', p.name)
-                        ELSE CONCAT(p.work_order, ' - ', p.name, ' / ', ccp.parent_path)
-                    END,
-                    ccp.level + 1
-                FROM CostCenterPath ccp
-                JOIN cost_center p ON ccp.parent_cost_center_id = p.id
-                WHERE ccp.parent_cost_center_id IS NOT NULL
-            ),
-            CostCenterHierarchy AS (
-                SELECT start_id, parent_path
-                FROM CostCenterPath
-                WHERE parent_cost_center_id IS NULL
+                JOIN cost_center_closure ccc ON ccc.descendant_id = cc.parent_cost_center_id
+                JOIN cost_center root ON root.id = ccc.ancestor_id AND root.parent_cost_center_id IS NULL
             ),
+            """;
+
+    private static final String CALL_RECORD_ACTIVE_EXTENSIONS = """
             ActiveExtensions AS (
                 SELECT cr.employee_extension as extension FROM call_record cr
                 WHERE cr.service_date BETWEEN :startDate AND :endDate
@@ -47,6 +32,19 @@ public final class UnusedExtensionReportQueries {
                   AND cr.comm_location_id IS NOT NULL
                   AND cr.employee_transfer IS NOT NULL AND cr.employee_transfer != ''
             ),
+            """;
+
+    // Only whole days: numbers seen with a communication location in the range
+    private static final String ACTIVITY_ACTIVE_EXTENSIONS = """
+            ActiveExtensions AS (
+                SELECT DISTINCT ea.extension
+                FROM extension_activity ea
+                WHERE ea.day BETWEEN CAST(:startDate AS date) AND CAST(:endDate AS date)
+                  AND ea.located_count > 0
+            ),
+            """;
+
+    private static final String FILTERED_EMPLOYEES = """
             FilteredEmployees AS (
                 SELECT DISTINCT ON (e.extension)
                     e.id,
@@ -72,6 +70,9 @@ public final class UnusedExtensionReportQueries {
                     AND (:extension IS NULL OR :extension = '' OR e.extension = :extension)
                 ORDER BY e.extension, e.id DESC
             ),
+            """;
+
+    private static final String CALL_RECORD_HISTORY = """
             CallHistory AS (
                 SELECT
                     extension,
@@ -98,6 +99,23 @@ public final class UnusedExtensionReportQueries {
                 WHERE extension IS NOT NULL AND extension != ''
                 GROUP BY extension
             ),
+            """;
+
+    private static final String ACTIVITY_HISTORY = """
+            CallHistory AS (
+                SELECT
+                    ea.extension,
+                    SUM(ea.call_count) as total,
+                    SUM(ea.incoming_count) as incoming,
+                    MAX(ea.last_seen) as last_call_date
+                FROM extension_activity ea
+                WHERE ea.day < CAST(:startDate AS date)
+                  AND ea.extension IN (SELECT fe.extension FROM FilteredEmployees fe)
+                GROUP BY ea.extension
+            ),
+            """;
+
+    private static final String UNUSED_EXTENSIONS = """
             UnusedExtensions AS (
                 SELECT
                     fe.id as employeeId,
@@ -126,4 +144,13 @@ public final class UnusedExtensionReportQueries {
             )
             SELECT * FROM UnusedExtensions
             """;
+
+    public static final String QUERY = COST_CENTER_HIERARCHY + CALL_RECORD_ACTIVE_EXTENSIONS + FILTERED_EMPLOYEES
+            + CALL_RECORD_HISTORY + UNUSED_EXTENSIONS;
+
+    /**
+     * Same report read from extension_activity, for ranges made of whole days.
+     */
+    public static final String ACTIVITY_QUERY = COST_CENTER_HIERARCHY + ACTIVITY_ACTIVE_EXTENSIONS + FILTERED_EMPLOYEES
+            + ACTIVITY_HISTORY + UNUSED_EXTENSIONS;
 }
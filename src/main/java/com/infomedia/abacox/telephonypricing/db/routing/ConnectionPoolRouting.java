@@ -0,0 +1,192 @@
+package com.infomedia.abacox.telephonypricing.db.routing;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Owns the connection pools of each {@link Workload} and of the read replica,
+ * and decides which one serves a connection request.
+ * <p>
+ * A request made inside a {@link ConnectionWorkload} scope is served by that
+ * workload's pool. Reports additionally read from the replica when one is
+ * configured: read-only transactions and queries outside any transaction go
+ * there, read-write transactions stay on the reports pool. Requests outside
+ * any scope, for the api workload, or for a workload whose pool size is 0 use
+ * the default {@code spring.datasource} pool. The tenant schema is set by the
+ * connection provider on whichever connection is returned.
+ * <p>
+ * Hibernate acquires the connection while the transaction manager is still
+ * beginning the transaction, before its read-only flag is published through
+ * {@link TransactionSynchronizationManager}, so the flag is captured here as a
+ * transaction execution listener.
+ * <p>
+ * Every pool publishes the HikariCP meters, tagged with its pool name;
+ * {@code hikaricp.connections.acquire} is the time spent waiting for a
+ * connection.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class ConnectionPoolRouting implements TransactionExecutionListener {
+
+    private static final String POOL_PROPERTY_PREFIX = "app.datasource.pools.";
+
+    private static final ThreadLocal<Workload> WORKLOAD = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> BEGINNING_READ_ONLY = new ThreadLocal<>();
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${spring.datasource.url}")
+    private String primaryUrl;
+
+    @Value("${spring.datasource.username}")
+    private String primaryUsername;
+
+    @Value("${spring.datasource.password}")
+    private String primaryPassword;
+
+    @Value("${app.datasource.replica.url:}")
+    private String replicaUrl;
+
+    @Value("${app.datasource.replica.username:${spring.datasource.username}}")
+    private String replicaUsername;
+
+    @Value("${app.datasource.replica.password:${spring.datasource.password}}")
+    private String replicaPassword;
+
+    @Value("${app.datasource.replica.maximum-pool-size:10}")
+    private int replicaMaximumPoolSize;
+
+    @Value("${app.datasource.replica.connection-timeout:5000}")
+    private long replicaConnectionTimeout;
+
+    private final Map<Workload, HikariDataSource> pools = new EnumMap<>(Workload.class);
+    private HikariDataSource replica;
+
+    @PostConstruct
+    void startPools() {
+        for (Workload workload : Workload.values()) {
+            if (workload == Workload.API) continue;
+            String prefix = POOL_PROPERTY_PREFIX + workload.poolName();
+            int maximumPoolSize = environment.getProperty(prefix + ".maximum-pool-size", Integer.class, 0);
+            if (maximumPoolSize <= 0) {
+                log.info("No dedicated pool for {} work; it uses the api pool", workload.poolName());
+                continue;
+            }
+            HikariConfig config = poolConfig(workload.poolName(), primaryUrl, primaryUsername, primaryPassword);
+            config.setMaximumPoolSize(maximumPoolSize);
+            config.setConnectionTimeout(environment.getProperty(prefix + ".connection-timeout", Long.class, 30000L));
+            pools.put(workload, new HikariDataSource(config));
+        }
+
+        if (replicaUrl == null || replicaUrl.isBlank()) {
+            log.info("No read replica configured; report and dashboard reads use the primary");
+            return;
+        }
+        HikariConfig config = poolConfig("replica", replicaUrl, replicaUsername, replicaPassword);
+        config.setMaximumPoolSize(replicaMaximumPoolSize);
+        config.setConnectionTimeout(replicaConnectionTimeout);
+        // A replica that is down at startup must not keep the application from starting
+        config.setInitializationFailTimeout(-1);
+        replica = new HikariDataSource(config);
+        log.info("Read replica pool started for {}", replicaUrl);
+    }
+
+    @PreDestroy
+    void stopPools() {
+        pools.values().forEach(HikariDataSource::close);
+        if (replica != null) {
+            replica.close();
+        }
+    }
+
+    private HikariConfig poolConfig(String poolName, String url, String username, String password) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return config;
+    }
+
+    /**
+     * @return the workload that was set before, to pass to {@link #restore}
+     */
+    static Workload enter(Workload workload) {
+        Workload previous = WORKLOAD.get();
+        WORKLOAD.set(workload);
+        return previous;
+    }
+
+    static void restore(@Nullable Workload previous) {
+        if (previous == null) {
+            WORKLOAD.remove();
+        } else {
+            WORKLOAD.set(previous);
+        }
+    }
+
+    @Override
+    public void beforeBegin(TransactionExecution transaction) {
+        if (WORKLOAD.get() != null) {
+            BEGINNING_READ_ONLY.set(transaction.isReadOnly());
+        }
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, @Nullable Throwable beginFailure) {
+        BEGINNING_READ_ONLY.remove();
+    }
+
+    /**
+     * Returns a connection from the pool of the current workload, or null if
+     * the request belongs to the default pool.
+     */
+    @Nullable
+    public Connection getConnection() throws SQLException {
+        Workload workload = WORKLOAD.get();
+        if (workload == null || workload == Workload.API) {
+            return null;
+        }
+        if (workload == Workload.REPORTS && replica != null && isReadOnlyWork()) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                log.warn("Read replica unavailable, using the primary: {}", e.getMessage());
+            }
+        }
+        HikariDataSource pool = pools.get(workload);
+        return pool != null ? pool.getConnection() : null;
+    }
+
+    private static boolean isReadOnlyWork() {
+        Boolean beginningReadOnly = BEGINNING_READ_ONLY.get();
+        if (beginningReadOnly != null) {
+            return beginningReadOnly;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        }
+        return true;
+    }
+}
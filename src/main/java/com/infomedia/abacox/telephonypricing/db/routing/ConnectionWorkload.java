@@ -0,0 +1,26 @@
+package com.infomedia.abacox.telephonypricing.db.routing;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Selects the connection pool for the database work of the annotated class or
+ * method. Connections are bound when a transaction or a non-transactional
+ * query acquires them, so a call that joins a transaction already running
+ * keeps that transaction's connection.
+ * <p>
+ * The innermost annotation on the call stack wins; a method annotation
+ * overrides the one on its class.
+ *
+ * @see ConnectionPoolRouting
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ConnectionWorkload {
+
+    Workload value();
+}
@@ -0,0 +1,46 @@
+package com.infomedia.abacox.telephonypricing.db.routing;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+
+/**
+ * Sets the {@link ConnectionWorkload} of the current thread around annotated
+ * calls. Ordered ahead of the transaction interceptor so the workload is
+ * already set when the transaction acquires its connection.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConnectionWorkloadAspect {
+
+    @Around("@within(com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload)"
+            + " || @annotation(com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload)")
+    public Object inWorkload(ProceedingJoinPoint joinPoint) throws Throwable {
+        Workload previous = ConnectionPoolRouting.enter(workloadOf(joinPoint));
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ConnectionPoolRouting.restore(previous);
+        }
+    }
+
+    private static Workload workloadOf(ProceedingJoinPoint joinPoint) {
+        Class<?> targetClass = AopUtils.getTargetClass(joinPoint.getTarget());
+        Method method = AopUtils.getMostSpecificMethod(((MethodSignature) joinPoint.getSignature()).getMethod(),
+                targetClass);
+        ConnectionWorkload annotation = AnnotatedElementUtils.findMergedAnnotation(method, ConnectionWorkload.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(targetClass, ConnectionWorkload.class);
+        }
+        return annotation != null ? annotation.value() : Workload.API;
+    }
+}
@@ -0,0 +1,36 @@
+package com.infomedia.abacox.telephonypricing.db.routing;
+
+/**
+ * Classes of database work that get their own connection pool, so one of them
+ * running hot cannot exhaust the connections of the others.
+ */
+public enum Workload {
+    /**
+     * CDR enrichment lookups.
+     */
+    INGEST_READ("ingest-read"),
+    /**
+     * CDR batch persistence and file bookkeeping.
+     */
+    INGEST_WRITE("ingest-write"),
+    /**
+     * HTTP CRUD and anything not marked otherwise; served by the default
+     * {@code spring.datasource} pool.
+     */
+    API("api"),
+    /**
+     * Report, dashboard and export queries. Read-only work goes to the read
+     * replica when one is configured.
+     */
+    REPORTS("reports");
+
+    private final String poolName;
+
+    Workload(String poolName) {
+        this.poolName = poolName;
+    }
+
+    public String poolName() {
+        return poolName;
+    }
+}
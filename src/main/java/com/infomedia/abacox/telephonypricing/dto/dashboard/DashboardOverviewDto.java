@@ -34,6 +34,10 @@ public class DashboardOverviewDto {
     private Long processingFailures;
     private Long unassignedCalls;
 
+    // Sections that missed their time budget and show older figures (or none):
+    // totals, costCenters, telephonyTypes, subdivisions, employees
+    private List<String> staleSections;
+
     @Data
     @Builder
     @NoArgsConstructor
@@ -1,11 +1,13 @@
 package com.infomedia.abacox.telephonypricing.dto.generic;
 
 import com.infomedia.abacox.telephonypricing.component.export.excel.ExcelGeneratorBuilder;
+import com.infomedia.abacox.telephonypricing.component.export.excel.ExportFormat;
 import com.infomedia.abacox.telephonypricing.component.export.excel.GenericExcelGenerator;
 import com.infomedia.abacox.telephonypricing.component.text.StringParsingUtils;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Data;
 import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.http.MediaType;
 
 import java.util.Map;
 import java.util.Set;
@@ -29,6 +31,12 @@ public class ExcelRequest {
     @Schema(description = "Value replacements in format 'column'.'oldValue':'newValue'")
     private String valueReplacements;
 
+    @Schema(description = "Output format: XLSX, CSV or TSV", defaultValue = "XLSX")
+    private ExportFormat format;
+
+    @Schema(description = "Gzip-compress CSV/TSV output", defaultValue = "false")
+    private Boolean gzip;
+
     /**
      * Parses alternativeHeaders string into a Map using StringParsingUtils
      * @return Map of original column names to alternative names
@@ -61,6 +69,21 @@ public class ExcelRequest {
         return StringParsingUtils.parseNestedMap(valueReplacements);
     }
 
+    /**
+     * Download file name for the requested format, e.g. {@code call_records.csv.gz}
+     */
+    public String fileName(String baseName) {
+        return getFormatOrDefault().fileName(baseName, Boolean.TRUE.equals(gzip));
+    }
+
+    public MediaType mediaType() {
+        return MediaType.parseMediaType(getFormatOrDefault().contentType(Boolean.TRUE.equals(gzip)));
+    }
+
+    private ExportFormat getFormatOrDefault() {
+        return format != null ? format : ExportFormat.XLSX;
+    }
+
     public ExcelGeneratorBuilder toExcelGeneratorBuilder(){
         Map<String, String> alternativeHeadersMap = StringParsingUtils.parseSimpleMap(alternativeHeaders);
         Set<String> excludeColumnsList = StringParsingUtils.parseToSet(excludeColumns);
@@ -72,6 +95,7 @@ public class ExcelRequest {
         if (excludeColumns != null) builder.withExcludedColumnNames(excludeColumnsList);
         if (includeColumns != null) builder.withIncludedColumnNames(includeColumnsList);
         if (valueReplacements != null) builder.withValueReplacements(valueReplacementsMap);
+        builder.withFormat(getFormatOrDefault()).withGzip(Boolean.TRUE.equals(gzip));
         return builder;
     }
 }
\ No newline at end of file
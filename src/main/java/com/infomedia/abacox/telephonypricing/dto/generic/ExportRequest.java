@@ -9,7 +9,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Parameter object for export endpoints — only size (max rows) and optional sort.
+ * Parameter object for export endpoints — size (max rows), optional sort and
+ * whether to run the export as a background report job.
  */
 @Data
 public class ExportRequest {
@@ -20,10 +21,18 @@ public class ExportRequest {
     @ArraySchema(schema = @Schema(description = "Sort expression (format: property,direction)", implementation = String.class))
     private List<String> sort;
 
+    @Schema(description = "Run the export as a background report job and return its status instead of the file",
+            defaultValue = "false")
+    private Boolean async;
+
     public int getMaxRows() {
         return size != null && size > 0 ? size : 1000000;
     }
 
+    public boolean isAsyncJob() {
+        return Boolean.TRUE.equals(async);
+    }
+
     public Sort getSortOrder() {
         if (sort == null || sort.isEmpty()) {
             return Sort.unsorted();
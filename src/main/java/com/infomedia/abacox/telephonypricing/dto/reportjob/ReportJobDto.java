@@ -0,0 +1,30 @@
+package com.infomedia.abacox.telephonypricing.dto.reportjob;
+
+import com.infomedia.abacox.telephonypricing.db.entity.ReportJob;
+import com.infomedia.abacox.telephonypricing.dto.superclass.AuditedDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for {@link ReportJob}
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReportJobDto extends AuditedDto {
+    private Long id;
+    private String report;
+    private ReportJob.Status status;
+    private String fileName;
+    private String contentType;
+    private Long size;
+    private String errorMessage;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private LocalDateTime expiresAt;
+}
@@ -1,5 +1,8 @@
 package com.infomedia.abacox.telephonypricing.multitenancy;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionPoolRouting;
 import org.hibernate.engine.jdbc.connections.spi.MultiTenantConnectionProvider;
 import org.hibernate.service.UnknownUnwrapTypeException;
 import org.springframework.stereotype.Component;
@@ -7,14 +10,20 @@ import org.springframework.stereotype.Component;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 @Component
 public class SchemaConnectionProvider implements MultiTenantConnectionProvider {
 
     private final DataSource dataSource;
+    private final ConnectionPoolRouting connectionPoolRouting;
 
-    public SchemaConnectionProvider(DataSource dataSource) {
+    // search_path each physical connection was last switched to; weak keys, so connections evicted from a pool drop out
+    private final Cache<Connection, String> connectionSchemas = Caffeine.newBuilder().weakKeys().build();
+
+    public SchemaConnectionProvider(DataSource dataSource, ConnectionPoolRouting connectionPoolRouting) {
         this.dataSource = dataSource;
+        this.connectionPoolRouting = connectionPoolRouting;
     }
 
     @Override
@@ -29,11 +38,14 @@ public class SchemaConnectionProvider implements MultiTenantConnectionProvider {
 
     @Override
     public Connection getConnection(Object tenantIdentifier) throws SQLException {
-        Connection connection = getAnyConnection();
+        // Ingest and report work have their own pools; the schema is switched the same way on each of them
+        Connection connection = connectionPoolRouting.getConnection();
+        if (connection == null) {
+            connection = getAnyConnection();
+        }
+        String schema = (tenantIdentifier != null) ? tenantIdentifier.toString() : "public";
         try {
-            String schema = (tenantIdentifier != null) ? tenantIdentifier.toString() : "public";
-            // PostgreSQL syntax to switch schema
-            connection.createStatement().execute("SET search_path TO \"" + schema + "\"");
+            setSchema(connection, schema);
         } catch (SQLException e) {
             throw new SQLException("Could not alter JDBC connection to specified schema [" + tenantIdentifier + "]", e);
         }
@@ -42,15 +54,42 @@ public class SchemaConnectionProvider implements MultiTenantConnectionProvider {
 
     @Override
     public void releaseConnection(Object tenantIdentifier, Connection connection) throws SQLException {
-        try {
-            // Reset to public before returning to pool
-            connection.createStatement().execute("SET search_path TO public");
-        } catch (SQLException e) {
-            // Log error, but don't throw, as the connection is closing anyway
-        }
+        // The search_path is left as is; the next checkout switches it only if it needs another schema
         connection.close();
     }
 
+    /**
+     * Points the search_path of {@code connection} at {@code schema}, skipping
+     * the round trip when the underlying physical connection is already there.
+     * Code that takes pooled connections straight from the {@link DataSource}
+     * must switch schemas through here, or call {@link #forgetSchema} if
+     * something else changes the search_path, so later checkouts of the same
+     * physical connection are not left on the wrong schema.
+     */
+    public void setSchema(Connection connection, String schema) throws SQLException {
+        Connection physical = connection.unwrap(Connection.class);
+        if (schema.equals(connectionSchemas.getIfPresent(physical))) {
+            return;
+        }
+        connectionSchemas.invalidate(physical);
+        // PostgreSQL syntax to switch schema
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET search_path TO \"" + schema + "\"");
+        }
+        // Inside an open transaction the SET is undone if that transaction rolls back
+        if (connection.getAutoCommit()) {
+            connectionSchemas.put(physical, schema);
+        }
+    }
+
+    /**
+     * Drops what is known about the search_path of {@code connection}; its next
+     * checkout through this provider sets the schema again.
+     */
+    public void forgetSchema(Connection connection) throws SQLException {
+        connectionSchemas.invalidate(connection.unwrap(Connection.class));
+    }
+
     @Override
     public boolean supportsAggressiveRelease() {
         return false;
@@ -36,6 +36,7 @@ import java.util.List;
 public class SchemaMigrationService {
 
     private final DataSource dataSource;
+    private final SchemaConnectionProvider schemaConnectionProvider;
 
     @Value("${abacox.multitenancy.entity-package}")
     private String entityPackage;
@@ -60,7 +61,7 @@ public class SchemaMigrationService {
         try (Connection connection = dataSource.getConnection()) {
             ensureSchemaExists(connection, tenantId);
 
-            connection.createStatement().execute("SET search_path TO \"" + tenantId + "\"");
+            useSchema(connection, tenantId);
             
             Database targetDatabase = DatabaseFactory.getInstance()
                     .findCorrectDatabaseImplementation(new JdbcConnection(connection));
@@ -116,7 +117,7 @@ public class SchemaMigrationService {
     public void applyMigration(String tenantId, String changelogContent) throws Exception {
         try (Connection connection = dataSource.getConnection()) {
             ensureSchemaExists(connection, tenantId);
-            connection.createStatement().execute("SET search_path TO \"" + tenantId + "\"");
+            useSchema(connection, tenantId);
 
             Database targetDatabase = DatabaseFactory.getInstance()
                     .findCorrectDatabaseImplementation(new JdbcConnection(connection));
@@ -139,13 +140,25 @@ public class SchemaMigrationService {
         }
     }
 
+    /**
+     * Liquibase runs on a pooled connection whose search_path is switched here,
+     * outside {@link SchemaConnectionProvider}, so the provider is told to set
+     * it again the next time the connection is checked out.
+     */
+    private void useSchema(Connection connection, String schema) throws Exception {
+        schemaConnectionProvider.forgetSchema(connection);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("SET search_path TO \"" + schema + "\"");
+        }
+    }
+
     public void syncPublicSchema() throws Exception {
         String schemaName = "public";
         log.info("Bootstrapping Public Schema: {}", schemaName);
 
         try (Connection connection = dataSource.getConnection()) {
             ensureSchemaExists(connection, schemaName);
-            connection.createStatement().execute("SET search_path TO \"" + schemaName + "\"");
+            useSchema(connection, schemaName);
 
             Database targetDatabase = DatabaseFactory.getInstance()
                     .findCorrectDatabaseImplementation(new JdbcConnection(connection));
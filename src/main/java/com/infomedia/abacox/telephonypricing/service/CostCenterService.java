@@ -11,16 +11,22 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.io.InputStream;
 
 @Service
 public class CostCenterService extends CrudService<CostCenter,Long,CostCenterRepository> {
-    public CostCenterService(CostCenterRepository repository) {
+
+    private final HierarchyClosureService hierarchyClosureService;
+
+    public CostCenterService(CostCenterRepository repository, HierarchyClosureService hierarchyClosureService) {
         super(repository);
+        this.hierarchyClosureService = hierarchyClosureService;
     }
 
+    @Transactional
     public CostCenter create(CreateCostCenter uDto){
         CostCenter costCenter = CostCenter.builder()
                 .name(uDto.getName())
@@ -29,16 +35,31 @@ public class CostCenterService extends CrudService<CostCenter,Long,CostCenterRep
                 .originCountryId(uDto.getOriginCountryId())
                 .build();
 
-        return save(costCenter);
+        CostCenter saved = save(costCenter);
+        hierarchyClosureService.refreshCostCenter(saved.getId());
+        return saved;
     }
 
+    @Transactional
     public CostCenter update(Long id, UpdateCostCenter uDto){
         CostCenter costCenter = get(id);
         uDto.getName().ifPresent(costCenter::setName);
         uDto.getWorkOrder().ifPresent(costCenter::setWorkOrder);
-        uDto.getParentCostCenterId().ifPresent(costCenter::setParentCostCenterId);
+        uDto.getParentCostCenterId().ifPresent(parentId -> {
+            hierarchyClosureService.checkCostCenterParent(id, parentId);
+            costCenter.setParentCostCenterId(parentId);
+        });
         uDto.getOriginCountryId().ifPresent(costCenter::setOriginCountryId);
-        return save(costCenter);
+        CostCenter saved = save(costCenter);
+        hierarchyClosureService.refreshCostCenter(saved.getId());
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public void deleteById(Long id) {
+        super.deleteById(id);
+        hierarchyClosureService.removeCostCenter(id);
     }
 
     public ByteArrayResource exportExcel(Specification<CostCenter> specification, Pageable pageable, ExcelGeneratorBuilder builder) {
@@ -0,0 +1,585 @@
+package com.infomedia.abacox.telephonypricing.service;
+
+import com.infomedia.abacox.telephonypricing.component.cdrprocessing.CallRecordDaysChangedEvent;
+import com.infomedia.abacox.telephonypricing.config.CacheConfig;
+import com.infomedia.abacox.telephonypricing.db.projection.ExtensionCallCount;
+import com.infomedia.abacox.telephonypricing.db.repository.FailedCallRecordRepository;
+import com.infomedia.abacox.telephonypricing.db.repository.ReportRepository;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
+import com.infomedia.abacox.telephonypricing.dto.report.*;
+import com.infomedia.abacox.telephonypricing.multitenancy.TenantAwareTaskDecorator;
+import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
+import com.infomedia.abacox.telephonypricing.service.report.EmployeeReportService;
+import com.infomedia.abacox.telephonypricing.service.report.SubdivisionReportService;
+import com.infomedia.abacox.telephonypricing.service.report.TelephonyUsageReportService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Dashboard aggregates composed from cached per-day and per-month partials.
+ * <p>
+ * A requested range is split into whole calendar months that are already over,
+ * whole days, and at most two partial days at the edges. Buckets hold only
+ * additive figures (totals, and per cost center, telephony category,
+ * subdivision, employee and extension), so any range is a merge of a few cached
+ * buckets; only the partial edge days are queried every time.
+ * <p>
+ * Committed call record changes drop just the buckets of the days they touched
+ * ({@link CallRecordDaysChangedEvent}) and the next read recomputes them, from
+ * the daily rollup where the report supports it.
+ * <p>
+ * The overview sections are independent queries, so they are assembled
+ * concurrently and each is cached under its own bucket kind. A section that
+ * misses its time budget is answered with the last complete figures for the
+ * same range (or empty) and reported as stale, while its computation carries on
+ * in the background and fills the caches for the next request.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+@ConnectionWorkload(Workload.REPORTS)
+public class DashboardAggregateStore {
+
+    private static final LocalTime END_OF_DAY = LocalTime.of(23, 59, 59);
+    private static final String ACTIVITY = "activity";
+
+    private final TelephonyUsageReportService telephonyUsageReportService;
+    private final SubdivisionReportService subdivisionReportService;
+    private final EmployeeReportService employeeReportService;
+    private final FailedCallRecordRepository failedCallRecordRepository;
+    private final ReportRepository reportRepository;
+    private final CacheManager cacheManager;
+
+    @Value("${app.dashboard.section-timeout-ms:5000}")
+    private long sectionTimeoutMs;
+
+    @Value("${app.dashboard.section-threads:8}")
+    private int sectionThreads;
+
+    private ThreadPoolTaskExecutor sectionExecutor;
+
+    // One computation per tenant, section and range; later requests join it
+    private final Map<String, CompletableFuture<OverviewPartial>> sectionsInFlight = new ConcurrentHashMap<>();
+
+    // Bumped on every change event; a bucket computed across a bump is not cached
+    private final Map<String, AtomicLong> tenantVersions = new ConcurrentHashMap<>();
+
+    /**
+     * One piece of a requested range. Buckets cover whole days and are cached;
+     * edge pieces are partial days and are always computed.
+     */
+    record Piece(LocalDateTime start, LocalDateTime end, boolean bucket) {
+        LocalDate firstDay() {
+            return start.toLocalDate();
+        }
+
+        LocalDate lastDay() {
+            return end.toLocalDate();
+        }
+    }
+
+    /**
+     * Additive usage figures of one cost center, subdivision, category or employee.
+     */
+    static final class Amounts {
+        String name;
+        String extension;
+        long incomingCalls;
+        long outgoingCalls;
+        long calls;
+        long duration;
+        BigDecimal cost = BigDecimal.ZERO;
+
+        void add(Amounts other) {
+            if (other.name != null) name = other.name;
+            if (other.extension != null) extension = other.extension;
+            incomingCalls += other.incomingCalls;
+            outgoingCalls += other.outgoingCalls;
+            calls += other.calls;
+            duration += other.duration;
+            cost = cost.add(other.cost);
+        }
+    }
+
+    record EmployeeKey(String name, String extension, String originCity) {
+    }
+
+    /**
+     * Independently computed and cached parts of the overview.
+     */
+    enum OverviewSection {
+        TOTALS("totals"),
+        COST_CENTERS("costCenters"),
+        TELEPHONY_TYPES("telephonyTypes"),
+        SUBDIVISIONS("subdivisions"),
+        EMPLOYEES("employees");
+
+        final String key;
+
+        OverviewSection(String key) {
+            this.key = key;
+        }
+
+        String kind() {
+            return "overview-" + key;
+        }
+    }
+
+    static final class OverviewPartial {
+        long incomingCalls;
+        long outgoingCalls;
+        long durationSeconds;
+        long unassignedCalls;
+        long processingFailures;
+        BigDecimal cost = BigDecimal.ZERO;
+        final Map<Long, Amounts> costCenters = new HashMap<>();
+        final Map<String, Amounts> telephonyCategories = new LinkedHashMap<>();
+        final Map<Long, Amounts> subdivisions = new HashMap<>();
+        final Map<EmployeeKey, Amounts> employees = new HashMap<>();
+        // Sections answered from older figures because they ran out of time
+        final Set<OverviewSection> staleSections = EnumSet.noneOf(OverviewSection.class);
+
+        void add(OverviewPartial other) {
+            incomingCalls += other.incomingCalls;
+            outgoingCalls += other.outgoingCalls;
+            durationSeconds += other.durationSeconds;
+            unassignedCalls += other.unassignedCalls;
+            processingFailures += other.processingFailures;
+            cost = cost.add(other.cost);
+            merge(costCenters, other.costCenters);
+            merge(telephonyCategories, other.telephonyCategories);
+            merge(subdivisions, other.subdivisions);
+            merge(employees, other.employees);
+        }
+    }
+
+    /**
+     * Incoming and outgoing call counts per extension, for extensions with calls.
+     */
+    static final class ActivityPartial {
+        final Map<String, long[]> extensions = new HashMap<>();
+
+        void add(ActivityPartial other) {
+            other.extensions.forEach((extension, counts) -> {
+                long[] acc = extensions.computeIfAbsent(extension, k -> new long[2]);
+                acc[0] += counts[0];
+                acc[1] += counts[1];
+            });
+        }
+    }
+
+    @PostConstruct
+    void startSectionExecutor() {
+        sectionExecutor = new ThreadPoolTaskExecutor();
+        sectionExecutor.setCorePoolSize(sectionThreads);
+        sectionExecutor.setMaxPoolSize(sectionThreads);
+        sectionExecutor.setQueueCapacity(500);
+        sectionExecutor.setThreadNamePrefix("dashboard-");
+        sectionExecutor.setTaskDecorator(new TenantAwareTaskDecorator());
+        sectionExecutor.initialize();
+    }
+
+    @PreDestroy
+    void stopSectionExecutor() {
+        sectionExecutor.shutdown();
+    }
+
+    OverviewPartial getOverview(LocalDateTime startDate, LocalDateTime endDate) {
+        String tenant = tenantKey(TenantContext.getTenant());
+        Map<OverviewSection, CompletableFuture<OverviewPartial>> futures = new EnumMap<>(OverviewSection.class);
+        for (OverviewSection section : OverviewSection.values()) {
+            String key = sectionKey(tenant, section, startDate, endDate);
+            CompletableFuture<OverviewPartial> promise = new CompletableFuture<>();
+            CompletableFuture<OverviewPartial> running = sectionsInFlight.putIfAbsent(key, promise);
+            if (running == null) {
+                startSection(key, section, startDate, endDate, promise);
+            }
+            futures.put(section, running != null ? running : promise);
+        }
+
+        OverviewPartial result = new OverviewPartial();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sectionTimeoutMs);
+        for (Map.Entry<OverviewSection, CompletableFuture<OverviewPartial>> entry : futures.entrySet()) {
+            OverviewSection section = entry.getKey();
+            try {
+                result.add(entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                OverviewPartial last = lastSection(sectionKey(tenant, section, startDate, endDate));
+                if (last != null) {
+                    result.add(last);
+                }
+                result.staleSections.add(section);
+                log.warn("Dashboard section [{}] exceeded {} ms for tenant [{}], answering {}",
+                        section.key, sectionTimeoutMs, tenant, last != null ? "last known figures" : "empty");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+                throw new IllegalStateException("Dashboard section " + section.key + " failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while assembling the dashboard", e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes one section for the range into {@code promise}, which is already
+     * registered as in flight under {@code key}.
+     */
+    private void startSection(String key, OverviewSection section, LocalDateTime startDate, LocalDateTime endDate,
+                              CompletableFuture<OverviewPartial> promise) {
+        // Whether or not anyone still waits for it, a finished section is kept as the stale fallback
+        promise.whenComplete((partial, error) -> {
+            sectionsInFlight.remove(key, promise);
+            if (partial != null) {
+                Cache cache = cacheManager.getCache(CacheConfig.DASHBOARD_LAST_SECTIONS);
+                if (cache != null) {
+                    cache.put(key, partial);
+                }
+            }
+        });
+
+        Runnable task = () -> {
+            try {
+                OverviewPartial partial = new OverviewPartial();
+                for (Piece piece : split(startDate, endDate)) {
+                    partial.add(load(section.kind(), piece, () -> computeSection(section, piece.start(), piece.end())));
+                }
+                promise.complete(partial);
+            } catch (Throwable e) {
+                // Never leave the promise pending, or the section would stay in flight for good
+                promise.completeExceptionally(e);
+            }
+        };
+        try {
+            sectionExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Saturated pool: compute on the request thread rather than fail
+            task.run();
+        }
+    }
+
+    private OverviewPartial lastSection(String key) {
+        Cache cache = cacheManager.getCache(CacheConfig.DASHBOARD_LAST_SECTIONS);
+        Cache.ValueWrapper cached = cache != null ? cache.get(key) : null;
+        return cached != null ? (OverviewPartial) cached.get() : null;
+    }
+
+    /**
+     * Every extension of the tenant, as in the employee activity report, with its
+     * call counts for the range.
+     */
+    List<EmployeeActivityReportDto> getEmployeeActivity(LocalDateTime startDate, LocalDateTime endDate) {
+        ActivityPartial activity = new ActivityPartial();
+        for (Piece piece : split(startDate, endDate)) {
+            activity.add(load(ACTIVITY, piece, () -> computeActivity(piece.start(), piece.end())));
+        }
+
+        List<EmployeeActivityReportDto> roster = getRoster();
+        List<EmployeeActivityReportDto> result = new ArrayList<>(roster.size());
+        for (EmployeeActivityReportDto row : roster) {
+            long[] counts = activity.extensions.getOrDefault(extensionKey(row.getExtension()), new long[2]);
+            result.add(withActivity(row, counts[0], counts[1]));
+        }
+        return result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCallRecordDaysChanged(CallRecordDaysChangedEvent event) {
+        String tenant = tenantKey(event.tenantId());
+        tenantVersions.computeIfAbsent(tenant, k -> new AtomicLong()).incrementAndGet();
+
+        for (String cacheName : List.of(CacheConfig.DASHBOARD_OPEN_BUCKETS, CacheConfig.DASHBOARD_CLOSED_BUCKETS)) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache == null) continue;
+            if (event.allDays()) {
+                if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+                    nativeCache.asMap().keySet().removeIf(key -> key.toString().startsWith(tenant + ":"));
+                } else {
+                    cache.clear();
+                }
+                continue;
+            }
+            for (LocalDate day : event.days()) {
+                YearMonth month = YearMonth.from(day);
+                for (String kind : bucketKinds()) {
+                    cache.evict(bucketKey(tenant, kind, day, day));
+                    cache.evict(bucketKey(tenant, kind, month.atDay(1), month.atEndOfMonth()));
+                }
+            }
+        }
+        log.debug("Dropped dashboard buckets for tenant [{}]: {}", tenant,
+                event.allDays() ? "all days" : event.days());
+    }
+
+    /**
+     * Splits [startDate, endDate] into partial edge days, past whole months and
+     * remaining whole days.
+     */
+    List<Piece> split(LocalDateTime startDate, LocalDateTime endDate) {
+        LocalDate firstWholeDay = startDate.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? startDate.toLocalDate() : startDate.toLocalDate().plusDays(1);
+        // Service dates have second precision, so 23:59:59 closes the day
+        LocalDate lastWholeDay = endDate.toLocalTime().isBefore(END_OF_DAY)
+                ? endDate.toLocalDate().minusDays(1) : endDate.toLocalDate();
+
+        List<Piece> pieces = new ArrayList<>();
+        if (firstWholeDay.isAfter(lastWholeDay)) {
+            if (!startDate.isAfter(endDate)) {
+                pieces.add(new Piece(startDate, endDate, false));
+            }
+            return pieces;
+        }
+
+        if (startDate.isBefore(firstWholeDay.atStartOfDay())) {
+            pieces.add(new Piece(startDate, firstWholeDay.minusDays(1).atTime(LocalTime.MAX), false));
+        }
+        LocalDate today = LocalDate.now();
+        LocalDate day = firstWholeDay;
+        while (!day.isAfter(lastWholeDay)) {
+            LocalDate monthEnd = YearMonth.from(day).atEndOfMonth();
+            LocalDate last = day.getDayOfMonth() == 1 && !monthEnd.isAfter(lastWholeDay) && monthEnd.isBefore(today)
+                    ? monthEnd : day;
+            pieces.add(new Piece(day.atStartOfDay(), last.atTime(LocalTime.MAX), true));
+            day = last.plusDays(1);
+        }
+        if (lastWholeDay.isBefore(endDate.toLocalDate())) {
+            pieces.add(new Piece(endDate.toLocalDate().atStartOfDay(), endDate, false));
+        }
+        return pieces;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T load(String kind, Piece piece, Supplier<T> compute) {
+        if (!piece.bucket()) {
+            return compute.get();
+        }
+
+        String tenant = tenantKey(TenantContext.getTenant());
+        String key = bucketKey(tenant, kind, piece.firstDay(), piece.lastDay());
+        Cache cache = cacheManager.getCache(piece.lastDay().isBefore(LocalDate.now())
+                ? CacheConfig.DASHBOARD_CLOSED_BUCKETS : CacheConfig.DASHBOARD_OPEN_BUCKETS);
+        if (cache != null) {
+            Cache.ValueWrapper cached = cache.get(key);
+            if (cached != null) {
+                return (T) cached.get();
+            }
+        }
+
+        AtomicLong version = tenantVersions.computeIfAbsent(tenant, k -> new AtomicLong());
+        long before = version.get();
+        T value = compute.get();
+        if (cache != null && version.get() == before) {
+            cache.put(key, value);
+        }
+        log.debug("Dashboard bucket computed: key={}", key);
+        return value;
+    }
+
+    private OverviewPartial computeSection(OverviewSection section, LocalDateTime startDate, LocalDateTime endDate) {
+        OverviewPartial partial = new OverviewPartial();
+        switch (section) {
+            case TOTALS -> computeTotals(partial, startDate, endDate);
+            case COST_CENTERS -> computeCostCenters(partial, startDate, endDate);
+            case TELEPHONY_TYPES -> computeTelephonyTypes(partial, startDate, endDate);
+            case SUBDIVISIONS -> computeSubdivisions(partial, startDate, endDate);
+            case EMPLOYEES -> computeEmployees(partial, startDate, endDate);
+        }
+        return partial;
+    }
+
+    private void computeTotals(OverviewPartial partial, LocalDateTime startDate, LocalDateTime endDate) {
+        // Totals include the synthetic unassigned row
+        CostCenterUsageTotalsDto totals = telephonyUsageReportService
+                .getCostCenterUsageTotals(startDate, endDate, null);
+        partial.incomingCalls = totals.getTotalIncomingCalls();
+        partial.outgoingCalls = totals.getTotalOutgoingCalls();
+        partial.durationSeconds = totals.getTotalDurationSeconds();
+        partial.unassignedCalls = totals.getUnassignedCalls();
+        partial.cost = orZero(totals.getTotalBilledAmount());
+
+        partial.processingFailures = failedCallRecordRepository
+                .count((root, query, cb) -> cb.between(root.get("createdDate"), startDate, endDate));
+    }
+
+    private void computeCostCenters(OverviewPartial partial, LocalDateTime startDate, LocalDateTime endDate) {
+        for (CostCenterUsageReportDto row : telephonyUsageReportService
+                .generateCostCenterUsageReport(startDate, endDate, null, Pageable.unpaged())) {
+            Amounts amounts = new Amounts();
+            amounts.name = row.getCostCenterName();
+            amounts.cost = orZero(row.getTotalBilledAmount());
+            partial.costCenters.computeIfAbsent(row.getCostCenterId(), k -> new Amounts()).add(amounts);
+        }
+    }
+
+    private void computeTelephonyTypes(OverviewPartial partial, LocalDateTime startDate, LocalDateTime endDate) {
+        for (TelephonyTypeUsageGroupDto group : telephonyUsageReportService
+                .generateTelephonyTypeUsageReport(startDate, endDate, Pageable.unpaged())) {
+            TelephonyTypeUsageReportDto sub = group.getSubtotal();
+            Amounts amounts = new Amounts();
+            amounts.name = group.getCategoryName();
+            if (sub != null) {
+                amounts.incomingCalls = orZero(sub.getIncomingCallCount());
+                amounts.outgoingCalls = orZero(sub.getOutgoingCallCount());
+                amounts.cost = orZero(sub.getTotalBilledAmount());
+            }
+            partial.telephonyCategories.computeIfAbsent(group.getCategoryName(), k -> new Amounts()).add(amounts);
+        }
+    }
+
+    private void computeSubdivisions(OverviewPartial partial, LocalDateTime startDate, LocalDateTime endDate) {
+        for (SubdivisionUsageReportDto row : subdivisionReportService
+                .generateSubdivisionUsageReport(startDate, endDate, null, Pageable.unpaged())) {
+            Amounts amounts = new Amounts();
+            amounts.name = row.getSubdivisionName();
+            amounts.calls = orZero(row.getIncomingCallCount()) + orZero(row.getOutgoingCallCount());
+            amounts.cost = orZero(row.getTotalBilledAmount());
+            partial.subdivisions.computeIfAbsent(row.getSubdivisionId(), k -> new Amounts()).add(amounts);
+        }
+    }
+
+    private void computeEmployees(OverviewPartial partial, LocalDateTime startDate, LocalDateTime endDate) {
+        for (HighestConsumptionEmployeeReportDto row : employeeReportService
+                .generateHighestConsumptionEmployeeReport(startDate, endDate, Pageable.unpaged())) {
+            Amounts amounts = new Amounts();
+            amounts.name = row.getEmployeeName();
+            amounts.extension = row.getExtension();
+            amounts.calls = orZero(row.getCallCount());
+            amounts.duration = orZero(row.getTotalDuration());
+            amounts.cost = orZero(row.getTotalBilledAmount());
+            partial.employees.computeIfAbsent(
+                    new EmployeeKey(row.getEmployeeName(), row.getExtension(), row.getOriginCity()),
+                    k -> new Amounts()).add(amounts);
+        }
+    }
+
+    // Only extensions with calls are read; the roster is joined in getEmployeeActivity
+    private ActivityPartial computeActivity(LocalDateTime startDate, LocalDateTime endDate) {
+        ActivityPartial partial = new ActivityPartial();
+        for (ExtensionCallCount row : reportRepository.getExtensionCallCounts(startDate, endDate)) {
+            long incoming = orZero(row.getIncomingCallCount());
+            long outgoing = orZero(row.getOutgoingCallCount());
+            if (incoming == 0 && outgoing == 0) continue;
+            long[] acc = partial.extensions.computeIfAbsent(extensionKey(row.getExtension()), k -> new long[2]);
+            acc[0] += incoming;
+            acc[1] += outgoing;
+        }
+        return partial;
+    }
+
+    /**
+     * The extension list with its static attributes (employee, equipment, cost
+     * center, location), cached per tenant.
+     */
+    @SuppressWarnings("unchecked")
+    private List<EmployeeActivityReportDto> getRoster() {
+        Cache cache = cacheManager.getCache(CacheConfig.DASHBOARD_EMPLOYEE_ROSTER);
+        String key = tenantKey(TenantContext.getTenant());
+        if (cache != null) {
+            Cache.ValueWrapper cached = cache.get(key);
+            if (cached != null) {
+                return (List<EmployeeActivityReportDto>) cached.get();
+            }
+        }
+        // An empty range still lists every extension
+        LocalDateTime now = LocalDate.now().atStartOfDay();
+        List<EmployeeActivityReportDto> rows = employeeReportService
+                .fetchAllEmployeeActivity(null, null, null, null, now, now);
+        putRoster(rows);
+        return rows;
+    }
+
+    private void putRoster(List<EmployeeActivityReportDto> rows) {
+        Cache cache = cacheManager.getCache(CacheConfig.DASHBOARD_EMPLOYEE_ROSTER);
+        if (cache != null) {
+            cache.put(tenantKey(TenantContext.getTenant()), rows);
+        }
+    }
+
+    private static EmployeeActivityReportDto withActivity(EmployeeActivityReportDto row, long incoming, long outgoing) {
+        EmployeeActivityReportDto copy = new EmployeeActivityReportDto();
+        copy.setEmployeeId(row.getEmployeeId());
+        copy.setEmployeeName(row.getEmployeeName());
+        copy.setExtension(row.getExtension());
+        copy.setInstallationDate(row.getInstallationDate());
+        copy.setEquipmentTypeName(row.getEquipmentTypeName());
+        copy.setEquipmentModelName(row.getEquipmentModelName());
+        copy.setCostCenterId(row.getCostCenterId());
+        copy.setCostCenterName(row.getCostCenterName());
+        copy.setCostCenterWorkOrder(row.getCostCenterWorkOrder());
+        copy.setNit(row.getNit());
+        copy.setSubdivisionId(row.getSubdivisionId());
+        copy.setSubdivisionName(row.getSubdivisionName());
+        copy.setDepartmentCountry(row.getDepartmentCountry());
+        copy.setCityName(row.getCityName());
+        copy.setOfficeLocation(row.getOfficeLocation());
+        copy.setIncomingCallCount(incoming);
+        copy.setOutgoingCallCount(outgoing);
+        copy.setTotalCallCount(incoming + outgoing);
+        copy.setIsUsed(incoming + outgoing > 0);
+        return copy;
+    }
+
+    private static <K> void merge(Map<K, Amounts> target, Map<K, Amounts> source) {
+        source.forEach((key, amounts) -> target.computeIfAbsent(key, k -> new Amounts()).add(amounts));
+    }
+
+    private static List<String> bucketKinds() {
+        List<String> kinds = new ArrayList<>();
+        for (OverviewSection section : OverviewSection.values()) {
+            kinds.add(section.kind());
+        }
+        kinds.add(ACTIVITY);
+        return kinds;
+    }
+
+    private static String sectionKey(String tenant, OverviewSection section, LocalDateTime startDate,
+                                     LocalDateTime endDate) {
+        return tenant + ":" + section.key + ":" + startDate + ":" + endDate;
+    }
+
+    private static String bucketKey(String tenant, String kind, LocalDate firstDay, LocalDate lastDay) {
+        return tenant + ":" + kind + ":" + firstDay + ":" + lastDay;
+    }
+
+    private static String tenantKey(String tenant) {
+        return tenant != null ? tenant : "default";
+    }
+
+    private static String extensionKey(String extension) {
+        return extension != null ? extension : "";
+    }
+
+    private static long orZero(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
@@ -1,28 +1,17 @@
 package com.infomedia.abacox.telephonypricing.service;
 
-import com.infomedia.abacox.telephonypricing.config.CacheConfig;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import com.infomedia.abacox.telephonypricing.dto.dashboard.DashboardOverviewDto;
 import com.infomedia.abacox.telephonypricing.dto.dashboard.EmployeeActivityDashboardDto;
-import com.infomedia.abacox.telephonypricing.db.repository.FailedCallRecordRepository;
-import com.infomedia.abacox.telephonypricing.dto.report.*;
-import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
-import com.infomedia.abacox.telephonypricing.service.report.EmployeeReportService;
-import com.infomedia.abacox.telephonypricing.service.report.SubdivisionReportService;
-import com.infomedia.abacox.telephonypricing.service.report.TelephonyUsageReportService;
+import com.infomedia.abacox.telephonypricing.dto.report.EmployeeActivityReportDto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Slice;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
-import java.time.YearMonth;
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -32,37 +21,15 @@ import java.util.stream.Collectors;
 @Slf4j
 @Service
 @RequiredArgsConstructor
+@ConnectionWorkload(Workload.REPORTS)
 public class DashboardService {
 
-    private final TelephonyUsageReportService telephonyUsageReportService;
-    private final SubdivisionReportService subdivisionReportService;
-    private final EmployeeReportService employeeReportService;
-    private final FailedCallRecordRepository failedCallRecordRepository;
-    private final CacheManager cacheManager;
+    private final DashboardAggregateStore dashboardAggregateStore;
 
-    @SuppressWarnings("unchecked")
     public EmployeeActivityDashboardDto getEmployeeActivityDashboard(
             String employeeName, String employeeExtension, Long subdivisionId, Long costCenterId,
             LocalDateTime startDate, LocalDateTime endDate) {
-        String tenant = TenantContext.getTenant();
-        String key = cacheKey(tenant, startDate, endDate) + ":activity-dashboard";
-        Cache cache = cacheManager.getCache(employeeActivityCacheName(endDate));
-
-        List<EmployeeActivityReportDto> all = null;
-        if (cache != null) {
-            Cache.ValueWrapper cached = cache.get(key);
-            if (cached != null) {
-                log.debug("Dashboard employee activity cache hit: key={}", key);
-                all = (List<EmployeeActivityReportDto>) cached.get();
-            }
-        }
-
-        if (all == null) {
-            all = employeeReportService.fetchAllEmployeeActivity(null, null, null, null, startDate, endDate);
-            if (cache != null) {
-                cache.put(key, all);
-            }
-        }
+        List<EmployeeActivityReportDto> all = dashboardAggregateStore.getEmployeeActivity(startDate, endDate);
 
         List<EmployeeActivityReportDto> filtered = applyEmployeeActivityFilters(
                 all, employeeName, employeeExtension, subdivisionId, costCenterId);
@@ -71,42 +38,7 @@ public class DashboardService {
     }
 
     public DashboardOverviewDto getDashboardOverview(LocalDateTime startDate, LocalDateTime endDate) {
-        String tenant = TenantContext.getTenant();
-        String key    = cacheKey(tenant, startDate, endDate);
-        Cache  cache  = cacheManager.getCache(cacheName(endDate));
-
-        if (cache != null) {
-            Cache.ValueWrapper cached = cache.get(key);
-            if (cached != null) {
-                log.debug("Dashboard cache hit: key={}", key);
-                return (DashboardOverviewDto) cached.get();
-            }
-        }
-
-        DashboardOverviewDto result = computeDashboardOverview(startDate, endDate);
-
-        if (cache != null) {
-            cache.put(key, result);
-        }
-        return result;
-    }
-
-    private String employeeActivityCacheName(LocalDateTime endDate) {
-        YearMonth current = YearMonth.now();
-        YearMonth end     = YearMonth.from(endDate);
-        return end.isBefore(current)
-                ? CacheConfig.DASHBOARD_EMPLOYEE_ACTIVITY_HISTORICAL
-                : CacheConfig.DASHBOARD_EMPLOYEE_ACTIVITY_CURRENT;
-    }
-
-    private String cacheName(LocalDateTime endDate) {
-        YearMonth current = YearMonth.now();
-        YearMonth end     = YearMonth.from(endDate);
-        return end.isBefore(current) ? CacheConfig.DASHBOARD_HISTORICAL : CacheConfig.DASHBOARD_CURRENT;
-    }
-
-    private String cacheKey(String tenant, LocalDateTime start, LocalDateTime end) {
-        return (tenant != null ? tenant : "default") + ":" + start + ":" + end;
+        return computeDashboardOverview(dashboardAggregateStore.getOverview(startDate, endDate));
     }
 
     private List<EmployeeActivityReportDto> applyEmployeeActivityFilters(
@@ -256,77 +188,38 @@ public class DashboardService {
                 .build();
     }
 
-    private DashboardOverviewDto computeDashboardOverview(LocalDateTime startDate, LocalDateTime endDate) {
+    private DashboardOverviewDto computeDashboardOverview(DashboardAggregateStore.OverviewPartial partial) {
         // --- KPI totals (includes the synthetic unassigned row) ---
-        CostCenterUsageTotalsDto totals = telephonyUsageReportService
-                .getCostCenterUsageTotals(startDate, endDate, null);
-
-        BigDecimal totalCost = totals.getTotalBilledAmount() != null ? totals.getTotalBilledAmount() : BigDecimal.ZERO;
-        long totalDurationSeconds = totals.getTotalDurationSeconds();
-        long totalIncomingCalls = totals.getTotalIncomingCalls();
-        long totalOutgoingCalls = totals.getTotalOutgoingCalls();
-        long unassignedCalls = totals.getUnassignedCalls();
+        BigDecimal totalCost = partial.cost;
+        long totalDurationSeconds = partial.durationSeconds;
+        long totalIncomingCalls = partial.incomingCalls;
+        long totalOutgoingCalls = partial.outgoingCalls;
+        long unassignedCalls = partial.unassignedCalls;
 
         long totalCalls = totalIncomingCalls + totalOutgoingCalls;
         BigDecimal avgCost = totalDurationSeconds > 0
                 ? totalCost.divide(BigDecimal.valueOf(totalDurationSeconds / 60.0), 4, RoundingMode.HALF_UP)
                 : BigDecimal.ZERO;
 
-        // --- Processing failures ---
-        long processingFailures = failedCallRecordRepository
-                .count((root, query, cb) -> cb.between(root.get("createdDate"), startDate, endDate));
-
         // --- Top 5 cost centers ---
-        var costCenterReport = telephonyUsageReportService
-                .generateCostCenterUsageReport(startDate, endDate, null, PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "totalBilledAmount")));
-
-        List<DashboardOverviewDto.CostCenterUsageDto> topCostCenters = new ArrayList<>();
-        for (CostCenterUsageReportDto row : costCenterReport.getContent()) {
-            String name = row.getCostCenterName() != null ? row.getCostCenterName() : "Unknown";
-            BigDecimal cost = row.getTotalBilledAmount() != null ? row.getTotalBilledAmount() : BigDecimal.ZERO;
-            topCostCenters.add(new DashboardOverviewDto.CostCenterUsageDto(name, cost));
-        }
+        List<DashboardOverviewDto.CostCenterUsageDto> topCostCenters = topByCost(partial.costCenters, 5).stream()
+                .map(a -> new DashboardOverviewDto.CostCenterUsageDto(a.name != null ? a.name : "Unknown", a.cost))
+                .collect(Collectors.toList());
 
         // --- Telephony type breakdown (donut + in/out grouped bar) ---
-        Slice<TelephonyTypeUsageGroupDto> telephonyReport = telephonyUsageReportService
-                .generateTelephonyTypeUsageReport(startDate, endDate, PageRequest.of(0, 100, Sort.by(Sort.Direction.DESC, "totalBilledAmount")));
-
-        List<DashboardOverviewDto.TelephonyTypeCostDto> costByTelephonyType = new ArrayList<>();
-        for (TelephonyTypeUsageGroupDto group : telephonyReport.getContent()) {
-            TelephonyTypeUsageReportDto sub = group.getSubtotal();
-            BigDecimal cost   = sub != null && sub.getTotalBilledAmount()  != null ? sub.getTotalBilledAmount()  : BigDecimal.ZERO;
-            long inCalls      = sub != null && sub.getIncomingCallCount()  != null ? sub.getIncomingCallCount()  : 0L;
-            long outCalls     = sub != null && sub.getOutgoingCallCount()  != null ? sub.getOutgoingCallCount()  : 0L;
-            costByTelephonyType.add(new DashboardOverviewDto.TelephonyTypeCostDto(group.getCategoryName(), cost, inCalls, outCalls));
-        }
+        List<DashboardOverviewDto.TelephonyTypeCostDto> costByTelephonyType = topByCost(partial.telephonyCategories, 100).stream()
+                .map(a -> new DashboardOverviewDto.TelephonyTypeCostDto(a.name, a.cost, a.incomingCalls, a.outgoingCalls))
+                .collect(Collectors.toList());
 
         // --- Top 5 subdivisions ---
-        Slice<SubdivisionUsageReportDto> subdivisionsReport = subdivisionReportService
-                .generateSubdivisionUsageReport(startDate, endDate, null, PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "totalBilledAmount")));
-
-        List<DashboardOverviewDto.SubdivisionSummaryDto> topSubdivisions = new ArrayList<>();
-        for (SubdivisionUsageReportDto row : subdivisionsReport.getContent()) {
-            String name   = row.getSubdivisionName()    != null ? row.getSubdivisionName()    : "Unknown";
-            BigDecimal cost = row.getTotalBilledAmount() != null ? row.getTotalBilledAmount()  : BigDecimal.ZERO;
-            long calls    = (row.getIncomingCallCount() != null ? row.getIncomingCallCount() : 0L)
-                          + (row.getOutgoingCallCount() != null ? row.getOutgoingCallCount() : 0L);
-            topSubdivisions.add(new DashboardOverviewDto.SubdivisionSummaryDto(name, cost, calls));
-        }
+        List<DashboardOverviewDto.SubdivisionSummaryDto> topSubdivisions = topByCost(partial.subdivisions, 5).stream()
+                .map(a -> new DashboardOverviewDto.SubdivisionSummaryDto(a.name != null ? a.name : "Unknown", a.cost, a.calls))
+                .collect(Collectors.toList());
 
         // --- Top 10 employees by consumption ---
-        Slice<HighestConsumptionEmployeeReportDto> employeesReport = employeeReportService
-                .generateHighestConsumptionEmployeeReport(startDate, endDate, PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "totalBilledAmount")));
-
-        List<DashboardOverviewDto.EmployeeSummaryDto> topEmployees = new ArrayList<>();
-        for (HighestConsumptionEmployeeReportDto row : employeesReport.getContent()) {
-            topEmployees.add(new DashboardOverviewDto.EmployeeSummaryDto(
-                    row.getEmployeeName(),
-                    row.getExtension(),
-                    row.getCallCount(),
-                    row.getTotalDuration(),
-                    row.getTotalBilledAmount() != null ? row.getTotalBilledAmount() : BigDecimal.ZERO
-            ));
-        }
+        List<DashboardOverviewDto.EmployeeSummaryDto> topEmployees = topByCost(partial.employees, 10).stream()
+                .map(a -> new DashboardOverviewDto.EmployeeSummaryDto(a.name, a.extension, a.calls, a.duration, a.cost))
+                .collect(Collectors.toList());
 
         return DashboardOverviewDto.builder()
                 .totalCalls(totalCalls)
@@ -335,12 +228,20 @@ public class DashboardService {
                 .totalCost(totalCost)
                 .totalDurationSeconds(totalDurationSeconds)
                 .averageCostPerMinute(avgCost)
-                .processingFailures(processingFailures)
+                .processingFailures(partial.processingFailures)
                 .unassignedCalls(unassignedCalls)
                 .costByTelephonyType(costByTelephonyType)
                 .topCostCenters(topCostCenters)
                 .topSubdivisions(topSubdivisions)
                 .topEmployees(topEmployees)
+                .staleSections(partial.staleSections.stream().map(section -> section.key).collect(Collectors.toList()))
                 .build();
     }
+
+    private static List<DashboardAggregateStore.Amounts> topByCost(Map<?, DashboardAggregateStore.Amounts> amounts, int limit) {
+        return amounts.values().stream()
+                .sorted(Comparator.comparing((DashboardAggregateStore.Amounts a) -> a.cost).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
 }
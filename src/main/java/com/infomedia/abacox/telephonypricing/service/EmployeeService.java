@@ -1,5 +1,6 @@
 package com.infomedia.abacox.telephonypricing.service;
 
+import com.infomedia.abacox.telephonypricing.component.cdrprocessing.ExtensionActivityService;
 import com.infomedia.abacox.telephonypricing.component.export.excel.ExcelGeneratorBuilder;
 import com.infomedia.abacox.telephonypricing.constants.RefTable;
 import com.infomedia.abacox.telephonypricing.db.entity.Employee;
@@ -17,15 +18,19 @@ import org.springframework.transaction.annotation.Transactional;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class EmployeeService extends CrudService<Employee, Long, EmployeeRepository> {
 
     private final HistoryControlService historyControlService;
+    private final ExtensionActivityService extensionActivityService;
 
-    public EmployeeService(EmployeeRepository repository, HistoryControlService historyControlService) {
+    public EmployeeService(EmployeeRepository repository, HistoryControlService historyControlService,
+                           ExtensionActivityService extensionActivityService) {
         super(repository);
         this.historyControlService = historyControlService;
+        this.extensionActivityService = extensionActivityService;
     }
 
     @Transactional
@@ -45,7 +50,9 @@ public class EmployeeService extends CrudService<Employee, Long, EmployeeReposit
                 .build();
 
         historyControlService.initHistory(employee);
-        return save(employee);
+        Employee saved = save(employee);
+        extensionActivityService.recountExtension(saved.getExtension());
+        return saved;
     }
 
     @Transactional
@@ -65,12 +72,17 @@ public class EmployeeService extends CrudService<Employee, Long, EmployeeReposit
         uDto.getAddress().ifPresent(updated::setAddress);
         uDto.getIdNumber().ifPresent(updated::setIdNumber);
 
-        return historyControlService.processUpdate(
+        String previousExtension = current.getExtension();
+        Employee saved = historyControlService.processUpdate(
                 current,
                 updated,
                 Map.of("Extension", Employee::getExtension, "Location", Employee::getCommunicationLocationId),
                 RefTable.EMPLOYEE,
                 getRepository());
+        if (!Objects.equals(previousExtension, saved.getExtension())) {
+            extensionActivityService.recountExtension(saved.getExtension());
+        }
+        return saved;
     }
 
     @Transactional
@@ -0,0 +1,181 @@
+package com.infomedia.abacox.telephonypricing.service;
+
+import com.infomedia.abacox.telephonypricing.multitenancy.TenantInitializer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ValidationException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Maintains cost_center_closure and subdivision_closure, the ancestor/descendant
+ * pairs of each hierarchy with their depth and label path.
+ * <p>
+ * The CRUD services refresh the subtree of every node they create or update, and
+ * remove the rows of every node they delete, in the same transaction, so
+ * renames, moves and deletions are reflected immediately. Each
+ * tenant is rebuilt in full at startup and after a data migration, which also
+ * repairs rows written by anything else.
+ */
+@Service
+@Log4j2
+public class HierarchyClosureService implements TenantInitializer {
+
+    // Guards the walk up the parents against a cycle already present in migrated data
+    private static final int MAX_DEPTH = 100;
+
+    enum Hierarchy {
+        COST_CENTER("cost_center", "parent_cost_center_id", "CONCAT(%1$s.work_order, ' - ', %1$s.name)"),
+        SUBDIVISION("subdivision", "parent_subdivision_id", "%1$s.name");
+
+        final String table;
+        final String parentColumn;
+        final String label;
+
+        Hierarchy(String table, String parentColumn, String label) {
+            this.table = table;
+            this.parentColumn = parentColumn;
+            this.label = label;
+        }
+
+        String closureTable() {
+            return table + "_closure";
+        }
+
+        /**
+         * Inserts the closure rows of the nodes matching {@code seedCondition}
+         * (on alias {@code n}), walking from each node up to its root.
+         */
+        String insertClosure(String seedCondition) {
+            return """
+                    INSERT INTO %2$s (ancestor_id, descendant_id, depth, path)
+                    WITH RECURSIVE chain AS (
+                        SELECT n.id AS ancestor_id, n.id AS descendant_id, n.%3$s AS next_id, 0 AS depth,
+                               CAST(%4$s AS text) AS path
+                        FROM %1$s n
+                        WHERE %6$s
+
+                        UNION ALL
+
+                        SELECT p.id, c.descendant_id, p.%3$s, c.depth + 1,
+                               CONCAT(%5$s, ' / ', c.path)
+                        FROM chain c
+                        INNER JOIN %1$s p ON p.id = c.next_id
+                        WHERE c.depth < %7$d
+                    )
+                    SELECT ancestor_id, descendant_id, depth, path FROM chain
+                    """.formatted(table, closureTable(), parentColumn, label.formatted("n"), label.formatted("p"),
+                    seedCondition, MAX_DEPTH);
+        }
+
+        String subtree() {
+            return """
+                    WITH RECURSIVE subtree AS (
+                        SELECT t.id, 0 AS depth FROM %1$s t WHERE t.id = :id
+                        UNION ALL
+                        SELECT t.id, s.depth + 1
+                        FROM %1$s t
+                        INNER JOIN subtree s ON t.%2$s = s.id
+                        WHERE s.depth < %3$d
+                    )
+                    SELECT id FROM subtree
+                    """.formatted(table, parentColumn, MAX_DEPTH);
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void onTenantInit(String tenantId) {
+        if (tenantId == null || "public".equals(tenantId)) return;
+        rebuild();
+        log.debug("Rebuilt cost center and subdivision closures for tenant [{}]", tenantId);
+    }
+
+    @Transactional
+    public void rebuild() {
+        for (Hierarchy hierarchy : Hierarchy.values()) {
+            entityManager.createNativeQuery("DELETE FROM " + hierarchy.closureTable()).executeUpdate();
+            entityManager.createNativeQuery(hierarchy.insertClosure("TRUE")).executeUpdate();
+        }
+    }
+
+    /**
+     * Rejects a new parent that would make the cost center its own ancestor.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void checkCostCenterParent(Long id, Long parentId) {
+        checkParent(Hierarchy.COST_CENTER, id, parentId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void checkSubdivisionParent(Long id, Long parentId) {
+        checkParent(Hierarchy.SUBDIVISION, id, parentId);
+    }
+
+    /**
+     * Recomputes the closure rows of a saved cost center and all its descendants.
+     * Must run in the transaction that wrote it.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void refreshCostCenter(Long id) {
+        refresh(Hierarchy.COST_CENTER, id);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void refreshSubdivision(Long id) {
+        refresh(Hierarchy.SUBDIVISION, id);
+    }
+
+    /**
+     * Removes the closure rows of a deleted cost center. Must run in the
+     * transaction that deleted it.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removeCostCenter(Long id) {
+        remove(Hierarchy.COST_CENTER, id);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removeSubdivision(Long id) {
+        remove(Hierarchy.SUBDIVISION, id);
+    }
+
+    private void checkParent(Hierarchy hierarchy, Long id, Long parentId) {
+        if (id == null || parentId == null) return;
+        Number descendants = (Number) entityManager.createNativeQuery(
+                        "SELECT COUNT(*) FROM " + hierarchy.closureTable()
+                                + " WHERE ancestor_id = :id AND descendant_id = :parentId")
+                .setParameter("id", id)
+                .setParameter("parentId", parentId)
+                .getSingleResult();
+        if (id.equals(parentId) || descendants.longValue() > 0) {
+            throw new ValidationException("A " + hierarchy.table.replace('_', ' ')
+                    + " cannot be moved under itself or one of its descendants");
+        }
+    }
+
+    private void refresh(Hierarchy hierarchy, Long id) {
+        entityManager.flush();
+        // Membership of the subtree does not change on a move, only its ancestors and paths
+        entityManager.createNativeQuery("DELETE FROM " + hierarchy.closureTable()
+                        + " WHERE descendant_id IN (SELECT descendant_id FROM " + hierarchy.closureTable()
+                        + " WHERE ancestor_id = :id)")
+                .setParameter("id", id)
+                .executeUpdate();
+        entityManager.createNativeQuery(hierarchy.insertClosure("n.id IN (" + hierarchy.subtree() + ")"))
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    private void remove(Hierarchy hierarchy, Long id) {
+        entityManager.createNativeQuery("DELETE FROM " + hierarchy.closureTable()
+                        + " WHERE descendant_id = :id OR ancestor_id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+}
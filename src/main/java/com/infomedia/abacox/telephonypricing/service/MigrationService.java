@@ -4,6 +4,10 @@ import com.infomedia.abacox.telephonypricing.component.migration.DataMigrationEx
 import com.infomedia.abacox.telephonypricing.component.migration.MigrationParams;
 import com.infomedia.abacox.telephonypricing.component.migration.SourceDbConfig;
 import com.infomedia.abacox.telephonypricing.component.migration.TableMigrationConfig;
+import com.infomedia.abacox.telephonypricing.component.cdrprocessing.CallRecordPartitionService;
+import com.infomedia.abacox.telephonypricing.component.cdrprocessing.CallRecordRollupService;
+import com.infomedia.abacox.telephonypricing.component.cdrprocessing.ConferenceGroupService;
+import com.infomedia.abacox.telephonypricing.component.cdrprocessing.ExtensionActivityService;
 import com.infomedia.abacox.telephonypricing.component.configmanager.ConfigKey;
 import com.infomedia.abacox.telephonypricing.component.configmanager.ConfigService;
 import com.infomedia.abacox.telephonypricing.dto.migration.MigrationStart;
@@ -46,6 +50,11 @@ public class MigrationService {
         private final EntityManager entityManager;
         private final PlatformTransactionManager transactionManager;
         private final ConfigService configService;
+        private final CallRecordRollupService callRecordRollupService;
+        private final ConferenceGroupService conferenceGroupService;
+        private final ExtensionActivityService extensionActivityService;
+        private final CallRecordPartitionService callRecordPartitionService;
+        private final HierarchyClosureService hierarchyClosureService;
         private final ExecutorService migrationExecutorService = Executors.newSingleThreadExecutor();
 
         // --- State Tracking ---
@@ -194,8 +203,28 @@ public class MigrationService {
 
                         currentStep.set(String.format("Starting migration of %d tables...", totalTableCount));
 
+                        // Migrated call records bypass the daily rollup, conference groups and extension activity; reports use raw records until they are rebuilt
+                        callRecordRollupService.markStale();
+                        conferenceGroupService.markStale();
+                        extensionActivityService.markStale();
                         dataMigrationExecutor.runMigration(params, this::reportProgress);
 
+                        // Historical months land in the default partition until they get their own
+                        currentStep.set("Creating call record partitions...");
+                        callRecordPartitionService.maintain();
+
+                        currentStep.set("Rebuilding cost center and subdivision hierarchies...");
+                        hierarchyClosureService.rebuild();
+
+                        currentStep.set("Rebuilding daily call rollups...");
+                        callRecordRollupService.rebuild();
+
+                        currentStep.set("Rebuilding conference groups...");
+                        conferenceGroupService.rebuild();
+
+                        currentStep.set("Rebuilding extension activity...");
+                        extensionActivityService.rebuild();
+
                         currentState.set(MigrationState.COMPLETED);
                         currentStep.set(String.format("Finished: Successfully migrated %d/%d tables.",
                                         migratedTables.get(), totalTables.get()));
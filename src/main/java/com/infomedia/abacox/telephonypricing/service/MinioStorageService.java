@@ -158,6 +158,25 @@ public class MinioStorageService {
         }
     }
 
+    /**
+     * Retrieves a byte range of an object (HTTP range GET).
+     * Caller is responsible for closing the stream.
+     */
+    public InputStream downloadRange(String bucketName, String objectName, long offset, long length) {
+        try {
+            return minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .offset(offset)
+                            .length(length)
+                            .build());
+        } catch (Exception e) {
+            log.error("Error downloading range [{}, +{}] of object {} from bucket {}", offset, length, objectName, bucketName, e);
+            throw new RuntimeException("MinIO range download failed", e);
+        }
+    }
+
     /**
      * Deletes a file from the tenant's bucket.
      */
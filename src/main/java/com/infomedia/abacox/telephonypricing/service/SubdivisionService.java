@@ -11,30 +11,51 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.io.InputStream;
 
 @Service
 public class SubdivisionService extends CrudService<Subdivision, Long, SubdivisionRepository> {
-    public SubdivisionService(SubdivisionRepository repository) {
+
+    private final HierarchyClosureService hierarchyClosureService;
+
+    public SubdivisionService(SubdivisionRepository repository, HierarchyClosureService hierarchyClosureService) {
         super(repository);
+        this.hierarchyClosureService = hierarchyClosureService;
     }
 
+    @Transactional
     public Subdivision create(CreateSubdivision uDto){
         Subdivision subdivision = Subdivision.builder()
                 .parentSubdivisionId(uDto.getParentSubdivisionId())
                 .name(uDto.getName())
                 .build();
 
-        return save(subdivision);
+        Subdivision saved = save(subdivision);
+        hierarchyClosureService.refreshSubdivision(saved.getId());
+        return saved;
     }
 
+    @Transactional
     public Subdivision update(Long id, UpdateSubdivision uDto){
         Subdivision subdivision = get(id);
-        uDto.getParentSubdivisionId().ifPresent(subdivision::setParentSubdivisionId);
+        uDto.getParentSubdivisionId().ifPresent(parentId -> {
+            hierarchyClosureService.checkSubdivisionParent(id, parentId);
+            subdivision.setParentSubdivisionId(parentId);
+        });
         uDto.getName().ifPresent(subdivision::setName);
-        return save(subdivision);
+        Subdivision saved = save(subdivision);
+        hierarchyClosureService.refreshSubdivision(saved.getId());
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public void deleteById(Long id) {
+        super.deleteById(id);
+        hierarchyClosureService.removeSubdivision(id);
     }
 
     public ByteArrayResource exportExcel(Specification<Subdivision> specification, Pageable pageable, ExcelGeneratorBuilder builder) {
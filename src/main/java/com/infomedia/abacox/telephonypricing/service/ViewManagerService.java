@@ -15,7 +15,6 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.sql.PreparedStatement;
 import java.util.List;
 
 @Service
@@ -36,13 +35,7 @@ public class ViewManagerService implements TenantInitializer {
         log.debug("Starting database views update/initialization for tenant '{}'...", tenantId);
 
         try {
-            // Set the search path for the current transaction
-            jdbcTemplate.execute("SELECT set_config('search_path', ?, false)", (PreparedStatement ps) -> {
-                ps.setString(1, tenantId);
-                ps.execute();
-                return null;
-            });
-
+            // The connection is already on the tenant schema: SchemaConnectionProvider switches it on checkout
             List<String> requiredViews = List.of(
                     "v_corporate_report");
 
@@ -2,24 +2,18 @@ package com.infomedia.abacox.telephonypricing.service.common;
 
 import com.infomedia.abacox.telephonypricing.component.export.excel.ExcelGeneratorBuilder;
 import com.infomedia.abacox.telephonypricing.db.entity.superclass.ActivableEntity;
+import com.infomedia.abacox.telephonypricing.db.repository.KeysetSlice;
+import com.infomedia.abacox.telephonypricing.db.repository.SliceableRepository;
 import com.infomedia.abacox.telephonypricing.exception.ResourceDeletionException;
 import com.infomedia.abacox.telephonypricing.exception.ResourceDisabledException;
 import com.infomedia.abacox.telephonypricing.exception.ResourceNotFoundException;
 
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.criteria.CriteriaBuilder;
-import jakarta.persistence.criteria.CriteriaQuery;
-import jakarta.persistence.criteria.Order;
-import jakarta.persistence.criteria.Predicate;
-import jakarta.persistence.criteria.Root;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
-import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -29,18 +23,18 @@ import org.springframework.transaction.annotation.Transactional;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.ParameterizedType;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 @RequiredArgsConstructor
 public abstract class CrudService<E, I, R extends JpaRepository<E, I> & JpaSpecificationExecutor<E>> {
 
     @Getter
     private final R repository;
-    @PersistenceContext
-    private EntityManager entityManager;
+    @Autowired
+    private SliceableRepository sliceableRepository;
 
     public Optional<E> find(I id) {
         if (id == null) {
@@ -71,6 +65,8 @@ public abstract class CrudService<E, I, R extends JpaRepository<E, I> & JpaSpeci
         }
         try {
             repository.deleteById(id);
+            // Inside a caller's transaction the DELETE would otherwise only run at commit
+            repository.flush();
         } catch (Exception e) {
             throw new ResourceDeletionException(getEntityClass(), id, e);
         }
@@ -126,8 +122,8 @@ public abstract class CrudService<E, I, R extends JpaRepository<E, I> & JpaSpeci
     public void exportExcelStreaming(Specification<E> spec, Sort sort, int maxRows,
                                       OutputStream outputStream, ExcelGeneratorBuilder builder) {
         try {
-            builder.generateStreaming(outputStream, (page, size) ->
-                    findAsSlice(spec, PageRequest.of(page, size, sort)).getContent(),
+            builder.generateStreaming(outputStream,
+                    sliceableRepository.keysetPages(getEntityClass(), spec, sort, Function.identity()),
                     ExcelGeneratorBuilder.DEFAULT_STREAMING_PAGE_SIZE, maxRows);
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -135,35 +131,10 @@ public abstract class CrudService<E, I, R extends JpaRepository<E, I> & JpaSpeci
     }
 
     public Slice<E> findAsSlice(Specification<E> spec, Pageable pageable) {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<E> query = cb.createQuery(getEntityClass());
-        Root<E> root = query.from(getEntityClass());
-
-        if (spec != null) {
-            Predicate predicate = spec.toPredicate(root, query, cb);
-            if (predicate != null) {
-                query.where(predicate);
-            }
-        }
-
-        if (pageable.getSort().isSorted()) {
-            List<Order> orders = new ArrayList<>();
-            pageable.getSort().forEach(order -> orders.add(order.isAscending()
-                    ? cb.asc(root.get(order.getProperty()))
-                    : cb.desc(root.get(order.getProperty()))));
-            query.orderBy(orders);
-        }
-
-        List<E> result = entityManager.createQuery(query)
-                .setFirstResult((int) pageable.getOffset())
-                .setMaxResults(pageable.getPageSize() + 1)
-                .getResultList();
-
-        boolean hasNext = result.size() > pageable.getPageSize();
-        if (hasNext) {
-            result = result.subList(0, pageable.getPageSize());
-        }
+        return sliceableRepository.findAllAsSlice(getEntityClass(), spec, pageable);
+    }
 
-        return new SliceImpl<>(result, pageable, hasNext);
+    public KeysetSlice<E> findAsKeysetSlice(Specification<E> spec, Pageable pageable, String cursor) {
+        return sliceableRepository.findAllAsKeysetSlice(getEntityClass(), spec, pageable, cursor);
     }
 }
@@ -2,13 +2,20 @@ package com.infomedia.abacox.telephonypricing.service.report;
 
 import com.infomedia.abacox.telephonypricing.component.cdrprocessing.EmployeeLookupService;
 import com.infomedia.abacox.telephonypricing.component.export.excel.ExcelGeneratorBuilder;
+import com.infomedia.abacox.telephonypricing.component.export.excel.ExportColumn;
+import com.infomedia.abacox.telephonypricing.component.export.parquet.ParquetColumn;
+import com.infomedia.abacox.telephonypricing.component.export.parquet.ParquetExportWriter;
 import com.infomedia.abacox.telephonypricing.component.modeltools.ModelConverter;
 import com.infomedia.abacox.telephonypricing.component.utils.SortingUtils;
 import com.infomedia.abacox.telephonypricing.db.entity.CallRecord;
 import com.infomedia.abacox.telephonypricing.db.entity.FailedCallRecord;
 
 import com.infomedia.abacox.telephonypricing.db.repository.ReportRepository;
+import com.infomedia.abacox.telephonypricing.db.repository.KeysetSlice;
+import com.infomedia.abacox.telephonypricing.db.repository.ProjectionStreamRepository;
 import com.infomedia.abacox.telephonypricing.db.repository.SliceableRepository;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import com.infomedia.abacox.telephonypricing.db.view.CorporateReportView;
 import com.infomedia.abacox.telephonypricing.dto.callrecord.CallRecordDto;
 import com.infomedia.abacox.telephonypricing.dto.commlocation.CommLocationDto;
@@ -25,26 +32,106 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
-import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RequiredArgsConstructor
 @Service
+@ConnectionWorkload(Workload.REPORTS)
 public class CallRecordReportService {
 
     private final SliceableRepository sliceableRepository;
     private final ReportRepository reportRepository;
     private final ModelConverter modelConverter;
     private final EmployeeLookupService employeeLookupService;
+    private final ProjectionStreamRepository projectionStreamRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ParquetExportWriter parquetExportWriter;
+
+    // Same headers as the flat fields of CallRecordDto, so existing column filters keep working
+    private static final List<ExportColumn> CALL_RECORD_EXPORT_COLUMNS = List.of(
+            ExportColumn.of("Created Date", "createdDate"),
+            ExportColumn.of("Created By", "createdBy"),
+            ExportColumn.of("Last Modified Date", "lastModifiedDate"),
+            ExportColumn.of("Last Modified By", "lastModifiedBy"),
+            ExportColumn.of("Id", "id"),
+            ExportColumn.of("Dial", "dial"),
+            ExportColumn.of("Comm Location Id", "commLocationId"),
+            ExportColumn.of("Service Date", "serviceDate"),
+            ExportColumn.of("Operator Id", "operatorId"),
+            ExportColumn.of("Employee Extension", "employeeExtension"),
+            ExportColumn.of("Employee Auth Code", "employeeAuthCode"),
+            ExportColumn.of("Indicator Id", "indicatorId"),
+            ExportColumn.of("Destination Phone", "destinationPhone"),
+            ExportColumn.of("Duration", "duration"),
+            ExportColumn.of("Ring Count", "ringCount"),
+            ExportColumn.of("Telephony Type Id", "telephonyTypeId"),
+            ExportColumn.of("Billed Amount", "billedAmount"),
+            ExportColumn.of("Price Per Minute", "pricePerMinute"),
+            ExportColumn.of("Initial Price", "initialPrice"),
+            ExportColumn.of("Is Incoming", "isIncoming"),
+            ExportColumn.of("Trunk", "trunk"),
+            ExportColumn.of("Initial Trunk", "initialTrunk"),
+            ExportColumn.of("Employee Id", "employeeId"),
+            ExportColumn.of("Employee Transfer", "employeeTransfer"),
+            ExportColumn.of("Transfer Cause", "transferCause"),
+            ExportColumn.of("Assignment Cause", "assignmentCause"),
+            ExportColumn.of("Destination Employee Id", "destinationEmployeeId"),
+            ExportColumn.of("File Info Id", "fileInfoId"));
+
+    // Tariffing computes amounts and rates at 4 decimals; a smaller scale would round them on export
+    private static final int AMOUNT_SCALE = 4;
+
+    private static final List<ParquetColumn> CALL_RECORD_PARQUET_COLUMNS = List.of(
+            ParquetColumn.of("id", "id", ParquetColumn.Type.INT64),
+            ParquetColumn.of("service_date", "serviceDate", ParquetColumn.Type.TIMESTAMP),
+            ParquetColumn.of("dial", "dial", ParquetColumn.Type.STRING),
+            ParquetColumn.of("destination_phone", "destinationPhone", ParquetColumn.Type.STRING),
+            ParquetColumn.of("duration", "duration", ParquetColumn.Type.INT32),
+            ParquetColumn.of("ring_count", "ringCount", ParquetColumn.Type.INT32),
+            ParquetColumn.decimal("billed_amount", "billedAmount", AMOUNT_SCALE),
+            ParquetColumn.decimal("price_per_minute", "pricePerMinute", AMOUNT_SCALE),
+            ParquetColumn.decimal("initial_price", "initialPrice", AMOUNT_SCALE),
+            ParquetColumn.of("is_incoming", "isIncoming", ParquetColumn.Type.BOOLEAN),
+            ParquetColumn.of("telephony_type_id", "telephonyTypeId", ParquetColumn.Type.INT64),
+            ParquetColumn.dictionary("telephony_type", "telephonyType.name", ParquetColumn.Type.STRING),
+            ParquetColumn.of("operator_id", "operatorId", ParquetColumn.Type.INT64),
+            ParquetColumn.dictionary("operator", "operator.name", ParquetColumn.Type.STRING),
+            ParquetColumn.of("indicator_id", "indicatorId", ParquetColumn.Type.INT64),
+            ParquetColumn.dictionary("trunk", "trunk", ParquetColumn.Type.STRING),
+            ParquetColumn.dictionary("initial_trunk", "initialTrunk", ParquetColumn.Type.STRING),
+            ParquetColumn.of("comm_location_id", "commLocationId", ParquetColumn.Type.INT64),
+            ParquetColumn.dictionary("comm_location", "commLocation.directory", ParquetColumn.Type.STRING),
+            ParquetColumn.dictionary("employee_extension", "employeeExtension", ParquetColumn.Type.STRING),
+            ParquetColumn.of("employee_auth_code", "employeeAuthCode", ParquetColumn.Type.STRING),
+            ParquetColumn.of("employee_id", "employeeId", ParquetColumn.Type.INT64),
+            ParquetColumn.dictionary("employee_name", "employee.name", ParquetColumn.Type.STRING),
+            ParquetColumn.of("employee_transfer", "employeeTransfer", ParquetColumn.Type.STRING),
+            ParquetColumn.of("transfer_cause", "transferCause", ParquetColumn.Type.INT32),
+            ParquetColumn.of("assignment_cause", "assignmentCause", ParquetColumn.Type.INT32),
+            ParquetColumn.of("destination_employee_id", "destinationEmployeeId", ParquetColumn.Type.INT64),
+            ParquetColumn.of("file_info_id", "fileInfoId", ParquetColumn.Type.INT64));
+
+    private static final List<ParquetColumn> FAILED_CALL_RECORD_PARQUET_COLUMNS = List.of(
+            ParquetColumn.of("id", "id", ParquetColumn.Type.INT64),
+            ParquetColumn.of("created_date", "createdDate", ParquetColumn.Type.TIMESTAMP),
+            ParquetColumn.dictionary("employee_extension", "employeeExtension", ParquetColumn.Type.STRING),
+            ParquetColumn.dictionary("error_type", "errorType", ParquetColumn.Type.STRING),
+            ParquetColumn.of("error_message", "errorMessage", ParquetColumn.Type.STRING),
+            ParquetColumn.of("original_call_record_id", "originalCallRecordId", ParquetColumn.Type.INT64),
+            ParquetColumn.of("file_info_id", "fileInfoId", ParquetColumn.Type.INT64),
+            ParquetColumn.of("comm_location_id", "commLocationId", ParquetColumn.Type.INT64),
+            ParquetColumn.dictionary("comm_location", "commLocation.directory", ParquetColumn.Type.STRING));
 
     private CallRecordDto callRecordDtoFromEntity(CallRecord entity) {
         if (entity == null) {
@@ -95,26 +182,41 @@ public class CallRecordReportService {
     }
 
     @Transactional(readOnly = true)
-    public Slice<CallRecordDto> generateCallRecordsReport(Specification<CallRecord> specification, Pageable pageable) {
-        Slice<CallRecord> callRecords = sliceableRepository.findAllAsSlice(CallRecord.class, specification, pageable);
-
-        List<CallRecordDto> dtos = callRecords.getContent()
-                .stream()
-                .map(this::callRecordDtoFromEntity)
-                .collect(Collectors.toList());
-
-        return new SliceImpl<>(dtos, pageable, callRecords.hasNext());
+    public KeysetSlice<CallRecordDto> generateCallRecordsReport(Specification<CallRecord> specification,
+            Pageable pageable, String cursor) {
+        return sliceableRepository.findAllAsKeysetSlice(CallRecord.class, specification, pageable, cursor)
+                .map(this::callRecordDtoFromEntity);
     }
 
+    /**
+     * Streams the selected columns straight from a database cursor into the
+     * sheet; no entity or DTO is built per row.
+     */
     public void exportExcelCallRecordsReport(Specification<CallRecord> specification, Sort sort, int maxRows,
             OutputStream outputStream, ExcelGeneratorBuilder builder) {
-        try {
-            builder.generateStreaming(outputStream, (page, size) ->
-                    generateCallRecordsReport(specification, PageRequest.of(page, size, sort)).getContent(),
-                    ExcelGeneratorBuilder.DEFAULT_STREAMING_PAGE_SIZE, maxRows);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        txTemplate.setReadOnly(true);
+        txTemplate.executeWithoutResult(status -> {
+            try {
+                builder.generateStreaming(outputStream, "CallRecord", CALL_RECORD_EXPORT_COLUMNS,
+                        columns -> projectionStreamRepository.stream(CallRecord.class, specification, sort,
+                                columns.stream().map(ExportColumn::path).toList()),
+                        maxRows);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * Parquet extract for analytics. Rows are ordered by service date, so each
+     * row group covers a narrow date range and readers can skip row groups by
+     * their min/max statistics.
+     */
+    public void exportParquetCallRecordsReport(Specification<CallRecord> specification, int maxRows,
+            OutputStream outputStream) {
+        writeParquet(CallRecord.class, specification, Sort.by("serviceDate", "id"), "call_record",
+                CALL_RECORD_PARQUET_COLUMNS, maxRows, outputStream);
     }
 
     private FailedCallRecordDto failedCallRecordDtofromEntity(FailedCallRecord entity) {
@@ -136,43 +238,57 @@ public class CallRecordReportService {
     }
 
     @Transactional(readOnly = true)
-    public Slice<FailedCallRecordDto> generateFailedCallRecordsReport(Specification<FailedCallRecord> specification,
-            Pageable pageable) {
-        Slice<FailedCallRecord> failedCallRecords = sliceableRepository.findAllAsSlice(FailedCallRecord.class,
-                specification, pageable);
-
-        List<FailedCallRecordDto> dtos = failedCallRecords.getContent()
-                .stream()
-                .map(this::failedCallRecordDtofromEntity)
-                .toList();
-
-        return new SliceImpl<>(dtos, pageable, failedCallRecords.hasNext());
+    public KeysetSlice<FailedCallRecordDto> generateFailedCallRecordsReport(
+            Specification<FailedCallRecord> specification, Pageable pageable, String cursor) {
+        return sliceableRepository.findAllAsKeysetSlice(FailedCallRecord.class, specification, pageable, cursor)
+                .map(this::failedCallRecordDtofromEntity);
     }
 
     public void exportExcelFailedCallRecordsReport(Specification<FailedCallRecord> specification,
             Sort sort, int maxRows, OutputStream outputStream, ExcelGeneratorBuilder builder) {
         try {
-            builder.generateStreaming(outputStream, (page, size) ->
-                    generateFailedCallRecordsReport(specification, PageRequest.of(page, size, sort)).getContent(),
+            builder.generateStreaming(outputStream,
+                    sliceableRepository.keysetPages(FailedCallRecord.class, specification, sort,
+                            this::failedCallRecordDtofromEntity),
                     ExcelGeneratorBuilder.DEFAULT_STREAMING_PAGE_SIZE, maxRows);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    public void exportParquetFailedCallRecordsReport(Specification<FailedCallRecord> specification, int maxRows,
+            OutputStream outputStream) {
+        writeParquet(FailedCallRecord.class, specification, Sort.by("createdDate", "id"), "failed_call_record",
+                FAILED_CALL_RECORD_PARQUET_COLUMNS, maxRows, outputStream);
+    }
+
+    private <T> void writeParquet(Class<T> domainClass, Specification<T> specification, Sort sort, String schemaName,
+            List<ParquetColumn> columns, int maxRows, OutputStream outputStream) {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        txTemplate.setReadOnly(true);
+        txTemplate.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = projectionStreamRepository.stream(domainClass, specification, sort,
+                    columns.stream().map(ParquetColumn::path).toList())) {
+                parquetExportWriter.write(outputStream, schemaName, columns, rows, maxRows);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
     @Transactional(readOnly = true)
-    public Slice<CorporateReportDto> generateCorporateReport(Specification<CorporateReportView> specification,
-            Pageable pageable) {
-        return modelConverter.mapSlice(
-                sliceableRepository.findAllAsSlice(CorporateReportView.class, specification, pageable),
-                CorporateReportDto.class);
+    public KeysetSlice<CorporateReportDto> generateCorporateReport(Specification<CorporateReportView> specification,
+            Pageable pageable, String cursor) {
+        return sliceableRepository.findAllAsKeysetSlice(CorporateReportView.class, specification, pageable, cursor)
+                .map(view -> modelConverter.map(view, CorporateReportDto.class));
     }
 
     public void exportExcelCorporateReport(Specification<CorporateReportView> specification,
             Sort sort, int maxRows, OutputStream outputStream, ExcelGeneratorBuilder builder) {
         try {
-            builder.generateStreaming(outputStream, (page, size) ->
-                    generateCorporateReport(specification, PageRequest.of(page, size, sort)).getContent(),
+            builder.generateStreaming(outputStream,
+                    sliceableRepository.keysetPages(CorporateReportView.class, specification, sort,
+                            view -> modelConverter.map(view, CorporateReportDto.class)),
                     ExcelGeneratorBuilder.DEFAULT_STREAMING_PAGE_SIZE, maxRows);
         } catch (IOException e) {
             throw new RuntimeException(e);
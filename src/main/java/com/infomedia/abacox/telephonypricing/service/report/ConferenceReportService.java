@@ -1,13 +1,19 @@
 package com.infomedia.abacox.telephonypricing.service.report;
 
+import com.infomedia.abacox.telephonypricing.component.cdrprocessing.ConferenceGroupService;
 import com.infomedia.abacox.telephonypricing.component.export.excel.ExcelGeneratorBuilder;
 import com.infomedia.abacox.telephonypricing.component.modeltools.ModelConverter;
 import com.infomedia.abacox.telephonypricing.component.utils.SortingUtils;
 import com.infomedia.abacox.telephonypricing.db.projection.ConferenceCandidateProjection;
+import com.infomedia.abacox.telephonypricing.db.projection.ConferenceGroupProjection;
+import com.infomedia.abacox.telephonypricing.db.projection.ConferenceParticipantProjection;
 import com.infomedia.abacox.telephonypricing.db.repository.ReportRepository;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import com.infomedia.abacox.telephonypricing.dto.report.ConferenceCallsReportDto;
 import com.infomedia.abacox.telephonypricing.dto.report.ConferenceGroupDto;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.SliceImpl;
@@ -24,10 +30,12 @@ import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Service
+@ConnectionWorkload(Workload.REPORTS)
 public class ConferenceReportService {
 
     private final ReportRepository reportRepository;
     private final ModelConverter modelConverter;
+    private final ConferenceGroupService conferenceGroupService;
 
     @Transactional(readOnly = true)
     public Slice<ConferenceGroupDto> generateConferenceCallsReport(
@@ -35,6 +43,11 @@ public class ConferenceReportService {
             String extension, String employeeName,
             Pageable pageable) {
 
+        if (conferenceGroupService.canServe()) {
+            return findConferenceGroups(startDate, endDate, extension, employeeName, pageable);
+        }
+
+        // Groups not built yet for this tenant: group the raw candidates in memory
         List<ConferenceCandidateProjection> rows = reportRepository.findConferenceCandidates(startDate, endDate,
                 extension, employeeName);
 
@@ -61,6 +74,35 @@ public class ConferenceReportService {
         return new SliceImpl<>(pageContent, pageable, hasNext);
     }
 
+    /**
+     * One page of the stored conference groups, with the participants of that
+     * page only.
+     */
+    private Slice<ConferenceGroupDto> findConferenceGroups(
+            LocalDateTime startDate, LocalDateTime endDate,
+            String extension, String employeeName,
+            Pageable pageable) {
+        Pageable effectivePageable = SortingUtils.applyDefaultSort(pageable,
+                Sort.by(Sort.Order.desc("conferenceServiceDate"), Sort.Order.desc("conferenceGroupId")));
+        Slice<ConferenceGroupProjection> groups = reportRepository.findConferenceGroups(startDate, endDate,
+                extension, employeeName, effectivePageable);
+
+        Map<Long, ConferenceGroupDto> groupsById = new LinkedHashMap<>();
+        for (ConferenceGroupProjection row : groups) {
+            ConferenceGroupDto group = modelConverter.map(row, ConferenceGroupDto.class);
+            group.setParticipants(new ArrayList<>());
+            groupsById.put(row.getConferenceGroupId(), group);
+        }
+        if (!groupsById.isEmpty()) {
+            for (ConferenceParticipantProjection row : reportRepository.findConferenceParticipants(groupsById.keySet())) {
+                groupsById.get(row.getConferenceGroupId()).getParticipants()
+                        .add(toParticipant(row, row.getTransferCause()));
+            }
+        }
+
+        return new SliceImpl<>(new ArrayList<>(groupsById.values()), pageable, groups.hasNext());
+    }
+
     private List<ConferenceGroupDto> groupCandidates(List<ConferenceCandidateProjection> rows) {
         List<ConferenceGroupDto> completedGroups = new ArrayList<>();
         if (rows == null || rows.isEmpty()) {
@@ -157,6 +199,16 @@ public class ConferenceReportService {
 
     private void addParticipantToGroup(ConferenceGroupDto group, ConferenceCandidateProjection row,
             Integer transferCause) {
+        ConferenceCallsReportDto dto = toParticipant(row, transferCause);
+
+        group.getParticipants().add(dto);
+        group.setParticipantCount(group.getParticipantCount() + 1L);
+        if (dto.getBilledAmount() != null) {
+            group.setTotalBilled(group.getTotalBilled().add(dto.getBilledAmount()));
+        }
+    }
+
+    private ConferenceCallsReportDto toParticipant(ConferenceCandidateProjection row, Integer transferCause) {
         ConferenceCallsReportDto dto = modelConverter.map(row, ConferenceCallsReportDto.class);
 
         if (transferCause != null && transferCause == 10) {
@@ -171,12 +223,7 @@ public class ConferenceReportService {
             dto.setSubdivisionId(row.getOrganizerSubdivisionId());
             dto.setSubdivisionName(row.getOrganizerSubdivisionName());
         }
-
-        group.getParticipants().add(dto);
-        group.setParticipantCount(group.getParticipantCount() + 1L);
-        if (dto.getBilledAmount() != null) {
-            group.setTotalBilled(group.getTotalBilled().add(dto.getBilledAmount()));
-        }
+        return dto;
     }
 
     private static class GroupContext {
@@ -195,7 +242,8 @@ public class ConferenceReportService {
             LocalDateTime startDate, LocalDateTime endDate,
             String extension, String employeeName,
             OutputStream outputStream, ExcelGeneratorBuilder builder) {
-        List<ConferenceGroupDto> allGroups = generateConferenceCallsReport(
+        boolean paged = conferenceGroupService.canServe();
+        List<ConferenceGroupDto> allGroups = paged ? List.of() : generateConferenceCallsReport(
                 startDate, endDate, extension, employeeName, Pageable.unpaged()).getContent();
         try {
             builder.withFlattenedCollection("participants")
@@ -208,9 +256,11 @@ public class ConferenceReportService {
                             "participants.subdivisionName", "participants.telephonyTypeName",
                             "participants.contactName",
                             "participants.companyName")
-                    .generateStreaming(outputStream, (page, size) ->
-                            page == 0 ? allGroups : Collections.emptyList(),
-                    allGroups.size() + 1);
+                    .generateStreaming(outputStream, (page, size) -> paged
+                                    ? generateConferenceCallsReport(startDate, endDate, extension, employeeName,
+                                            PageRequest.of(page, size)).getContent()
+                                    : page == 0 ? allGroups : Collections.<ConferenceGroupDto>emptyList(),
+                    paged ? ExcelGeneratorBuilder.DEFAULT_STREAMING_PAGE_SIZE : allGroups.size() + 1);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
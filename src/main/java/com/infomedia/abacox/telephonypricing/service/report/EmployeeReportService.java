@@ -4,6 +4,8 @@ import com.infomedia.abacox.telephonypricing.component.export.excel.ExcelGenerat
 import com.infomedia.abacox.telephonypricing.component.modeltools.ModelConverter;
 import com.infomedia.abacox.telephonypricing.component.utils.SortingUtils;
 import com.infomedia.abacox.telephonypricing.db.repository.ReportRepository;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import com.infomedia.abacox.telephonypricing.dto.report.EmployeeActivityReportDto;
 import com.infomedia.abacox.telephonypricing.dto.report.EmployeeCallReportDto;
 import com.infomedia.abacox.telephonypricing.dto.report.MissedCallEmployeeReportDto;
@@ -29,6 +31,7 @@ import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Service
+@ConnectionWorkload(Workload.REPORTS)
 public class EmployeeReportService {
 
     private final ReportRepository reportRepository;
@@ -6,6 +6,8 @@ import com.infomedia.abacox.telephonypricing.component.utils.SortingUtils;
 import com.infomedia.abacox.telephonypricing.db.entity.ExtensionList;
 import com.infomedia.abacox.telephonypricing.db.repository.ExtensionListRepository;
 import com.infomedia.abacox.telephonypricing.db.repository.ReportRepository;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import com.infomedia.abacox.telephonypricing.dto.report.ExtensionGroupDto;
 import com.infomedia.abacox.telephonypricing.dto.report.ExtensionGroupReportDto;
 import lombok.RequiredArgsConstructor;
@@ -24,6 +26,7 @@ import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Service
+@ConnectionWorkload(Workload.REPORTS)
 public class ExtensionGroupReportService {
 
     private final ReportRepository reportRepository;
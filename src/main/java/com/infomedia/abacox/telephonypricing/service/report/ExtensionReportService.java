@@ -1,9 +1,12 @@
 package com.infomedia.abacox.telephonypricing.service.report;
 
+import com.infomedia.abacox.telephonypricing.component.cdrprocessing.ExtensionActivityService;
 import com.infomedia.abacox.telephonypricing.component.export.excel.ExcelGeneratorBuilder;
 import com.infomedia.abacox.telephonypricing.component.modeltools.ModelConverter;
 import com.infomedia.abacox.telephonypricing.component.utils.SortingUtils;
 import com.infomedia.abacox.telephonypricing.db.repository.ReportRepository;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import com.infomedia.abacox.telephonypricing.dto.report.UnusedExtensionReportDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
@@ -19,18 +22,22 @@ import java.time.LocalDateTime;
 
 @RequiredArgsConstructor
 @Service
+@ConnectionWorkload(Workload.REPORTS)
 public class ExtensionReportService {
 
     private final ReportRepository reportRepository;
     private final ModelConverter modelConverter;
+    private final ExtensionActivityService extensionActivityService;
 
     @Transactional(readOnly = true)
     public Slice<UnusedExtensionReportDto> generateUnusedExtensionReport(String employeeName, String extension,
             LocalDateTime startDate, LocalDateTime endDate,
             Pageable pageable) {
-        return modelConverter.mapSlice(
-                reportRepository.getUnusedExtensionReport(startDate, endDate, employeeName, extension,
-                        SortingUtils.applyDefaultSort(pageable, Sort.by("extension"))),
+        Pageable sorted = SortingUtils.applyDefaultSort(pageable, Sort.by("extension"));
+        return modelConverter.mapSlice(extensionActivityService.canServe(startDate, endDate)
+                        ? reportRepository.getUnusedExtensionReportFromActivity(startDate, endDate, employeeName,
+                                extension, sorted)
+                        : reportRepository.getUnusedExtensionReport(startDate, endDate, employeeName, extension, sorted),
                 UnusedExtensionReportDto.class);
     }
 
@@ -0,0 +1,279 @@
+package com.infomedia.abacox.telephonypricing.service.report;
+
+import com.infomedia.abacox.telephonypricing.component.configmanager.StorageKey;
+import com.infomedia.abacox.telephonypricing.component.utils.XXHash128Util;
+import com.infomedia.abacox.telephonypricing.db.entity.ReportJob;
+import com.infomedia.abacox.telephonypricing.db.repository.ReportJobRepository;
+import com.infomedia.abacox.telephonypricing.exception.ResourceNotFoundException;
+import com.infomedia.abacox.telephonypricing.multitenancy.MultitenantRunner;
+import com.infomedia.abacox.telephonypricing.multitenancy.TenantAwareTaskDecorator;
+import com.infomedia.abacox.telephonypricing.multitenancy.TenantContext;
+import com.infomedia.abacox.telephonypricing.multitenancy.TenantInitializer;
+import com.infomedia.abacox.telephonypricing.service.MinioStorageService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ValidationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs report exports in the background and keeps their files in the tenant's
+ * REPORTS bucket, so long exports do not depend on the HTTP request staying
+ * open.
+ * <p>
+ * Jobs are keyed by a hash of the export path and its request parameters. A
+ * request matching a pending, running or unexpired completed job gets that
+ * job back instead of starting another export.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class ReportJobService implements TenantInitializer {
+
+    private static final List<ReportJob.Status> REUSABLE_STATUSES =
+            List.of(ReportJob.Status.PENDING, ReportJob.Status.RUNNING, ReportJob.Status.COMPLETED);
+    private static final List<ReportJob.Status> UNFINISHED_STATUSES =
+            List.of(ReportJob.Status.PENDING, ReportJob.Status.RUNNING);
+
+    // Parameters that choose how the export is delivered, not what it contains
+    private static final Set<String> IGNORED_PARAMETERS = Set.of("async");
+
+    private final ReportJobRepository reportJobRepository;
+    private final MinioStorageService minioStorageService;
+    private final MultitenantRunner multitenantRunner;
+
+    @Value("${app.report.jobs.threads:2}")
+    private int threads;
+
+    @Value("${app.report.jobs.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Value("${app.report.jobs.retention-hours:24}")
+    private long retentionHours;
+
+    private ThreadPoolTaskExecutor jobExecutor;
+
+    // Serializes lookup and insert so identical concurrent requests get the same job
+    private final Object submitLock = new Object();
+
+    @PostConstruct
+    void startJobExecutor() {
+        jobExecutor = new ThreadPoolTaskExecutor();
+        jobExecutor.setCorePoolSize(threads);
+        jobExecutor.setMaxPoolSize(threads);
+        jobExecutor.setQueueCapacity(queueCapacity);
+        jobExecutor.setThreadNamePrefix("report-job-");
+        jobExecutor.setTaskDecorator(new TenantAwareTaskDecorator());
+        jobExecutor.initialize();
+    }
+
+    @PreDestroy
+    void stopJobExecutor() {
+        jobExecutor.shutdown();
+    }
+
+    /**
+     * Jobs still pending or running belonged to a previous run of the
+     * application; their exports were lost with it.
+     */
+    @Override
+    public void onTenantInit(String tenantId) {
+        if (tenantId == null || "public".equals(tenantId)) return;
+        List<ReportJob> interrupted = reportJobRepository.findByStatusIn(UNFINISHED_STATUSES);
+        for (ReportJob job : interrupted) {
+            markFailed(job, "Interrupted by an application restart");
+        }
+        if (!interrupted.isEmpty()) {
+            log.info("Marked {} interrupted report jobs as failed for tenant [{}]", interrupted.size(), tenantId);
+        }
+    }
+
+    /**
+     * Returns the job producing the export described by {@code report} and
+     * {@code parameters}, queueing {@code body} if there is none yet.
+     *
+     * @param report      path of the export endpoint
+     * @param parameters  request parameters of the export
+     * @param fileName    name the file is downloaded with
+     * @param contentType MIME type of the file
+     * @param body        writes the export; runs on the job executor
+     */
+    public ReportJob submit(String report, Map<String, String[]> parameters, String fileName, String contentType,
+                            StreamingResponseBody body) {
+        if (!minioStorageService.isReady()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Report storage is not available");
+        }
+        UUID parameterHash = parameterHash(report, parameters);
+
+        ReportJob job;
+        synchronized (submitLock) {
+            Optional<ReportJob> existing = reportJobRepository
+                    .findFirstByParameterHashAndStatusInOrderByIdDesc(parameterHash, REUSABLE_STATUSES)
+                    .filter(ReportJobService::isReusable);
+            if (existing.isPresent()) {
+                log.debug("Reusing report job {} ({}) for {}", existing.get().getId(), existing.get().getStatus(), report);
+                return existing.get();
+            }
+            job = reportJobRepository.save(ReportJob.builder()
+                    .report(report)
+                    .parameterHash(parameterHash)
+                    .status(ReportJob.Status.PENDING)
+                    .fileName(fileName)
+                    .contentType(contentType)
+                    .build());
+        }
+
+        Long jobId = job.getId();
+        try {
+            jobExecutor.execute(() -> run(jobId, body));
+        } catch (RejectedExecutionException e) {
+            markFailed(job, "Report job queue is full");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many report jobs are queued, try again later");
+        }
+        log.info("Queued report job {} for {}", jobId, report);
+        return job;
+    }
+
+    public ReportJob get(Long id) {
+        return reportJobRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException(ReportJob.class, id));
+    }
+
+    /**
+     * Returns the job if its file is ready to download.
+     */
+    public ReportJob getCompleted(Long id) {
+        ReportJob job = get(id);
+        if (job.getStatus() != ReportJob.Status.COMPLETED) {
+            throw new ValidationException("Report job " + id + " is " + job.getStatus() + ", its file is not available");
+        }
+        return job;
+    }
+
+    /**
+     * Opens the result file of a completed job. Caller is responsible for
+     * closing the stream.
+     */
+    public InputStream openResult(ReportJob job) {
+        return minioStorageService.downloadFile(job.getStorageBucket(), job.getStorageObjectName());
+    }
+
+    /**
+     * Deletes expired jobs and their files for every tenant.
+     */
+    @Scheduled(fixedDelayString = "${app.report.jobs.cleanup-interval-ms:3600000}", initialDelay = 300000)
+    public void purgeExpiredJobs() {
+        if (!minioStorageService.isReady()) {
+            return;
+        }
+        multitenantRunner.runForAllTenants(tenant -> {
+            List<ReportJob> expired = reportJobRepository.findByExpiresAtBefore(LocalDateTime.now());
+            for (ReportJob job : expired) {
+                if (job.getStorageObjectName() != null) {
+                    minioStorageService.deleteFile(tenant, StorageKey.REPORTS, job.getStorageObjectName());
+                }
+            }
+            reportJobRepository.deleteAll(expired);
+            if (!expired.isEmpty()) {
+                log.debug("Purged {} expired report jobs for tenant [{}]", expired.size(), tenant);
+            }
+        });
+    }
+
+    private void run(Long jobId, StreamingResponseBody body) {
+        ReportJob job = reportJobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        job.setStatus(ReportJob.Status.RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        job = reportJobRepository.save(job);
+
+        Path file = null;
+        try {
+            // Spooled to disk first: the export size is unknown until it is written
+            file = Files.createTempFile("report-job-" + jobId + "-", ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                body.writeTo(out);
+            }
+            long size = Files.size(file);
+            MinioStorageService.MinioUploadResult upload;
+            try (InputStream in = Files.newInputStream(file)) {
+                upload = minioStorageService.uploadFile(TenantContext.getTenant(), StorageKey.REPORTS,
+                        "job-" + jobId, in, size, job.getContentType());
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            job.setStatus(ReportJob.Status.COMPLETED);
+            job.setStorageBucket(upload.bucketName());
+            job.setStorageObjectName(upload.objectName());
+            job.setSize(size);
+            job.setCompletedAt(now);
+            job.setExpiresAt(now.plusHours(retentionHours));
+            reportJobRepository.save(job);
+            log.info("Report job {} for {} completed ({} bytes)", jobId, job.getReport(), size);
+        } catch (Exception e) {
+            log.error("Report job {} for {} failed", jobId, job.getReport(), e);
+            markFailed(job, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Could not delete temporary file {} of report job {}", file, jobId, e);
+                }
+            }
+        }
+    }
+
+    private void markFailed(ReportJob job, String errorMessage) {
+        LocalDateTime now = LocalDateTime.now();
+        job.setStatus(ReportJob.Status.FAILED);
+        job.setErrorMessage(errorMessage);
+        job.setCompletedAt(now);
+        // Failed jobs are never reused; they are kept for the retention period so callers can see why
+        job.setExpiresAt(now.plusHours(retentionHours));
+        reportJobRepository.save(job);
+    }
+
+    private static boolean isReusable(ReportJob job) {
+        return job.getStatus() != ReportJob.Status.COMPLETED
+                || job.getExpiresAt() == null
+                || job.getExpiresAt().isAfter(LocalDateTime.now());
+    }
+
+    static UUID parameterHash(String report, Map<String, String[]> parameters) {
+        StringBuilder key = new StringBuilder(report);
+        new TreeMap<>(parameters).forEach((name, values) -> {
+            if (IGNORED_PARAMETERS.contains(name)) return;
+            key.append('\n').append(name);
+            for (String value : values) {
+                key.append('\u001f').append(value);
+            }
+        });
+        return XXHash128Util.hash(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,11 +1,14 @@
 package com.infomedia.abacox.telephonypricing.service.report;
 
+import com.infomedia.abacox.telephonypricing.component.cdrprocessing.CallRecordRollupService;
 import com.infomedia.abacox.telephonypricing.component.export.excel.ExcelGeneratorBuilder;
 import com.infomedia.abacox.telephonypricing.component.modeltools.ModelConverter;
 import com.infomedia.abacox.telephonypricing.component.utils.SortingUtils;
 import com.infomedia.abacox.telephonypricing.db.projection.MonthlySubdivisionUsage;
 import com.infomedia.abacox.telephonypricing.db.projection.SubdivisionTelephonyTypeBreakdown;
 import com.infomedia.abacox.telephonypricing.db.repository.ReportRepository;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import com.infomedia.abacox.telephonypricing.dto.report.MonthlyCostDto;
 import com.infomedia.abacox.telephonypricing.dto.report.MonthlySubdivisionUsageReportDto;
 import com.infomedia.abacox.telephonypricing.dto.report.SubdivisionUsageByTypeReportDto;
@@ -30,17 +33,21 @@ import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Service
+@ConnectionWorkload(Workload.REPORTS)
 public class SubdivisionReportService {
 
     private final ReportRepository reportRepository;
     private final ModelConverter modelConverter;
+    private final CallRecordRollupService callRecordRollupService;
 
     @Transactional(readOnly = true)
     public Slice<SubdivisionUsageReportDto> generateSubdivisionUsageReport(
             LocalDateTime startDate, LocalDateTime endDate, Long parentSubdivisionId, Pageable pageable) {
+        Pageable sorted = SortingUtils.applyDefaultSort(pageable, Sort.by("subdivisionName"));
         return modelConverter.mapSlice(
-                reportRepository.getSubdivisionUsageReport(startDate, endDate, parentSubdivisionId,
-                        SortingUtils.applyDefaultSort(pageable, Sort.by("subdivisionName"))),
+                callRecordRollupService.canServe(startDate, endDate)
+                        ? reportRepository.getSubdivisionUsageReportFromRollup(startDate, endDate, parentSubdivisionId, sorted)
+                        : reportRepository.getSubdivisionUsageReport(startDate, endDate, parentSubdivisionId, sorted),
                 SubdivisionUsageReportDto.class);
     }
 
@@ -1,9 +1,14 @@
 package com.infomedia.abacox.telephonypricing.service.report;
 
+import com.infomedia.abacox.telephonypricing.component.cdrprocessing.CallRecordRollupService;
 import com.infomedia.abacox.telephonypricing.component.export.excel.ExcelGeneratorBuilder;
 import com.infomedia.abacox.telephonypricing.component.modeltools.ModelConverter;
 import com.infomedia.abacox.telephonypricing.component.utils.SortingUtils;
+import com.infomedia.abacox.telephonypricing.db.projection.MonthlyTelephonyTypeUsageGroupRow;
+import com.infomedia.abacox.telephonypricing.db.projection.TelephonyTypeUsageGroupRow;
 import com.infomedia.abacox.telephonypricing.db.repository.ReportRepository;
+import com.infomedia.abacox.telephonypricing.db.routing.ConnectionWorkload;
+import com.infomedia.abacox.telephonypricing.db.routing.Workload;
 import com.infomedia.abacox.telephonypricing.dto.report.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
@@ -23,93 +28,58 @@ import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Service
+@ConnectionWorkload(Workload.REPORTS)
 public class TelephonyUsageReportService {
 
         private final ReportRepository reportRepository;
         private final ModelConverter modelConverter;
+        private final CallRecordRollupService callRecordRollupService;
 
         @Transactional(readOnly = true)
         public Slice<TelephonyTypeUsageGroupDto> generateTelephonyTypeUsageReport(
                         LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
-
-                List<com.infomedia.abacox.telephonypricing.db.projection.TelephonyTypeUsageReport> rows = reportRepository
-                                .getTelephonyTypeUsageReport(startDate, endDate, Pageable.unpaged()).getContent();
-
-                List<TelephonyTypeUsageReportDto> allDtoRows = rows.stream()
-                                .map(row -> modelConverter.map(row, TelephonyTypeUsageReportDto.class))
-                                .collect(Collectors.toList());
-
-                Map<String, List<TelephonyTypeUsageReportDto>> grouped = allDtoRows.stream()
-                                .collect(Collectors.groupingBy(
-                                                dto -> dto.getTelephonyCategoryName() != null
-                                                                ? dto.getTelephonyCategoryName()
-                                                                : "Sin Categoría",
-                                                LinkedHashMap::new,
-                                                Collectors.toList()));
-
+                boolean descending = isDescending(pageable, "categoryName");
+                long groupOffset = pageable.isPaged() ? pageable.getOffset() : 0;
+                // One extra category tells whether there is a next slice
+                long groupLimit = pageable.isPaged() ? pageable.getPageSize() + 1L : -1;
+
+                List<TelephonyTypeUsageGroupRow> rows = callRecordRollupService.canServe(startDate, endDate)
+                                ? reportRepository.getTelephonyTypeUsageGroupsFromRollup(startDate, endDate,
+                                                descending, groupOffset, groupLimit)
+                                : reportRepository.getTelephonyTypeUsageGroups(startDate, endDate,
+                                                descending, groupOffset, groupLimit);
+
+                // Rows come ordered by category rank, items before their subtotal
                 List<TelephonyTypeUsageGroupDto> groups = new ArrayList<>();
-                for (Map.Entry<String, List<TelephonyTypeUsageReportDto>> entry : grouped.entrySet()) {
-                        String categoryName = entry.getKey();
-                        List<TelephonyTypeUsageReportDto> items = entry.getValue();
-
-                        TelephonyTypeUsageReportDto subtotal = new TelephonyTypeUsageReportDto();
-                        subtotal.setTelephonyCategoryName(categoryName);
-                        subtotal.setTelephonyTypeName("Subtotal");
-                        subtotal.setIncomingCallCount(
-                                        items.stream().mapToLong(TelephonyTypeUsageReportDto::getIncomingCallCount)
-                                                        .sum());
-                        subtotal.setOutgoingCallCount(
-                                        items.stream().mapToLong(TelephonyTypeUsageReportDto::getOutgoingCallCount)
-                                                        .sum());
-                        subtotal.setTotalDuration(
-                                        items.stream().mapToLong(TelephonyTypeUsageReportDto::getTotalDuration).sum());
-                        subtotal.setTotalBilledAmount(items.stream()
-                                        .map(TelephonyTypeUsageReportDto::getTotalBilledAmount)
-                                        .filter(Objects::nonNull)
-                                        .reduce(BigDecimal.ZERO, BigDecimal::add));
-
-                        subtotal.setDurationPercentage(items.stream()
-                                        .map(TelephonyTypeUsageReportDto::getDurationPercentage)
-                                        .filter(Objects::nonNull)
-                                        .reduce(BigDecimal.ZERO, BigDecimal::add));
-                        subtotal.setBilledAmountPercentage(items.stream()
-                                        .map(TelephonyTypeUsageReportDto::getBilledAmountPercentage)
-                                        .filter(Objects::nonNull)
-                                        .reduce(BigDecimal.ZERO, BigDecimal::add));
-
-                        groups.add(new TelephonyTypeUsageGroupDto(categoryName, items, subtotal));
-                }
-
-                SortingUtils.sort(groups, pageable.getSort(), Sort.by("categoryName"));
-
-                if (pageable.isUnpaged()) {
-                        return new SliceImpl<>(groups, pageable, false);
-                }
-
-                int start = (int) pageable.getOffset();
-                int end = Math.min((start + pageable.getPageSize()), groups.size());
-
-                List<TelephonyTypeUsageGroupDto> pageContent;
-                if (start > groups.size()) {
-                        pageContent = Collections.emptyList();
-                } else {
-                        pageContent = groups.subList(start, end);
+                TelephonyTypeUsageGroupDto group = null;
+                Long rank = null;
+                for (TelephonyTypeUsageGroupRow row : rows) {
+                        if (!row.getCategoryRank().equals(rank)) {
+                                rank = row.getCategoryRank();
+                                group = new TelephonyTypeUsageGroupDto(null, new ArrayList<>(), null);
+                                groups.add(group);
+                        }
+                        TelephonyTypeUsageReportDto dto = modelConverter.map(row, TelephonyTypeUsageReportDto.class);
+                        if (Boolean.TRUE.equals(row.getSubtotal())) {
+                                group.setCategoryName(dto.getTelephonyCategoryName());
+                                group.setSubtotal(dto);
+                        } else {
+                                group.getItems().add(dto);
+                        }
                 }
 
-                boolean hasNext = end < groups.size();
-                return new SliceImpl<>(pageContent, pageable, hasNext);
+                return toSlice(groups, pageable);
         }
 
         public void exportExcelTelephonyTypeUsageReport(
                         LocalDateTime startDate, LocalDateTime endDate,
                         OutputStream outputStream, ExcelGeneratorBuilder builder) {
-                List<TelephonyTypeUsageGroupDto> allGroups = generateTelephonyTypeUsageReport(startDate, endDate,
-                                Pageable.unpaged()).getContent();
                 try {
                         builder.withFlattenedCollection("items")
                                         .generateStreaming(outputStream, (page, size) ->
-                                                page == 0 ? allGroups : Collections.emptyList(),
-                                        allGroups.size() + 1);
+                                                generateTelephonyTypeUsageReport(startDate, endDate,
+                                                        PageRequest.of(page, size)).getContent(),
+                                        ExcelGeneratorBuilder.DEFAULT_STREAMING_PAGE_SIZE);
                 } catch (IOException e) {
                         throw new RuntimeException(e);
                 }
@@ -118,85 +88,47 @@ public class TelephonyUsageReportService {
         @Transactional(readOnly = true)
         public Slice<MonthlyTelephonyTypeUsageGroupDto> generateMonthlyTelephonyTypeUsageReport(
                         LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
-                List<com.infomedia.abacox.telephonypricing.db.projection.MonthlyTelephonyTypeUsageReport> rows = reportRepository
-                                .getMonthlyTelephonyTypeUsageReport(startDate, endDate, Pageable.unpaged())
-                                .getContent();
+                boolean descending = isDescending(pageable, "telephonyTypeName");
+                long groupOffset = pageable.isPaged() ? pageable.getOffset() : 0;
+                long groupLimit = pageable.isPaged() ? pageable.getPageSize() + 1L : -1;
 
-                List<MonthlyTelephonyTypeUsageReportDto> allDtoRows = rows.stream()
-                                .map(row -> modelConverter.map(row, MonthlyTelephonyTypeUsageReportDto.class))
-                                .collect(Collectors.toList());
-
-                Map<String, List<MonthlyTelephonyTypeUsageReportDto>> grouped = allDtoRows.stream()
-                                .collect(Collectors.groupingBy(
-                                                MonthlyTelephonyTypeUsageReportDto::getTelephonyTypeName,
-                                                LinkedHashMap::new,
-                                                Collectors.toList()));
+                List<MonthlyTelephonyTypeUsageGroupRow> rows = callRecordRollupService.canServe(startDate, endDate)
+                                ? reportRepository.getMonthlyTelephonyTypeUsageGroupsFromRollup(startDate, endDate,
+                                                descending, groupOffset, groupLimit)
+                                : reportRepository.getMonthlyTelephonyTypeUsageGroups(startDate, endDate,
+                                                descending, groupOffset, groupLimit);
 
                 List<MonthlyTelephonyTypeUsageGroupDto> groups = new ArrayList<>();
-                for (Map.Entry<String, List<MonthlyTelephonyTypeUsageReportDto>> entry : grouped.entrySet()) {
-                        String typeName = entry.getKey();
-                        List<MonthlyTelephonyTypeUsageReportDto> items = entry.getValue();
-
-                        MonthlyTelephonyTypeUsageReportDto subtotal = new MonthlyTelephonyTypeUsageReportDto();
-                        subtotal.setTelephonyTypeName(typeName);
-                        subtotal.setIncomingCallCount(
-                                        items.stream().mapToLong(
-                                                        MonthlyTelephonyTypeUsageReportDto::getIncomingCallCount)
-                                                        .sum());
-                        subtotal.setOutgoingCallCount(
-                                        items.stream().mapToLong(
-                                                        MonthlyTelephonyTypeUsageReportDto::getOutgoingCallCount)
-                                                        .sum());
-                        subtotal.setTotalDuration(
-                                        items.stream().mapToLong(MonthlyTelephonyTypeUsageReportDto::getTotalDuration)
-                                                        .sum());
-                        subtotal.setTotalBilledAmount(items.stream()
-                                        .map(MonthlyTelephonyTypeUsageReportDto::getTotalBilledAmount)
-                                        .filter(Objects::nonNull)
-                                        .reduce(BigDecimal.ZERO, BigDecimal::add));
-
-                        subtotal.setDurationPercentage(items.stream()
-                                        .map(MonthlyTelephonyTypeUsageReportDto::getDurationPercentage)
-                                        .filter(Objects::nonNull)
-                                        .reduce(BigDecimal.ZERO, BigDecimal::add));
-                        subtotal.setBilledAmountPercentage(items.stream()
-                                        .map(MonthlyTelephonyTypeUsageReportDto::getBilledAmountPercentage)
-                                        .filter(Objects::nonNull)
-                                        .reduce(BigDecimal.ZERO, BigDecimal::add));
-
-                        groups.add(new MonthlyTelephonyTypeUsageGroupDto(typeName, items, subtotal));
-                }
-
-                SortingUtils.sort(groups, pageable.getSort(), Sort.by("telephonyTypeName"));
-
-                if (pageable.isUnpaged()) {
-                        return new SliceImpl<>(groups, pageable, false);
-                }
-
-                int start = (int) pageable.getOffset();
-                int end = Math.min((start + pageable.getPageSize()), groups.size());
-
-                List<MonthlyTelephonyTypeUsageGroupDto> pageContent;
-                if (start > groups.size()) {
-                        pageContent = Collections.emptyList();
-                } else {
-                        pageContent = groups.subList(start, end);
+                MonthlyTelephonyTypeUsageGroupDto group = null;
+                Long rank = null;
+                for (MonthlyTelephonyTypeUsageGroupRow row : rows) {
+                        if (!row.getGroupRank().equals(rank)) {
+                                rank = row.getGroupRank();
+                                group = new MonthlyTelephonyTypeUsageGroupDto(row.getTelephonyTypeName(),
+                                                new ArrayList<>(), null);
+                                groups.add(group);
+                        }
+                        MonthlyTelephonyTypeUsageReportDto dto = modelConverter.map(row,
+                                        MonthlyTelephonyTypeUsageReportDto.class);
+                        if (Boolean.TRUE.equals(row.getSubtotal())) {
+                                group.setSubtotal(dto);
+                        } else {
+                                group.getItems().add(dto);
+                        }
                 }
 
-                boolean hasNext = end < groups.size();
-                return new SliceImpl<>(pageContent, pageable, hasNext);
+                return toSlice(groups, pageable);
         }
 
         public void exportExcelMonthlyTelephonyTypeUsageReport(
                         LocalDateTime startDate, LocalDateTime endDate,
                         OutputStream outputStream, ExcelGeneratorBuilder builder) {
-                List<MonthlyTelephonyTypeUsageGroupDto> allGroups = generateMonthlyTelephonyTypeUsageReport(
-                                startDate, endDate, Pageable.unpaged()).getContent();
                 try {
                         builder.withFlattenedCollection("items")
                                         .generateStreaming(outputStream, (page, size) ->
-                                                page == 0 ? allGroups : Collections.emptyList(),
-                                        allGroups.size() + 1);
+                                                generateMonthlyTelephonyTypeUsageReport(startDate, endDate,
+                                                        PageRequest.of(page, size)).getContent(),
+                                        ExcelGeneratorBuilder.DEFAULT_STREAMING_PAGE_SIZE);
                 } catch (IOException e) {
                         throw new RuntimeException(e);
                 }
@@ -209,9 +141,7 @@ public class TelephonyUsageReportService {
         @Transactional(readOnly = true)
         public CostCenterUsageTotalsDto getCostCenterUsageTotals(
                         LocalDateTime startDate, LocalDateTime endDate, Long parentCostCenterId) {
-                List<CostCenterUsageReportDto> allRows = reportRepository
-                                .getCostCenterUsageReport(startDate, endDate, parentCostCenterId, Pageable.unpaged())
-                                .getContent()
+                List<CostCenterUsageReportDto> allRows = findCostCenterUsage(startDate, endDate, parentCostCenterId)
                                 .stream()
                                 .map(row -> modelConverter.map(row, CostCenterUsageReportDto.class))
                                 .collect(Collectors.toList());
@@ -246,48 +176,26 @@ public class TelephonyUsageReportService {
         @Transactional(readOnly = true)
         public Slice<CostCenterUsageReportDto> generateCostCenterUsageReport(
                         LocalDateTime startDate, LocalDateTime endDate, Long parentCostCenterId, Pageable pageable) {
-                List<CostCenterUsageReportDto> allRows = reportRepository
-                                .getCostCenterUsageReport(startDate, endDate, parentCostCenterId, Pageable.unpaged())
-                                .getContent()
-                                .stream()
-                                .map(row -> modelConverter.map(row, CostCenterUsageReportDto.class))
-                                .collect(Collectors.toList());
-
-                // Drop the synthetic unrelated/unassigned row (costCenterId == -1)
-                List<CostCenterUsageReportDto> assignedRows = allRows.stream()
-                                .filter(r -> r.getCostCenterId() == null || r.getCostCenterId() != -1L)
-                                .collect(Collectors.toList());
-
-                SortingUtils.sort(assignedRows, pageable.getSort(), Sort.by(Sort.Direction.DESC, "totalBilledAmount"));
-
-                if (pageable.isUnpaged()) {
-                        return new SliceImpl<>(assignedRows, pageable, false);
-                }
-
-                int start = (int) pageable.getOffset();
-                int end = Math.min((start + pageable.getPageSize()), assignedRows.size());
-
-                List<CostCenterUsageReportDto> pageContent;
-                if (start > assignedRows.size()) {
-                        pageContent = Collections.emptyList();
-                } else {
-                        pageContent = assignedRows.subList(start, end);
-                }
-
-                boolean hasNext = end < assignedRows.size();
-                return new SliceImpl<>(pageContent, pageable, hasNext);
+                // The synthetic unrelated/unassigned row (costCenterId == -1) is left out in SQL
+                Pageable effectivePageable = SortingUtils.applyDefaultSort(pageable,
+                                Sort.by(Sort.Order.desc("totalBilledAmount"), Sort.Order.asc("costCenterId")));
+                return modelConverter.mapSlice(callRecordRollupService.canServe(startDate, endDate)
+                                                ? reportRepository.getAssignedCostCenterUsageReportFromRollup(startDate, endDate,
+                                                                parentCostCenterId, effectivePageable)
+                                                : reportRepository.getAssignedCostCenterUsageReport(startDate, endDate,
+                                                                parentCostCenterId, effectivePageable),
+                                CostCenterUsageReportDto.class);
         }
 
         public void exportExcelCostCenterUsageReport(
                         LocalDateTime startDate, LocalDateTime endDate, Long parentCostCenterId,
                         OutputStream outputStream, ExcelGeneratorBuilder builder) {
-                List<CostCenterUsageReportDto> allRows = generateCostCenterUsageReport(
-                                startDate, endDate, parentCostCenterId, Pageable.unpaged()).getContent();
                 try {
                         builder.excludeField("originCountryId")
                                         .generateStreaming(outputStream, (page, size) ->
-                                                page == 0 ? allRows : Collections.emptyList(),
-                                        allRows.size() + 1);
+                                                generateCostCenterUsageReport(startDate, endDate, parentCostCenterId,
+                                                        PageRequest.of(page, size)).getContent(),
+                                        ExcelGeneratorBuilder.DEFAULT_STREAMING_PAGE_SIZE);
                 } catch (IOException e) {
                         throw new RuntimeException(e);
                 }
@@ -338,4 +246,26 @@ public class TelephonyUsageReportService {
                         throw new RuntimeException(e);
                 }
         }
+
+        private List<com.infomedia.abacox.telephonypricing.db.projection.CostCenterUsageReport> findCostCenterUsage(
+                        LocalDateTime startDate, LocalDateTime endDate, Long parentCostCenterId) {
+                return (callRecordRollupService.canServe(startDate, endDate)
+                                ? reportRepository.getCostCenterUsageReportFromRollup(startDate, endDate, parentCostCenterId, Pageable.unpaged())
+                                : reportRepository.getCostCenterUsageReport(startDate, endDate, parentCostCenterId, Pageable.unpaged()))
+                                .getContent();
+        }
+
+        private static boolean isDescending(Pageable pageable, String groupProperty) {
+                Sort.Order order = pageable.getSort().getOrderFor(groupProperty);
+                return order != null && order.isDescending();
+        }
+
+        // The group queries return one group more than a page when there is a next slice
+        private static <T> Slice<T> toSlice(List<T> groups, Pageable pageable) {
+                if (pageable.isUnpaged()) {
+                        return new SliceImpl<>(groups, pageable, false);
+                }
+                boolean hasNext = groups.size() > pageable.getPageSize();
+                return new SliceImpl<>(hasNext ? groups.subList(0, pageable.getPageSize()) : groups, pageable, hasNext);
+        }
 }